@@ -0,0 +1,165 @@
+package com.glmapper.ai.chat.memory.codec;
+
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.SystemMessage;
+import org.springframework.ai.chat.messages.ToolResponseMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @Classname MessageCodec
+ * @Description Message 的紧凑二进制编码
+ * <p>
+ * 格式：[type:1 byte][text][扩展字段]，字符串统一为 varint(长度 + 1) + UTF-8 字节，长度前缀为 0 表示 null。
+ * ASSISTANT 额外保存 toolCalls，TOOL 额外保存 responses；与 JdbcChatMemoryRepository 一致，不保存 metadata。
+ * 角色只占 1 个字节，不再为每条消息保留完整的 Message 对象图。
+ * local 模块的本地存储与 redis 模块的 list 元素共用这一格式，varint 与字符串的读写也供 local 模块的记录格式使用。
+ * </p>
+ * @Date 2025/6/20 10:12
+ * @Created by glmapper
+ */
+public final class MessageCodec {
+
+    static final byte USER = 1;
+    static final byte ASSISTANT = 2;
+    static final byte SYSTEM = 3;
+    static final byte TOOL = 4;
+
+    private MessageCodec() {
+    }
+
+    public static byte[] encode(Message message) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(estimateSize(message));
+        switch (message.getMessageType()) {
+            case USER -> {
+                out.write(USER);
+                writeString(out, message.getText());
+            }
+            case SYSTEM -> {
+                out.write(SYSTEM);
+                writeString(out, message.getText());
+            }
+            case ASSISTANT -> {
+                out.write(ASSISTANT);
+                writeString(out, message.getText());
+                List<AssistantMessage.ToolCall> toolCalls = ((AssistantMessage) message).getToolCalls();
+                writeVarInt(out, toolCalls.size());
+                for (AssistantMessage.ToolCall toolCall : toolCalls) {
+                    writeString(out, toolCall.id());
+                    writeString(out, toolCall.type());
+                    writeString(out, toolCall.name());
+                    writeString(out, toolCall.arguments());
+                }
+            }
+            case TOOL -> {
+                out.write(TOOL);
+                List<ToolResponseMessage.ToolResponse> responses = ((ToolResponseMessage) message).getResponses();
+                writeVarInt(out, responses.size());
+                for (ToolResponseMessage.ToolResponse response : responses) {
+                    writeString(out, response.id());
+                    writeString(out, response.name());
+                    writeString(out, response.responseData());
+                }
+            }
+            default -> throw new IllegalArgumentException("Unsupported message type: " + message.getMessageType());
+        }
+        return out.toByteArray();
+    }
+
+    public static Message decode(byte[] bytes) {
+        return decode(ByteBuffer.wrap(bytes));
+    }
+
+    /**
+     * 从 buffer 的当前位置解码一条消息，解码后 position 移动到消息末尾
+     */
+    public static Message decode(ByteBuffer buffer) {
+        byte type = buffer.get();
+        return switch (type) {
+            case USER -> new UserMessage(readString(buffer));
+            case SYSTEM -> new SystemMessage(readString(buffer));
+            case ASSISTANT -> {
+                String text = readString(buffer);
+                int size = readVarInt(buffer);
+                List<AssistantMessage.ToolCall> toolCalls = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    toolCalls.add(new AssistantMessage.ToolCall(readString(buffer), readString(buffer),
+                            readString(buffer), readString(buffer)));
+                }
+                yield new AssistantMessage(text, Map.of(), toolCalls);
+            }
+            case TOOL -> {
+                int size = readVarInt(buffer);
+                List<ToolResponseMessage.ToolResponse> responses = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    responses.add(new ToolResponseMessage.ToolResponse(readString(buffer), readString(buffer),
+                            readString(buffer)));
+                }
+                yield new ToolResponseMessage(responses);
+            }
+            default -> throw new IllegalStateException("Unknown message type code: " + type);
+        };
+    }
+
+    private static int estimateSize(Message message) {
+        String text = message.getText();
+        return 8 + (text == null ? 0 : text.length() * 3);
+    }
+
+    public static void writeString(ByteArrayOutputStream out, String value) {
+        if (value == null) {
+            writeVarInt(out, 0);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(out, bytes.length + 1);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    public static String readString(ByteBuffer buffer) {
+        int length = readVarInt(buffer) - 1;
+        if (length < 0) {
+            return null;
+        }
+        String value;
+        if (buffer.hasArray()) {
+            value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+        } else {
+            byte[] bytes = new byte[length];
+            buffer.get(buffer.position(), bytes);
+            value = new String(bytes, StandardCharsets.UTF_8);
+        }
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+
+    public static void writeVarInt(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    public static int readVarInt(ByteBuffer buffer) {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            if (shift > 28) {
+                throw new IllegalStateException("Malformed varint");
+            }
+            b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+}
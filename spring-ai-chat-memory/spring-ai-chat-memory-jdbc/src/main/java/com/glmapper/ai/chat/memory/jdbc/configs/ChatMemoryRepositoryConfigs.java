@@ -0,0 +1,73 @@
+package com.glmapper.ai.chat.memory.jdbc.configs;
+
+import com.glmapper.ai.chat.memory.jdbc.repository.CodecJdbcChatMemoryRepository;
+import com.glmapper.ai.chat.memory.jdbc.repository.ContentCodec;
+import com.glmapper.ai.chat.memory.jdbc.repository.ContentCompressionMigrator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 自动配置的 JdbcChatMemoryRepository 仍然保留（测试中用它清理数据），ChatMemoryService 使用这里声明的 @Primary repository
+ *
+ * @Classname ChatMemoryRepositoryConfigs
+ * @Description ChatMemoryRepositoryConfigs
+ * @Date 2025/6/23 16:05
+ * @Created by glmapper
+ */
+@Configuration
+public class ChatMemoryRepositoryConfigs {
+
+    /**
+     * @param codec        none：明文写入 content 列；deflate：压缩写入 content_blob 列
+     * @param level        deflate 压缩级别
+     * @param minBytes     小于该字节数的内容不压缩
+     * @param dictionaries 预置字典的位置，逗号分隔，第一个用于压缩，其余仅用于解码旧数据
+     */
+    @Bean
+    public ContentCodec contentCodec(@Value("${chat.memory.jdbc.codec:none}") String codec,
+                                     @Value("${chat.memory.jdbc.codec.level:6}") int level,
+                                     @Value("${chat.memory.jdbc.codec.min-bytes:256}") int minBytes,
+                                     @Value("${chat.memory.jdbc.codec.dictionaries:}") String dictionaries,
+                                     ResourceLoader resourceLoader) throws IOException {
+        List<byte[]> presets = new ArrayList<>();
+        for (String location : StringUtils.commaDelimitedListToStringArray(dictionaries)) {
+            if (StringUtils.hasText(location)) {
+                try (InputStream in = resourceLoader.getResource(location.trim()).getInputStream()) {
+                    presets.add(in.readAllBytes());
+                }
+            }
+        }
+        return new ContentCodec("deflate".equalsIgnoreCase(codec), level, minBytes, presets);
+    }
+
+    @Bean
+    @Primary
+    public CodecJdbcChatMemoryRepository codecJdbcChatMemoryRepository(JdbcTemplate jdbcTemplate,
+                                                                       PlatformTransactionManager transactionManager,
+                                                                       ContentCodec contentCodec) {
+        return new CodecJdbcChatMemoryRepository(jdbcTemplate, transactionManager, contentCodec);
+    }
+
+    /**
+     * 启动时把历史明文数据迁移为压缩存储，执行完成后可以关闭该配置
+     */
+    @Bean
+    @ConditionalOnProperty(name = "chat.memory.jdbc.codec.migrate-on-startup", havingValue = "true")
+    public ApplicationRunner contentCompressionMigration(JdbcTemplate jdbcTemplate, ContentCodec contentCodec,
+                                                         @Value("${chat.memory.jdbc.codec.migrate-batch-size:500}") int batchSize) {
+        return args -> new ContentCompressionMigrator(jdbcTemplate, contentCodec, batchSize).migrate();
+    }
+}
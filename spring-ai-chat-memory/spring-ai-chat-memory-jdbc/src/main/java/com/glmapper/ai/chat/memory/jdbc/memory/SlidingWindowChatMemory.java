@@ -0,0 +1,67 @@
+package com.glmapper.ai.chat.memory.jdbc.memory;
+
+import com.glmapper.ai.chat.memory.jdbc.repository.CodecJdbcChatMemoryRepository;
+import org.springframework.ai.chat.memory.ChatMemory;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.util.Assert;
+
+import java.util.List;
+
+/**
+ * @Classname SlidingWindowChatMemory
+ * @Description 在数据库中完成窗口裁剪的 ChatMemory
+ * <p>
+ * MessageWindowChatMemory 每次 get 都会加载会话的全部消息再在内存中裁剪，add 时还要删除并重写整个会话。
+ * 这里改为：
+ * 1、add 只追加新消息，同一个事务中删除最新 retainMessages 条之前的消息，每个会话占用的行数有上限；
+ * 2、get 只读取最近的 maxMessages 条消息，窗口由 SQL 的倒序索引扫描 + LIMIT 完成。
+ * retainMessages 大于 maxMessages 时，窗口外的消息会多保留一段时间（例如用于导出），但不会无限增长。
+ * 与 MessageWindowChatMemory 不同，窗口外的 SystemMessage 不会被保留，系统提示词应该在构建 Prompt 时单独添加。
+ * </p>
+ * @Date 2025/6/24 10:12
+ * @Created by glmapper
+ */
+public class SlidingWindowChatMemory implements ChatMemory {
+
+    private final CodecJdbcChatMemoryRepository chatMemoryRepository;
+
+    private final int maxMessages;
+
+    private final int retainMessages;
+
+    public SlidingWindowChatMemory(CodecJdbcChatMemoryRepository chatMemoryRepository, int maxMessages) {
+        this(chatMemoryRepository, maxMessages, maxMessages);
+    }
+
+    /**
+     * @param maxMessages    每次读取的消息数
+     * @param retainMessages 每个会话最多保留的消息数，不能小于 maxMessages
+     */
+    public SlidingWindowChatMemory(CodecJdbcChatMemoryRepository chatMemoryRepository, int maxMessages,
+                                   int retainMessages) {
+        Assert.notNull(chatMemoryRepository, "chatMemoryRepository cannot be null");
+        Assert.isTrue(maxMessages > 0, "maxMessages must be greater than 0");
+        Assert.isTrue(retainMessages >= maxMessages, "retainMessages must not be less than maxMessages");
+        this.chatMemoryRepository = chatMemoryRepository;
+        this.maxMessages = maxMessages;
+        this.retainMessages = retainMessages;
+    }
+
+    @Override
+    public void add(String conversationId, List<Message> messages) {
+        Assert.hasText(conversationId, "conversationId cannot be null or empty");
+        this.chatMemoryRepository.appendAll(conversationId, messages, this.retainMessages);
+    }
+
+    @Override
+    public List<Message> get(String conversationId) {
+        Assert.hasText(conversationId, "conversationId cannot be null or empty");
+        return this.chatMemoryRepository.findLastByConversationId(conversationId, this.maxMessages);
+    }
+
+    @Override
+    public void clear(String conversationId) {
+        Assert.hasText(conversationId, "conversationId cannot be null or empty");
+        this.chatMemoryRepository.deleteByConversationId(conversationId);
+    }
+}
@@ -0,0 +1,247 @@
+package com.glmapper.ai.chat.memory.jdbc.repository;
+
+import org.springframework.ai.chat.memory.ChatMemoryRepository;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.MessageType;
+import org.springframework.ai.chat.messages.SystemMessage;
+import org.springframework.ai.chat.messages.ToolResponseMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.Assert;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @Classname CodecJdbcChatMemoryRepository
+ * @Description 支持压缩存储消息内容的 JDBC ChatMemoryRepository
+ * <p>
+ * 与 JdbcChatMemoryRepository 使用同一张 SPRING_AI_CHAT_MEMORY 表，额外使用 content_blob 列：
+ * 1、写入时由 {@link ContentCodec} 决定是否压缩，压缩后 content 列写入空串，压缩数据写入 content_blob；
+ * 2、读取时 content_blob 不为空则解码，否则直接使用 content 列，因此未迁移的历史数据与压缩数据可以共存；
+ * 3、{@link #findLastByConversationId} 与 {@link #appendAll} 供窗口读取使用，窗口在 SQL 中通过倒序索引扫描 + LIMIT 完成；
+ * 追加写入时可以同时删除最新 retain 条之前的消息，每个会话占用的行数有上限。
+ * </p>
+ * @Date 2025/6/23 14:15
+ * @Created by glmapper
+ */
+public class CodecJdbcChatMemoryRepository implements ChatMemoryRepository {
+
+    private static final String SELECT_CONVERSATION_IDS = "SELECT DISTINCT conversation_id FROM SPRING_AI_CHAT_MEMORY";
+
+    private static final String SELECT_FIRST_CONVERSATION_IDS = "SELECT DISTINCT conversation_id FROM SPRING_AI_CHAT_MEMORY "
+            + "ORDER BY conversation_id LIMIT ?";
+
+    private static final String SELECT_NEXT_CONVERSATION_IDS = "SELECT DISTINCT conversation_id FROM SPRING_AI_CHAT_MEMORY "
+            + "WHERE conversation_id > ? ORDER BY conversation_id LIMIT ?";
+
+    private static final String SELECT_MESSAGES = "SELECT content, content_blob, type FROM SPRING_AI_CHAT_MEMORY "
+            + "WHERE conversation_id = ? ORDER BY `timestamp`";
+
+    private static final String SELECT_LAST_MESSAGES = "SELECT content, content_blob, type FROM SPRING_AI_CHAT_MEMORY "
+            + "WHERE conversation_id = ? ORDER BY `timestamp` DESC LIMIT ?";
+
+    private static final String INSERT_MESSAGE = "INSERT INTO SPRING_AI_CHAT_MEMORY "
+            + "(conversation_id, content, content_blob, type, `timestamp`) VALUES (?, ?, ?, ?, ?)";
+
+    private static final String DELETE_MESSAGES = "DELETE FROM SPRING_AI_CHAT_MEMORY WHERE conversation_id = ?";
+
+    private static final String SELECT_RETAIN_CUTOFF = "SELECT `timestamp` FROM SPRING_AI_CHAT_MEMORY "
+            + "WHERE conversation_id = ? ORDER BY `timestamp` DESC LIMIT 1 OFFSET ?";
+
+    private static final String DELETE_MESSAGES_BEFORE = "DELETE FROM SPRING_AI_CHAT_MEMORY "
+            + "WHERE conversation_id = ? AND `timestamp` < ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final ContentCodec codec;
+
+    private final RowMapper<Message> messageRowMapper;
+
+    /**
+     * 最近一次分配的时间戳，保证同一进程内先后写入的消息时间戳严格递增
+     */
+    private final AtomicLong lastTimestamp = new AtomicLong();
+
+    public CodecJdbcChatMemoryRepository(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                                         ContentCodec codec) {
+        Assert.notNull(jdbcTemplate, "jdbcTemplate cannot be null");
+        Assert.notNull(transactionManager, "transactionManager cannot be null");
+        Assert.notNull(codec, "codec cannot be null");
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.codec = codec;
+        this.messageRowMapper = (rs, rowNum) -> toMessage(rs);
+    }
+
+    @Override
+    public List<String> findConversationIds() {
+        return this.jdbcTemplate.queryForList(SELECT_CONVERSATION_IDS, String.class);
+    }
+
+    /**
+     * 按会话 ID 升序的 keyset 分页，利用 (conversation_id, timestamp) 索引，每页的代价与页数无关
+     *
+     * @param afterId 上一页最后一个会话 ID，第一页为 null
+     */
+    public List<String> findConversationIds(String afterId, int limit) {
+        Assert.isTrue(limit > 0, "limit must be greater than 0");
+        if (afterId == null) {
+            return this.jdbcTemplate.queryForList(SELECT_FIRST_CONVERSATION_IDS, String.class, limit);
+        }
+        return this.jdbcTemplate.queryForList(SELECT_NEXT_CONVERSATION_IDS, String.class, afterId, limit);
+    }
+
+    @Override
+    public List<Message> findByConversationId(String conversationId) {
+        Assert.hasText(conversationId, "conversationId cannot be null or empty");
+        return this.jdbcTemplate.query(SELECT_MESSAGES, this.messageRowMapper, conversationId);
+    }
+
+    @Override
+    public void saveAll(String conversationId, List<Message> messages) {
+        Assert.hasText(conversationId, "conversationId cannot be null or empty");
+        Assert.notNull(messages, "messages cannot be null");
+        Assert.noNullElements(messages, "messages cannot contain null elements");
+        this.transactionTemplate.executeWithoutResult(status -> {
+            this.jdbcTemplate.update(DELETE_MESSAGES, conversationId);
+            insert(conversationId, messages);
+        });
+    }
+
+    /**
+     * 读取会话最近的 limit 条消息，按时间正序返回
+     * <p>
+     * 只扫描 (conversation_id, timestamp) 索引尾部的 limit 行，结果直接倒序填入预先分配好的数组，不需要再排序或裁剪。
+     * </p>
+     */
+    public List<Message> findLastByConversationId(String conversationId, int limit) {
+        Assert.hasText(conversationId, "conversationId cannot be null or empty");
+        Assert.isTrue(limit > 0, "limit must be greater than 0");
+        ResultSetExtractor<List<Message>> extractor = rs -> {
+            Message[] window = new Message[limit];
+            int index = limit;
+            while (index > 0 && rs.next()) {
+                window[--index] = toMessage(rs);
+            }
+            return index == 0 ? Arrays.asList(window) : Arrays.asList(Arrays.copyOfRange(window, index, limit));
+        };
+        return this.jdbcTemplate.query(SELECT_LAST_MESSAGES, extractor, conversationId, limit);
+    }
+
+    /**
+     * 追加消息，不改写会话中已有的消息
+     */
+    public void appendAll(String conversationId, List<Message> messages) {
+        Assert.hasText(conversationId, "conversationId cannot be null or empty");
+        Assert.notNull(messages, "messages cannot be null");
+        Assert.noNullElements(messages, "messages cannot contain null elements");
+        if (!messages.isEmpty()) {
+            insert(conversationId, messages);
+        }
+    }
+
+    /**
+     * 追加消息，并在同一个事务中只保留会话最新的 retain 条消息
+     */
+    public void appendAll(String conversationId, List<Message> messages, int retain) {
+        Assert.hasText(conversationId, "conversationId cannot be null or empty");
+        Assert.notNull(messages, "messages cannot be null");
+        Assert.noNullElements(messages, "messages cannot contain null elements");
+        Assert.isTrue(retain > 0, "retain must be greater than 0");
+        if (messages.isEmpty()) {
+            return;
+        }
+        this.transactionTemplate.executeWithoutResult(status -> {
+            insert(conversationId, messages);
+            retainLast(conversationId, retain);
+        });
+    }
+
+    /**
+     * 删除会话最新 retain 条之前的消息：先按索引倒序定位第 retain 条的时间戳，再删除更早的行
+     *
+     * @return 删除的行数
+     */
+    public int retainLast(String conversationId, int retain) {
+        Assert.hasText(conversationId, "conversationId cannot be null or empty");
+        Assert.isTrue(retain > 0, "retain must be greater than 0");
+        List<Timestamp> cutoff = this.jdbcTemplate.queryForList(SELECT_RETAIN_CUTOFF, Timestamp.class,
+                conversationId, retain - 1);
+        if (cutoff.isEmpty()) {
+            return 0;
+        }
+        return this.jdbcTemplate.update(DELETE_MESSAGES_BEFORE, conversationId, cutoff.get(0));
+    }
+
+    @Override
+    public void deleteByConversationId(String conversationId) {
+        Assert.hasText(conversationId, "conversationId cannot be null or empty");
+        this.jdbcTemplate.update(DELETE_MESSAGES, conversationId);
+    }
+
+    void insert(String conversationId, List<Message> messages) {
+        // 与 JdbcChatMemoryRepository 一致：同一批消息的时间戳依次递增 1ms，保证读取时的顺序；
+        // 追加写入时还要保证晚于上一批，否则同一毫秒内的两次追加在倒序读取时会乱序
+        AtomicLong timestamp = new AtomicLong(reserveTimestamps(messages.size()));
+        this.jdbcTemplate.batchUpdate(INSERT_MESSAGE, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                Message message = messages.get(i);
+                byte[] encoded = codec.encode(message.getText());
+                ps.setString(1, conversationId);
+                ps.setString(2, encoded == null ? textOf(message) : "");
+                if (encoded == null) {
+                    ps.setNull(3, Types.BLOB);
+                } else {
+                    ps.setBytes(3, encoded);
+                }
+                ps.setString(4, message.getMessageType().name());
+                ps.setTimestamp(5, new Timestamp(timestamp.getAndIncrement()));
+            }
+
+            @Override
+            public int getBatchSize() {
+                return messages.size();
+            }
+        });
+    }
+
+    private long reserveTimestamps(int count) {
+        long now = Instant.now().toEpochMilli();
+        long end = this.lastTimestamp.accumulateAndGet(now, (last, current) -> Math.max(last, current - 1) + count);
+        return end - count + 1;
+    }
+
+    Message toMessage(ResultSet rs) throws SQLException {
+        byte[] encoded = rs.getBytes("content_blob");
+        String content = encoded == null ? rs.getString("content") : this.codec.decode(encoded);
+        MessageType type = MessageType.valueOf(rs.getString("type"));
+        return switch (type) {
+            case USER -> new UserMessage(content);
+            case ASSISTANT -> new AssistantMessage(content);
+            case SYSTEM -> new SystemMessage(content);
+            // 与 JdbcChatMemoryRepository 一致，ToolResponseMessage 的内容不落库
+            case TOOL -> new ToolResponseMessage(List.of());
+        };
+    }
+
+    private static String textOf(Message message) {
+        return message.getText() == null ? "" : message.getText();
+    }
+}
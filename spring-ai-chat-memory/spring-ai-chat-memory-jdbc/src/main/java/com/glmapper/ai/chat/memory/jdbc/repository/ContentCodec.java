@@ -0,0 +1,159 @@
+package com.glmapper.ai.chat.memory.jdbc.repository;
+
+import org.springframework.util.Assert;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * @Classname ContentCodec
+ * @Description 消息内容的压缩编解码
+ * <p>
+ * 编码后的格式：[codec:1 byte][原始 UTF-8 长度:4 bytes][dictionaryId:4 bytes，仅 DEFLATE_DICTIONARY][raw deflate 数据]。
+ * 1、内容短于 minBytes 或压缩后没有变小时返回 null，调用方仍以明文写入 content 列；
+ * 2、配置了字典时使用预置字典压缩（deflate 的 preset dictionary），短消息也能获得不错的压缩率；
+ * 3、更换字典后，旧字典需要继续保留在 dictionaries 中，否则无法解码用旧字典压缩的数据。
+ * </p>
+ * @Date 2025/6/23 10:20
+ * @Created by glmapper
+ */
+public class ContentCodec {
+
+    public static final byte DEFLATE = 1;
+
+    public static final byte DEFLATE_DICTIONARY = 2;
+
+    private static final int MAX_DICTIONARY_BYTES = 32 * 1024;
+
+    private final boolean enabled;
+
+    private final int minBytes;
+
+    private final byte[] dictionary;
+
+    private final int dictionaryId;
+
+    private final Map<Integer, byte[]> dictionaries = new HashMap<>();
+
+    private final ThreadLocal<Deflater> deflaters;
+
+    private final ThreadLocal<Inflater> inflaters = ThreadLocal.withInitial(() -> new Inflater(true));
+
+    /**
+     * @param enabled      是否压缩写入，关闭时仍然可以解码已压缩的数据
+     * @param level        deflate 压缩级别
+     * @param minBytes     小于该字节数的内容不压缩
+     * @param dictionaries 预置字典，第一个用于压缩，其余仅用于解码
+     */
+    public ContentCodec(boolean enabled, int level, int minBytes, List<byte[]> dictionaries) {
+        Assert.notNull(dictionaries, "dictionaries cannot be null");
+        this.enabled = enabled;
+        this.minBytes = minBytes;
+        for (byte[] candidate : dictionaries) {
+            Assert.isTrue(candidate.length <= MAX_DICTIONARY_BYTES, "dictionary cannot exceed 32KB");
+            this.dictionaries.put(dictionaryId(candidate), candidate);
+        }
+        this.dictionary = dictionaries.isEmpty() ? null : dictionaries.get(0);
+        this.dictionaryId = this.dictionary == null ? 0 : dictionaryId(this.dictionary);
+        this.deflaters = ThreadLocal.withInitial(() -> new Deflater(level, true));
+    }
+
+    public static ContentCodec disabled() {
+        return new ContentCodec(false, Deflater.DEFAULT_COMPRESSION, Integer.MAX_VALUE, List.of());
+    }
+
+    public boolean isEnabled() {
+        return this.enabled;
+    }
+
+    /**
+     * 压缩内容
+     *
+     * @return 压缩后的数据；不需要压缩时返回 null
+     */
+    public byte[] encode(String content) {
+        if (!this.enabled || content == null) {
+            return null;
+        }
+        byte[] raw = content.getBytes(StandardCharsets.UTF_8);
+        if (raw.length < this.minBytes) {
+            return null;
+        }
+        int headerBytes = this.dictionary == null ? 5 : 9;
+        ByteBuffer header = ByteBuffer.allocate(headerBytes)
+                .put(this.dictionary == null ? DEFLATE : DEFLATE_DICTIONARY)
+                .putInt(raw.length);
+        if (this.dictionary != null) {
+            header.putInt(this.dictionaryId);
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream(raw.length / 2 + headerBytes);
+        out.write(header.array(), 0, headerBytes);
+        Deflater deflater = this.deflaters.get();
+        deflater.reset();
+        if (this.dictionary != null) {
+            deflater.setDictionary(this.dictionary);
+        }
+        deflater.setInput(raw);
+        deflater.finish();
+        byte[] buffer = new byte[Math.max(64, Math.min(raw.length, 8192))];
+        while (!deflater.finished()) {
+            int n = deflater.deflate(buffer);
+            out.write(buffer, 0, n);
+            // 压缩后没有变小就不值得解压的开销
+            if (out.size() >= raw.length) {
+                return null;
+            }
+        }
+        return out.toByteArray();
+    }
+
+    public String decode(byte[] encoded) {
+        ByteBuffer header = ByteBuffer.wrap(encoded);
+        byte codec = header.get();
+        int rawLength = header.getInt();
+        Inflater inflater = this.inflaters.get();
+        inflater.reset();
+        if (codec == DEFLATE_DICTIONARY) {
+            int id = header.getInt();
+            byte[] preset = this.dictionaries.get(id);
+            if (preset == null) {
+                throw new IllegalStateException("Missing compression dictionary " + Integer.toHexString(id));
+            }
+            inflater.setDictionary(preset);
+        } else if (codec != DEFLATE) {
+            throw new IllegalStateException("Unknown content codec: " + codec);
+        }
+        inflater.setInput(encoded, header.position(), encoded.length - header.position());
+        byte[] raw = new byte[rawLength];
+        try {
+            int offset = 0;
+            while (offset < rawLength) {
+                int n = inflater.inflate(raw, offset, rawLength - offset);
+                if (n == 0 && (inflater.finished() || inflater.needsInput())) {
+                    break;
+                }
+                offset += n;
+            }
+            if (offset != rawLength) {
+                throw new IllegalStateException("Truncated compressed content, expected " + rawLength + " bytes but got " + offset);
+            }
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Corrupted compressed content", e);
+        }
+        return new String(raw, StandardCharsets.UTF_8);
+    }
+
+    public static int dictionaryId(byte[] dictionary) {
+        CRC32 crc = new CRC32();
+        crc.update(dictionary);
+        return (int) crc.getValue();
+    }
+}
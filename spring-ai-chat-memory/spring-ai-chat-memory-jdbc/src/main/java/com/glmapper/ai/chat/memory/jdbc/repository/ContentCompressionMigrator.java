@@ -0,0 +1,90 @@
+package com.glmapper.ai.chat.memory.jdbc.repository;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.util.Assert;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @Classname ContentCompressionMigrator
+ * @Description 把历史数据中明文存储的 content 迁移为压缩后的 content_blob
+ * <p>
+ * 表上没有主键，这里按会话逐个处理，用 (conversation_id, timestamp, type, content) 定位一行；
+ * 只更新 content_blob 为空的行，因此可以重复执行，中断后再次执行会从未迁移的行继续。
+ * 执行前需要先通过 schema-migration-content-blob-mysql.sql 给已有的表加上 content_blob 列。
+ * </p>
+ * @Date 2025/6/23 15:40
+ * @Created by glmapper
+ */
+@Slf4j
+public class ContentCompressionMigrator {
+
+    private static final String SELECT_PLAIN_ROWS = "SELECT content, type, `timestamp` FROM SPRING_AI_CHAT_MEMORY "
+            + "WHERE conversation_id = ? AND content_blob IS NULL";
+
+    private static final String UPDATE_ROW = "UPDATE SPRING_AI_CHAT_MEMORY SET content = '', content_blob = ? "
+            + "WHERE conversation_id = ? AND `timestamp` = ? AND type = ? AND content = ? AND content_blob IS NULL";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final ContentCodec codec;
+
+    private final int batchSize;
+
+    public ContentCompressionMigrator(JdbcTemplate jdbcTemplate, ContentCodec codec, int batchSize) {
+        Assert.isTrue(codec.isEnabled(), "codec must be enabled to migrate content");
+        Assert.isTrue(batchSize > 0, "batchSize must be greater than 0");
+        this.jdbcTemplate = jdbcTemplate;
+        this.codec = codec;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * @return 迁移的行数
+     */
+    public long migrate() {
+        long migrated = 0;
+        List<String> conversationIds = this.jdbcTemplate.queryForList(
+                "SELECT DISTINCT conversation_id FROM SPRING_AI_CHAT_MEMORY", String.class);
+        List<Object[]> batch = new ArrayList<>(this.batchSize);
+        for (String conversationId : conversationIds) {
+            List<Object[]> rows = this.jdbcTemplate.query(SELECT_PLAIN_ROWS, (rs, rowNum) -> {
+                String content = rs.getString("content");
+                byte[] encoded = this.codec.encode(content);
+                if (encoded == null) {
+                    return null;
+                }
+                Timestamp timestamp = rs.getTimestamp("timestamp");
+                return new Object[]{encoded, conversationId, timestamp, rs.getString("type"), content};
+            }, conversationId);
+            for (Object[] row : rows) {
+                if (row == null) {
+                    continue;
+                }
+                batch.add(row);
+                if (batch.size() >= this.batchSize) {
+                    migrated += flush(batch);
+                }
+            }
+        }
+        migrated += flush(batch);
+        log.info("Migrated {} chat memory rows of {} conversations to compressed content", migrated,
+                conversationIds.size());
+        return migrated;
+    }
+
+    private long flush(List<Object[]> batch) {
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        long updated = 0;
+        for (int count : this.jdbcTemplate.batchUpdate(UPDATE_ROW, batch)) {
+            updated += Math.max(count, 0);
+        }
+        batch.clear();
+        return updated;
+    }
+}
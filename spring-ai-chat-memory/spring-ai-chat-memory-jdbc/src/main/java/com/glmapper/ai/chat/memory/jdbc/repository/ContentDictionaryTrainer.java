@@ -0,0 +1,70 @@
+package com.glmapper.ai.chat.memory.jdbc.repository;
+
+import org.springframework.util.Assert;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @Classname ContentDictionaryTrainer
+ * @Description 从历史消息中训练 deflate 预置字典
+ * <p>
+ * 统计样本中定长片段（gram）的出现次数，挑选出现次数最多的片段拼接成字典。
+ * deflate 向后查找匹配时距离越近编码越短，所以出现次数越多的片段放在字典越靠后的位置。
+ * 训练好的字典写到文件中，通过 chat.memory.jdbc.codec.dictionaries 配置加载。
+ * </p>
+ * @Date 2025/6/23 11:02
+ * @Created by glmapper
+ */
+public final class ContentDictionaryTrainer {
+
+    private ContentDictionaryTrainer() {
+    }
+
+    /**
+     * @param samples  样本消息内容
+     * @param gram     片段长度（字符数），中文内容建议 4~6，英文内容建议 8~12
+     * @param maxBytes 字典最大字节数，deflate 的窗口为 32KB
+     * @return 训练得到的字典
+     */
+    public static byte[] train(Iterable<String> samples, int gram, int maxBytes) {
+        Assert.isTrue(gram > 1, "gram must be greater than 1");
+        Assert.isTrue(maxBytes > 0 && maxBytes <= 32 * 1024, "maxBytes must be in (0, 32KB]");
+        Map<String, Integer> counts = new HashMap<>();
+        for (String sample : samples) {
+            if (sample == null) {
+                continue;
+            }
+            // 以 gram 为步长切分，避免同一段文本的大量重叠片段挤占字典空间
+            for (int i = 0; i + gram <= sample.length(); i += gram) {
+                counts.merge(sample.substring(i, i + gram), 1, Integer::sum);
+            }
+        }
+        List<Map.Entry<String, Integer>> candidates = new ArrayList<>();
+        for (Map.Entry<String, Integer> entry : counts.entrySet()) {
+            if (entry.getValue() > 1 && !entry.getKey().isBlank()) {
+                candidates.add(entry);
+            }
+        }
+        candidates.sort(Map.Entry.<String, Integer>comparingByValue().reversed());
+        List<byte[]> selected = new ArrayList<>();
+        int size = 0;
+        for (Map.Entry<String, Integer> candidate : candidates) {
+            byte[] bytes = candidate.getKey().getBytes(StandardCharsets.UTF_8);
+            if (size + bytes.length > maxBytes) {
+                break;
+            }
+            selected.add(bytes);
+            size += bytes.length;
+        }
+        ByteArrayOutputStream dictionary = new ByteArrayOutputStream(size);
+        for (int i = selected.size() - 1; i >= 0; i--) {
+            dictionary.write(selected.get(i), 0, selected.get(i).length);
+        }
+        return dictionary.toByteArray();
+    }
+}
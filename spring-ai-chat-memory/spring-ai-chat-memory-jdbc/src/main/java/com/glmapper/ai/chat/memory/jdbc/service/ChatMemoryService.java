@@ -1,15 +1,16 @@
 package com.glmapper.ai.chat.memory.jdbc.service;
 
+import com.glmapper.ai.chat.memory.jdbc.memory.SlidingWindowChatMemory;
+import com.glmapper.ai.chat.memory.jdbc.repository.CodecJdbcChatMemoryRepository;
 import jakarta.annotation.PostConstruct;
 import org.springframework.ai.chat.memory.ChatMemory;
-import org.springframework.ai.chat.memory.MessageWindowChatMemory;
-import org.springframework.ai.chat.memory.repository.jdbc.JdbcChatMemoryRepository;
 import org.springframework.ai.chat.messages.Message;
 import org.springframework.ai.chat.messages.UserMessage;
 import org.springframework.ai.chat.model.ChatModel;
 import org.springframework.ai.chat.model.ChatResponse;
 import org.springframework.ai.chat.prompt.Prompt;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
@@ -26,17 +27,24 @@ public class ChatMemoryService {
     @Autowired
     private ChatModel chatModel;
 
+    /**
+     * ChatMemoryRepositoryConfigs 中声明的 CodecJdbcChatMemoryRepository，支持压缩存储消息内容
+     */
     @Autowired
-    private JdbcChatMemoryRepository chatMemoryRepository;
+    private CodecJdbcChatMemoryRepository chatMemoryRepository;
+
+    @Value("${chat.memory.jdbc.max-messages:20}")
+    private int maxMessages;
+
+    @Value("${chat.memory.jdbc.retain-messages:${chat.memory.jdbc.max-messages:20}}")
+    private int retainMessages;
 
     private ChatMemory chatMemory;
 
     @PostConstruct
     public void init() {
-        this.chatMemory = MessageWindowChatMemory.builder()
-                .chatMemoryRepository(chatMemoryRepository)
-                .maxMessages(20)
-                .build();
+        // 只读取最近 maxMessages 条消息，不再每轮加载并重写整个会话；每个会话最多保留 retainMessages 条
+        this.chatMemory = new SlidingWindowChatMemory(chatMemoryRepository, maxMessages, retainMessages);
     }
 
     public String call(String message, String conversationId) {
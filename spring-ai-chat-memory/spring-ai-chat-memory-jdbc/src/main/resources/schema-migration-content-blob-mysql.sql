@@ -0,0 +1,3 @@
+-- 已存在的 SPRING_AI_CHAT_MEMORY 表执行一次即可：增加压缩内容列
+-- 之后设置 chat.memory.jdbc.codec=deflate 与 chat.memory.jdbc.codec.migrate-on-startup=true 迁移历史数据
+ALTER TABLE SPRING_AI_CHAT_MEMORY ADD COLUMN content_blob MEDIUMBLOB NULL AFTER content;
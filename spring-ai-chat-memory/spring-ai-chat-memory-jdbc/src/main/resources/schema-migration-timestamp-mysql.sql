@@ -0,0 +1,2 @@
+-- 已存在的 SPRING_AI_CHAT_MEMORY 表执行一次即可：时间戳精确到毫秒，保证按时间倒序读取窗口时消息顺序稳定
+ALTER TABLE SPRING_AI_CHAT_MEMORY MODIFY COLUMN `timestamp` TIMESTAMP(3) NOT NULL;
@@ -1,8 +1,9 @@
 CREATE TABLE IF NOT EXISTS SPRING_AI_CHAT_MEMORY (
     conversation_id VARCHAR(36) NOT NULL,
     content TEXT NOT NULL,
+    content_blob MEDIUMBLOB NULL,
     type VARCHAR(10) NOT NULL,
-    `timestamp` TIMESTAMP NOT NULL,
+    `timestamp` TIMESTAMP(3) NOT NULL,
     CONSTRAINT TYPE_CHECK CHECK (type IN ('USER', 'ASSISTANT', 'SYSTEM', 'TOOL'))
 );
 
@@ -0,0 +1,141 @@
+package com.glmapper.ai.chat.memory.jdbc;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.glmapper.ai.chat.memory.jdbc.repository.CodecJdbcChatMemoryRepository;
+import com.glmapper.ai.chat.memory.jdbc.repository.ContentCodec;
+import com.glmapper.ai.chat.memory.transfer.ChatMemoryExporter;
+import com.glmapper.ai.chat.memory.transfer.ChatMemoryImporter;
+import com.glmapper.ai.chat.memory.transfer.ConversationIdPager;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.ai.chat.memory.ChatMemoryRepository;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 在两个 H2 数据库之间导出导入会话，验证 keyset 分页、多线程导入与断点续传
+ *
+ * @author glmapper
+ * @since 2025-06-26
+ */
+public class ChatMemoryTransferTest {
+
+    private static final int CONVERSATIONS = 1200;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    @DisplayName("测试在两个数据库之间迁移会话")
+    void testTransferBetweenDatabases(@TempDir Path directory) {
+        CodecJdbcChatMemoryRepository source = source("source");
+        Assertions.assertEquals(List.of("test-0100", "test-0101"), source.findConversationIds("test-0099", 2));
+
+        Path file = directory.resolve("chat-memory.jsonl");
+        long exported = new ChatMemoryExporter(source, source::findConversationIds, this.objectMapper, 250)
+                .export(file, directory.resolve("export.checkpoint"));
+        Assertions.assertEquals(CONVERSATIONS, exported);
+
+        CodecJdbcChatMemoryRepository target = repository("target");
+        long imported = new ChatMemoryImporter(target, this.objectMapper, 4, 100)
+                .importFrom(file, directory.resolve("import.checkpoint"));
+        Assertions.assertEquals(CONVERSATIONS, imported);
+        Assertions.assertEquals(CONVERSATIONS, target.findConversationIds().size());
+        List<Message> messages = target.findByConversationId("test-0777");
+        Assertions.assertEquals("question of test-0777", messages.get(0).getText());
+        Assertions.assertEquals("answer of test-0777", messages.get(1).getText());
+    }
+
+    @Test
+    @DisplayName("测试导出、导入中断后从进度文件继续")
+    void testResumeFromCheckpoint(@TempDir Path directory) throws Exception {
+        CodecJdbcChatMemoryRepository source = source("resume-source");
+        Path file = directory.resolve("chat-memory.jsonl");
+        Path exportCheckpoint = directory.resolve("export.checkpoint");
+        AtomicInteger pages = new AtomicInteger();
+        ConversationIdPager failing = (afterId, limit) -> {
+            if (pages.incrementAndGet() > 2) {
+                throw new IllegalStateException("simulated crash");
+            }
+            return source.findConversationIds(afterId, limit);
+        };
+        Assertions.assertThrows(IllegalStateException.class,
+                () -> new ChatMemoryExporter(source, failing, this.objectMapper, 250).export(file, exportCheckpoint));
+        Assertions.assertEquals(500, Files.readAllLines(file).size(), "中断前应该已经导出了两页");
+
+        long exported = new ChatMemoryExporter(source, source::findConversationIds, this.objectMapper, 250)
+                .export(file, exportCheckpoint);
+        Assertions.assertEquals(CONVERSATIONS, exported);
+        List<String> lines = Files.readAllLines(file);
+        Assertions.assertEquals(CONVERSATIONS, lines.size());
+        Assertions.assertEquals(CONVERSATIONS, new HashSet<>(lines).size(), "继续导出不应该重复写入会话");
+
+        CodecJdbcChatMemoryRepository target = repository("resume-target");
+        Path importCheckpoint = directory.resolve("import.checkpoint");
+        AtomicInteger saved = new AtomicInteger();
+        ChatMemoryRepository failingTarget = new ChatMemoryRepository() {
+
+            @Override
+            public List<String> findConversationIds() {
+                return target.findConversationIds();
+            }
+
+            @Override
+            public List<Message> findByConversationId(String conversationId) {
+                return target.findByConversationId(conversationId);
+            }
+
+            @Override
+            public void saveAll(String conversationId, List<Message> messages) {
+                if (saved.incrementAndGet() > 700) {
+                    throw new IllegalStateException("simulated crash");
+                }
+                target.saveAll(conversationId, messages);
+            }
+
+            @Override
+            public void deleteByConversationId(String conversationId) {
+                target.deleteByConversationId(conversationId);
+            }
+        };
+        Assertions.assertThrows(IllegalStateException.class,
+                () -> new ChatMemoryImporter(failingTarget, this.objectMapper, 4, 100).importFrom(file, importCheckpoint));
+        Assertions.assertTrue(Files.exists(importCheckpoint), "中断前应该已经记录了进度");
+
+        long imported = new ChatMemoryImporter(target, this.objectMapper, 4, 100).importFrom(file, importCheckpoint);
+        Assertions.assertEquals(CONVERSATIONS, imported);
+        Assertions.assertEquals(CONVERSATIONS, target.findConversationIds().size());
+        Assertions.assertEquals(2, target.findByConversationId("test-1199").size());
+    }
+
+    private static CodecJdbcChatMemoryRepository source(String name) {
+        CodecJdbcChatMemoryRepository source = repository(name);
+        for (int i = 0; i < CONVERSATIONS; i++) {
+            String conversationId = String.format("test-%04d", i);
+            source.saveAll(conversationId, List.of(new UserMessage("question of " + conversationId),
+                    new AssistantMessage("answer of " + conversationId)));
+        }
+        return source;
+    }
+
+    private static CodecJdbcChatMemoryRepository repository(String name) {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:" + name + ";MODE=MySQL;DB_CLOSE_DELAY=-1", "sa", "");
+        new ResourceDatabasePopulator(new ClassPathResource("schema-mysql.sql")).execute(dataSource);
+        return new CodecJdbcChatMemoryRepository(new JdbcTemplate(dataSource),
+                new DataSourceTransactionManager(dataSource), ContentCodec.disabled());
+    }
+}
@@ -0,0 +1,121 @@
+package com.glmapper.ai.chat.memory.jdbc;
+
+import com.glmapper.ai.chat.memory.jdbc.repository.ContentCodec;
+import com.glmapper.ai.chat.memory.jdbc.repository.ContentDictionaryTrainer;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * @Classname ContentCodecTest
+ * @Description ContentCodecTest
+ * @Date 2025/6/23 16:30
+ * @Created by glmapper
+ */
+public class ContentCodecTest {
+
+    private static final String[] PHRASES = {
+            "你好，我是一个智能助手，很高兴为你服务。", "根据你提供的信息，", "以下是详细的步骤：",
+            "1. 首先打开配置文件 application.properties；", "2. 然后修改 spring.ai.chat.memory 相关配置；",
+            "如果还有其他问题，请随时告诉我。", "Spring AI 提供了 ChatMemory 抽象，", "MessageWindowChatMemory 默认保留最近 20 条消息。"
+    };
+
+    @Test
+    @DisplayName("测试压缩与解压结果一致")
+    void testRoundTrip() {
+        ContentCodec codec = new ContentCodec(true, 6, 16, List.of());
+        String content = sample(new Random(1), 40);
+        byte[] encoded = codec.encode(content);
+        Assertions.assertNotNull(encoded);
+        Assertions.assertEquals(ContentCodec.DEFLATE, encoded[0]);
+        Assertions.assertEquals(content, codec.decode(encoded));
+
+        Assertions.assertNull(codec.encode("short"), "短于 minBytes 的内容不压缩");
+        Assertions.assertNull(ContentCodec.disabled().encode(content), "关闭压缩时不压缩");
+    }
+
+    @Test
+    @DisplayName("测试更换字典后仍能解码旧数据")
+    void testDictionaryRotation() {
+        List<String> samples = samples(new Random(2), 500);
+        byte[] oldDictionary = ContentDictionaryTrainer.train(samples, 4, 4096);
+        byte[] newDictionary = ContentDictionaryTrainer.train(samples.subList(0, 100), 6, 2048);
+        String content = sample(new Random(3), 10);
+
+        byte[] encoded = new ContentCodec(true, 6, 16, List.of(oldDictionary)).encode(content);
+        Assertions.assertNotNull(encoded);
+        Assertions.assertEquals(ContentCodec.DEFLATE_DICTIONARY, encoded[0]);
+
+        ContentCodec rotated = new ContentCodec(true, 6, 16, List.of(newDictionary, oldDictionary));
+        Assertions.assertEquals(content, rotated.decode(encoded));
+        Assertions.assertThrows(IllegalStateException.class,
+                () -> new ContentCodec(true, 6, 16, List.of(newDictionary)).decode(encoded));
+    }
+
+    @Test
+    @DisplayName("对比明文、deflate、deflate + 字典的单行字节数与解码耗时")
+    void testCompressionRatio() {
+        List<String> training = samples(new Random(4), 2000);
+        List<String> rows = samples(new Random(5), 5000);
+        byte[] dictionary = ContentDictionaryTrainer.train(training, 4, 16 * 1024);
+        ContentCodec deflate = new ContentCodec(true, 6, 64, List.of());
+        ContentCodec withDictionary = new ContentCodec(true, 6, 64, List.of(dictionary));
+
+        long raw = 0;
+        long plain = 0;
+        long dict = 0;
+        for (String row : rows) {
+            int rawBytes = row.getBytes(StandardCharsets.UTF_8).length;
+            raw += rawBytes;
+            plain += stored(deflate.encode(row), rawBytes);
+            dict += stored(withDictionary.encode(row), rawBytes);
+        }
+        long decodeNanos = decodeNanos(withDictionary, rows);
+        System.out.printf("rows=%d, raw=%d B/row, deflate=%d B/row, deflate+dict=%d B/row, decode=%.2f us/row%n",
+                rows.size(), raw / rows.size(), plain / rows.size(), dict / rows.size(),
+                decodeNanos / 1000.0 / rows.size());
+
+        Assertions.assertTrue(plain < raw, "deflate 应该减少存储字节数");
+        Assertions.assertTrue(dict < plain, "字典压缩对短消息应该优于普通 deflate");
+    }
+
+    private static long stored(byte[] encoded, int rawBytes) {
+        return encoded == null ? rawBytes : encoded.length;
+    }
+
+    private static long decodeNanos(ContentCodec codec, List<String> rows) {
+        List<byte[]> encoded = new ArrayList<>(rows.size());
+        for (String row : rows) {
+            byte[] bytes = codec.encode(row);
+            if (bytes != null) {
+                encoded.add(bytes);
+            }
+        }
+        // 预热一轮再计时
+        encoded.forEach(codec::decode);
+        long start = System.nanoTime();
+        encoded.forEach(codec::decode);
+        return System.nanoTime() - start;
+    }
+
+    private static List<String> samples(Random random, int count) {
+        List<String> samples = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            samples.add(sample(random, 3 + random.nextInt(6)));
+        }
+        return samples;
+    }
+
+    private static String sample(Random random, int phrases) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < phrases; i++) {
+            builder.append(PHRASES[random.nextInt(PHRASES.length)]);
+        }
+        return builder.toString();
+    }
+}
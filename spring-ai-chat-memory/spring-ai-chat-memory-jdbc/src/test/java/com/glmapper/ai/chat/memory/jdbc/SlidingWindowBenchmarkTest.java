@@ -0,0 +1,144 @@
+package com.glmapper.ai.chat.memory.jdbc;
+
+import com.glmapper.ai.chat.memory.jdbc.memory.SlidingWindowChatMemory;
+import com.glmapper.ai.chat.memory.jdbc.repository.CodecJdbcChatMemoryRepository;
+import com.glmapper.ai.chat.memory.jdbc.repository.ContentCodec;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 窗口读取测试
+ * <p>
+ * 使用 H2 的 MySQL 兼容模式执行 schema-mysql.sql，不依赖外部数据库和模型。
+ * 基准测试默认不执行，通过 -Dchat.memory.benchmark=true 开启，
+ * 数据规模可以通过 -Dchat.memory.benchmark.conversations 与 -Dchat.memory.benchmark.messages 调整。
+ *
+ * @author glmapper
+ * @since 2025-06-24
+ */
+public class SlidingWindowBenchmarkTest {
+
+    private static final int WINDOW = 20;
+
+    @Test
+    @DisplayName("测试只读取最近的消息且顺序正确")
+    void testFindLastMessages(@TempDir Path directory) {
+        CodecJdbcChatMemoryRepository repository = repository(directory);
+        SlidingWindowChatMemory chatMemory = new SlidingWindowChatMemory(repository, WINDOW, 100);
+        for (int i = 0; i < 50; i++) {
+            chatMemory.add("test-window", new UserMessage("question " + i));
+            chatMemory.add("test-window", new AssistantMessage("answer " + i));
+        }
+
+        List<Message> window = chatMemory.get("test-window");
+        Assertions.assertEquals(WINDOW, window.size());
+        Assertions.assertEquals("question 40", window.get(0).getText());
+        Assertions.assertEquals("answer 49", window.get(WINDOW - 1).getText());
+        Assertions.assertEquals(100, repository.findByConversationId("test-window").size(), "追加写入不应改写历史消息");
+
+        chatMemory.add("test-short", new UserMessage("only one"));
+        Assertions.assertEquals(1, chatMemory.get("test-short").size());
+
+        chatMemory.clear("test-window");
+        Assertions.assertTrue(chatMemory.get("test-window").isEmpty());
+    }
+
+    @Test
+    @DisplayName("测试每个会话保留的消息数有上限")
+    void testStorageIsBounded(@TempDir Path directory) {
+        CodecJdbcChatMemoryRepository repository = repository(directory);
+        SlidingWindowChatMemory chatMemory = new SlidingWindowChatMemory(repository, WINDOW, WINDOW * 2);
+        for (int i = 0; i < 200; i++) {
+            chatMemory.add("test-bounded", new UserMessage("question " + i));
+            chatMemory.add("test-bounded", new AssistantMessage("answer " + i));
+            Assertions.assertTrue(repository.findByConversationId("test-bounded").size() <= WINDOW * 2);
+        }
+        chatMemory.add("test-other", new UserMessage("other conversation"));
+
+        List<Message> stored = repository.findByConversationId("test-bounded");
+        Assertions.assertEquals(WINDOW * 2, stored.size());
+        Assertions.assertEquals("question 180", stored.get(0).getText());
+        Assertions.assertEquals("answer 199", stored.get(stored.size() - 1).getText());
+        Assertions.assertEquals("question 190", chatMemory.get("test-bounded").get(0).getText());
+        // 裁剪只影响当前会话
+        Assertions.assertEquals(1, repository.findByConversationId("test-other").size());
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "chat.memory.benchmark", matches = "true")
+    @DisplayName("对比全量加载后裁剪与 SQL 窗口读取的耗时")
+    void benchmarkWindowRead(@TempDir Path directory) {
+        int conversations = Integer.getInteger("chat.memory.benchmark.conversations", 10_000);
+        int messages = Integer.getInteger("chat.memory.benchmark.messages", 1_000);
+        int reads = Integer.getInteger("chat.memory.benchmark.reads", 2_000);
+        CodecJdbcChatMemoryRepository repository = repository(directory);
+
+        long start = System.nanoTime();
+        List<Message> batch = new ArrayList<>(messages);
+        for (int i = 0; i < messages; i++) {
+            batch.add(i % 2 == 0 ? new UserMessage("question " + i) : new AssistantMessage("answer " + i));
+        }
+        for (int c = 0; c < conversations; c++) {
+            repository.appendAll("conversation-" + c, batch);
+        }
+        System.out.printf("loaded %d conversations x %d messages in %d ms%n", conversations, messages,
+                (System.nanoTime() - start) / 1_000_000);
+
+        Random random = new Random(42);
+        // 预热
+        for (int i = 0; i < 200; i++) {
+            String conversationId = "conversation-" + random.nextInt(conversations);
+            fullLoad(repository, conversationId);
+            repository.findLastByConversationId(conversationId, WINDOW);
+        }
+
+        long fullNanos = 0;
+        long windowNanos = 0;
+        for (int i = 0; i < reads; i++) {
+            String conversationId = "conversation-" + random.nextInt(conversations);
+            long t0 = System.nanoTime();
+            List<Message> full = fullLoad(repository, conversationId);
+            long t1 = System.nanoTime();
+            List<Message> window = repository.findLastByConversationId(conversationId, WINDOW);
+            long t2 = System.nanoTime();
+            fullNanos += t1 - t0;
+            windowNanos += t2 - t1;
+            Assertions.assertEquals(full.get(WINDOW - 1).getText(), window.get(WINDOW - 1).getText());
+        }
+        System.out.printf("full load + trim: %.1f us/read, sql window: %.1f us/read%n",
+                fullNanos / 1000.0 / reads, windowNanos / 1000.0 / reads);
+        Assertions.assertTrue(windowNanos < fullNanos, "窗口读取应该快于全量加载");
+    }
+
+    /**
+     * MessageWindowChatMemory 的读取方式：加载整个会话后在内存中裁剪
+     */
+    private static List<Message> fullLoad(CodecJdbcChatMemoryRepository repository, String conversationId) {
+        List<Message> all = repository.findByConversationId(conversationId);
+        return all.subList(Math.max(0, all.size() - WINDOW), all.size());
+    }
+
+    private static CodecJdbcChatMemoryRepository repository(Path directory) {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:file:" + directory.resolve("chat-memory").toAbsolutePath() + ";MODE=MySQL;DB_CLOSE_DELAY=-1", "sa", "");
+        new ResourceDatabasePopulator(new ClassPathResource("schema-mysql.sql")).execute(dataSource);
+        return new CodecJdbcChatMemoryRepository(new JdbcTemplate(dataSource),
+                new DataSourceTransactionManager(dataSource), ContentCodec.disabled());
+    }
+}
@@ -0,0 +1,123 @@
+package com.glmapper.ai.chat.memory.local.advisors;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.ai.chat.client.ChatClientRequest;
+import org.springframework.ai.chat.client.ChatClientResponse;
+import org.springframework.ai.chat.client.advisor.api.Advisor;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisor;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisorChain;
+import org.springframework.ai.chat.client.advisor.api.StreamAdvisor;
+import org.springframework.ai.chat.client.advisor.api.StreamAdvisorChain;
+import org.springframework.ai.chat.memory.ChatMemory;
+import org.springframework.util.Assert;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @Classname ConversationLockAdvisor
+ * @Description 按会话串行化对话轮次的 Advisor
+ * <p>
+ * 同一个 conversationId 的两个请求并发进入时，MessageChatMemoryAdvisor 的读 memory、写 user message、写 assistant message
+ * 会相互穿插，导致上下文错乱。这里用分段锁（striped lock）包住后续的整个 advisor 链：
+ * 同一会话的轮次按顺序执行，不同会话只有在哈希到同一个分段时才会相互等待，分段数足够大时可以认为完全并行。
+ * 锁使用 Semaphore 而不是 ReentrantLock，因为 stream 场景下加锁和解锁可能发生在不同线程上。
+ * 发生等待时记录 chat.memory.lock.contended 计数与 chat.memory.lock.wait 等待时长。
+ * </p>
+ * @Date 2025/6/22 15:10
+ * @Created by glmapper
+ */
+public class ConversationLockAdvisor implements CallAdvisor, StreamAdvisor {
+
+    private final Semaphore[] stripes;
+
+    private final int mask;
+
+    private final Counter contended;
+
+    private final Timer waitTimer;
+
+    /**
+     * @param stripes  分段数，会向上取整为 2 的幂
+     * @param registry 指标注册表
+     */
+    public ConversationLockAdvisor(int stripes, MeterRegistry registry) {
+        Assert.isTrue(stripes > 0, "stripes must be greater than 0");
+        int size = 1;
+        while (size < stripes) {
+            size <<= 1;
+        }
+        this.stripes = new Semaphore[size];
+        for (int i = 0; i < size; i++) {
+            this.stripes[i] = new Semaphore(1);
+        }
+        this.mask = size - 1;
+        this.contended = Counter.builder("chat.memory.lock.contended")
+                .description("Turns that had to wait for another turn of the same conversation stripe")
+                .register(registry);
+        this.waitTimer = Timer.builder("chat.memory.lock.wait")
+                .description("Time spent waiting for the conversation lock")
+                .register(registry);
+    }
+
+    @Override
+    public ChatClientResponse adviseCall(ChatClientRequest chatClientRequest, CallAdvisorChain callAdvisorChain) {
+        Semaphore lock = acquire(stripeOf(chatClientRequest));
+        try {
+            return callAdvisorChain.nextCall(chatClientRequest);
+        } finally {
+            lock.release();
+        }
+    }
+
+    @Override
+    public Flux<ChatClientResponse> adviseStream(ChatClientRequest chatClientRequest,
+                                                 StreamAdvisorChain streamAdvisorChain) {
+        Semaphore stripe = stripeOf(chatClientRequest);
+        // 等锁是阻塞操作，放到 boundedElastic 上执行；流结束、出错或取消时释放
+        return Flux.using(() -> acquire(stripe), lock -> streamAdvisorChain.nextStream(chatClientRequest),
+                        Semaphore::release)
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    @Override
+    public String getName() {
+        return "conversation-lock-advisor";
+    }
+
+    /**
+     * 必须在 MessageChatMemoryAdvisor 之前执行，才能把读写 memory 的整个过程包在锁内
+     */
+    @Override
+    public int getOrder() {
+        return Advisor.DEFAULT_CHAT_MEMORY_PRECEDENCE_ORDER - 1;
+    }
+
+    private Semaphore stripeOf(ChatClientRequest request) {
+        Object conversationId = request.context().getOrDefault(ChatMemory.CONVERSATION_ID,
+                ChatMemory.DEFAULT_CONVERSATION_ID);
+        int hash = conversationId.hashCode();
+        return this.stripes[(hash ^ (hash >>> 16)) & this.mask];
+    }
+
+    private Semaphore acquire(Semaphore lock) {
+        if (lock.tryAcquire()) {
+            return lock;
+        }
+        this.contended.increment();
+        long start = System.nanoTime();
+        try {
+            lock.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the conversation lock", e);
+        } finally {
+            this.waitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+        return lock;
+    }
+}
@@ -1,12 +1,21 @@
 package com.glmapper.ai.chat.memory.local.configs;
 
+import com.glmapper.ai.chat.memory.local.advisors.ConversationLockAdvisor;
+import com.glmapper.ai.chat.memory.local.recall.LongTermRecallAdvisor;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.ai.chat.client.ChatClient;
 import org.springframework.ai.chat.client.advisor.MessageChatMemoryAdvisor;
+import org.springframework.ai.chat.client.advisor.api.Advisor;
 import org.springframework.ai.chat.memory.ChatMemory;
 import org.springframework.ai.openai.OpenAiChatModel;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * In all cases, you need to disable the ChatClient.Builder autoconfiguration by setting the property
  *
@@ -19,9 +28,25 @@ import org.springframework.context.annotation.Configuration;
 public class ChatClientConfigs {
 
     @Bean
-    public ChatClient chatClient(OpenAiChatModel chatModel, ChatMemory chatMemory) {
+    public ConversationLockAdvisor conversationLockAdvisor(@Value("${chat.memory.local.lock-stripes:1024}") int stripes,
+                                                           MeterRegistry registry) {
+        return new ConversationLockAdvisor(stripes, registry);
+    }
+
+    /**
+     * ConversationLockAdvisor 的 order 小于 MessageChatMemoryAdvisor，同一会话的并发轮次会被串行化；
+     * 开启长期记忆时再加上 LongTermRecallAdvisor
+     */
+    @Bean
+    public ChatClient chatClient(OpenAiChatModel chatModel, ChatMemory chatMemory,
+                                 ConversationLockAdvisor conversationLockAdvisor,
+                                 ObjectProvider<LongTermRecallAdvisor> longTermRecallAdvisor) {
+        List<Advisor> advisors = new ArrayList<>();
+        advisors.add(conversationLockAdvisor);
+        advisors.add(MessageChatMemoryAdvisor.builder(chatMemory).build());
+        longTermRecallAdvisor.ifAvailable(advisors::add);
         return ChatClient.builder(chatModel)
-                .defaultAdvisors(MessageChatMemoryAdvisor.builder(chatMemory).build())
+                .defaultAdvisors(advisors)
                 .defaultSystem("You are deepseek chat bot, you answer questions in a concise and accurate manner.")
                 .build();
     }
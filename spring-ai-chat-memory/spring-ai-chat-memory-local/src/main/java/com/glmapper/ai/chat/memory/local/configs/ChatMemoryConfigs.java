@@ -0,0 +1,70 @@
+package com.glmapper.ai.chat.memory.local.configs;
+
+import com.glmapper.ai.chat.memory.local.repository.BoundedChatMemoryRepository;
+import com.glmapper.ai.chat.memory.local.repository.MappedSegmentChatMemoryRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * 替换默认的 InMemoryChatMemoryRepository：ChatMemoryAutoConfiguration 中的 ChatMemoryRepository
+ * 与 ChatMemory 均为 @ConditionalOnMissingBean，这里声明的 repository 会被自动配置的 MessageWindowChatMemory 使用
+ * <p>
+ * 通过 chat.memory.local.store 选择存储方式：bounded（默认，纯内存）或 mapped（内存映射文件，重启后会话不丢失）
+ * </p>
+ *
+ * @Classname ChatMemoryConfigs
+ * @Description ChatMemoryConfigs
+ * @Date 2025/6/20 11:05
+ * @Created by glmapper
+ */
+@Configuration
+public class ChatMemoryConfigs {
+
+    @Bean
+    @ConditionalOnProperty(name = "chat.memory.local.store", havingValue = "bounded", matchIfMissing = true)
+    public BoundedChatMemoryRepository chatMemoryRepository(
+            @Value("${chat.memory.local.max-conversations:10000}") long maxConversations,
+            @Value("${chat.memory.local.max-bytes-per-conversation:65536}") int maxBytesPerConversation,
+            @Value("${chat.memory.local.idle-ttl:PT30M}") Duration idleTtl,
+            MeterRegistry registry) {
+        BoundedChatMemoryRepository repository = new BoundedChatMemoryRepository(maxConversations,
+                maxBytesPerConversation, idleTtl);
+        Gauge.builder("chat.memory.local.heap.bytes", repository, BoundedChatMemoryRepository::estimatedHeapBytes)
+                .description("Estimated heap bytes held by the local chat memory")
+                .baseUnit("bytes")
+                .register(registry);
+        Gauge.builder("chat.memory.local.conversations", repository, BoundedChatMemoryRepository::conversationCount)
+                .description("Number of conversations held by the local chat memory")
+                .register(registry);
+        // 淘汰次数只增不减，注册为 FunctionCounter，监控系统可以按速率查询
+        FunctionCounter.builder("chat.memory.local.evictions", repository, BoundedChatMemoryRepository::sizeEvictionCount)
+                .description("Conversations evicted because max-conversations was reached")
+                .tag("cause", "size")
+                .register(registry);
+        FunctionCounter.builder("chat.memory.local.evictions", repository, BoundedChatMemoryRepository::expirationCount)
+                .description("Conversations evicted because idle-ttl elapsed")
+                .tag("cause", "expired")
+                .register(registry);
+        return repository;
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "chat.memory.local.store", havingValue = "mapped")
+    public MappedSegmentChatMemoryRepository mappedChatMemoryRepository(
+            @Value("${chat.memory.local.mapped.directory:./data/chat-memory}") Path directory,
+            @Value("${chat.memory.local.mapped.segment-bytes:67108864}") int segmentBytes,
+            @Value("${chat.memory.local.mapped.sync-on-write:false}") boolean syncOnWrite,
+            @Value("${chat.memory.local.mapped.compaction-garbage-ratio:0.5}") double compactionGarbageRatio,
+            @Value("${chat.memory.local.mapped.compaction-interval:PT10M}") Duration compactionInterval) {
+        return new MappedSegmentChatMemoryRepository(directory, segmentBytes, syncOnWrite, compactionGarbageRatio,
+                compactionInterval);
+    }
+}
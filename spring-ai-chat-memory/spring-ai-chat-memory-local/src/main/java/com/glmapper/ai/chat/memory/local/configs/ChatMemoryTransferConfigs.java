@@ -0,0 +1,51 @@
+package com.glmapper.ai.chat.memory.local.configs;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.glmapper.ai.chat.memory.transfer.ChatMemoryExporter;
+import com.glmapper.ai.chat.memory.transfer.ChatMemoryImporter;
+import com.glmapper.ai.chat.memory.transfer.ConversationIdPager;
+import org.springframework.ai.chat.memory.ChatMemoryRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.nio.file.Path;
+
+/**
+ * 会话数据的导入导出，与 spring-ai-chat-memory-jdbc 模块使用相同的 JSONL 格式，可以在两个模块之间迁移会话
+ * <p>
+ * 启动时设置 chat.memory.transfer.mode=export 或 import 执行一次，执行中断后使用相同的参数再次启动会从进度文件处继续。
+ * </p>
+ *
+ * @Classname ChatMemoryTransferConfigs
+ * @Description ChatMemoryTransferConfigs
+ * @Date 2025/6/26 14:00
+ * @Created by glmapper
+ */
+@Configuration
+@ConditionalOnProperty(name = "chat.memory.transfer.mode")
+public class ChatMemoryTransferConfigs {
+
+    @Bean
+    public ApplicationRunner chatMemoryTransferRunner(ChatMemoryRepository chatMemoryRepository, ObjectMapper objectMapper,
+                                                      @Value("${chat.memory.transfer.mode}") String mode,
+                                                      @Value("${chat.memory.transfer.file:./data/chat-memory.jsonl}") Path file,
+                                                      @Value("${chat.memory.transfer.page-size:1000}") int pageSize,
+                                                      @Value("${chat.memory.transfer.writers:4}") int writers,
+                                                      @Value("${chat.memory.transfer.chunk-lines:500}") int chunkLines) {
+        Path checkpoint = file.resolveSibling(file.getFileName() + "." + mode + ".checkpoint");
+        return args -> {
+            if ("export".equalsIgnoreCase(mode)) {
+                new ChatMemoryExporter(chatMemoryRepository, ConversationIdPager.sorted(chatMemoryRepository),
+                        objectMapper, pageSize).export(file, checkpoint);
+            } else if ("import".equalsIgnoreCase(mode)) {
+                new ChatMemoryImporter(chatMemoryRepository, objectMapper, writers, chunkLines)
+                        .importFrom(file, checkpoint);
+            } else {
+                throw new IllegalArgumentException("Unknown chat.memory.transfer.mode: " + mode);
+            }
+        };
+    }
+}
@@ -0,0 +1,90 @@
+package com.glmapper.ai.chat.memory.local.configs;
+
+import com.glmapper.ai.chat.memory.local.recall.ConversationVectorIndex;
+import com.glmapper.ai.chat.memory.local.recall.EvictionCapturingChatMemoryRepository;
+import com.glmapper.ai.chat.memory.local.recall.LongTermMemoryArchiver;
+import com.glmapper.ai.chat.memory.local.recall.LongTermRecallAdvisor;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.ai.chat.memory.ChatMemory;
+import org.springframework.ai.chat.memory.ChatMemoryRepository;
+import org.springframework.ai.chat.memory.MessageWindowChatMemory;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.tokenizer.JTokkitTokenCountEstimator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * 长期记忆：滑出窗口的轮次在后台批量 embedding，后续对话按相关性召回
+ * <p>
+ * 默认关闭，通过 chat.memory.long-term.enabled=true 开启，需要配置可用的 embedding 模型。
+ * 开启后这里声明的 ChatMemory 会替换自动配置的 MessageWindowChatMemory，
+ * 其 repository 是对 ChatMemoryConfigs 中 repository 的包装，用于捕获滑出窗口的消息。
+ * </p>
+ *
+ * @Classname LongTermMemoryConfigs
+ * @Description LongTermMemoryConfigs
+ * @Date 2025/6/25 15:30
+ * @Created by glmapper
+ */
+@Configuration
+@ConditionalOnProperty(name = "chat.memory.long-term.enabled", havingValue = "true")
+public class LongTermMemoryConfigs {
+
+    @Bean
+    public ConversationVectorIndex conversationVectorIndex(
+            @Value("${chat.memory.local.max-conversations:10000}") long maxConversations,
+            @Value("${chat.memory.long-term.max-turns-per-conversation:1000}") int maxTurnsPerConversation,
+            @Value("${chat.memory.local.idle-ttl:PT30M}") Duration idleTtl) {
+        return new ConversationVectorIndex(maxConversations, maxTurnsPerConversation, idleTtl);
+    }
+
+    @Bean
+    public LongTermMemoryArchiver longTermMemoryArchiver(EmbeddingModel embeddingModel, ConversationVectorIndex index,
+                                                         @Value("${chat.memory.long-term.queue-capacity:10000}") int queueCapacity,
+                                                         @Value("${chat.memory.long-term.batch-size:32}") int batchSize,
+                                                         @Value("${chat.memory.long-term.flush-interval:PT1S}") Duration flushInterval,
+                                                         MeterRegistry registry) {
+        LongTermMemoryArchiver archiver = new LongTermMemoryArchiver(embeddingModel, index,
+                new JTokkitTokenCountEstimator(), queueCapacity, batchSize, flushInterval);
+        FunctionCounter.builder("chat.memory.long-term.turns", archiver, LongTermMemoryArchiver::archivedCount)
+                .description("Evicted turns embedded into the long-term memory")
+                .tag("result", "archived")
+                .register(registry);
+        FunctionCounter.builder("chat.memory.long-term.turns", archiver, LongTermMemoryArchiver::droppedCount)
+                .description("Evicted turns dropped because the archive queue was full")
+                .tag("result", "dropped")
+                .register(registry);
+        FunctionCounter.builder("chat.memory.long-term.turns", archiver, LongTermMemoryArchiver::failedCount)
+                .description("Evicted turns dropped because embedding failed")
+                .tag("result", "failed")
+                .register(registry);
+        Gauge.builder("chat.memory.long-term.pending", archiver, LongTermMemoryArchiver::pendingCount)
+                .description("Evicted turns waiting to be embedded")
+                .register(registry);
+        return archiver;
+    }
+
+    @Bean
+    public LongTermRecallAdvisor longTermRecallAdvisor(EmbeddingModel embeddingModel, ConversationVectorIndex index,
+                                                       @Value("${chat.memory.long-term.top-k:5}") int topK,
+                                                       @Value("${chat.memory.long-term.token-budget:1024}") int tokenBudget,
+                                                       @Value("${chat.memory.long-term.min-score:0.3}") double minScore) {
+        return new LongTermRecallAdvisor(embeddingModel, index, topK, tokenBudget, minScore);
+    }
+
+    @Bean
+    public ChatMemory chatMemory(ChatMemoryRepository chatMemoryRepository, LongTermMemoryArchiver archiver,
+                                 ConversationVectorIndex index,
+                                 @Value("${chat.memory.long-term.window:20}") int maxMessages) {
+        return MessageWindowChatMemory.builder()
+                .chatMemoryRepository(new EvictionCapturingChatMemoryRepository(chatMemoryRepository, archiver, index))
+                .maxMessages(maxMessages)
+                .build();
+    }
+}
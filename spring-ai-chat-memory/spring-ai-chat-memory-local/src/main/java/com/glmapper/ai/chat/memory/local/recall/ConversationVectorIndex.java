@@ -0,0 +1,132 @@
+package com.glmapper.ai.chat.memory.local.recall;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.util.Assert;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * @Classname ConversationVectorIndex
+ * @Description 按会话划分的内存向量索引
+ * <p>
+ * 每个会话只在自己的历史轮次中检索，单个会话的轮次数量有限（maxTurnsPerConversation），
+ * 因此直接暴力计算余弦相似度即可，不需要 ANN 索引。向量在写入时归一化，检索时只需要计算点积。
+ * 会话数量与空闲时间的上限与 BoundedChatMemoryRepository 一致，由 Caffeine 负责淘汰。
+ * </p>
+ * @Date 2025/6/25 10:05
+ * @Created by glmapper
+ */
+public class ConversationVectorIndex {
+
+    /**
+     * 检索结果
+     *
+     * @param text     轮次内容
+     * @param tokens   轮次内容的 token 数
+     * @param sequence 轮次在会话中的写入顺序，用于按时间先后排列召回的内容
+     * @param score    与问题的余弦相似度
+     */
+    public record Recalled(String text, int tokens, long sequence, float score) {
+    }
+
+    private record Entry(float[] vector, String text, int tokens, long sequence) {
+    }
+
+    private static final class Turns {
+
+        private final ArrayDeque<Entry> entries = new ArrayDeque<>();
+
+        private long nextSequence;
+    }
+
+    private final Cache<String, Turns> conversations;
+
+    private final int maxTurnsPerConversation;
+
+    public ConversationVectorIndex(long maxConversations, int maxTurnsPerConversation, Duration idleTtl) {
+        Assert.isTrue(maxTurnsPerConversation > 0, "maxTurnsPerConversation must be greater than 0");
+        this.maxTurnsPerConversation = maxTurnsPerConversation;
+        this.conversations = Caffeine.newBuilder()
+                .maximumSize(maxConversations)
+                .expireAfterAccess(idleTtl)
+                .build();
+    }
+
+    public void add(String conversationId, String text, int tokens, float[] vector) {
+        Turns turns = this.conversations.get(conversationId, id -> new Turns());
+        synchronized (turns) {
+            Entry entry = new Entry(normalize(vector), text, tokens, turns.nextSequence++);
+            turns.entries.addLast(entry);
+            // 超出上限时丢弃最旧的轮次
+            while (turns.entries.size() > this.maxTurnsPerConversation) {
+                turns.entries.removeFirst();
+            }
+        }
+    }
+
+    /**
+     * @return 按相似度从高到低排列的 topK 个轮次
+     */
+    public List<Recalled> search(String conversationId, float[] query, int topK) {
+        Turns turns = this.conversations.getIfPresent(conversationId);
+        if (turns == null) {
+            return List.of();
+        }
+        float[] normalized = normalize(query);
+        PriorityQueue<Recalled> top = new PriorityQueue<>(topK + 1, Comparator.comparingDouble(Recalled::score));
+        synchronized (turns) {
+            for (Entry entry : turns.entries) {
+                top.offer(new Recalled(entry.text(), entry.tokens(), entry.sequence(), dot(normalized, entry.vector())));
+                if (top.size() > topK) {
+                    top.poll();
+                }
+            }
+        }
+        List<Recalled> result = new ArrayList<>(top);
+        result.sort(Comparator.comparingDouble(Recalled::score).reversed());
+        return result;
+    }
+
+    public boolean contains(String conversationId) {
+        return this.conversations.getIfPresent(conversationId) != null;
+    }
+
+    public void remove(String conversationId) {
+        this.conversations.invalidate(conversationId);
+    }
+
+    public long conversationCount() {
+        return this.conversations.estimatedSize();
+    }
+
+    private static float dot(float[] a, float[] b) {
+        int length = Math.min(a.length, b.length);
+        float sum = 0;
+        for (int i = 0; i < length; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+
+    private static float[] normalize(float[] vector) {
+        double norm = 0;
+        for (float value : vector) {
+            norm += value * value;
+        }
+        float[] normalized = new float[vector.length];
+        if (norm == 0) {
+            return normalized;
+        }
+        float scale = (float) (1 / Math.sqrt(norm));
+        for (int i = 0; i < vector.length; i++) {
+            normalized[i] = vector[i] * scale;
+        }
+        return normalized;
+    }
+}
@@ -0,0 +1,104 @@
+package com.glmapper.ai.chat.memory.local.recall;
+
+import org.springframework.ai.chat.memory.ChatMemoryRepository;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.MessageType;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * @Classname EvictionCapturingChatMemoryRepository
+ * @Description 捕获滑出窗口的消息并交给 LongTermMemoryArchiver 归档
+ * <p>
+ * MessageWindowChatMemory 每次 add 都会用窗口内的消息整体覆盖会话，新的窗口是 (旧消息 + 新消息) 中非系统消息的后缀。
+ * 这里在 saveAll 时对比旧消息与新窗口：旧消息中不在新窗口里的那段前缀就是本次滑出窗口的消息。
+ * 底层存储还可能再丢弃一部分（例如 BoundedChatMemoryRepository 超出单会话字节上限时丢弃最旧的消息），
+ * 所以写入后再读一次底层存储实际保留的消息，新窗口中不在其中的那段前缀也一起归档。
+ * 每次写入会多读两次会话，本地存储的读取只是一次内存解码，开销可以忽略。
+ * </p>
+ * @Date 2025/6/25 11:20
+ * @Created by glmapper
+ */
+public class EvictionCapturingChatMemoryRepository implements ChatMemoryRepository {
+
+    private final ChatMemoryRepository delegate;
+
+    private final LongTermMemoryArchiver archiver;
+
+    private final ConversationVectorIndex index;
+
+    public EvictionCapturingChatMemoryRepository(ChatMemoryRepository delegate, LongTermMemoryArchiver archiver,
+                                                 ConversationVectorIndex index) {
+        this.delegate = delegate;
+        this.archiver = archiver;
+        this.index = index;
+    }
+
+    @Override
+    public List<String> findConversationIds() {
+        return this.delegate.findConversationIds();
+    }
+
+    @Override
+    public List<Message> findByConversationId(String conversationId) {
+        return this.delegate.findByConversationId(conversationId);
+    }
+
+    @Override
+    public void saveAll(String conversationId, List<Message> messages) {
+        List<Message> previous = this.delegate.findByConversationId(conversationId);
+        this.delegate.saveAll(conversationId, messages);
+        List<Message> retained = this.delegate.findByConversationId(conversationId);
+        List<Message> evicted = new ArrayList<>(evicted(previous, messages));
+        evicted.addAll(evicted(messages, retained));
+        if (!evicted.isEmpty()) {
+            this.archiver.archive(conversationId, evicted);
+        }
+    }
+
+    @Override
+    public void deleteByConversationId(String conversationId) {
+        this.delegate.deleteByConversationId(conversationId);
+        this.index.remove(conversationId);
+    }
+
+    /**
+     * 找到最小的 i，使 previous[i..] 是 current 的前缀，previous[0..i) 即为滑出窗口的消息
+     */
+    static List<Message> evicted(List<Message> previous, List<Message> current) {
+        List<Message> before = withoutSystem(previous);
+        List<Message> after = withoutSystem(current);
+        for (int i = 0; i < before.size(); i++) {
+            if (isPrefix(before, i, after)) {
+                return before.subList(0, i);
+            }
+        }
+        return before;
+    }
+
+    private static boolean isPrefix(List<Message> before, int from, List<Message> after) {
+        if (before.size() - from > after.size()) {
+            return false;
+        }
+        for (int i = from; i < before.size(); i++) {
+            Message a = before.get(i);
+            Message b = after.get(i - from);
+            if (a.getMessageType() != b.getMessageType() || !Objects.equals(a.getText(), b.getText())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static List<Message> withoutSystem(List<Message> messages) {
+        List<Message> result = new ArrayList<>(messages.size());
+        for (Message message : messages) {
+            if (message.getMessageType() != MessageType.SYSTEM) {
+                result.add(message);
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,175 @@
+package com.glmapper.ai.chat.memory.local.recall;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.MessageType;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.tokenizer.TokenCountEstimator;
+import org.springframework.util.Assert;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @Classname LongTermMemoryArchiver
+ * @Description 把滑出窗口的对话轮次批量 embedding 后写入 ConversationVectorIndex
+ * <p>
+ * 1、archive 只把轮次放入有界队列，不阻塞对话请求；队列满时直接丢弃并计数，长期记忆是尽力而为的；
+ * 2、后台线程攒够 batchSize 个轮次或等待 flushInterval 后调用一次 embedding 接口，减少请求次数；
+ * 3、embedding 失败时丢弃这一批并计数，不重试，避免失败时队列持续堆积。
+ * </p>
+ * @Date 2025/6/25 10:40
+ * @Created by glmapper
+ */
+@Slf4j
+public class LongTermMemoryArchiver implements AutoCloseable {
+
+    private record Turn(String conversationId, String text) {
+    }
+
+    private final EmbeddingModel embeddingModel;
+
+    private final ConversationVectorIndex index;
+
+    private final TokenCountEstimator tokenCountEstimator;
+
+    private final BlockingQueue<Turn> queue;
+
+    private final int batchSize;
+
+    private final long flushIntervalNanos;
+
+    private final Thread worker;
+
+    private volatile boolean running = true;
+
+    private final AtomicLong archived = new AtomicLong();
+
+    private final AtomicLong dropped = new AtomicLong();
+
+    private final AtomicLong failed = new AtomicLong();
+
+    public LongTermMemoryArchiver(EmbeddingModel embeddingModel, ConversationVectorIndex index,
+                                  TokenCountEstimator tokenCountEstimator, int queueCapacity, int batchSize,
+                                  Duration flushInterval) {
+        Assert.isTrue(batchSize > 0, "batchSize must be greater than 0");
+        this.embeddingModel = embeddingModel;
+        this.index = index;
+        this.tokenCountEstimator = tokenCountEstimator;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+        this.flushIntervalNanos = flushInterval.toNanos();
+        this.worker = new Thread(this::run, "chat-memory-archiver");
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    /**
+     * 按 UserMessage 把消息分成轮次后放入队列
+     *
+     * @return 是否全部放入队列
+     */
+    public boolean archive(String conversationId, List<Message> evicted) {
+        boolean accepted = true;
+        StringBuilder turn = new StringBuilder();
+        for (Message message : evicted) {
+            MessageType type = message.getMessageType();
+            if (type != MessageType.USER && type != MessageType.ASSISTANT || message.getText() == null) {
+                continue;
+            }
+            if (type == MessageType.USER && !turn.isEmpty()) {
+                accepted &= offer(conversationId, turn.toString());
+                turn.setLength(0);
+            }
+            if (!turn.isEmpty()) {
+                turn.append('\n');
+            }
+            turn.append(type.getValue()).append(": ").append(message.getText());
+        }
+        if (!turn.isEmpty()) {
+            accepted &= offer(conversationId, turn.toString());
+        }
+        return accepted;
+    }
+
+    private boolean offer(String conversationId, String text) {
+        if (this.queue.offer(new Turn(conversationId, text))) {
+            return true;
+        }
+        this.dropped.incrementAndGet();
+        return false;
+    }
+
+    private void run() {
+        List<Turn> batch = new ArrayList<>(this.batchSize);
+        while (this.running) {
+            try {
+                Turn first = this.queue.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + this.flushIntervalNanos;
+                while (batch.size() < this.batchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    Turn next = remaining > 0 ? this.queue.poll(remaining, TimeUnit.NANOSECONDS) : this.queue.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                embed(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void embed(List<Turn> batch) {
+        List<String> texts = new ArrayList<>(batch.size());
+        batch.forEach(turn -> texts.add(turn.text()));
+        try {
+            List<float[]> vectors = this.embeddingModel.embed(texts);
+            for (int i = 0; i < batch.size(); i++) {
+                Turn turn = batch.get(i);
+                this.index.add(turn.conversationId(), turn.text(), this.tokenCountEstimator.estimate(turn.text()),
+                        vectors.get(i));
+            }
+            this.archived.addAndGet(batch.size());
+        } catch (RuntimeException e) {
+            this.failed.addAndGet(batch.size());
+            log.warn("Failed to embed {} evicted chat memory turns", batch.size(), e);
+        }
+    }
+
+    public long archivedCount() {
+        return this.archived.get();
+    }
+
+    public long droppedCount() {
+        return this.dropped.get();
+    }
+
+    public long failedCount() {
+        return this.failed.get();
+    }
+
+    public int pendingCount() {
+        return this.queue.size();
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        this.running = false;
+        this.worker.interrupt();
+        this.worker.join(TimeUnit.SECONDS.toMillis(5));
+    }
+}
@@ -0,0 +1,101 @@
+package com.glmapper.ai.chat.memory.local.recall;
+
+import org.springframework.ai.chat.client.ChatClientRequest;
+import org.springframework.ai.chat.client.ChatClientResponse;
+import org.springframework.ai.chat.client.advisor.api.Advisor;
+import org.springframework.ai.chat.client.advisor.api.AdvisorChain;
+import org.springframework.ai.chat.client.advisor.api.BaseAdvisor;
+import org.springframework.ai.chat.memory.ChatMemory;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * @Classname LongTermRecallAdvisor
+ * @Description 从长期记忆中召回与当前问题相关的历史轮次
+ * <p>
+ * 1、只有会话在 ConversationVectorIndex 中有归档的轮次时才会对问题做 embedding，短会话没有额外开销；
+ * 2、按相似度取 topK 个轮次，过滤掉低于 minScore 的，再按相似度依次放入 tokenBudget，超出预算的跳过；
+ * 3、选中的轮次按时间先后拼接到 SystemMessage 之后，窗口内的消息仍然由 MessageChatMemoryAdvisor 负责。
+ * </p>
+ * @Date 2025/6/25 14:02
+ * @Created by glmapper
+ */
+public class LongTermRecallAdvisor implements BaseAdvisor {
+
+    private static final String RECALL_HEADER = "Relevant parts of the earlier conversation, from oldest to newest:";
+
+    private final EmbeddingModel embeddingModel;
+
+    private final ConversationVectorIndex index;
+
+    private final int topK;
+
+    private final int tokenBudget;
+
+    private final double minScore;
+
+    public LongTermRecallAdvisor(EmbeddingModel embeddingModel, ConversationVectorIndex index, int topK,
+                                 int tokenBudget, double minScore) {
+        Assert.isTrue(topK > 0, "topK must be greater than 0");
+        Assert.isTrue(tokenBudget > 0, "tokenBudget must be greater than 0");
+        this.embeddingModel = embeddingModel;
+        this.index = index;
+        this.topK = topK;
+        this.tokenBudget = tokenBudget;
+        this.minScore = minScore;
+    }
+
+    @Override
+    public ChatClientRequest before(ChatClientRequest chatClientRequest, AdvisorChain advisorChain) {
+        Object conversationId = chatClientRequest.context()
+                .getOrDefault(ChatMemory.CONVERSATION_ID, ChatMemory.DEFAULT_CONVERSATION_ID);
+        String question = chatClientRequest.prompt().getUserMessage().getText();
+        if (!this.index.contains(conversationId.toString()) || !StringUtils.hasText(question)) {
+            return chatClientRequest;
+        }
+        float[] query = this.embeddingModel.embed(question);
+        List<ConversationVectorIndex.Recalled> selected = new ArrayList<>(this.topK);
+        int tokens = 0;
+        for (ConversationVectorIndex.Recalled recalled : this.index.search(conversationId.toString(), query, this.topK)) {
+            if (recalled.score() < this.minScore) {
+                break;
+            }
+            if (tokens + recalled.tokens() <= this.tokenBudget) {
+                selected.add(recalled);
+                tokens += recalled.tokens();
+            }
+        }
+        if (selected.isEmpty()) {
+            return chatClientRequest;
+        }
+        selected.sort(Comparator.comparingLong(ConversationVectorIndex.Recalled::sequence));
+        StringBuilder recall = new StringBuilder(RECALL_HEADER);
+        selected.forEach(recalled -> recall.append("\n\n").append(recalled.text()));
+
+        Prompt prompt = chatClientRequest.prompt();
+        String system = prompt.getSystemMessage().getText();
+        String augmented = StringUtils.hasText(system) ? system + "\n\n" + recall : recall.toString();
+        return chatClientRequest.mutate()
+                .prompt(prompt.augmentSystemMessage(augmented))
+                .build();
+    }
+
+    @Override
+    public ChatClientResponse after(ChatClientResponse chatClientResponse, AdvisorChain advisorChain) {
+        return chatClientResponse;
+    }
+
+    /**
+     * 在 MessageChatMemoryAdvisor 之后执行
+     */
+    @Override
+    public int getOrder() {
+        return Advisor.DEFAULT_CHAT_MEMORY_PRECEDENCE_ORDER + 1;
+    }
+}
@@ -0,0 +1,174 @@
+package com.glmapper.ai.chat.memory.local.repository;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.glmapper.ai.chat.memory.codec.MessageCodec;
+import org.springframework.ai.chat.memory.ChatMemoryRepository;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.util.Assert;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @Classname BoundedChatMemoryRepository
+ * @Description 有界、可淘汰的本地 ChatMemoryRepository
+ * <p>
+ * 默认的 InMemoryChatMemoryRepository 是一个无界的 ConcurrentHashMap，会话数只增不减。这里做了三层限制：
+ * 1、maxConversations：会话总数上限，超出后按 Caffeine 的 W-TinyLFU（兼顾访问频率与新近度）淘汰会话；
+ * 2、maxBytesPerConversation：单个会话编码后的字节上限，超出时从最旧的消息开始丢弃（至少保留最新一条）；
+ * 3、idleTtl：会话空闲超过该时长后过期。
+ * 消息以 {@link MessageCodec} 编码后的 byte[] 存储，而不是完整的 Message 对象图。
+ * </p>
+ * @Date 2025/6/20 10:40
+ * @Created by glmapper
+ */
+public class BoundedChatMemoryRepository implements ChatMemoryRepository {
+
+    /**
+     * 估算堆占用时，每个 byte[] 的对象头与引用开销
+     */
+    private static final int ARRAY_OVERHEAD = 24;
+
+    /**
+     * 估算堆占用时，每个会话条目（key、value 对象以及缓存节点）的固定开销
+     */
+    private static final int ENTRY_OVERHEAD = 96;
+
+    private final Cache<String, Conversation> conversations;
+
+    private final int maxBytesPerConversation;
+
+    private final AtomicLong estimatedBytes = new AtomicLong();
+
+    private final LongAdder sizeEvictions = new LongAdder();
+
+    private final LongAdder expirations = new LongAdder();
+
+    public BoundedChatMemoryRepository(long maxConversations, int maxBytesPerConversation, Duration idleTtl) {
+        Assert.isTrue(maxConversations > 0, "maxConversations must be greater than 0");
+        Assert.isTrue(maxBytesPerConversation > 0, "maxBytesPerConversation must be greater than 0");
+        Assert.notNull(idleTtl, "idleTtl cannot be null");
+        this.maxBytesPerConversation = maxBytesPerConversation;
+        this.conversations = Caffeine.newBuilder()
+                .maximumSize(maxConversations)
+                .expireAfterAccess(idleTtl)
+                // 同步执行维护任务与监听器，保证字节统计与缓存内容一致
+                .executor(Runnable::run)
+                .removalListener((String conversationId, Conversation conversation, RemovalCause cause) ->
+                        onRemoval(conversation, cause))
+                .build();
+    }
+
+    @Override
+    public List<String> findConversationIds() {
+        return new ArrayList<>(this.conversations.asMap().keySet());
+    }
+
+    @Override
+    public List<Message> findByConversationId(String conversationId) {
+        Assert.hasText(conversationId, "conversationId cannot be null or empty");
+        Conversation conversation = this.conversations.getIfPresent(conversationId);
+        if (conversation == null) {
+            return new ArrayList<>();
+        }
+        List<Message> messages = new ArrayList<>(conversation.messages().length);
+        for (byte[] message : conversation.messages()) {
+            messages.add(MessageCodec.decode(message));
+        }
+        return messages;
+    }
+
+    @Override
+    public void saveAll(String conversationId, List<Message> messages) {
+        Assert.hasText(conversationId, "conversationId cannot be null or empty");
+        Assert.notNull(messages, "messages cannot be null");
+        Assert.noNullElements(messages, "messages cannot contain null elements");
+        if (messages.isEmpty()) {
+            this.conversations.invalidate(conversationId);
+            return;
+        }
+        byte[][] encoded = new byte[messages.size()][];
+        long bytes = 0;
+        for (int i = 0; i < encoded.length; i++) {
+            encoded[i] = MessageCodec.encode(messages.get(i));
+            bytes += encoded[i].length;
+        }
+        // 超出单会话字节上限时，从最旧的消息开始丢弃
+        int from = 0;
+        while (bytes > this.maxBytesPerConversation && from < encoded.length - 1) {
+            bytes -= encoded[from++].length;
+        }
+        byte[][] retained = from == 0 ? encoded : Arrays.copyOfRange(encoded, from, encoded.length);
+        Conversation conversation = new Conversation(retained, heapSize(conversationId, retained, bytes));
+        this.estimatedBytes.addAndGet(conversation.heapBytes());
+        this.conversations.put(conversationId, conversation);
+    }
+
+    @Override
+    public void deleteByConversationId(String conversationId) {
+        Assert.hasText(conversationId, "conversationId cannot be null or empty");
+        this.conversations.invalidate(conversationId);
+    }
+
+    /**
+     * 当前缓存的会话数量
+     */
+    public long conversationCount() {
+        return this.conversations.estimatedSize();
+    }
+
+    /**
+     * 估算的堆占用字节数
+     */
+    public long estimatedHeapBytes() {
+        return this.estimatedBytes.get();
+    }
+
+    /**
+     * 因会话数超限被淘汰的会话数量
+     */
+    public long sizeEvictionCount() {
+        return this.sizeEvictions.sum();
+    }
+
+    /**
+     * 因空闲超时被淘汰的会话数量
+     */
+    public long expirationCount() {
+        return this.expirations.sum();
+    }
+
+    /**
+     * 主动触发一次过期与淘汰的清理，通常由 Caffeine 在读写时顺带完成
+     */
+    public void cleanUp() {
+        this.conversations.cleanUp();
+    }
+
+    private void onRemoval(Conversation conversation, RemovalCause cause) {
+        if (conversation != null) {
+            this.estimatedBytes.addAndGet(-conversation.heapBytes());
+        }
+        if (cause == RemovalCause.SIZE) {
+            this.sizeEvictions.increment();
+        } else if (cause == RemovalCause.EXPIRED) {
+            this.expirations.increment();
+        }
+    }
+
+    private static long heapSize(String conversationId, byte[][] messages, long payloadBytes) {
+        return ENTRY_OVERHEAD + 2L * conversationId.length() + (long) messages.length * ARRAY_OVERHEAD + payloadBytes;
+    }
+
+    /**
+     * 单个会话：编码后的消息与估算的堆占用
+     */
+    private record Conversation(byte[][] messages, long heapBytes) {
+    }
+}
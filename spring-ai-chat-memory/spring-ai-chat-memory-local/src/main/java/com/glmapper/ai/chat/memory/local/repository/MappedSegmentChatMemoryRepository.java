@@ -0,0 +1,443 @@
+package com.glmapper.ai.chat.memory.local.repository;
+
+import com.glmapper.ai.chat.memory.codec.MessageCodec;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.memory.ChatMemoryRepository;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.util.Assert;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * @Classname MappedSegmentChatMemoryRepository
+ * @Description 基于内存映射文件的追加写 ChatMemoryRepository，适合不想引入数据库的单节点部署
+ * <p>
+ * 1、存储：目录下若干个 segment 文件（segment-{id}.log），只追加写；每次 saveAll 追加一条会话快照记录，
+ * deleteByConversationId 追加一条删除记录。
+ * 2、记录格式：[int bodyLength][int crc32c(body)][body]，body 为 [op][conversationId][消息数][每条消息：varint 长度 + MessageCodec 编码]。
+ * bodyLength 为 0 表示该 segment 后续没有数据（映射文件预分配并以 0 填充）。
+ * 3、索引：内存中维护 conversationId -> 最新快照记录位置，读取时直接从映射内存中解码，无需磁盘 IO。
+ * 4、恢复：启动时顺序扫描所有 segment 重建索引，只读取记录头和 conversationId，不解码消息；
+ * 遇到长度越界或 CRC 不一致的记录视为崩溃时写了一半，截断其后的内容。
+ * 5、压缩：垃圾（被覆盖或删除的记录）占比超过阈值时，把存活的记录拷贝到新的 segment，再按 id 从小到大删除旧 segment。
+ * 旧 segment 从小到大删除保证了压缩中途崩溃也不会让已删除的会话复活：若某个会话的旧快照还在，那么在它之后的删除记录也一定还在。
+ * 无论 syncOnWrite 如何设置，压缩写出的 segment 都先 force 到磁盘，再删除旧 segment，崩溃时不会丢失拷贝的记录。
+ * compactionInterval 为 0 时不启动后台压缩，只能手动调用 {@link #compact()}。
+ * </p>
+ * @Date 2025/6/21 14:20
+ * @Created by glmapper
+ */
+@Slf4j
+public class MappedSegmentChatMemoryRepository implements ChatMemoryRepository, AutoCloseable {
+
+    private static final String SEGMENT_PREFIX = "segment-";
+
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    private static final int HEADER_BYTES = 8;
+
+    private static final byte OP_SAVE = 1;
+
+    private static final byte OP_DELETE = 2;
+
+    private final Path directory;
+
+    private final int segmentBytes;
+
+    private final boolean syncOnWrite;
+
+    private final double compactionGarbageRatio;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final TreeMap<Long, Segment> segments = new TreeMap<>();
+
+    private final Map<String, RecordRef> index = new HashMap<>();
+
+    private final ScheduledExecutorService compactionScheduler;
+
+    private Segment active;
+
+    /**
+     * 所有 segment 中已写入的字节数
+     */
+    private long writtenBytes;
+
+    /**
+     * 存活快照记录占用的字节数
+     */
+    private long liveBytes;
+
+    public MappedSegmentChatMemoryRepository(Path directory, int segmentBytes, boolean syncOnWrite,
+                                             double compactionGarbageRatio, Duration compactionInterval) {
+        Assert.notNull(directory, "directory cannot be null");
+        Assert.isTrue(segmentBytes > HEADER_BYTES, "segmentBytes is too small");
+        Assert.isTrue(compactionGarbageRatio > 0 && compactionGarbageRatio < 1, "compactionGarbageRatio must be in (0, 1)");
+        Assert.notNull(compactionInterval, "compactionInterval cannot be null");
+        Assert.isTrue(!compactionInterval.isNegative(), "compactionInterval cannot be negative");
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.syncOnWrite = syncOnWrite;
+        this.compactionGarbageRatio = compactionGarbageRatio;
+        try {
+            Files.createDirectories(directory);
+            recover();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open chat memory segments in " + directory, e);
+        }
+        long intervalMillis = compactionInterval.toMillis();
+        if (intervalMillis == 0) {
+            this.compactionScheduler = null;
+            return;
+        }
+        this.compactionScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "chat-memory-compaction");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.compactionScheduler.scheduleWithFixedDelay(this::compactQuietly, intervalMillis, intervalMillis,
+                TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public List<String> findConversationIds() {
+        this.lock.readLock().lock();
+        try {
+            return new ArrayList<>(this.index.keySet());
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Message> findByConversationId(String conversationId) {
+        Assert.hasText(conversationId, "conversationId cannot be null or empty");
+        this.lock.readLock().lock();
+        try {
+            RecordRef ref = this.index.get(conversationId);
+            if (ref == null) {
+                return new ArrayList<>();
+            }
+            ByteBuffer body = ref.segment().buffer.slice(ref.offset() + HEADER_BYTES, ref.length() - HEADER_BYTES);
+            // 跳过 op 与 conversationId
+            body.get();
+            MessageCodec.readString(body);
+            int count = MessageCodec.readVarInt(body);
+            List<Message> messages = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                MessageCodec.readVarInt(body);
+                messages.add(MessageCodec.decode(body));
+            }
+            return messages;
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void saveAll(String conversationId, List<Message> messages) {
+        Assert.hasText(conversationId, "conversationId cannot be null or empty");
+        Assert.notNull(messages, "messages cannot be null");
+        Assert.noNullElements(messages, "messages cannot contain null elements");
+        if (messages.isEmpty()) {
+            deleteByConversationId(conversationId);
+            return;
+        }
+        ByteArrayOutputStream body = new ByteArrayOutputStream(256);
+        body.write(OP_SAVE);
+        MessageCodec.writeString(body, conversationId);
+        MessageCodec.writeVarInt(body, messages.size());
+        for (Message message : messages) {
+            byte[] encoded = MessageCodec.encode(message);
+            MessageCodec.writeVarInt(body, encoded.length);
+            body.write(encoded, 0, encoded.length);
+        }
+        byte[] record = frame(body.toByteArray());
+        this.lock.writeLock().lock();
+        try {
+            RecordRef ref = append(record);
+            RecordRef previous = this.index.put(conversationId, ref);
+            this.liveBytes += ref.length() - (previous == null ? 0 : previous.length());
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void deleteByConversationId(String conversationId) {
+        Assert.hasText(conversationId, "conversationId cannot be null or empty");
+        ByteArrayOutputStream body = new ByteArrayOutputStream(64);
+        body.write(OP_DELETE);
+        MessageCodec.writeString(body, conversationId);
+        byte[] record = frame(body.toByteArray());
+        this.lock.writeLock().lock();
+        try {
+            RecordRef previous = this.index.remove(conversationId);
+            if (previous == null) {
+                return;
+            }
+            append(record);
+            this.liveBytes -= previous.length();
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 垃圾占比超过阈值时压缩 segment
+     *
+     * @return 是否执行了压缩
+     */
+    public boolean compact() {
+        this.lock.writeLock().lock();
+        try {
+            if (this.writtenBytes == 0 || garbageRatio() < this.compactionGarbageRatio) {
+                return false;
+            }
+            List<Segment> obsolete = new ArrayList<>(this.segments.values());
+            long reclaimed = this.writtenBytes - this.liveBytes;
+            long firstCompacted = this.segments.lastKey() + 1;
+            this.active = newSegment(firstCompacted, this.segmentBytes);
+            this.writtenBytes = 0;
+            for (Map.Entry<String, RecordRef> entry : this.index.entrySet()) {
+                RecordRef ref = entry.getValue();
+                byte[] record = new byte[ref.length()];
+                ref.segment().buffer.get(ref.offset(), record);
+                entry.setValue(append(record));
+            }
+            // 拷贝的记录落盘之后才能删除旧 segment
+            for (Segment segment : this.segments.tailMap(firstCompacted).values()) {
+                segment.buffer.force();
+            }
+            for (Segment segment : obsolete) {
+                this.segments.remove(segment.id);
+                segment.closeAndDelete();
+            }
+            log.info("Compacted chat memory segments in {}, {} conversations, {} bytes reclaimed",
+                    this.directory, this.index.size(), reclaimed);
+            return true;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to compact chat memory segments in " + this.directory, e);
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 垃圾字节占已写入字节的比例
+     */
+    public double garbageRatio() {
+        this.lock.readLock().lock();
+        try {
+            return this.writtenBytes == 0 ? 0 : (double) (this.writtenBytes - this.liveBytes) / this.writtenBytes;
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        if (this.compactionScheduler != null) {
+            this.compactionScheduler.shutdownNow();
+        }
+        this.lock.writeLock().lock();
+        try {
+            for (Segment segment : this.segments.values()) {
+                segment.buffer.force();
+                segment.close();
+            }
+            this.segments.clear();
+            this.index.clear();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    private void compactQuietly() {
+        try {
+            compact();
+        } catch (Exception e) {
+            log.warn("Chat memory compaction failed", e);
+        }
+    }
+
+    private static byte[] frame(byte[] body) {
+        CRC32C crc = new CRC32C();
+        crc.update(body);
+        return ByteBuffer.allocate(HEADER_BYTES + body.length)
+                .putInt(body.length)
+                .putInt((int) crc.getValue())
+                .put(body)
+                .array();
+    }
+
+    /**
+     * 追加一条完整的记录，调用方需持有写锁
+     */
+    private RecordRef append(byte[] record) {
+        Segment segment = this.active;
+        // 末尾至少保留 4 个字节的 0 作为结束标记
+        if (segment.writePosition + record.length + Integer.BYTES > segment.capacity()) {
+            try {
+                segment.buffer.force();
+                segment = newSegment(segment.id + 1, Math.max(this.segmentBytes, record.length + Integer.BYTES));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to roll chat memory segment in " + this.directory, e);
+            }
+            this.active = segment;
+        }
+        int offset = segment.writePosition;
+        segment.buffer.put(offset, record);
+        if (this.syncOnWrite) {
+            segment.buffer.force(offset, record.length);
+        }
+        segment.writePosition += record.length;
+        this.writtenBytes += record.length;
+        return new RecordRef(segment, offset, record.length);
+    }
+
+    private Segment newSegment(long id, int size) throws IOException {
+        Path path = this.directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, id, SEGMENT_SUFFIX));
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        Segment segment = new Segment(id, path, channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, size));
+        this.segments.put(id, segment);
+        return segment;
+    }
+
+    private void recover() throws IOException {
+        List<Path> files;
+        try (Stream<Path> stream = Files.list(this.directory)) {
+            files = stream.filter(path -> {
+                String name = path.getFileName().toString();
+                return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+            }).sorted().toList();
+        }
+        if (files.isEmpty()) {
+            this.active = newSegment(0, this.segmentBytes);
+            return;
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < files.size(); i++) {
+            Path path = files.get(i);
+            String name = path.getFileName().toString();
+            long id = Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+            FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            Segment segment = new Segment(id, path, channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size()));
+            this.segments.put(id, segment);
+            int end = scan(segment);
+            if (end + Integer.BYTES <= segment.capacity() && segment.buffer.getInt(end) != 0) {
+                // 崩溃时写了一半的记录：清零其后的内容，后续从这里继续追加
+                log.warn("Truncating torn chat memory record in {} at offset {}", path, end);
+                segment.buffer.put(end, new byte[segment.capacity() - end]);
+                segment.buffer.force();
+            }
+            segment.writePosition = end;
+            this.writtenBytes += end;
+        }
+        this.active = this.segments.lastEntry().getValue();
+        log.info("Recovered {} chat memory conversations from {} segments in {} ms", this.index.size(),
+                this.segments.size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    /**
+     * 扫描一个 segment 并重放到索引中
+     *
+     * @return 最后一条完整记录之后的偏移量
+     */
+    private int scan(Segment segment) {
+        MappedByteBuffer buffer = segment.buffer;
+        int position = 0;
+        CRC32C crc = new CRC32C();
+        while (position + HEADER_BYTES <= segment.capacity()) {
+            int length = buffer.getInt(position);
+            if (length <= 0 || position + HEADER_BYTES + length > segment.capacity()) {
+                break;
+            }
+            ByteBuffer body = buffer.slice(position + HEADER_BYTES, length);
+            crc.reset();
+            crc.update(body.duplicate());
+            if ((int) crc.getValue() != buffer.getInt(position + Integer.BYTES)) {
+                break;
+            }
+            byte op = body.get();
+            String conversationId = MessageCodec.readString(body);
+            RecordRef ref = new RecordRef(segment, position, HEADER_BYTES + length);
+            if (op == OP_SAVE) {
+                RecordRef previous = this.index.put(conversationId, ref);
+                this.liveBytes += ref.length() - (previous == null ? 0 : previous.length());
+            } else {
+                RecordRef previous = this.index.remove(conversationId);
+                if (previous != null) {
+                    this.liveBytes -= previous.length();
+                }
+            }
+            position += ref.length();
+        }
+        return position;
+    }
+
+    /**
+     * 一条记录在 segment 中的位置，offset 指向记录头
+     */
+    private record RecordRef(Segment segment, int offset, int length) {
+    }
+
+    private static final class Segment {
+
+        private final long id;
+
+        private final Path path;
+
+        private final FileChannel channel;
+
+        private final MappedByteBuffer buffer;
+
+        private int writePosition;
+
+        private Segment(long id, Path path, FileChannel channel, MappedByteBuffer buffer) {
+            this.id = id;
+            this.path = path;
+            this.channel = channel;
+            this.buffer = buffer;
+        }
+
+        private int capacity() {
+            return this.buffer.capacity();
+        }
+
+        private void close() throws IOException {
+            this.channel.close();
+        }
+
+        /**
+         * 映射的内存在 buffer 被 GC 回收时才会释放，Linux 下可以直接删除仍被映射的文件
+         */
+        private void closeAndDelete() throws IOException {
+            close();
+            Files.deleteIfExists(this.path);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.glmapper.ai.chat.memory.local;
+
+import com.glmapper.ai.chat.memory.local.repository.BoundedChatMemoryRepository;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.MessageType;
+import org.springframework.ai.chat.messages.SystemMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * @Classname BoundedChatMemoryRepositoryTest
+ * @Description BoundedChatMemoryRepositoryTest
+ * @Date 2025/6/20 11:30
+ * @Created by glmapper
+ */
+public class BoundedChatMemoryRepositoryTest {
+
+    @Test
+    @DisplayName("测试消息编码后读写一致")
+    void testSaveAndFind() {
+        BoundedChatMemoryRepository repository = new BoundedChatMemoryRepository(10, 4096, Duration.ofMinutes(5));
+        List<Message> messages = List.of(new SystemMessage("你是一个助手"), new UserMessage("hello, my name is glmapper"),
+                new AssistantMessage("Hello glmapper!"));
+        repository.saveAll("test-1", messages);
+
+        List<Message> found = repository.findByConversationId("test-1");
+        Assertions.assertEquals(3, found.size());
+        Assertions.assertEquals(MessageType.SYSTEM, found.get(0).getMessageType());
+        Assertions.assertEquals("hello, my name is glmapper", found.get(1).getText());
+        Assertions.assertEquals(MessageType.ASSISTANT, found.get(2).getMessageType());
+        Assertions.assertTrue(repository.estimatedHeapBytes() > 0);
+
+        repository.deleteByConversationId("test-1");
+        Assertions.assertTrue(repository.findByConversationId("test-1").isEmpty());
+        Assertions.assertEquals(0, repository.estimatedHeapBytes(), "删除后堆占用应该归零");
+    }
+
+    @Test
+    @DisplayName("测试单会话字节上限")
+    void testMaxBytesPerConversation() {
+        BoundedChatMemoryRepository repository = new BoundedChatMemoryRepository(10, 64, Duration.ofMinutes(5));
+        repository.saveAll("test-2", List.of(new UserMessage("a".repeat(40)), new AssistantMessage("b".repeat(40)),
+                new UserMessage("c".repeat(10))));
+
+        List<Message> found = repository.findByConversationId("test-2");
+        Assertions.assertEquals(2, found.size(), "超出字节上限时应该丢弃最旧的消息");
+        Assertions.assertEquals("c".repeat(10), found.get(1).getText());
+    }
+
+    @Test
+    @DisplayName("测试会话数上限")
+    void testMaxConversations() {
+        BoundedChatMemoryRepository repository = new BoundedChatMemoryRepository(100, 4096, Duration.ofMinutes(5));
+        for (int i = 0; i < 1000; i++) {
+            repository.saveAll("test-" + i, List.of(new UserMessage("message " + i)));
+        }
+        repository.cleanUp();
+        Assertions.assertTrue(repository.conversationCount() <= 100, "会话数不应该超过上限");
+        Assertions.assertEquals(1000 - repository.conversationCount(), repository.sizeEvictionCount());
+    }
+}
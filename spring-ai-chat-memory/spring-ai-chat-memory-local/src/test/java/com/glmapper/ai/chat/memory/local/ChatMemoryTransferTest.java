@@ -0,0 +1,140 @@
+package com.glmapper.ai.chat.memory.local;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.glmapper.ai.chat.memory.local.repository.BoundedChatMemoryRepository;
+import com.glmapper.ai.chat.memory.transfer.ChatMemoryExporter;
+import com.glmapper.ai.chat.memory.transfer.ChatMemoryImporter;
+import com.glmapper.ai.chat.memory.transfer.ConversationIdPager;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.ai.chat.memory.ChatMemoryRepository;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.SystemMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @Classname ChatMemoryTransferTest
+ * @Description ChatMemoryTransferTest
+ * @Date 2025/6/26 15:00
+ * @Created by glmapper
+ */
+public class ChatMemoryTransferTest {
+
+    private static final int CONVERSATIONS = 2500;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    @DisplayName("测试导出后导入的会话一致")
+    void testExportAndImport(@TempDir Path directory) throws Exception {
+        BoundedChatMemoryRepository source = source();
+        Path file = directory.resolve("chat-memory.jsonl");
+        long exported = new ChatMemoryExporter(source, ConversationIdPager.sorted(source), this.objectMapper, 100)
+                .export(file, directory.resolve("export.checkpoint"));
+        Assertions.assertEquals(CONVERSATIONS, exported);
+        Assertions.assertEquals(CONVERSATIONS, Files.readAllLines(file).size());
+
+        BoundedChatMemoryRepository target = new BoundedChatMemoryRepository(CONVERSATIONS * 2, 65536, Duration.ofMinutes(5));
+        long imported = new ChatMemoryImporter(target, this.objectMapper, 4, 64)
+                .importFrom(file, directory.resolve("import.checkpoint"));
+        Assertions.assertEquals(CONVERSATIONS, imported);
+        Assertions.assertEquals(CONVERSATIONS, target.findConversationIds().size());
+        List<Message> messages = target.findByConversationId("test-0042");
+        Assertions.assertEquals(3, messages.size());
+        Assertions.assertEquals("question of test-0042", messages.get(1).getText());
+    }
+
+    @Test
+    @DisplayName("测试导出中断后从进度文件继续")
+    void testResumeExport(@TempDir Path directory) {
+        BoundedChatMemoryRepository source = source();
+        Path file = directory.resolve("chat-memory.jsonl");
+        Path checkpoint = directory.resolve("export.checkpoint");
+        AtomicInteger pages = new AtomicInteger();
+        ConversationIdPager sorted = ConversationIdPager.sorted(source);
+        ConversationIdPager failing = (afterId, limit) -> {
+            if (pages.incrementAndGet() > 3) {
+                throw new IllegalStateException("simulated crash");
+            }
+            return sorted.page(afterId, limit);
+        };
+        Assertions.assertThrows(IllegalStateException.class,
+                () -> new ChatMemoryExporter(source, failing, this.objectMapper, 100).export(file, checkpoint));
+
+        long exported = new ChatMemoryExporter(source, sorted, this.objectMapper, 100).export(file, checkpoint);
+        Assertions.assertEquals(CONVERSATIONS, exported);
+    }
+
+    @Test
+    @DisplayName("测试导入中断后从进度文件继续")
+    void testResumeImport(@TempDir Path directory) {
+        BoundedChatMemoryRepository source = source();
+        Path file = directory.resolve("chat-memory.jsonl");
+        new ChatMemoryExporter(source, ConversationIdPager.sorted(source), this.objectMapper, 500)
+                .export(file, directory.resolve("export.checkpoint"));
+
+        BoundedChatMemoryRepository target = new BoundedChatMemoryRepository(CONVERSATIONS * 2, 65536, Duration.ofMinutes(5));
+        Path checkpoint = directory.resolve("import.checkpoint");
+        Assertions.assertThrows(IllegalStateException.class,
+                () -> new ChatMemoryImporter(new FailingRepository(target, 1000), this.objectMapper, 4, 64)
+                        .importFrom(file, checkpoint));
+        Assertions.assertTrue(Files.exists(checkpoint), "中断前应该已经记录了进度");
+
+        long imported = new ChatMemoryImporter(target, this.objectMapper, 4, 64).importFrom(file, checkpoint);
+        Assertions.assertEquals(CONVERSATIONS, imported);
+        Assertions.assertEquals(CONVERSATIONS, target.findConversationIds().size());
+    }
+
+    private static BoundedChatMemoryRepository source() {
+        BoundedChatMemoryRepository repository = new BoundedChatMemoryRepository(CONVERSATIONS * 2, 65536, Duration.ofMinutes(5));
+        for (int i = 0; i < CONVERSATIONS; i++) {
+            String conversationId = String.format("test-%04d", i);
+            repository.saveAll(conversationId, List.of(new SystemMessage("you are a helpful assistant"),
+                    new UserMessage("question of " + conversationId), new AssistantMessage("answer of " + conversationId)));
+        }
+        return repository;
+    }
+
+    /**
+     * 写入 failAfter 个会话后抛出异常，模拟导入过程中进程退出
+     */
+    private record FailingRepository(ChatMemoryRepository delegate, int failAfter, AtomicInteger saved)
+            implements ChatMemoryRepository {
+
+        FailingRepository(ChatMemoryRepository delegate, int failAfter) {
+            this(delegate, failAfter, new AtomicInteger());
+        }
+
+        @Override
+        public List<String> findConversationIds() {
+            return this.delegate.findConversationIds();
+        }
+
+        @Override
+        public List<Message> findByConversationId(String conversationId) {
+            return this.delegate.findByConversationId(conversationId);
+        }
+
+        @Override
+        public void saveAll(String conversationId, List<Message> messages) {
+            if (this.saved.incrementAndGet() > this.failAfter) {
+                throw new IllegalStateException("simulated crash");
+            }
+            this.delegate.saveAll(conversationId, messages);
+        }
+
+        @Override
+        public void deleteByConversationId(String conversationId) {
+            this.delegate.deleteByConversationId(conversationId);
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.glmapper.ai.chat.memory.local;
+
+import com.glmapper.ai.chat.memory.local.advisors.ConversationLockAdvisor;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.client.ChatClientRequest;
+import org.springframework.ai.chat.client.ChatClientResponse;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisor;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisorChain;
+import org.springframework.ai.chat.memory.ChatMemory;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.chat.prompt.Prompt;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * @Classname ConversationLockAdvisorTest
+ * @Description ConversationLockAdvisorTest
+ * @Date 2025/6/22 16:00
+ * @Created by glmapper
+ */
+public class ConversationLockAdvisorTest {
+
+    @Test
+    @DisplayName("测试同一会话的轮次串行执行，并记录等待次数")
+    void testSameConversationIsSerialized() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        ConversationLockAdvisor advisor = new ConversationLockAdvisor(1024, registry);
+        AtomicInteger active = new AtomicInteger();
+        AtomicInteger maxActive = new AtomicInteger();
+        CountDownLatch firstEntered = new CountDownLatch(1);
+        CallAdvisorChain chain = chain(request -> {
+            maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+            firstEntered.countDown();
+            sleep(200);
+            active.decrementAndGet();
+            return new ChatClientResponse(null, Map.of());
+        });
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<?> first = executor.submit(() -> advisor.adviseCall(request("test-1"), chain));
+            Assertions.assertTrue(firstEntered.await(5, TimeUnit.SECONDS));
+            Future<?> second = executor.submit(() -> advisor.adviseCall(request("test-1"), chain));
+            first.get(5, TimeUnit.SECONDS);
+            second.get(5, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Assertions.assertEquals(1, maxActive.get(), "同一会话的两个轮次不应该同时执行");
+        Assertions.assertEquals(1.0, registry.get("chat.memory.lock.contended").counter().count());
+        Assertions.assertEquals(1, registry.get("chat.memory.lock.wait").timer().count());
+    }
+
+    @Test
+    @DisplayName("测试不同会话的轮次并行执行，不记录等待")
+    void testDifferentConversationsRunInParallel() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        ConversationLockAdvisor advisor = new ConversationLockAdvisor(1024, registry);
+        // 两个轮次都进入链之后才能返回，串行执行时第一个轮次会一直等到超时
+        CountDownLatch bothEntered = new CountDownLatch(2);
+        CallAdvisorChain chain = chain(request -> {
+            bothEntered.countDown();
+            try {
+                Assertions.assertTrue(bothEntered.await(5, TimeUnit.SECONDS), "不同会话应该并行执行");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+            return new ChatClientResponse(null, Map.of());
+        });
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<?> first = executor.submit(() -> advisor.adviseCall(request("test-1"), chain));
+            Future<?> second = executor.submit(() -> advisor.adviseCall(request("test-2"), chain));
+            first.get(10, TimeUnit.SECONDS);
+            second.get(10, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Assertions.assertEquals(0.0, registry.get("chat.memory.lock.contended").counter().count());
+    }
+
+    private static ChatClientRequest request(String conversationId) {
+        return ChatClientRequest.builder()
+                .prompt(new Prompt(new UserMessage("hello")))
+                .context(Map.of(ChatMemory.CONVERSATION_ID, conversationId))
+                .build();
+    }
+
+    private static CallAdvisorChain chain(Function<ChatClientRequest, ChatClientResponse> call) {
+        return new CallAdvisorChain() {
+
+            @Override
+            public ChatClientResponse nextCall(ChatClientRequest chatClientRequest) {
+                return call.apply(chatClientRequest);
+            }
+
+            @Override
+            public List<CallAdvisor> getCallAdvisors() {
+                return List.of();
+            }
+        };
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.glmapper.ai.chat.memory.local;
+
+import com.glmapper.ai.chat.memory.local.recall.ConversationVectorIndex;
+import com.glmapper.ai.chat.memory.local.recall.EvictionCapturingChatMemoryRepository;
+import com.glmapper.ai.chat.memory.local.recall.LongTermMemoryArchiver;
+import com.glmapper.ai.chat.memory.local.recall.LongTermRecallAdvisor;
+import com.glmapper.ai.chat.memory.local.repository.BoundedChatMemoryRepository;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.client.ChatClientRequest;
+import org.springframework.ai.chat.memory.ChatMemory;
+import org.springframework.ai.chat.memory.MessageWindowChatMemory;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.SystemMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+import org.springframework.ai.tokenizer.JTokkitTokenCountEstimator;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @Classname LongTermMemoryTest
+ * @Description LongTermMemoryTest
+ * @Date 2025/6/25 16:10
+ * @Created by glmapper
+ */
+public class LongTermMemoryTest {
+
+    private static final String[][] TURNS = {
+            {"my favourite colour is green", "noted, green it is"},
+            {"I live in hangzhou near the west lake", "hangzhou is a beautiful city"},
+            {"my dog is called lucky", "lucky is a nice name for a dog"},
+            {"I work on spring ai projects", "spring ai makes llm integration easy"},
+            {"tomorrow I will fly to beijing", "have a safe trip to beijing"},
+            {"what time is it", "I cannot tell the time"},
+    };
+
+    @Test
+    @DisplayName("测试滑出窗口的轮次可以按相关性召回")
+    void testRecallEvictedTurns() throws Exception {
+        EmbeddingModel embeddingModel = new BagOfWordsEmbeddingModel();
+        ConversationVectorIndex index = new ConversationVectorIndex(100, 100, Duration.ofMinutes(5));
+        try (LongTermMemoryArchiver archiver = new LongTermMemoryArchiver(embeddingModel, index,
+                new JTokkitTokenCountEstimator(), 100, 4, Duration.ofMillis(50))) {
+            ChatMemory chatMemory = MessageWindowChatMemory.builder()
+                    .chatMemoryRepository(new EvictionCapturingChatMemoryRepository(
+                            new BoundedChatMemoryRepository(100, 65536, Duration.ofMinutes(5)), archiver, index))
+                    .maxMessages(4)
+                    .build();
+            for (String[] turn : TURNS) {
+                chatMemory.add("test-recall", List.of(new UserMessage(turn[0]), new AssistantMessage(turn[1])));
+            }
+            // 窗口只保留最后两轮，前四轮应该被归档
+            long deadline = System.currentTimeMillis() + 5000;
+            while (archiver.archivedCount() < 4 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+            }
+            Assertions.assertEquals(4, archiver.archivedCount());
+            Assertions.assertEquals(4, chatMemory.get("test-recall").size());
+
+            LongTermRecallAdvisor advisor = new LongTermRecallAdvisor(embeddingModel, index, 2, 1024, 0.3);
+            ChatClientRequest request = advisor.before(request("test-recall", "what is my dog called?"), null);
+            String system = request.prompt().getSystemMessage().getText();
+            Assertions.assertTrue(system.startsWith("you are a helpful assistant"));
+            Assertions.assertTrue(system.contains("my dog is called lucky"), "应该召回与问题相关的轮次");
+            Assertions.assertFalse(system.contains("green"), "不相关的轮次不应该被召回");
+
+            ChatClientRequest unknown = request("test-other", "what is my dog called?");
+            Assertions.assertSame(unknown, advisor.before(unknown, null), "没有归档轮次的会话不需要召回");
+        }
+    }
+
+    @Test
+    @DisplayName("测试超出单会话字节上限被丢弃的消息也会归档")
+    void testArchiveMessagesTrimmedByRepository() throws Exception {
+        EmbeddingModel embeddingModel = new BagOfWordsEmbeddingModel();
+        ConversationVectorIndex index = new ConversationVectorIndex(100, 100, Duration.ofMinutes(5));
+        try (LongTermMemoryArchiver archiver = new LongTermMemoryArchiver(embeddingModel, index,
+                new JTokkitTokenCountEstimator(), 100, 4, Duration.ofMillis(50))) {
+            // 窗口足够大，消息只会因为单会话字节上限被丢弃
+            ChatMemory chatMemory = MessageWindowChatMemory.builder()
+                    .chatMemoryRepository(new EvictionCapturingChatMemoryRepository(
+                            new BoundedChatMemoryRepository(100, 128, Duration.ofMinutes(5)), archiver, index))
+                    .maxMessages(100)
+                    .build();
+            for (String[] turn : TURNS) {
+                chatMemory.add("test-trimmed", List.of(new UserMessage(turn[0]), new AssistantMessage(turn[1])));
+            }
+            Assertions.assertTrue(chatMemory.get("test-trimmed").size() < TURNS.length * 2, "超出字节上限的消息应该被丢弃");
+            long deadline = System.currentTimeMillis() + 5000;
+            while (archiver.archivedCount() < 4 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+            }
+            Assertions.assertTrue(archiver.archivedCount() >= 4);
+
+            LongTermRecallAdvisor advisor = new LongTermRecallAdvisor(embeddingModel, index, 2, 1024, 0.3);
+            String system = advisor.before(request("test-trimmed", "what is my dog called?"), null)
+                    .prompt().getSystemMessage().getText();
+            Assertions.assertTrue(system.contains("my dog is called lucky"), "被底层存储丢弃的轮次应该可以召回");
+        }
+    }
+
+    @Test
+    @DisplayName("测试召回内容受 token 预算限制")
+    void testTokenBudget() {
+        EmbeddingModel embeddingModel = new BagOfWordsEmbeddingModel();
+        ConversationVectorIndex index = new ConversationVectorIndex(100, 100, Duration.ofMinutes(5));
+        index.add("test-budget", "user: my dog is called lucky", 500, embeddingModel.embed("my dog is called lucky"));
+        index.add("test-budget", "user: my dog likes bones", 600, embeddingModel.embed("my dog likes bones"));
+
+        LongTermRecallAdvisor advisor = new LongTermRecallAdvisor(embeddingModel, index, 5, 1000, 0.1);
+        String system = advisor.before(request("test-budget", "my dog"), null).prompt().getSystemMessage().getText();
+        Assertions.assertTrue(system.contains("lucky") ^ system.contains("bones"), "超出预算的轮次应该被跳过");
+    }
+
+    private static ChatClientRequest request(String conversationId, String question) {
+        return ChatClientRequest.builder()
+                .prompt(new Prompt(List.of(new SystemMessage("you are a helpful assistant"), new UserMessage(question))))
+                .context(Map.of(ChatMemory.CONVERSATION_ID, conversationId))
+                .build();
+    }
+
+    /**
+     * 按单词哈希的词袋向量，相同单词越多相似度越高
+     */
+    private static class BagOfWordsEmbeddingModel implements EmbeddingModel {
+
+        @Override
+        public EmbeddingResponse call(EmbeddingRequest request) {
+            List<Embedding> embeddings = new ArrayList<>();
+            for (String text : request.getInstructions()) {
+                float[] vector = new float[256];
+                for (String word : text.toLowerCase().split("\\W+")) {
+                    if (word.length() > 2) {
+                        vector[Math.floorMod(word.hashCode(), vector.length)] += 1;
+                    }
+                }
+                embeddings.add(new Embedding(vector, embeddings.size()));
+            }
+            return new EmbeddingResponse(embeddings);
+        }
+
+        @Override
+        public float[] embed(Document document) {
+            return embed(document.getText());
+        }
+    }
+}
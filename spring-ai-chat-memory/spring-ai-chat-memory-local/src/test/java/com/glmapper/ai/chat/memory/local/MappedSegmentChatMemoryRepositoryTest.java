@@ -0,0 +1,123 @@
+package com.glmapper.ai.chat.memory.local;
+
+import com.glmapper.ai.chat.memory.local.repository.MappedSegmentChatMemoryRepository;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.UserMessage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * @Classname MappedSegmentChatMemoryRepositoryTest
+ * @Description MappedSegmentChatMemoryRepositoryTest
+ * @Date 2025/6/21 16:02
+ * @Created by glmapper
+ */
+public class MappedSegmentChatMemoryRepositoryTest {
+
+    @TempDir
+    Path directory;
+
+    private MappedSegmentChatMemoryRepository open() {
+        return new MappedSegmentChatMemoryRepository(directory, 4096, false, 0.5, Duration.ofHours(1));
+    }
+
+    @Test
+    @DisplayName("测试重启后会话仍然存在")
+    void testRecoverAfterRestart() {
+        try (MappedSegmentChatMemoryRepository repository = open()) {
+            repository.saveAll("test-1", List.of(new UserMessage("hello, my name is glmapper")));
+            repository.saveAll("test-1", List.of(new UserMessage("hello, my name is glmapper"),
+                    new AssistantMessage("Hello glmapper!")));
+            repository.saveAll("test-2", List.of(new UserMessage("请记住这个数字：12345")));
+            repository.deleteByConversationId("test-2");
+        }
+        try (MappedSegmentChatMemoryRepository repository = open()) {
+            Assertions.assertEquals(List.of("test-1"), repository.findConversationIds());
+            List<Message> messages = repository.findByConversationId("test-1");
+            Assertions.assertEquals(2, messages.size());
+            Assertions.assertEquals("Hello glmapper!", messages.get(1).getText());
+        }
+    }
+
+    @Test
+    @DisplayName("测试写入多个 segment 后压缩")
+    void testCompaction() throws IOException {
+        try (MappedSegmentChatMemoryRepository repository = open()) {
+            for (int i = 0; i < 200; i++) {
+                repository.saveAll("test-" + (i % 5), List.of(new UserMessage("message " + i)));
+            }
+            Assertions.assertTrue(segmentCount() > 1, "应该写满了多个 segment");
+            Assertions.assertTrue(repository.compact(), "垃圾占比超过阈值时应该执行压缩");
+            Assertions.assertEquals(1, segmentCount());
+            Assertions.assertEquals("message 199", repository.findByConversationId("test-4").get(0).getText());
+        }
+        try (MappedSegmentChatMemoryRepository repository = open()) {
+            Assertions.assertEquals(5, repository.findConversationIds().size());
+            Assertions.assertEquals("message 195", repository.findByConversationId("test-0").get(0).getText());
+        }
+    }
+
+    @Test
+    @DisplayName("测试压缩间隔为 0 时关闭后台压缩，负数时拒绝")
+    void testCompactionInterval() {
+        try (MappedSegmentChatMemoryRepository repository =
+                     new MappedSegmentChatMemoryRepository(directory, 4096, false, 0.5, Duration.ZERO)) {
+            repository.saveAll("test-1", List.of(new UserMessage("hello")));
+            Assertions.assertEquals(1, repository.findByConversationId("test-1").size());
+        }
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> new MappedSegmentChatMemoryRepository(directory, 4096, false, 0.5, Duration.ofSeconds(-1)));
+    }
+
+    @Test
+    @DisplayName("测试崩溃时写了一半的记录会被截断")
+    void testTornRecord() throws IOException {
+        try (MappedSegmentChatMemoryRepository repository = open()) {
+            repository.saveAll("test-1", List.of(new UserMessage("first")));
+        }
+        Path segment;
+        try (Stream<Path> files = Files.list(directory)) {
+            segment = files.findFirst().orElseThrow();
+        }
+        // 模拟崩溃：在最后一条记录之后写入一个只有头部的记录
+        int end = validBytes(segment);
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(8).putInt(100).putInt(42).flip(), end);
+        }
+        try (MappedSegmentChatMemoryRepository repository = open()) {
+            Assertions.assertEquals("first", repository.findByConversationId("test-1").get(0).getText());
+            repository.saveAll("test-1", List.of(new UserMessage("second")));
+        }
+        try (MappedSegmentChatMemoryRepository repository = open()) {
+            Assertions.assertEquals("second", repository.findByConversationId("test-1").get(0).getText());
+        }
+    }
+
+    private long segmentCount() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.count();
+        }
+    }
+
+    private static int validBytes(Path segment) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(segment));
+        int position = 0;
+        while (buffer.getInt(position) != 0) {
+            position += 8 + buffer.getInt(position);
+        }
+        return position;
+    }
+}
@@ -0,0 +1,11 @@
+package com.glmapper.ai.chat.memory.r2dbc;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+
+@SpringBootApplication
+public class R2dbcMemoryApplication {
+    public static void main(String[] args) {
+        SpringApplication.run(R2dbcMemoryApplication.class, args);
+    }
+}
@@ -0,0 +1,120 @@
+package com.glmapper.ai.chat.memory.r2dbc.advisors;
+
+import com.glmapper.ai.chat.memory.r2dbc.repository.ReactiveChatMemoryRepository;
+import org.springframework.ai.chat.client.ChatClientRequest;
+import org.springframework.ai.chat.client.ChatClientResponse;
+import org.springframework.ai.chat.client.advisor.api.Advisor;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisor;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisorChain;
+import org.springframework.ai.chat.client.advisor.api.StreamAdvisor;
+import org.springframework.ai.chat.client.advisor.api.StreamAdvisorChain;
+import org.springframework.ai.chat.memory.ChatMemory;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.util.Assert;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @Classname ReactiveChatMemoryAdvisor
+ * @Description 不阻塞线程的 MessageChatMemoryAdvisor
+ * <p>
+ * 行为与 MessageChatMemoryAdvisor 相同：把会话最近的 maxMessages 条消息放到本轮消息之前，并保存本轮的用户消息与模型回答。
+ * 区别在于 stream 调用中读写 memory 都是 {@link ReactiveChatMemoryRepository} 返回的 Mono，直接拼接在模型的响应流上，
+ * 不需要像 MessageChatMemoryAdvisor 那样切换到 boundedElastic 线程池执行阻塞的 ChatMemory 操作；
+ * 流式回答在最后一个片段之后汇总为一条 AssistantMessage 写入，写入完成后响应流才结束。
+ * call 调用本身就是同步的，这里直接 block 等待读写完成。
+ * </p>
+ * @Date 2025/6/28 11:00
+ * @Created by glmapper
+ */
+public class ReactiveChatMemoryAdvisor implements CallAdvisor, StreamAdvisor {
+
+    private final ReactiveChatMemoryRepository chatMemoryRepository;
+
+    private final int maxMessages;
+
+    public ReactiveChatMemoryAdvisor(ReactiveChatMemoryRepository chatMemoryRepository, int maxMessages) {
+        Assert.notNull(chatMemoryRepository, "chatMemoryRepository cannot be null");
+        Assert.isTrue(maxMessages > 0, "maxMessages must be greater than 0");
+        this.chatMemoryRepository = chatMemoryRepository;
+        this.maxMessages = maxMessages;
+    }
+
+    @Override
+    public ChatClientResponse adviseCall(ChatClientRequest chatClientRequest, CallAdvisorChain callAdvisorChain) {
+        String conversationId = conversationIdOf(chatClientRequest);
+        ChatClientRequest processedRequest = before(chatClientRequest, conversationId).block();
+        ChatClientResponse chatClientResponse = callAdvisorChain.nextCall(processedRequest);
+        List<Message> assistantMessages = new ArrayList<>();
+        ChatResponse chatResponse = chatClientResponse.chatResponse();
+        if (chatResponse != null) {
+            for (Generation generation : chatResponse.getResults()) {
+                assistantMessages.add(generation.getOutput());
+            }
+        }
+        this.chatMemoryRepository.appendAll(conversationId, assistantMessages).block();
+        return chatClientResponse;
+    }
+
+    @Override
+    public Flux<ChatClientResponse> adviseStream(ChatClientRequest chatClientRequest,
+                                                 StreamAdvisorChain streamAdvisorChain) {
+        String conversationId = conversationIdOf(chatClientRequest);
+        return before(chatClientRequest, conversationId).flatMapMany(processedRequest -> {
+            StringBuilder answer = new StringBuilder();
+            return streamAdvisorChain.nextStream(processedRequest)
+                    .doOnNext(chatClientResponse -> appendText(answer, chatClientResponse))
+                    .concatWith(Mono.defer(() -> answer.isEmpty() ? Mono.<Void>empty()
+                            : this.chatMemoryRepository.appendAll(conversationId,
+                            List.of(new AssistantMessage(answer.toString())))).then(Mono.<ChatClientResponse>empty()));
+        });
+    }
+
+    @Override
+    public String getName() {
+        return "reactive-chat-memory-advisor";
+    }
+
+    @Override
+    public int getOrder() {
+        return Advisor.DEFAULT_CHAT_MEMORY_PRECEDENCE_ORDER;
+    }
+
+    /**
+     * 读取历史消息拼到本轮消息之前，并保存本轮的用户消息
+     */
+    private Mono<ChatClientRequest> before(ChatClientRequest chatClientRequest, String conversationId) {
+        return this.chatMemoryRepository.findLastByConversationId(conversationId, this.maxMessages)
+                .flatMap(history -> {
+                    List<Message> messages = new ArrayList<>(history.size() + chatClientRequest.prompt().getInstructions().size());
+                    messages.addAll(history);
+                    messages.addAll(chatClientRequest.prompt().getInstructions());
+                    ChatClientRequest processedRequest = chatClientRequest.mutate()
+                            .prompt(chatClientRequest.prompt().mutate().messages(messages).build())
+                            .build();
+                    return this.chatMemoryRepository
+                            .appendAll(conversationId, List.of(processedRequest.prompt().getUserMessage()))
+                            .thenReturn(processedRequest);
+                });
+    }
+
+    private static String conversationIdOf(ChatClientRequest chatClientRequest) {
+        Object conversationId = chatClientRequest.context().getOrDefault(ChatMemory.CONVERSATION_ID,
+                ChatMemory.DEFAULT_CONVERSATION_ID);
+        return conversationId.toString();
+    }
+
+    private static void appendText(StringBuilder answer, ChatClientResponse chatClientResponse) {
+        ChatResponse chatResponse = chatClientResponse.chatResponse();
+        if (chatResponse != null && chatResponse.getResult() != null
+                && chatResponse.getResult().getOutput().getText() != null) {
+            answer.append(chatResponse.getResult().getOutput().getText());
+        }
+    }
+}
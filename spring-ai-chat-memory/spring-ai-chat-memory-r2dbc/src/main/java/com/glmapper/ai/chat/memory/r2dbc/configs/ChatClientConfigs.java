@@ -0,0 +1,25 @@
+package com.glmapper.ai.chat.memory.r2dbc.configs;
+
+import com.glmapper.ai.chat.memory.r2dbc.advisors.ReactiveChatMemoryAdvisor;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.openai.OpenAiChatModel;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * @Classname ChatClientConfigs
+ * @Description ChatClientConfigs
+ * @Date 2025/6/28 11:40
+ * @Created by glmapper
+ */
+@Configuration
+public class ChatClientConfigs {
+
+    @Bean
+    public ChatClient chatClient(OpenAiChatModel chatModel, ReactiveChatMemoryAdvisor reactiveChatMemoryAdvisor) {
+        return ChatClient.builder(chatModel)
+                .defaultAdvisors(reactiveChatMemoryAdvisor)
+                .defaultSystem("You are deepseek chat bot, you answer questions in a concise and accurate manner.")
+                .build();
+    }
+}
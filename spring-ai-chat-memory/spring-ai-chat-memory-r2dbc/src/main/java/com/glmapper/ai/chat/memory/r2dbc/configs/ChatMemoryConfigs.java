@@ -0,0 +1,41 @@
+package com.glmapper.ai.chat.memory.r2dbc.configs;
+
+import com.glmapper.ai.chat.memory.r2dbc.advisors.ReactiveChatMemoryAdvisor;
+import com.glmapper.ai.chat.memory.r2dbc.repository.BlockingChatMemoryRepository;
+import com.glmapper.ai.chat.memory.r2dbc.repository.R2dbcChatMemoryRepository;
+import org.springframework.ai.chat.memory.ChatMemoryRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.transaction.ReactiveTransactionManager;
+
+/**
+ * ChatMemoryAutoConfiguration 中的 ChatMemoryRepository 为 @ConditionalOnMissingBean，
+ * 这里声明的适配器会替换默认的 InMemoryChatMemoryRepository，注入 ChatMemory 的地方同样读写 R2DBC
+ *
+ * @Classname ChatMemoryConfigs
+ * @Description ChatMemoryConfigs
+ * @Date 2025/6/28 11:30
+ * @Created by glmapper
+ */
+@Configuration
+public class ChatMemoryConfigs {
+
+    @Bean
+    public R2dbcChatMemoryRepository r2dbcChatMemoryRepository(DatabaseClient databaseClient,
+                                                               ReactiveTransactionManager transactionManager) {
+        return new R2dbcChatMemoryRepository(databaseClient, transactionManager);
+    }
+
+    @Bean
+    public ChatMemoryRepository chatMemoryRepository(R2dbcChatMemoryRepository r2dbcChatMemoryRepository) {
+        return new BlockingChatMemoryRepository(r2dbcChatMemoryRepository);
+    }
+
+    @Bean
+    public ReactiveChatMemoryAdvisor reactiveChatMemoryAdvisor(R2dbcChatMemoryRepository r2dbcChatMemoryRepository,
+                                                               @Value("${chat.memory.r2dbc.max-messages:20}") int maxMessages) {
+        return new ReactiveChatMemoryAdvisor(r2dbcChatMemoryRepository, maxMessages);
+    }
+}
@@ -0,0 +1,48 @@
+package com.glmapper.ai.chat.memory.r2dbc.repository;
+
+import org.springframework.ai.chat.memory.ChatMemoryRepository;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.util.Assert;
+
+import java.util.List;
+
+/**
+ * @Classname BlockingChatMemoryRepository
+ * @Description 把 ReactiveChatMemoryRepository 适配为 ChatMemoryRepository
+ * <p>
+ * 供 MessageWindowChatMemory、MessageChatMemoryAdvisor 等同步 API 使用。MessageChatMemoryAdvisor 在 stream 调用中
+ * 会把读写切换到 boundedElastic 线程池执行，因此这里的 block 不会阻塞事件循环线程；
+ * 需要完全不阻塞时使用 {@link com.glmapper.ai.chat.memory.r2dbc.advisors.ReactiveChatMemoryAdvisor}。
+ * </p>
+ * @Date 2025/6/28 10:40
+ * @Created by glmapper
+ */
+public class BlockingChatMemoryRepository implements ChatMemoryRepository {
+
+    private final ReactiveChatMemoryRepository delegate;
+
+    public BlockingChatMemoryRepository(ReactiveChatMemoryRepository delegate) {
+        Assert.notNull(delegate, "delegate cannot be null");
+        this.delegate = delegate;
+    }
+
+    @Override
+    public List<String> findConversationIds() {
+        return this.delegate.findConversationIds().collectList().block();
+    }
+
+    @Override
+    public List<Message> findByConversationId(String conversationId) {
+        return this.delegate.findByConversationId(conversationId).collectList().block();
+    }
+
+    @Override
+    public void saveAll(String conversationId, List<Message> messages) {
+        this.delegate.saveAll(conversationId, messages).block();
+    }
+
+    @Override
+    public void deleteByConversationId(String conversationId) {
+        this.delegate.deleteByConversationId(conversationId).block();
+    }
+}
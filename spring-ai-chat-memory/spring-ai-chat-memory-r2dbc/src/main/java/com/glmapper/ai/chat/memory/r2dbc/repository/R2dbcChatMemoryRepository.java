@@ -0,0 +1,185 @@
+package com.glmapper.ai.chat.memory.r2dbc.repository;
+
+import io.r2dbc.spi.Readable;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.MessageType;
+import org.springframework.ai.chat.messages.SystemMessage;
+import org.springframework.ai.chat.messages.ToolResponseMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.transaction.ReactiveTransactionManager;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import org.springframework.util.Assert;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @Classname R2dbcChatMemoryRepository
+ * @Description 基于 R2DBC 的 ReactiveChatMemoryRepository
+ * <p>
+ * 与 JdbcChatMemoryRepository 使用同一张 SPRING_AI_CHAT_MEMORY 表，区别在于：
+ * 1、所有读写都通过 DatabaseClient 完成，等待数据库期间不占用线程；
+ * 2、一批消息拼成一条多行 INSERT，一个网络往返写入，不依赖驱动的 batch 实现；
+ * 3、{@link #findLastByConversationId} 在 SQL 中通过倒序索引扫描 + LIMIT 读取窗口，不加载整个会话。
+ * </p>
+ * @Date 2025/6/28 10:00
+ * @Created by glmapper
+ */
+public class R2dbcChatMemoryRepository implements ReactiveChatMemoryRepository {
+
+    private static final String SELECT_CONVERSATION_IDS = "SELECT DISTINCT conversation_id FROM SPRING_AI_CHAT_MEMORY";
+
+    private static final String SELECT_MESSAGES = "SELECT content, type FROM SPRING_AI_CHAT_MEMORY "
+            + "WHERE conversation_id = :conversationId ORDER BY `timestamp`";
+
+    private static final String SELECT_LAST_MESSAGES = "SELECT content, type FROM SPRING_AI_CHAT_MEMORY "
+            + "WHERE conversation_id = :conversationId ORDER BY `timestamp` DESC LIMIT :limit";
+
+    private static final String INSERT_MESSAGES = "INSERT INTO SPRING_AI_CHAT_MEMORY "
+            + "(conversation_id, content, type, `timestamp`) VALUES ";
+
+    private static final String DELETE_MESSAGES = "DELETE FROM SPRING_AI_CHAT_MEMORY WHERE conversation_id = :conversationId";
+
+    /**
+     * 单条 INSERT 最多包含的行数，避免超出驱动对参数个数的限制
+     */
+    private static final int MAX_ROWS_PER_INSERT = 500;
+
+    private final DatabaseClient databaseClient;
+
+    private final TransactionalOperator transactionalOperator;
+
+    /**
+     * 最近一次分配的时间戳，保证同一进程内先后写入的消息时间戳严格递增
+     */
+    private final AtomicLong lastTimestamp = new AtomicLong();
+
+    public R2dbcChatMemoryRepository(DatabaseClient databaseClient, ReactiveTransactionManager transactionManager) {
+        Assert.notNull(databaseClient, "databaseClient cannot be null");
+        Assert.notNull(transactionManager, "transactionManager cannot be null");
+        this.databaseClient = databaseClient;
+        this.transactionalOperator = TransactionalOperator.create(transactionManager);
+    }
+
+    @Override
+    public Flux<String> findConversationIds() {
+        return this.databaseClient.sql(SELECT_CONVERSATION_IDS)
+                .map(row -> row.get("conversation_id", String.class))
+                .all();
+    }
+
+    @Override
+    public Flux<Message> findByConversationId(String conversationId) {
+        Assert.hasText(conversationId, "conversationId cannot be null or empty");
+        return this.databaseClient.sql(SELECT_MESSAGES)
+                .bind("conversationId", conversationId)
+                .map(R2dbcChatMemoryRepository::toMessage)
+                .all();
+    }
+
+    /**
+     * 只扫描 (conversation_id, timestamp) 索引尾部的 limit 行，倒序读出后翻转为时间正序
+     */
+    @Override
+    public Mono<List<Message>> findLastByConversationId(String conversationId, int limit) {
+        Assert.hasText(conversationId, "conversationId cannot be null or empty");
+        Assert.isTrue(limit > 0, "limit must be greater than 0");
+        return this.databaseClient.sql(SELECT_LAST_MESSAGES)
+                .bind("conversationId", conversationId)
+                .bind("limit", limit)
+                .map(R2dbcChatMemoryRepository::toMessage)
+                .all()
+                .collectList()
+                .map(messages -> {
+                    Collections.reverse(messages);
+                    return messages;
+                });
+    }
+
+    @Override
+    public Mono<Void> saveAll(String conversationId, List<Message> messages) {
+        Assert.hasText(conversationId, "conversationId cannot be null or empty");
+        Assert.notNull(messages, "messages cannot be null");
+        Assert.noNullElements(messages, "messages cannot contain null elements");
+        return deleteByConversationId(conversationId)
+                .then(Mono.defer(() -> insert(conversationId, messages)))
+                .as(this.transactionalOperator::transactional);
+    }
+
+    @Override
+    public Mono<Void> appendAll(String conversationId, List<Message> messages) {
+        Assert.hasText(conversationId, "conversationId cannot be null or empty");
+        Assert.notNull(messages, "messages cannot be null");
+        Assert.noNullElements(messages, "messages cannot contain null elements");
+        return Mono.defer(() -> insert(conversationId, messages));
+    }
+
+    @Override
+    public Mono<Void> deleteByConversationId(String conversationId) {
+        Assert.hasText(conversationId, "conversationId cannot be null or empty");
+        return this.databaseClient.sql(DELETE_MESSAGES)
+                .bind("conversationId", conversationId)
+                .then();
+    }
+
+    private Mono<Void> insert(String conversationId, List<Message> messages) {
+        if (messages.isEmpty()) {
+            return Mono.empty();
+        }
+        // 与 JdbcChatMemoryRepository 一致：同一批消息的时间戳依次递增 1ms，保证读取时的顺序；
+        // 追加写入时还要保证晚于上一批，否则同一毫秒内的两次追加在倒序读取时会乱序
+        long firstTimestamp = reserveTimestamps(messages.size());
+        return Flux.range(0, (messages.size() + MAX_ROWS_PER_INSERT - 1) / MAX_ROWS_PER_INSERT)
+                .concatMap(chunk -> {
+                    int from = chunk * MAX_ROWS_PER_INSERT;
+                    int to = Math.min(from + MAX_ROWS_PER_INSERT, messages.size());
+                    return insertRows(conversationId, messages.subList(from, to), firstTimestamp + from);
+                })
+                .then();
+    }
+
+    private Mono<Long> insertRows(String conversationId, List<Message> messages, long firstTimestamp) {
+        StringBuilder sql = new StringBuilder(INSERT_MESSAGES);
+        for (int i = 0; i < messages.size(); i++) {
+            sql.append(i == 0 ? "" : ", ")
+                    .append("(:conversationId, :content").append(i)
+                    .append(", :type").append(i)
+                    .append(", :timestamp").append(i).append(')');
+        }
+        DatabaseClient.GenericExecuteSpec spec = this.databaseClient.sql(sql.toString())
+                .bind("conversationId", conversationId);
+        for (int i = 0; i < messages.size(); i++) {
+            Message message = messages.get(i);
+            spec = spec.bind("content" + i, message.getText() == null ? "" : message.getText())
+                    .bind("type" + i, message.getMessageType().name())
+                    .bind("timestamp" + i, LocalDateTime.ofInstant(Instant.ofEpochMilli(firstTimestamp + i), ZoneId.systemDefault()));
+        }
+        return spec.fetch().rowsUpdated();
+    }
+
+    private long reserveTimestamps(int count) {
+        long now = Instant.now().toEpochMilli();
+        long end = this.lastTimestamp.accumulateAndGet(now, (last, current) -> Math.max(last, current - 1) + count);
+        return end - count + 1;
+    }
+
+    private static Message toMessage(Readable row) {
+        String content = row.get("content", String.class);
+        MessageType type = MessageType.valueOf(row.get("type", String.class));
+        return switch (type) {
+            case USER -> new UserMessage(content);
+            case ASSISTANT -> new AssistantMessage(content);
+            case SYSTEM -> new SystemMessage(content);
+            // 与 JdbcChatMemoryRepository 一致，ToolResponseMessage 的内容不落库
+            case TOOL -> new ToolResponseMessage(List.of());
+        };
+    }
+}
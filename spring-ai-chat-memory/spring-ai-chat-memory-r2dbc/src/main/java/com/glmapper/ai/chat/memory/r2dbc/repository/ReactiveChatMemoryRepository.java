@@ -0,0 +1,43 @@
+package com.glmapper.ai.chat.memory.r2dbc.repository;
+
+import org.springframework.ai.chat.messages.Message;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * @Classname ReactiveChatMemoryRepository
+ * @Description ChatMemoryRepository 的响应式版本
+ * <p>
+ * 方法与 ChatMemoryRepository 一一对应，另外增加了窗口读取与追加写入，所有方法都不阻塞调用线程。
+ * </p>
+ * @Date 2025/6/28 09:40
+ * @Created by glmapper
+ */
+public interface ReactiveChatMemoryRepository {
+
+    Flux<String> findConversationIds();
+
+    /**
+     * 按时间正序返回会话的全部消息
+     */
+    Flux<Message> findByConversationId(String conversationId);
+
+    /**
+     * 返回会话最近的 limit 条消息，按时间正序排列
+     */
+    Mono<List<Message>> findLastByConversationId(String conversationId, int limit);
+
+    /**
+     * 用 messages 替换会话中已有的消息
+     */
+    Mono<Void> saveAll(String conversationId, List<Message> messages);
+
+    /**
+     * 追加消息，不改写会话中已有的消息
+     */
+    Mono<Void> appendAll(String conversationId, List<Message> messages);
+
+    Mono<Void> deleteByConversationId(String conversationId);
+}
@@ -0,0 +1,41 @@
+package com.glmapper.ai.chat.memory.r2dbc.service;
+
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.memory.ChatMemory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+
+/**
+ * @Classname ChatMemoryService
+ * @Description ChatMemoryService
+ * @Date 2025/6/28 11:45
+ * @Created by glmapper
+ */
+@Service
+public class ChatMemoryService {
+
+    private static final String CONVERSATION_ID = "naming-20250528";
+
+    @Autowired
+    private ChatClient chatClient;
+
+    public String chat(String message, String conversationId) {
+        return this.chatClient.prompt()
+                .user(message)
+                .advisors(a -> a.param(ChatMemory.CONVERSATION_ID, conversationId == null ? CONVERSATION_ID : conversationId))
+                .call()
+                .content();
+    }
+
+    /**
+     * 流式回答，memory 的读写由 ReactiveChatMemoryAdvisor 拼接在响应流上，不占用线程等待数据库
+     */
+    public Flux<String> stream(String message, String conversationId) {
+        return this.chatClient.prompt()
+                .user(message)
+                .advisors(a -> a.param(ChatMemory.CONVERSATION_ID, conversationId == null ? CONVERSATION_ID : conversationId))
+                .stream()
+                .content();
+    }
+}
@@ -0,0 +1,212 @@
+package com.glmapper.ai.chat.memory.r2dbc;
+
+import com.glmapper.ai.chat.memory.r2dbc.advisors.ReactiveChatMemoryAdvisor;
+import com.glmapper.ai.chat.memory.r2dbc.repository.R2dbcChatMemoryRepository;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactory;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.memory.ChatMemory;
+import org.springframework.ai.chat.memory.MessageWindowChatMemory;
+import org.springframework.ai.chat.memory.repository.jdbc.JdbcChatMemoryRepository;
+import org.springframework.ai.chat.memory.repository.jdbc.MysqlChatMemoryRepositoryDialect;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.MessageType;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.r2dbc.connection.R2dbcTransactionManager;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.IntStream;
+
+/**
+ * R2DBC memory 测试
+ * <p>
+ * 使用 r2dbc-h2 的 MySQL 兼容模式执行 schema-mysql.sql，不依赖外部数据库和模型。
+ * 与 JdbcChatMemoryRepository 的对比默认不执行，通过 -Dchat.memory.benchmark=true 开启，
+ * 并发数与轮次可以通过 -Dchat.memory.benchmark.concurrency 与 -Dchat.memory.benchmark.turns 调整。
+ *
+ * @author glmapper
+ * @since 2025-06-28
+ */
+public class R2dbcChatMemoryTest {
+
+    private static final int WINDOW = 20;
+
+    @Test
+    @DisplayName("测试响应式读写与窗口读取")
+    void testRepository() {
+        R2dbcChatMemoryRepository repository = repository("test-repository");
+        for (int i = 0; i < 15; i++) {
+            repository.appendAll("test-window", List.of(new UserMessage("question " + i), new AssistantMessage("answer " + i))).block();
+        }
+
+        List<Message> window = repository.findLastByConversationId("test-window", WINDOW).block();
+        Assertions.assertEquals(WINDOW, window.size());
+        Assertions.assertEquals("question 5", window.get(0).getText());
+        Assertions.assertEquals("answer 14", window.get(WINDOW - 1).getText());
+        Assertions.assertEquals(30, repository.findByConversationId("test-window").count().block());
+
+        repository.saveAll("test-window", List.of(new UserMessage("replaced"))).block();
+        Assertions.assertEquals(List.of("replaced"),
+                repository.findByConversationId("test-window").map(Message::getText).collectList().block());
+        repository.saveAll("test-other", List.of(new UserMessage("hi"))).block();
+        Assertions.assertEquals(2, repository.findConversationIds().count().block());
+
+        repository.deleteByConversationId("test-window").block();
+        Assertions.assertTrue(repository.findLastByConversationId("test-window", WINDOW).block().isEmpty());
+    }
+
+    @Test
+    @DisplayName("测试 stream 调用在非阻塞线程上读写 memory")
+    void testStreamAdvisor() {
+        R2dbcChatMemoryRepository repository = repository("test-advisor");
+        ScriptedChatModel chatModel = new ScriptedChatModel();
+        ChatClient chatClient = ChatClient.builder(chatModel)
+                .defaultAdvisors(new ReactiveChatMemoryAdvisor(repository, WINDOW))
+                .build();
+
+        // parallel 线程上调用 block 会直接抛出异常，流能正常结束说明整个 advisor 链没有阻塞
+        String answer = chatClient.prompt()
+                .user("My name is James Bond")
+                .advisors(a -> a.param(ChatMemory.CONVERSATION_ID, "test-stream"))
+                .stream()
+                .content()
+                .subscribeOn(Schedulers.parallel())
+                .collectList()
+                .map(tokens -> String.join("", tokens))
+                .block();
+        Assertions.assertEquals("answer 1", answer);
+
+        chatClient.prompt()
+                .user("What is my name?")
+                .advisors(a -> a.param(ChatMemory.CONVERSATION_ID, "test-stream"))
+                .call()
+                .content();
+        List<Message> secondPrompt = chatModel.prompts.get(1).getInstructions();
+        Assertions.assertEquals(3, secondPrompt.size());
+        Assertions.assertEquals("My name is James Bond", secondPrompt.get(0).getText());
+        Assertions.assertEquals("answer 1", secondPrompt.get(1).getText());
+
+        List<Message> stored = repository.findByConversationId("test-stream").collectList().block();
+        Assertions.assertEquals(4, stored.size());
+        Assertions.assertEquals(MessageType.ASSISTANT, stored.get(3).getMessageType());
+        Assertions.assertEquals("answer 2", stored.get(3).getText());
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "chat.memory.benchmark", matches = "true")
+    @DisplayName("对比 JdbcChatMemoryRepository 与 R2DBC 在高并发下的吞吐与线程数")
+    void benchmarkAgainstJdbc() throws Exception {
+        int concurrency = Integer.getInteger("chat.memory.benchmark.concurrency", 256);
+        int turns = Integer.getInteger("chat.memory.benchmark.turns", 20_000);
+        int conversations = concurrency * 4;
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+
+        // 阻塞模型：每个进行中的轮次占用一个线程
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:benchmark-jdbc;MODE=MySQL;DB_CLOSE_DELAY=-1", "sa", "");
+        new org.springframework.jdbc.datasource.init.ResourceDatabasePopulator(new ClassPathResource("schema-mysql.sql"))
+                .execute(dataSource);
+        ChatMemory jdbcMemory = MessageWindowChatMemory.builder()
+                .chatMemoryRepository(JdbcChatMemoryRepository.builder()
+                        .jdbcTemplate(new JdbcTemplate(dataSource))
+                        .dialect(new MysqlChatMemoryRepositoryDialect())
+                        .build())
+                .maxMessages(WINDOW)
+                .build();
+        threads.resetPeakThreadCount();
+        long start = System.nanoTime();
+        try (ExecutorService executor = Executors.newFixedThreadPool(concurrency)) {
+            CompletableFuture.allOf(IntStream.range(0, turns)
+                    .mapToObj(i -> CompletableFuture.runAsync(() -> {
+                        String conversationId = "conversation-" + (i % conversations);
+                        jdbcMemory.add(conversationId, new UserMessage("question " + i));
+                        jdbcMemory.get(conversationId);
+                        jdbcMemory.add(conversationId, new AssistantMessage("answer " + i));
+                    }, executor))
+                    .toArray(CompletableFuture[]::new)).join();
+        }
+        long jdbcNanos = System.nanoTime() - start;
+        int jdbcThreads = threads.getPeakThreadCount();
+
+        // 响应式模型：进行中的轮次只是 flatMap 中的订阅，线程数与 CPU 核数相关
+        R2dbcChatMemoryRepository r2dbcRepository = repository("benchmark-r2dbc");
+        threads.resetPeakThreadCount();
+        start = System.nanoTime();
+        Flux.range(0, turns)
+                .flatMap(i -> {
+                    String conversationId = "conversation-" + (i % conversations);
+                    return r2dbcRepository.findLastByConversationId(conversationId, WINDOW)
+                            .then(r2dbcRepository.appendAll(conversationId, List.of(new UserMessage("question " + i))))
+                            .then(r2dbcRepository.appendAll(conversationId, List.of(new AssistantMessage("answer " + i))))
+                            .subscribeOn(Schedulers.parallel());
+                }, concurrency)
+                .then()
+                .block();
+        long r2dbcNanos = System.nanoTime() - start;
+        int r2dbcThreads = threads.getPeakThreadCount();
+
+        System.out.printf("jdbc : %.0f turns/s, peak threads %d%n", turns * 1e9 / jdbcNanos, jdbcThreads);
+        System.out.printf("r2dbc: %.0f turns/s, peak threads %d%n", turns * 1e9 / r2dbcNanos, r2dbcThreads);
+        Assertions.assertTrue(r2dbcThreads < jdbcThreads, "响应式实现不应该为每个并发轮次占用一个线程");
+    }
+
+    private static R2dbcChatMemoryRepository repository(String name) {
+        ConnectionFactory connectionFactory = ConnectionFactories.get(
+                "r2dbc:h2:mem:///" + name + "?options=DB_CLOSE_DELAY=-1;MODE=MySQL");
+        new org.springframework.r2dbc.connection.init.ResourceDatabasePopulator(new ClassPathResource("schema-mysql.sql"))
+                .populate(connectionFactory)
+                .block();
+        return new R2dbcChatMemoryRepository(DatabaseClient.create(connectionFactory),
+                new R2dbcTransactionManager(connectionFactory));
+    }
+
+    /**
+     * 按调用次数回答 "answer N"，stream 调用把回答拆成多个片段
+     */
+    private static class ScriptedChatModel implements ChatModel {
+
+        private final List<Prompt> prompts = new CopyOnWriteArrayList<>();
+
+        @Override
+        public ChatResponse call(Prompt prompt) {
+            this.prompts.add(prompt);
+            return response("answer " + this.prompts.size());
+        }
+
+        @Override
+        public Flux<ChatResponse> stream(Prompt prompt) {
+            return Mono.fromCallable(() -> {
+                        this.prompts.add(prompt);
+                        return this.prompts.size();
+                    })
+                    .flatMapMany(n -> Flux.just("answer", " ", String.valueOf(n)))
+                    .map(ScriptedChatModel::response);
+        }
+
+        private static ChatResponse response(String text) {
+            return new ChatResponse(List.of(new Generation(new AssistantMessage(text))));
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.glmapper.ai.chat.memory.redis;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+
+@SpringBootApplication
+public class RedisMemoryApplication {
+    public static void main(String[] args) {
+        SpringApplication.run(RedisMemoryApplication.class, args);
+    }
+}
@@ -0,0 +1,37 @@
+package com.glmapper.ai.chat.memory.redis.configs;
+
+import com.glmapper.ai.chat.memory.redis.memory.CappedListChatMemory;
+import com.glmapper.ai.chat.memory.redis.repository.RedisChatMemoryRepository;
+import org.springframework.ai.chat.memory.ChatMemory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+
+import java.time.Duration;
+
+/**
+ * ChatMemoryAutoConfiguration 中的 ChatMemoryRepository 与 ChatMemory 均为 @ConditionalOnMissingBean，
+ * 这里声明的 Redis 实现会替换默认的 InMemoryChatMemoryRepository 与 MessageWindowChatMemory
+ *
+ * @Classname ChatMemoryConfigs
+ * @Description ChatMemoryConfigs
+ * @Date 2025/6/27 11:30
+ * @Created by glmapper
+ */
+@Configuration
+public class ChatMemoryConfigs {
+
+    @Bean
+    public RedisChatMemoryRepository chatMemoryRepository(RedisConnectionFactory connectionFactory,
+                                                          @Value("${chat.memory.redis.key-prefix:spring-ai:chat-memory:}") String keyPrefix,
+                                                          @Value("${chat.memory.redis.max-messages:20}") int maxMessages,
+                                                          @Value("${chat.memory.redis.ttl:P7D}") Duration ttl) {
+        return new RedisChatMemoryRepository(connectionFactory, keyPrefix, maxMessages, ttl);
+    }
+
+    @Bean
+    public ChatMemory chatMemory(RedisChatMemoryRepository chatMemoryRepository) {
+        return new CappedListChatMemory(chatMemoryRepository);
+    }
+}
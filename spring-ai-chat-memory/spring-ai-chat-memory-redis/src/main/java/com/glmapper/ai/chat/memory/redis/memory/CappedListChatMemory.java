@@ -0,0 +1,44 @@
+package com.glmapper.ai.chat.memory.redis.memory;
+
+import com.glmapper.ai.chat.memory.redis.repository.RedisChatMemoryRepository;
+import org.springframework.ai.chat.memory.ChatMemory;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.util.Assert;
+
+import java.util.List;
+
+/**
+ * @Classname CappedListChatMemory
+ * @Description 基于 Redis 定长 list 的 ChatMemory
+ * <p>
+ * MessageWindowChatMemory 每次 add 都要读取整个会话、在内存中裁剪后再整体覆盖写回，一轮对话需要多次网络往返。
+ * 这里 add 只追加，窗口由 Redis 的 LTRIM 维护，get 只需要一次 LRANGE。
+ * 与 MessageWindowChatMemory 不同，滑出窗口的 SystemMessage 不会被保留，系统提示词应该通过 ChatClient 的 defaultSystem 设置。
+ * </p>
+ * @Date 2025/6/27 11:10
+ * @Created by glmapper
+ */
+public class CappedListChatMemory implements ChatMemory {
+
+    private final RedisChatMemoryRepository chatMemoryRepository;
+
+    public CappedListChatMemory(RedisChatMemoryRepository chatMemoryRepository) {
+        Assert.notNull(chatMemoryRepository, "chatMemoryRepository cannot be null");
+        this.chatMemoryRepository = chatMemoryRepository;
+    }
+
+    @Override
+    public void add(String conversationId, List<Message> messages) {
+        this.chatMemoryRepository.appendAll(conversationId, messages);
+    }
+
+    @Override
+    public List<Message> get(String conversationId) {
+        return this.chatMemoryRepository.findByConversationId(conversationId);
+    }
+
+    @Override
+    public void clear(String conversationId) {
+        this.chatMemoryRepository.deleteByConversationId(conversationId);
+    }
+}
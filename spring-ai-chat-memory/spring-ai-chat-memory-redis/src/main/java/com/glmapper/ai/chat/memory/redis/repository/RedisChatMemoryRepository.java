@@ -0,0 +1,145 @@
+package com.glmapper.ai.chat.memory.redis.repository;
+
+import com.glmapper.ai.chat.memory.codec.MessageCodec;
+import org.springframework.ai.chat.memory.ChatMemoryRepository;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.util.Assert;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @Classname RedisChatMemoryRepository
+ * @Description 基于 Redis list 的 ChatMemoryRepository
+ * <p>
+ * 每个会话对应一个 list（key 为 keyPrefix + conversationId），元素是 {@link MessageCodec} 编码后的消息：
+ * 1、{@link #appendAll} 在一次 pipeline 中执行 RPUSH + LTRIM + EXPIRE，一个网络往返完成追加、裁剪与续期；
+ * 2、{@link #findByConversationId} 只执行一次 LRANGE，list 已经被裁剪到 maxMessages，不需要再在内存中裁剪；
+ * 3、{@link #saveAll} 用 MULTI/EXEC 包住 DEL + RPUSH + EXPIRE，其他节点不会读到删除后、写入前的空会话。
+ * </p>
+ * @Date 2025/6/27 10:30
+ * @Created by glmapper
+ */
+public class RedisChatMemoryRepository implements ChatMemoryRepository {
+
+    private final RedisTemplate<byte[], byte[]> redisTemplate;
+
+    private final String keyPrefix;
+
+    private final int maxMessages;
+
+    private final long ttlSeconds;
+
+    public RedisChatMemoryRepository(RedisConnectionFactory connectionFactory, String keyPrefix, int maxMessages,
+                                     Duration ttl) {
+        Assert.notNull(connectionFactory, "connectionFactory cannot be null");
+        Assert.hasText(keyPrefix, "keyPrefix cannot be null or empty");
+        Assert.isTrue(maxMessages > 0, "maxMessages must be greater than 0");
+        Assert.isTrue(ttl.toSeconds() > 0, "ttl must be at least one second");
+        RedisTemplate<byte[], byte[]> template = new RedisTemplate<>();
+        template.setConnectionFactory(connectionFactory);
+        template.setDefaultSerializer(RedisSerializer.byteArray());
+        template.afterPropertiesSet();
+        this.redisTemplate = template;
+        this.keyPrefix = keyPrefix;
+        this.maxMessages = maxMessages;
+        this.ttlSeconds = ttl.toSeconds();
+    }
+
+    @Override
+    public List<String> findConversationIds() {
+        ScanOptions options = ScanOptions.scanOptions().match(this.keyPrefix + "*").count(1000).build();
+        return this.redisTemplate.execute((RedisCallback<List<String>>) connection -> {
+            List<String> conversationIds = new ArrayList<>();
+            try (Cursor<byte[]> cursor = connection.keyCommands().scan(options)) {
+                while (cursor.hasNext()) {
+                    String key = new String(cursor.next(), StandardCharsets.UTF_8);
+                    conversationIds.add(key.substring(this.keyPrefix.length()));
+                }
+            }
+            return conversationIds;
+        });
+    }
+
+    @Override
+    public List<Message> findByConversationId(String conversationId) {
+        Assert.hasText(conversationId, "conversationId cannot be null or empty");
+        byte[] key = key(conversationId);
+        List<byte[]> values = this.redisTemplate.execute(
+                (RedisCallback<List<byte[]>>) connection -> connection.listCommands().lRange(key, 0, -1));
+        if (values == null || values.isEmpty()) {
+            return List.of();
+        }
+        List<Message> messages = new ArrayList<>(values.size());
+        for (byte[] value : values) {
+            messages.add(MessageCodec.decode(value));
+        }
+        return messages;
+    }
+
+    @Override
+    public void saveAll(String conversationId, List<Message> messages) {
+        Assert.hasText(conversationId, "conversationId cannot be null or empty");
+        Assert.notNull(messages, "messages cannot be null");
+        Assert.noNullElements(messages, "messages cannot contain null elements");
+        byte[] key = key(conversationId);
+        byte[][] values = encode(messages.subList(Math.max(0, messages.size() - this.maxMessages), messages.size()));
+        this.redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            connection.multi();
+            connection.keyCommands().del(key);
+            if (values.length > 0) {
+                connection.listCommands().rPush(key, values);
+                connection.keyCommands().expire(key, this.ttlSeconds);
+            }
+            connection.exec();
+            return null;
+        });
+    }
+
+    /**
+     * 追加消息，超出 maxMessages 的旧消息由 LTRIM 裁掉，同时刷新过期时间
+     */
+    public void appendAll(String conversationId, List<Message> messages) {
+        Assert.hasText(conversationId, "conversationId cannot be null or empty");
+        Assert.notNull(messages, "messages cannot be null");
+        Assert.noNullElements(messages, "messages cannot contain null elements");
+        if (messages.isEmpty()) {
+            return;
+        }
+        byte[] key = key(conversationId);
+        byte[][] values = encode(messages);
+        this.redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            connection.listCommands().rPush(key, values);
+            connection.listCommands().lTrim(key, -this.maxMessages, -1);
+            connection.keyCommands().expire(key, this.ttlSeconds);
+            return null;
+        });
+    }
+
+    @Override
+    public void deleteByConversationId(String conversationId) {
+        Assert.hasText(conversationId, "conversationId cannot be null or empty");
+        byte[] key = key(conversationId);
+        this.redisTemplate.execute((RedisCallback<Long>) connection -> connection.keyCommands().del(key));
+    }
+
+    private byte[] key(String conversationId) {
+        return (this.keyPrefix + conversationId).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[][] encode(List<Message> messages) {
+        byte[][] values = new byte[messages.size()][];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = MessageCodec.encode(messages.get(i));
+        }
+        return values;
+    }
+}
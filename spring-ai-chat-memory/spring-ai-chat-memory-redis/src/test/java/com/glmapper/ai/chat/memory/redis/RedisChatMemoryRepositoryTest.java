@@ -0,0 +1,129 @@
+package com.glmapper.ai.chat.memory.redis;
+
+import com.glmapper.ai.chat.memory.redis.memory.CappedListChatMemory;
+import com.glmapper.ai.chat.memory.redis.repository.RedisChatMemoryRepository;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.memory.ChatMemory;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.MessageType;
+import org.springframework.ai.chat.messages.SystemMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * 使用本机的 redis-server 启动一个临时实例（不持久化），PATH 中没有 redis-server 时跳过
+ *
+ * @author glmapper
+ * @since 2025-06-27
+ */
+public class RedisChatMemoryRepositoryTest {
+
+    private static Process redisServer;
+
+    private static LettuceConnectionFactory connectionFactory;
+
+    @BeforeAll
+    static void startRedis() throws Exception {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        try {
+            redisServer = new ProcessBuilder("redis-server", "--port", String.valueOf(port), "--save", "",
+                    "--appendonly", "no").redirectErrorStream(true).redirectOutput(ProcessBuilder.Redirect.DISCARD).start();
+        } catch (IOException e) {
+            Assumptions.abort("redis-server is not available: " + e.getMessage());
+        }
+        waitForPort(port);
+        connectionFactory = new LettuceConnectionFactory("localhost", port);
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+    }
+
+    @AfterAll
+    static void stopRedis() {
+        if (connectionFactory != null) {
+            connectionFactory.destroy();
+        }
+        if (redisServer != null) {
+            redisServer.destroy();
+        }
+    }
+
+    @Test
+    @DisplayName("测试追加写入后窗口被裁剪")
+    void testAppendAndTrim() {
+        RedisChatMemoryRepository repository = new RedisChatMemoryRepository(connectionFactory, "test:", 4, Duration.ofMinutes(5));
+        ChatMemory chatMemory = new CappedListChatMemory(repository);
+        for (int i = 0; i < 5; i++) {
+            chatMemory.add("test-trim", List.of(new UserMessage("question " + i), new AssistantMessage("answer " + i)));
+        }
+
+        List<Message> messages = chatMemory.get("test-trim");
+        Assertions.assertEquals(4, messages.size());
+        Assertions.assertEquals("question 3", messages.get(0).getText());
+        Assertions.assertEquals(MessageType.ASSISTANT, messages.get(3).getMessageType());
+        Assertions.assertEquals("answer 4", messages.get(3).getText());
+
+        chatMemory.clear("test-trim");
+        Assertions.assertTrue(chatMemory.get("test-trim").isEmpty());
+    }
+
+    @Test
+    @DisplayName("测试覆盖写入与会话列表")
+    void testSaveAllAndFindConversationIds() {
+        RedisChatMemoryRepository repository = new RedisChatMemoryRepository(connectionFactory, "test-ids:", 20, Duration.ofMinutes(5));
+        repository.saveAll("a", List.of(new SystemMessage("you are a helpful assistant"), new UserMessage("hello")));
+        repository.saveAll("b", List.of(new UserMessage("hi")));
+        repository.saveAll("a", List.of(new UserMessage("replaced")));
+
+        Assertions.assertEquals(List.of("replaced"), repository.findByConversationId("a").stream().map(Message::getText).toList());
+        Assertions.assertEquals(2, repository.findConversationIds().size());
+
+        repository.saveAll("b", List.of());
+        Assertions.assertEquals(List.of("a"), repository.findConversationIds());
+    }
+
+    @Test
+    @DisplayName("测试单轮对话的读写耗时")
+    void testLatency() {
+        RedisChatMemoryRepository repository = new RedisChatMemoryRepository(connectionFactory, "test-latency:", 20, Duration.ofMinutes(5));
+        ChatMemory chatMemory = new CappedListChatMemory(repository);
+        List<Message> turn = List.of(new UserMessage("question ".repeat(20)), new AssistantMessage("answer ".repeat(60)));
+        int rounds = 2000;
+        for (int i = 0; i < 200; i++) {
+            chatMemory.add("test-latency-warmup", turn);
+            chatMemory.get("test-latency-warmup");
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            chatMemory.get("test-latency-" + (i % 100));
+            chatMemory.add("test-latency-" + (i % 100), turn);
+        }
+        System.out.printf("get + add: %.1f us/turn%n", (System.nanoTime() - start) / 1000.0 / rounds);
+    }
+
+    private static void waitForPort(int port) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (System.currentTimeMillis() < deadline) {
+            try (Socket ignored = new Socket("localhost", port)) {
+                return;
+            } catch (IOException e) {
+                Thread.sleep(50);
+            }
+        }
+        Assumptions.abort("redis-server did not start on port " + port);
+    }
+}
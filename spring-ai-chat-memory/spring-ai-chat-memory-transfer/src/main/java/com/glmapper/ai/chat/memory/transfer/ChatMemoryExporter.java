@@ -0,0 +1,102 @@
+package com.glmapper.ai.chat.memory.transfer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.memory.ChatMemoryRepository;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.util.Assert;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * @Classname ChatMemoryExporter
+ * @Description 把 ChatMemoryRepository 中的会话以 JSONL 格式流式导出
+ * <p>
+ * 1、按会话 ID 分页读取，每次只持有一页 ID 和一个会话的消息，内存占用与会话总数无关；
+ * 2、每写完一页 flush 并记录进度（最后一个会话 ID 与文件长度），中断后再次执行会把文件截断到上次的长度，从下一个会话继续。
+ * </p>
+ * @Date 2025/6/26 11:00
+ * @Created by glmapper
+ */
+@Slf4j
+public class ChatMemoryExporter {
+
+    static final String LAST_CONVERSATION_ID = "export.last-conversation-id";
+
+    static final String BYTES = "export.bytes";
+
+    static final String CONVERSATIONS = "export.conversations";
+
+    private final ChatMemoryRepository repository;
+
+    private final ConversationIdPager pager;
+
+    private final ObjectMapper objectMapper;
+
+    private final int pageSize;
+
+    public ChatMemoryExporter(ChatMemoryRepository repository, ConversationIdPager pager, ObjectMapper objectMapper,
+                              int pageSize) {
+        Assert.isTrue(pageSize > 0, "pageSize must be greater than 0");
+        this.repository = repository;
+        this.pager = pager;
+        this.objectMapper = objectMapper;
+        this.pageSize = pageSize;
+    }
+
+    /**
+     * @return 本次及之前中断的执行累计导出的会话数
+     */
+    public long export(Path file, Path checkpointFile) {
+        TransferCheckpoint checkpoint = TransferCheckpoint.load(checkpointFile);
+        String afterId = checkpoint.get(LAST_CONVERSATION_ID);
+        long exported = checkpoint.getLong(CONVERSATIONS);
+        try {
+            truncate(file, checkpoint.getLong(BYTES));
+            try (Writer writer = new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(file,
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND), StandardCharsets.UTF_8))) {
+                List<String> page;
+                while (!(page = this.pager.page(afterId, this.pageSize)).isEmpty()) {
+                    for (String conversationId : page) {
+                        List<Message> messages = this.repository.findByConversationId(conversationId);
+                        if (messages.isEmpty()) {
+                            continue;
+                        }
+                        writer.write(this.objectMapper.writeValueAsString(ConversationLine.of(conversationId, messages)));
+                        writer.write('\n');
+                        exported++;
+                    }
+                    writer.flush();
+                    afterId = page.get(page.size() - 1);
+                    checkpoint.set(LAST_CONVERSATION_ID, afterId)
+                            .set(BYTES, Files.size(file))
+                            .set(CONVERSATIONS, exported)
+                            .save();
+                    log.info("Exported {} conversations, last conversation id {}", exported, afterId);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to export chat memory to " + file, e);
+        }
+        return exported;
+    }
+
+    private static void truncate(Path file, long bytes) throws IOException {
+        if (!Files.exists(file)) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(bytes);
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.glmapper.ai.chat.memory.transfer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.memory.ChatMemoryRepository;
+import org.springframework.util.Assert;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * @Classname ChatMemoryImporter
+ * @Description 把 ChatMemoryExporter 导出的 JSONL 文件流式导入 ChatMemoryRepository
+ * <p>
+ * 1、读取线程按 chunkLines 行切分，交给 writers 个写入线程并发执行 saveAll，最多同时持有 2 * writers 个分片；
+ * 2、分片可能乱序完成，进度只推进到连续完成的分片为止，并记录已导入的行数；
+ * 3、中断后再次执行会跳过已记录的行。最后一个未记录的分片中已经写入的会话会被重复写入，saveAll 是覆盖写，结果不变。
+ * </p>
+ * @Date 2025/6/26 11:30
+ * @Created by glmapper
+ */
+@Slf4j
+public class ChatMemoryImporter {
+
+    static final String LINES = "import.lines";
+
+    private final ChatMemoryRepository repository;
+
+    private final ObjectMapper objectMapper;
+
+    private final int writers;
+
+    private final int chunkLines;
+
+    public ChatMemoryImporter(ChatMemoryRepository repository, ObjectMapper objectMapper, int writers, int chunkLines) {
+        Assert.isTrue(writers > 0, "writers must be greater than 0");
+        Assert.isTrue(chunkLines > 0, "chunkLines must be greater than 0");
+        this.repository = repository;
+        this.objectMapper = objectMapper;
+        this.writers = writers;
+        this.chunkLines = chunkLines;
+    }
+
+    /**
+     * @return 本次及之前中断的执行累计导入的行数
+     */
+    public long importFrom(Path file, Path checkpointFile) {
+        TransferCheckpoint checkpoint = TransferCheckpoint.load(checkpointFile);
+        Progress progress = new Progress(checkpoint, checkpoint.getLong(LINES));
+        AtomicReference<RuntimeException> failure = new AtomicReference<>();
+        Semaphore inFlight = new Semaphore(this.writers * 2);
+        ExecutorService executor = Executors.newFixedThreadPool(this.writers);
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            for (long skipped = 0; skipped < progress.committedLines && reader.readLine() != null; skipped++) {
+                // 跳过已经导入的行
+            }
+            long chunkIndex = 0;
+            List<String> chunk = new ArrayList<>(this.chunkLines);
+            String line;
+            while (failure.get() == null && (line = reader.readLine()) != null) {
+                chunk.add(line);
+                if (chunk.size() == this.chunkLines) {
+                    submit(executor, inFlight, progress, failure, chunkIndex++, chunk);
+                    chunk = new ArrayList<>(this.chunkLines);
+                }
+            }
+            if (!chunk.isEmpty() && failure.get() == null) {
+                submit(executor, inFlight, progress, failure, chunkIndex, chunk);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to import chat memory from " + file, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while importing chat memory", e);
+        } finally {
+            executor.shutdown();
+            awaitTermination(executor);
+        }
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+        log.info("Imported {} lines of chat memory from {}", progress.committedLines, file);
+        return progress.committedLines;
+    }
+
+    private void submit(ExecutorService executor, Semaphore inFlight, Progress progress,
+                        AtomicReference<RuntimeException> failure, long chunkIndex, List<String> chunk)
+            throws InterruptedException {
+        inFlight.acquire();
+        executor.execute(() -> {
+            try {
+                for (String line : chunk) {
+                    if (line.isBlank()) {
+                        continue;
+                    }
+                    ConversationLine conversation = this.objectMapper.readValue(line, ConversationLine.class);
+                    this.repository.saveAll(conversation.conversationId(), conversation.toMessages());
+                }
+                progress.complete(chunkIndex, chunk.size());
+            } catch (IOException e) {
+                failure.compareAndSet(null, new UncheckedIOException("Malformed line in chunk " + chunkIndex, e));
+            } catch (RuntimeException e) {
+                failure.compareAndSet(null, e);
+            } finally {
+                inFlight.release();
+            }
+        });
+    }
+
+    private static void awaitTermination(ExecutorService executor) {
+        try {
+            while (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+                log.info("Waiting for chat memory import writers to finish");
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 记录连续完成的分片，分片乱序完成时先暂存，等前面的分片完成后一起推进
+     */
+    private static final class Progress {
+
+        private final TransferCheckpoint checkpoint;
+
+        /**
+         * 已完成但前面还有分片未完成的分片：分片序号 -> 行数
+         */
+        private final TreeMap<Long, Integer> completed = new TreeMap<>();
+
+        private long nextChunk;
+
+        private volatile long committedLines;
+
+        private Progress(TransferCheckpoint checkpoint, long committedLines) {
+            this.checkpoint = checkpoint;
+            this.committedLines = committedLines;
+        }
+
+        private synchronized void complete(long chunkIndex, int lines) {
+            this.completed.put(chunkIndex, lines);
+            long committed = this.committedLines;
+            Integer next;
+            while ((next = this.completed.remove(this.nextChunk)) != null) {
+                committed += next;
+                this.nextChunk++;
+            }
+            if (committed != this.committedLines) {
+                this.committedLines = committed;
+                this.checkpoint.set(LINES, committed).save();
+            }
+        }
+    }
+}
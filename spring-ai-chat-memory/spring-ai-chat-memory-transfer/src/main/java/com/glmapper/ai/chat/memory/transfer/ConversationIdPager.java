@@ -0,0 +1,51 @@
+package com.glmapper.ai.chat.memory.transfer;
+
+import org.springframework.ai.chat.memory.ChatMemoryRepository;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * @Classname ConversationIdPager
+ * @Description 按会话 ID 升序分页
+ * <p>
+ * 导出按 keyset 分页：每页从上一页最后一个 ID 之后开始，进度文件只需要记录最后一个 ID 就能断点续传。
+ * 支持 keyset 查询的存储（例如 JDBC）直接传入查询方法，其他存储使用 {@link #sorted}。
+ * </p>
+ * @Date 2025/6/26 10:45
+ * @Created by glmapper
+ */
+@FunctionalInterface
+public interface ConversationIdPager {
+
+    /**
+     * @param afterId 上一页最后一个 ID，第一页为 null
+     * @param limit   每页数量
+     * @return 大于 afterId 的至多 limit 个 ID，按升序排列
+     */
+    List<String> page(String afterId, int limit);
+
+    /**
+     * 第一次分页时读取并排序全部会话 ID，之后每页在快照上二分查找 afterId 再切片；
+     * 快照之后新建的会话不会被导出，断点续传时重新建立快照
+     */
+    static ConversationIdPager sorted(ChatMemoryRepository repository) {
+        return new ConversationIdPager() {
+
+            private List<String> snapshot;
+
+            @Override
+            public List<String> page(String afterId, int limit) {
+                if (this.snapshot == null) {
+                    this.snapshot = repository.findConversationIds().stream().sorted().toList();
+                }
+                int from = 0;
+                if (afterId != null) {
+                    int index = Collections.binarySearch(this.snapshot, afterId);
+                    from = index >= 0 ? index + 1 : -index - 1;
+                }
+                return this.snapshot.subList(from, Math.min(from + limit, this.snapshot.size()));
+            }
+        };
+    }
+}
@@ -0,0 +1,50 @@
+package com.glmapper.ai.chat.memory.transfer;
+
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.MessageType;
+import org.springframework.ai.chat.messages.SystemMessage;
+import org.springframework.ai.chat.messages.ToolResponseMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @Classname ConversationLine
+ * @Description 导出文件中的一行，对应一个会话
+ * <p>
+ * spring-ai-chat-memory-local 与 spring-ai-chat-memory-jdbc 模块共用这个格式，两个模块导出的文件可以互相导入：
+ * {"conversationId":"...","messages":[{"type":"USER","text":"..."}]}
+ * 与 JdbcChatMemoryRepository 一样只保存消息类型与文本，工具调用的内容不导出。
+ * </p>
+ * @Date 2025/6/26 10:15
+ * @Created by glmapper
+ */
+public record ConversationLine(String conversationId, List<MessageLine> messages) {
+
+    public record MessageLine(MessageType type, String text) {
+    }
+
+    public static ConversationLine of(String conversationId, List<Message> messages) {
+        List<MessageLine> lines = new ArrayList<>(messages.size());
+        for (Message message : messages) {
+            lines.add(new MessageLine(message.getMessageType(), message.getText()));
+        }
+        return new ConversationLine(conversationId, lines);
+    }
+
+    public List<Message> toMessages() {
+        List<Message> result = new ArrayList<>(this.messages.size());
+        for (MessageLine line : this.messages) {
+            String text = line.text() == null ? "" : line.text();
+            result.add(switch (line.type()) {
+                case USER -> new UserMessage(text);
+                case ASSISTANT -> new AssistantMessage(text);
+                case SYSTEM -> new SystemMessage(text);
+                case TOOL -> new ToolResponseMessage(List.of());
+            });
+        }
+        return result;
+    }
+}
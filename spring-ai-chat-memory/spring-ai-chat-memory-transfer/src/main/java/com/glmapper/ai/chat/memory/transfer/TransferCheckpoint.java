@@ -0,0 +1,69 @@
+package com.glmapper.ai.chat.memory.transfer;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Properties;
+
+/**
+ * @Classname TransferCheckpoint
+ * @Description 导入导出的进度文件
+ * <p>
+ * 以 properties 格式保存，先写临时文件再原子替换，进程在任意时刻退出都不会留下写了一半的进度文件。
+ * </p>
+ * @Date 2025/6/26 10:30
+ * @Created by glmapper
+ */
+public class TransferCheckpoint {
+
+    private final Path file;
+
+    private final Properties properties = new Properties();
+
+    private TransferCheckpoint(Path file) {
+        this.file = file;
+    }
+
+    public static TransferCheckpoint load(Path file) {
+        TransferCheckpoint checkpoint = new TransferCheckpoint(file);
+        if (Files.exists(file)) {
+            try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                checkpoint.properties.load(reader);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to read checkpoint " + file, e);
+            }
+        }
+        return checkpoint;
+    }
+
+    public String get(String key) {
+        return this.properties.getProperty(key);
+    }
+
+    public long getLong(String key) {
+        String value = this.properties.getProperty(key);
+        return value == null ? 0 : Long.parseLong(value);
+    }
+
+    public TransferCheckpoint set(String key, Object value) {
+        this.properties.setProperty(key, String.valueOf(value));
+        return this;
+    }
+
+    public void save() {
+        Path temp = this.file.resolveSibling(this.file.getFileName() + ".tmp");
+        try {
+            try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                this.properties.store(writer, null);
+            }
+            Files.move(temp, this.file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write checkpoint " + this.file, e);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.glmapper.ai.chat.memory.transfer;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.memory.ChatMemoryRepository;
+import org.springframework.ai.chat.memory.InMemoryChatMemoryRepository;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.UserMessage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @Classname ConversationIdPagerTest
+ * @Description ConversationIdPagerTest
+ * @Date 2025/6/26 15:30
+ * @Created by glmapper
+ */
+public class ConversationIdPagerTest {
+
+    @Test
+    @DisplayName("测试按快照分页，全部会话 ID 只读取一次")
+    void testSortedPagesFromSnapshot() {
+        InMemoryChatMemoryRepository delegate = new InMemoryChatMemoryRepository();
+        for (int i = 999; i >= 0; i--) {
+            delegate.saveAll(String.format("test-%03d", i), List.of(new UserMessage("hello")));
+        }
+        AtomicInteger loads = new AtomicInteger();
+        ChatMemoryRepository repository = new ChatMemoryRepository() {
+
+            @Override
+            public List<String> findConversationIds() {
+                loads.incrementAndGet();
+                return delegate.findConversationIds();
+            }
+
+            @Override
+            public List<Message> findByConversationId(String conversationId) {
+                return delegate.findByConversationId(conversationId);
+            }
+
+            @Override
+            public void saveAll(String conversationId, List<Message> messages) {
+                delegate.saveAll(conversationId, messages);
+            }
+
+            @Override
+            public void deleteByConversationId(String conversationId) {
+                delegate.deleteByConversationId(conversationId);
+            }
+        };
+
+        ConversationIdPager pager = ConversationIdPager.sorted(repository);
+        List<String> ids = new ArrayList<>();
+        List<String> page;
+        String afterId = null;
+        while (!(page = pager.page(afterId, 64)).isEmpty()) {
+            ids.addAll(page);
+            afterId = page.get(page.size() - 1);
+        }
+        Assertions.assertEquals(1000, ids.size());
+        Assertions.assertEquals("test-000", ids.get(0));
+        Assertions.assertEquals("test-999", ids.get(999));
+        Assertions.assertEquals(ids.stream().sorted().toList(), ids);
+        Assertions.assertEquals(1, loads.get(), "分页不应该每页重新读取并排序全部会话 ID");
+
+        // 进度文件中的 ID 已经被删除时，从下一个更大的 ID 继续
+        Assertions.assertEquals(List.of("test-501", "test-502"), pager.page("test-500x", 2));
+    }
+}
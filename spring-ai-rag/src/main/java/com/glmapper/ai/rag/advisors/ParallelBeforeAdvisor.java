@@ -0,0 +1,199 @@
+package com.glmapper.ai.rag.advisors;
+
+import org.springframework.ai.chat.client.ChatClientMessageAggregator;
+import org.springframework.ai.chat.client.ChatClientRequest;
+import org.springframework.ai.chat.client.ChatClientResponse;
+import org.springframework.ai.chat.client.advisor.api.AdvisorChain;
+import org.springframework.ai.chat.client.advisor.api.BaseAdvisor;
+import org.springframework.ai.chat.client.advisor.api.StreamAdvisorChain;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.MessageType;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.util.Assert;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * @Classname ParallelBeforeAdvisor
+ * @Description 并发执行多个互不依赖的 advisor 的 before 阶段
+ * <p>
+ * 例如 MessageChatMemoryAdvisor 加载历史消息与 QuestionAnswerAdvisor 检索文档互不依赖，
+ * 依次执行时两者的耗时会叠加，这里让它们基于同一个原始请求并发执行，再按固定顺序合并各自对 Prompt 的修改：
+ * 1、SystemMessage 放在最前面，有 advisor 改写时使用最后一个改写的结果；
+ * 2、advisor 新增的消息（例如历史消息）按 advisor 的声明顺序排列在原始消息之前；
+ * 3、UserMessage 有 advisor 改写时使用最后一个改写的结果（例如拼接了检索结果的问题）；
+ * 4、context 按 advisor 的声明顺序依次覆盖。
+ * after 阶段按声明顺序的逆序依次执行，与 advisor 链的执行顺序一致。
+ * 流式调用时先把响应流聚合成完整的响应再执行 after，否则 BaseAdvisor 默认只对带 finishReason 的最后一个分片执行 after，
+ * MessageChatMemoryAdvisor 只会保存最后一个分片的内容；下游仍然逐个收到原始分片。
+ * 只有 before 阶段互不依赖的 advisor 才能放在一起，例如依赖改写后问题的 advisor 仍然要单独放在链上。
+ * </p>
+ * @Date 2025/6/24 14:20
+ * @Created by glmapper
+ */
+public class ParallelBeforeAdvisor implements BaseAdvisor, AutoCloseable {
+
+    private final List<BaseAdvisor> delegates;
+
+    private final int order;
+
+    private final ExecutorService executor;
+
+    public ParallelBeforeAdvisor(List<BaseAdvisor> delegates) {
+        this(delegates, delegates.stream().mapToInt(BaseAdvisor::getOrder).min().orElse(0));
+    }
+
+    public ParallelBeforeAdvisor(List<BaseAdvisor> delegates, int order) {
+        Assert.notEmpty(delegates, "delegates cannot be empty");
+        Assert.noNullElements(delegates, "delegates cannot contain null elements");
+        this.delegates = List.copyOf(delegates);
+        this.order = order;
+        // before 阶段基本都在等待 IO（数据库、向量库、embedding 接口），使用虚拟线程
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+    }
+
+    @Override
+    public ChatClientRequest before(ChatClientRequest chatClientRequest, AdvisorChain advisorChain) {
+        List<Future<ChatClientRequest>> futures = new ArrayList<>(this.delegates.size());
+        for (int i = 1; i < this.delegates.size(); i++) {
+            BaseAdvisor delegate = this.delegates.get(i);
+            futures.add(this.executor.submit(() -> delegate.before(chatClientRequest, advisorChain)));
+        }
+        // 第一个 advisor 直接在当前线程执行
+        List<ChatClientRequest> results = new ArrayList<>(this.delegates.size());
+        results.add(this.delegates.get(0).before(chatClientRequest, advisorChain));
+        for (Future<ChatClientRequest> future : futures) {
+            results.add(await(future));
+        }
+        return merge(chatClientRequest, results);
+    }
+
+    @Override
+    public ChatClientResponse after(ChatClientResponse chatClientResponse, AdvisorChain advisorChain) {
+        ChatClientResponse response = chatClientResponse;
+        for (int i = this.delegates.size() - 1; i >= 0; i--) {
+            response = this.delegates.get(i).after(response, advisorChain);
+        }
+        return response;
+    }
+
+    @Override
+    public Flux<ChatClientResponse> adviseStream(ChatClientRequest chatClientRequest, StreamAdvisorChain streamAdvisorChain) {
+        return Mono.just(chatClientRequest)
+                .publishOn(getScheduler())
+                .map(request -> before(request, streamAdvisorChain))
+                .flatMapMany(streamAdvisorChain::nextStream)
+                .transform(responses -> new ChatClientMessageAggregator().aggregateChatClientResponse(responses,
+                        response -> after(response, streamAdvisorChain)));
+    }
+
+    @Override
+    public int getOrder() {
+        return this.order;
+    }
+
+    @Override
+    public String getName() {
+        StringBuilder name = new StringBuilder("ParallelBeforeAdvisor");
+        this.delegates.forEach(delegate -> name.append('-').append(delegate.getName()));
+        return name.toString();
+    }
+
+    static ChatClientRequest merge(ChatClientRequest original, List<ChatClientRequest> results) {
+        List<Message> instructions = original.prompt().getInstructions();
+        Set<Message> originals = Collections.newSetFromMap(new IdentityHashMap<>());
+        originals.addAll(instructions);
+        Message originalUser = original.prompt().getUserMessage();
+
+        Message system = null;
+        Message user = null;
+        List<Message> added = new ArrayList<>();
+        Map<String, Object> context = new HashMap<>(original.context());
+        for (ChatClientRequest result : results) {
+            Prompt prompt = result.prompt();
+            Message rewrittenUser = rewrittenUser(prompt, originals);
+            for (Message message : prompt.getInstructions()) {
+                if (originals.contains(message) || message == rewrittenUser) {
+                    continue;
+                }
+                if (message.getMessageType() == MessageType.SYSTEM) {
+                    system = message;
+                } else {
+                    added.add(message);
+                }
+            }
+            if (rewrittenUser != null) {
+                user = rewrittenUser;
+            }
+            context.putAll(result.context());
+        }
+
+        List<Message> merged = new ArrayList<>(instructions.size() + added.size());
+        for (Message message : instructions) {
+            if (message.getMessageType() == MessageType.SYSTEM) {
+                merged.add(system != null ? system : message);
+                system = null;
+            }
+        }
+        if (system != null) {
+            merged.add(0, system);
+        }
+        merged.addAll(added);
+        for (Message message : instructions) {
+            if (message.getMessageType() != MessageType.SYSTEM) {
+                merged.add(message == originalUser && user != null ? user : message);
+            }
+        }
+        return original.mutate()
+                .prompt(original.prompt().mutate().messages(merged).build())
+                .context(context)
+                .build();
+    }
+
+    /**
+     * Prompt#getUserMessage 在没有 UserMessage 时会返回一个新建的空消息，所以还要确认它确实在 instructions 中
+     */
+    private static Message rewrittenUser(Prompt prompt, Set<Message> originals) {
+        Message user = prompt.getUserMessage();
+        if (originals.contains(user)) {
+            return null;
+        }
+        for (Message message : prompt.getInstructions()) {
+            if (message == user) {
+                return user;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public void close() {
+        this.executor.close();
+    }
+
+    private static ChatClientRequest await(Future<ChatClientRequest> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for advisor", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException("Advisor failed", e.getCause());
+        }
+    }
+}
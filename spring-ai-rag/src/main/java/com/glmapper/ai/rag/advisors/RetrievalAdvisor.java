@@ -0,0 +1,99 @@
+package com.glmapper.ai.rag.advisors;
+
+import com.glmapper.ai.rag.rerank.RerankCascade;
+import com.glmapper.ai.rag.retrieval.ContextAssembler;
+import com.glmapper.ai.rag.retrieval.Retriever;
+import org.springframework.ai.chat.client.ChatClientRequest;
+import org.springframework.ai.chat.client.ChatClientResponse;
+import org.springframework.ai.chat.client.advisor.api.AdvisorChain;
+import org.springframework.ai.chat.client.advisor.api.BaseAdvisor;
+import org.springframework.ai.chat.client.advisor.vectorstore.QuestionAnswerAdvisor;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.document.Document;
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+
+import java.util.List;
+
+/**
+ * @Classname RetrievalAdvisor
+ * @Description 每个请求只检索一次，检索结果通过 advisor context 共享
+ * <p>
+ * 1、context 中已经有 RETRIEVED_DOCUMENTS 时直接使用（例如调用方已经检索过），否则用 Retriever（HybridRetriever 或 MultiQueryRetriever）检索一次，
+ * 指定了 RerankCascade 时再经过重排，结果写入 context；
+ * 2、由 ContextAssembler 把文档拼接进 Prompt；
+ * 3、after 阶段与 QuestionAnswerAdvisor 一样把文档放进 ChatResponse 的元数据。
+ * 代替 QuestionAnswerAdvisor 与在 controller 中手动检索、拼接 SystemMessage 的做法，避免同一个问题检索两次、文档在 Prompt 中出现两次。
+ * </p>
+ * @Date 2025/7/8 10:40
+ * @Created by glmapper
+ */
+public class RetrievalAdvisor implements BaseAdvisor {
+
+    /**
+     * 与 QuestionAnswerAdvisor 使用同一个 key，读取检索结果的地方不需要区分
+     */
+    public static final String RETRIEVED_DOCUMENTS = QuestionAnswerAdvisor.RETRIEVED_DOCUMENTS;
+
+    private final Retriever retriever;
+
+    private final RerankCascade reranker;
+
+    private final ContextAssembler assembler;
+
+    private final int order;
+
+    public RetrievalAdvisor(Retriever retriever, ContextAssembler assembler) {
+        this(retriever, null, assembler, 0);
+    }
+
+    /**
+     * @param reranker 为 null 时不重排
+     */
+    public RetrievalAdvisor(Retriever retriever, RerankCascade reranker, ContextAssembler assembler, int order) {
+        Assert.notNull(retriever, "retriever cannot be null");
+        Assert.notNull(assembler, "assembler cannot be null");
+        this.retriever = retriever;
+        this.reranker = reranker;
+        this.assembler = assembler;
+        this.order = order;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public ChatClientRequest before(ChatClientRequest chatClientRequest, AdvisorChain advisorChain) {
+        List<Document> documents = (List<Document>) chatClientRequest.context().get(RETRIEVED_DOCUMENTS);
+        if (documents == null) {
+            String question = chatClientRequest.prompt().getUserMessage().getText();
+            documents = StringUtils.hasText(question) ? this.retriever.retrieve(question) : List.of();
+            if (this.reranker != null && !documents.isEmpty()) {
+                documents = this.reranker.rerank(question, documents);
+            }
+        }
+        return chatClientRequest.mutate()
+                .prompt(this.assembler.assemble(chatClientRequest.prompt(), documents))
+                .context(RETRIEVED_DOCUMENTS, documents)
+                .build();
+    }
+
+    @Override
+    public ChatClientResponse after(ChatClientResponse chatClientResponse, AdvisorChain advisorChain) {
+        Object documents = chatClientResponse.context().get(RETRIEVED_DOCUMENTS);
+        if (chatClientResponse.chatResponse() == null || documents == null) {
+            return chatClientResponse;
+        }
+        ChatResponse chatResponse = ChatResponse.builder()
+                .from(chatClientResponse.chatResponse())
+                .metadata(RETRIEVED_DOCUMENTS, documents)
+                .build();
+        return ChatClientResponse.builder()
+                .chatResponse(chatResponse)
+                .context(chatClientResponse.context())
+                .build();
+    }
+
+    @Override
+    public int getOrder() {
+        return this.order;
+    }
+}
@@ -0,0 +1,75 @@
+package com.glmapper.ai.rag.configs;
+
+import com.glmapper.ai.rag.embedding.BatchingEmbeddingModel;
+import com.glmapper.ai.rag.embedding.TokenAwareEmbeddingBatcher;
+import com.glmapper.ai.vector.embedding.CachingEmbeddingModel;
+import com.glmapper.ai.vector.embedding.EmbeddingCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.openai.OpenAiEmbeddingModel;
+import org.springframework.ai.tokenizer.JTokkitTokenCountEstimator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * 自动配置的 OpenAiEmbeddingModel 仍然保留，向量库与其他注入 EmbeddingModel 的地方使用这里声明的 @Primary 模型：
+ * 先查 embedding 缓存，未命中的文本再按 token 打包后请求 OpenAiEmbeddingModel
+ *
+ * @Classname EmbeddingConfigs
+ * @Description EmbeddingConfigs
+ * @Date 2025/7/1 11:20
+ * @Created by glmapper
+ */
+@Configuration
+public class EmbeddingConfigs {
+
+    /**
+     * @param maxInputs         单次请求的最大条数
+     * @param maxTokens         单次请求的最大 token 数
+     * @param concurrency       同时在途的请求数
+     * @param requestsPerSecond 每秒最多发起的请求数
+     * @param maxAttempts       每个批次的最大尝试次数，仍然失败时拆成两半重试
+     * @param backoff           第一次重试前的等待时间，之后每次翻倍
+     */
+    @Bean(destroyMethod = "close")
+    public TokenAwareEmbeddingBatcher tokenAwareEmbeddingBatcher(OpenAiEmbeddingModel embeddingModel,
+                                                                 @Value("${rag.embedding.batch.max-inputs:10}") int maxInputs,
+                                                                 @Value("${rag.embedding.batch.max-tokens:8191}") int maxTokens,
+                                                                 @Value("${rag.embedding.batch.concurrency:4}") int concurrency,
+                                                                 @Value("${rag.embedding.batch.requests-per-second:10}") double requestsPerSecond,
+                                                                 @Value("${rag.embedding.batch.max-attempts:3}") int maxAttempts,
+                                                                 @Value("${rag.embedding.batch.backoff:200ms}") Duration backoff,
+                                                                 MeterRegistry registry) {
+        return new TokenAwareEmbeddingBatcher(embeddingModel, new JTokkitTokenCountEstimator(), maxInputs, maxTokens,
+                concurrency, requestsPerSecond, maxAttempts, backoff, registry);
+    }
+
+    @Bean
+    public BatchingEmbeddingModel batchingEmbeddingModel(OpenAiEmbeddingModel embeddingModel, TokenAwareEmbeddingBatcher batcher) {
+        return new BatchingEmbeddingModel(embeddingModel, batcher);
+    }
+
+    /**
+     * @param dimensions 向量维度，为 0 时询问模型（模型不在已知列表中时会发起一次 embedding 请求）
+     * @param capacity   最多缓存的向量数
+     */
+    @Bean(destroyMethod = "close")
+    public EmbeddingCache embeddingCache(OpenAiEmbeddingModel embeddingModel,
+                                         @Value("${rag.embedding.cache.file:./data/embedding-cache.bin}") String file,
+                                         @Value("${spring.ai.openai.embedding.options.model}") String model,
+                                         @Value("${rag.embedding.cache.dimensions:0}") int dimensions,
+                                         @Value("${rag.embedding.cache.capacity:100000}") int capacity) {
+        return EmbeddingCache.open(Path.of(file), model, dimensions > 0 ? dimensions : embeddingModel.dimensions(), capacity);
+    }
+
+    @Bean
+    @Primary
+    public EmbeddingModel cachingEmbeddingModel(BatchingEmbeddingModel batchingEmbeddingModel, EmbeddingCache embeddingCache) {
+        return new CachingEmbeddingModel(batchingEmbeddingModel, embeddingCache);
+    }
+}
@@ -1,12 +1,11 @@
 package com.glmapper.ai.rag.configs;
 
-import org.springframework.ai.model.transformer.SummaryMetadataEnricher;
+import com.glmapper.ai.rag.transformers.BatchMetadataEnricher;
 import org.springframework.ai.openai.OpenAiChatModel;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
-import java.util.List;
-
 /**
  * @Classname EnricherConfig
  * @Description EnricherConfig
@@ -16,8 +15,18 @@ import java.util.List;
 @Configuration
 public class EnricherConfig {
 
-    @Bean
-    public SummaryMetadataEnricher summaryMetadata(OpenAiChatModel chatModel) {
-        return new SummaryMetadataEnricher(chatModel, List.of(SummaryMetadataEnricher.SummaryType.PREVIOUS, SummaryMetadataEnricher.SummaryType.CURRENT, SummaryMetadataEnricher.SummaryType.NEXT));
+    /**
+     * @param chunksPerPrompt 一次请求最多包含的 chunk 数
+     * @param maxPromptChars  一次请求中 chunk 文本的最大字符数
+     * @param concurrency     同时在途的请求数
+     * @param cacheSize       按 chunk 内容哈希缓存的结果数
+     */
+    @Bean(destroyMethod = "close")
+    public BatchMetadataEnricher batchMetadataEnricher(OpenAiChatModel chatModel,
+                                                       @Value("${rag.enrich.chunks-per-prompt:8}") int chunksPerPrompt,
+                                                       @Value("${rag.enrich.max-prompt-chars:12000}") int maxPromptChars,
+                                                       @Value("${rag.enrich.concurrency:4}") int concurrency,
+                                                       @Value("${rag.enrich.cache-size:10000}") int cacheSize) {
+        return new BatchMetadataEnricher(chatModel, 5, chunksPerPrompt, maxPromptChars, concurrency, cacheSize);
     }
 }
@@ -0,0 +1,45 @@
+package com.glmapper.ai.rag.configs;
+
+import com.glmapper.ai.rag.etls.PdfDocumentReader;
+import com.glmapper.ai.rag.jobs.DocumentSourceLoader;
+import com.glmapper.ai.rag.jobs.IngestionJobService;
+import com.glmapper.ai.rag.jobs.IngestionJobStore;
+import com.glmapper.ai.rag.manifest.IncrementalIndexer;
+import com.glmapper.ai.rag.transformers.DocTokenTextSplitter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.ResourceLoader;
+
+import java.nio.file.Path;
+
+/**
+ * @Classname JobConfigs
+ * @Description JobConfigs
+ * @Date 2025/7/12 11:00
+ * @Created by glmapper
+ */
+@Configuration
+public class JobConfigs {
+
+    @Bean
+    public DocumentSourceLoader documentSourceLoader(ResourceLoader resourceLoader, PdfDocumentReader pdfDocumentReader) {
+        return new DocumentSourceLoader(resourceLoader, pdfDocumentReader);
+    }
+
+    /**
+     * 启动时从检查点恢复没有结束的任务
+     */
+    @Bean
+    public IngestionJobService ingestionJobService(IncrementalIndexer incrementalIndexer,
+                                                   DocumentSourceLoader documentSourceLoader,
+                                                   DocTokenTextSplitter docTokenTextSplitter,
+                                                   @Value("${rag.jobs.dir:./data/jobs}") String dir,
+                                                   @Value("${rag.jobs.batch-size:64}") int batchSize,
+                                                   @Value("${rag.jobs.threads:2}") int threads) {
+        IngestionJobService service = new IngestionJobService(incrementalIndexer, documentSourceLoader::open,
+                docTokenTextSplitter::splitDocuments, new IngestionJobStore(Path.of(dir)), batchSize, threads);
+        service.resume();
+        return service;
+    }
+}
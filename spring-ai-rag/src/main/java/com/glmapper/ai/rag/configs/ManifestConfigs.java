@@ -0,0 +1,30 @@
+package com.glmapper.ai.rag.configs;
+
+import com.glmapper.ai.rag.manifest.IncrementalIndexer;
+import com.glmapper.ai.rag.manifest.IngestionManifest;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.nio.file.Path;
+
+/**
+ * @Classname ManifestConfigs
+ * @Description ManifestConfigs
+ * @Date 2025/7/2 11:00
+ * @Created by glmapper
+ */
+@Configuration
+public class ManifestConfigs {
+
+    @Bean
+    public IngestionManifest ingestionManifest(@Value("${rag.manifest.file:./data/ingestion-manifest.json}") String file) {
+        return IngestionManifest.load(Path.of(file));
+    }
+
+    @Bean
+    public IncrementalIndexer incrementalIndexer(VectorStore vectorStore, IngestionManifest ingestionManifest) {
+        return new IncrementalIndexer(vectorStore, ingestionManifest);
+    }
+}
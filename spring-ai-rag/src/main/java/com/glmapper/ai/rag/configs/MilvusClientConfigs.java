@@ -3,7 +3,6 @@ package com.glmapper.ai.rag.configs;
 import io.milvus.client.MilvusClient;
 import io.milvus.param.collection.LoadCollectionParam;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.ai.vectorstore.VectorStore;
 import org.springframework.ai.vectorstore.milvus.MilvusVectorStore;
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -20,17 +19,15 @@ import org.springframework.context.annotation.Configuration;
 public class MilvusClientConfigs implements InitializingBean {
 
     @Autowired
-    private VectorStore vectorStore;
+    private MilvusVectorStore vectorStore;
 
     @Override
     public void afterPropertiesSet() throws Exception {
-        if (vectorStore instanceof MilvusVectorStore) {
-            vectorStore.getNativeClient().ifPresent(client -> {
-                ((MilvusClient) client).loadCollection(LoadCollectionParam.newBuilder()
-                        .withCollectionName("vector_store")
-                        .build());
-                log.info("Milvus {} collection loaded successfully.", "vector_store");
-            });
-        }
+        vectorStore.getNativeClient().ifPresent(client -> {
+            ((MilvusClient) client).loadCollection(LoadCollectionParam.newBuilder()
+                    .withCollectionName("vector_store")
+                    .build());
+            log.info("Milvus {} collection loaded successfully.", "vector_store");
+        });
     }
 }
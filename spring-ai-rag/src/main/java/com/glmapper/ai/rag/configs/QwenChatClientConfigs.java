@@ -1,12 +1,24 @@
 package com.glmapper.ai.rag.configs;
 
+import com.glmapper.ai.rag.advisors.ParallelBeforeAdvisor;
+import com.glmapper.ai.rag.advisors.RetrievalAdvisor;
+import com.glmapper.ai.rag.rerank.RerankCascade;
+import com.glmapper.ai.rag.retrieval.ContextAssembler;
+import com.glmapper.ai.rag.retrieval.ContextPacker;
+import com.glmapper.ai.rag.retrieval.MultiQueryRetriever;
 import org.springframework.ai.chat.client.ChatClient;
-import org.springframework.ai.chat.client.advisor.vectorstore.QuestionAnswerAdvisor;
+import org.springframework.ai.chat.client.advisor.MessageChatMemoryAdvisor;
+import org.springframework.ai.chat.memory.ChatMemory;
+import org.springframework.ai.document.MetadataMode;
 import org.springframework.ai.openai.OpenAiChatModel;
-import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.ai.tokenizer.JTokkitTokenCountEstimator;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.List;
+import java.util.Locale;
+
 /**
  * @Classname ChatClientConfigs
  * @Description ChatClientConfigs
@@ -21,17 +33,50 @@ public class QwenChatClientConfigs {
      * <p>
      * 2、这里 chatClient 设置了默认的系统提示语，会将所有的聊天请求都带上这个系统提示语，返回的内容均为 JSON 格式
      *
+     * 3、加载历史消息与检索文档互不依赖，通过 ParallelBeforeAdvisor 并发执行，请求耗时取两者的较大值而不是两者之和
+     *
      * @param chatModel
-     * @param vectorStore
+     * @param parallelBeforeAdvisor
      * @return ChatClient
      */
     @Bean
-    public ChatClient chatClient(OpenAiChatModel chatModel, VectorStore vectorStore) {
+    public ChatClient chatClient(OpenAiChatModel chatModel, ParallelBeforeAdvisor parallelBeforeAdvisor) {
         //return ChatClient.builder(chatModel).build();
         // build with Default System Text
         return ChatClient.builder(chatModel)
-                .defaultAdvisors(new QuestionAnswerAdvisor(vectorStore))
+                .defaultAdvisors(parallelBeforeAdvisor)
                 .defaultSystem("You are a friendly chat bot that answers question with json always")
                 .build();
     }
+
+    /**
+     * 去掉重复的内容、合并重叠的相邻 chunk，拼接进 Prompt 的文档不超过 token-budget
+     */
+    @Bean
+    public ContextPacker contextPacker(@Value("${rag.context.token-budget:2000}") int tokenBudget,
+                                       @Value("${rag.context.mmr-lambda:0.7}") double lambda,
+                                       @Value("${rag.context.duplicate-threshold:0.8}") double duplicateThreshold) {
+        return new ContextPacker(new JTokkitTokenCountEstimator(), tokenBudget, lambda, duplicateThreshold);
+    }
+
+    /**
+     * 检索到的文档拼接在 SystemMessage 之后（system）或与问题一起拼接成新的 UserMessage（user）
+     */
+    @Bean
+    public ContextAssembler contextAssembler(@Value("${rag.context.placement:system}") String placement,
+                                             @Value("${rag.context.metadata-mode:none}") String metadataMode,
+                                             ContextPacker contextPacker) {
+        return new ContextAssembler(ContextAssembler.Placement.valueOf(placement.toUpperCase(Locale.ROOT)),
+                MetadataMode.valueOf(metadataMode.toUpperCase(Locale.ROOT)), contextPacker);
+    }
+
+    /**
+     * 声明顺序即合并顺序：历史消息排在原始消息之前，检索结果由 RetrievalAdvisor 检索、重排一次后拼接进 Prompt
+     */
+    @Bean
+    public ParallelBeforeAdvisor parallelBeforeAdvisor(ChatMemory chatMemory, MultiQueryRetriever multiQueryRetriever,
+                                                       RerankCascade rerankCascade, ContextAssembler contextAssembler) {
+        return new ParallelBeforeAdvisor(List.of(MessageChatMemoryAdvisor.builder(chatMemory).build(),
+                new RetrievalAdvisor(multiQueryRetriever, rerankCascade, contextAssembler, 0)));
+    }
 }
@@ -0,0 +1,59 @@
+package com.glmapper.ai.rag.configs;
+
+import com.glmapper.ai.rag.rerank.ChatModelReranker;
+import com.glmapper.ai.rag.rerank.LexicalReranker;
+import com.glmapper.ai.rag.rerank.RemoteReranker;
+import com.glmapper.ai.rag.rerank.RerankCascade;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.ai.openai.OpenAiChatModel;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.client.RestClient;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @Classname RerankConfigs
+ * @Description RerankConfigs
+ * @Date 2025/7/10 12:00
+ * @Created by glmapper
+ */
+@Configuration
+public class RerankConfigs {
+
+    /**
+     * 第一阶段是本地的 LexicalReranker；第二阶段按 rag.rerank.model.type 选择 chat（大模型打分）、remote（cross-encoder 服务）或 none
+     */
+    @Bean
+    public RerankCascade rerankCascade(OpenAiChatModel chatModel, RestClient.Builder restClientBuilder, MeterRegistry registry,
+                                       @Value("${rag.rerank.lexical.max-candidates:50}") int lexicalMaxCandidates,
+                                       @Value("${rag.rerank.lexical.keep:12}") int lexicalKeep,
+                                       @Value("${rag.rerank.lexical.timeout:50ms}") Duration lexicalTimeout,
+                                       @Value("${rag.rerank.lexical.prior-weight:0.3}") double priorWeight,
+                                       @Value("${rag.rerank.model.type:chat}") String modelType,
+                                       @Value("${rag.rerank.model.max-candidates:12}") int modelMaxCandidates,
+                                       @Value("${rag.rerank.model.keep:4}") int modelKeep,
+                                       @Value("${rag.rerank.model.timeout:3s}") Duration modelTimeout,
+                                       @Value("${rag.rerank.model.max-passage-chars:1000}") int maxPassageChars,
+                                       @Value("${rag.rerank.remote.endpoint:}") String endpoint,
+                                       @Value("${rag.rerank.remote.api-key:}") String apiKey,
+                                       @Value("${rag.rerank.remote.model:}") String remoteModel) {
+        List<RerankCascade.Stage> stages = new ArrayList<>();
+        stages.add(new RerankCascade.Stage("lexical", new LexicalReranker(priorWeight, 0.5),
+                lexicalMaxCandidates, lexicalKeep, lexicalTimeout));
+        switch (modelType) {
+            case "chat" -> stages.add(new RerankCascade.Stage("chat", new ChatModelReranker(chatModel, maxPassageChars),
+                    modelMaxCandidates, modelKeep, modelTimeout));
+            case "remote" -> stages.add(new RerankCascade.Stage("remote",
+                    new RemoteReranker(restClientBuilder, endpoint, apiKey, remoteModel),
+                    modelMaxCandidates, modelKeep, modelTimeout));
+            case "none" -> {
+            }
+            default -> throw new IllegalArgumentException("Unknown rag.rerank.model.type: " + modelType);
+        }
+        return new RerankCascade(stages, registry);
+    }
+}
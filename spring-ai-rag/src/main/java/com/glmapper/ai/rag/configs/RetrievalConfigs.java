@@ -0,0 +1,81 @@
+package com.glmapper.ai.rag.configs;
+
+import com.glmapper.ai.rag.retrieval.Bm25Index;
+import com.glmapper.ai.rag.retrieval.CachingVectorStore;
+import com.glmapper.ai.rag.retrieval.HybridRetriever;
+import com.glmapper.ai.rag.retrieval.IndexingVectorStore;
+import com.glmapper.ai.rag.retrieval.MultiQueryRetriever;
+import com.glmapper.ai.rag.retrieval.RetrievalCache;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.openai.OpenAiChatModel;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.ai.vectorstore.milvus.MilvusVectorStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Locale;
+
+/**
+ * @Classname RetrievalConfigs
+ * @Description RetrievalConfigs
+ * @Date 2025/7/6 11:30
+ * @Created by glmapper
+ */
+@Configuration
+public class RetrievalConfigs {
+
+    @Bean
+    public Bm25Index bm25Index(@Value("${rag.retrieval.bm25.file:./data/bm25-index.jsonl}") String file) {
+        return Bm25Index.open(Path.of(file));
+    }
+
+    /**
+     * 写入 milvus 的同时维护 BM25 索引
+     */
+    @Bean
+    public IndexingVectorStore indexingVectorStore(MilvusVectorStore milvusVectorStore, Bm25Index bm25Index) {
+        return new IndexingVectorStore(milvusVectorStore, bm25Index);
+    }
+
+    @Bean
+    public RetrievalCache retrievalCache(@Value("${rag.retrieval.cache.result-capacity:1000}") int resultCapacity) {
+        return new RetrievalCache(resultCapacity);
+    }
+
+    /**
+     * 重复的查询不再请求 embedding、不再检索 milvus，注入 VectorStore 的地方都使用它
+     */
+    @Bean
+    @Primary
+    public CachingVectorStore cachingVectorStore(IndexingVectorStore indexingVectorStore, RetrievalCache retrievalCache) {
+        return new CachingVectorStore(indexingVectorStore, retrievalCache);
+    }
+
+    @Bean
+    public HybridRetriever hybridRetriever(VectorStore vectorStore, Bm25Index bm25Index,
+                                           @Value("${rag.retrieval.top-k:4}") int topK,
+                                           @Value("${rag.retrieval.candidates:20}") int candidates,
+                                           @Value("${rag.retrieval.rrf-k:60}") int rrfK,
+                                           @Value("${rag.retrieval.lexical-only.min-coverage:0.9}") double minCoverage,
+                                           @Value("${rag.retrieval.lexical-only.min-margin:1.5}") double minMargin) {
+        return new HybridRetriever(vectorStore, bm25Index, topK, candidates, rrfK, minCoverage, minMargin);
+    }
+
+    /**
+     * 第一轮检索相似度低时（adaptive）用大模型改写问题、并发检索后融合，off 关闭，always 总是扩展
+     */
+    @Bean
+    public MultiQueryRetriever multiQueryRetriever(HybridRetriever hybridRetriever, VectorStore vectorStore,
+                                                   EmbeddingModel embeddingModel, OpenAiChatModel chatModel,
+                                                   @Value("${rag.retrieval.expansion.mode:adaptive}") String mode,
+                                                   @Value("${rag.retrieval.expansion.rewrites:3}") int rewrites,
+                                                   @Value("${rag.retrieval.expansion.min-score:0.6}") double minScore,
+                                                   @Value("${rag.retrieval.expansion.max-added-latency:1500ms}") Duration maxAddedLatency) {
+        return new MultiQueryRetriever(hybridRetriever, vectorStore, embeddingModel, chatModel,
+                MultiQueryRetriever.Mode.valueOf(mode.toUpperCase(Locale.ROOT)), rewrites, minScore, maxAddedLatency);
+    }
+}
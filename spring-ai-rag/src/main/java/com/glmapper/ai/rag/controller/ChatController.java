@@ -1,22 +1,26 @@
 package com.glmapper.ai.rag.controller;
 
-import com.glmapper.ai.rag.chunks.LangChainTextSplitter;
+import com.glmapper.ai.rag.etls.MdDocumentReader;
+import com.glmapper.ai.rag.etls.PdfDocumentReader;
+import com.glmapper.ai.rag.etls.PdfPageIterator;
+import com.glmapper.ai.rag.jobs.IngestionJobService;
+import com.glmapper.ai.rag.pipeline.IngestionService;
 import org.springframework.ai.chat.client.ChatClient;
-import org.springframework.ai.chat.messages.Message;
-import org.springframework.ai.chat.messages.UserMessage;
-import org.springframework.ai.chat.prompt.Prompt;
-import org.springframework.ai.chat.prompt.SystemPromptTemplate;
+import org.springframework.ai.chat.memory.ChatMemory;
 import org.springframework.ai.document.Document;
-import org.springframework.ai.vectorstore.VectorStore;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.io.IOException;
 import java.util.List;
-import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * @Classname ChatController
@@ -32,43 +36,57 @@ public class ChatController {
     private ChatClient chatClient;
 
     @Autowired
-    private LangChainTextSplitter langChainTextSplitter;
+    private IngestionJobService ingestionJobService;
 
     @Autowired
-    private VectorStore vectorStore;
+    private IngestionService ingestionService;
+
+    @Autowired
+    private MdDocumentReader mdDocumentReader;
+
+    @Autowired
+    private PdfDocumentReader pdfDocumentReader;
 
     /**
-     * 初始化数据
+     * 以入库任务的方式初始化数据，立即返回任务 id，进度通过 /api/qwen/jobs/{id} 查询；重复调用时只写入有变化的 chunk
      * @return
      */
     @GetMapping("embedding_test")
     public String embedding() {
-        try {
-            langChainTextSplitter.embedding();
-            return "Embedding completed successfully.";
-        } catch (Exception e) {
-            return "Embedding failed: " + e.getMessage();
+        return "Embedding job submitted: " + ingestionJobService.submit(List.of("files/test.md")).id();
+    }
+
+    /**
+     * 通过入库流水线导入示例文件，读取、切分、写入并行执行，返回各阶段的吞吐
+     * @return
+     */
+    @GetMapping("ingest_test")
+    public String ingest() throws IOException {
+        // 每个文件在流水线读到它时才加载，按页切分的 PDF 逐页流式读取
+        try (PdfPageIterator pages = pdfDocumentReader.streamDocsFromPdf()) {
+            Stream<Supplier<List<Document>>> readers = Stream.of(
+                    () -> mdDocumentReader.loadMarkdown("files/test.md"),
+                    () -> pdfDocumentReader.getDocsFromPdfWithCatalog());
+            Stream<Document> documents = Stream.concat(readers.flatMap(reader -> reader.get().stream()),
+                    StreamSupport.stream(Spliterators.spliteratorUnknownSize(pages, Spliterator.ORDERED), false));
+            return ingestionService.ingest(documents.iterator()).toString();
         }
     }
 
     /**
-     * 普通的聊天接口
+     * 普通的聊天接口，检索与拼接由 RetrievalAdvisor 完成，每个请求只检索一次
      *
-     * @param userInput 用户输入
+     * @param userInput      用户输入
+     * @param conversationId 对话 ID，不传时使用默认会话
      * @return 返回内容
      */
     @GetMapping("/chat")
-    public String prompt(@RequestParam String userInput) {
-        Message userMessage = new UserMessage(userInput);
-        List<Document> similarDocuments = vectorStore.similaritySearch(userInput);
-        String systemMessageString = "You are a helpful assistant. Here are some relevant documents:\n\n {documents}";
-        SystemPromptTemplate systemPromptTemplate = new SystemPromptTemplate(systemMessageString);
-        String tncString = similarDocuments.stream()
-                .map(Document::getFormattedContent)
-                .collect(Collectors.joining("\n"));
-        Message systemMessage = systemPromptTemplate.createMessage(Map.of("documents", tncString));
-        Prompt prompt = new Prompt(List.of(systemMessage, userMessage));
-        String content = chatClient.prompt(prompt).call().content();
-        return content;
+    public String prompt(@RequestParam String userInput,
+                         @RequestParam(defaultValue = ChatMemory.DEFAULT_CONVERSATION_ID) String conversationId) {
+        return chatClient.prompt()
+                .user(userInput)
+                .advisors(advisor -> advisor.param(ChatMemory.CONVERSATION_ID, conversationId))
+                .call()
+                .content();
     }
 }
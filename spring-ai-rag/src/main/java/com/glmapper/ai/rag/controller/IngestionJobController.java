@@ -0,0 +1,88 @@
+package com.glmapper.ai.rag.controller;
+
+import com.glmapper.ai.rag.jobs.IngestionJob;
+import com.glmapper.ai.rag.jobs.IngestionJobService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * @Classname IngestionJobController
+ * @Description 入库任务：提交、查询、订阅进度、取消
+ * @Date 2025/7/12 11:10
+ * @Created by glmapper
+ */
+@RestController
+@RequestMapping("/api/qwen/jobs")
+public class IngestionJobController {
+
+    @Autowired
+    private IngestionJobService ingestionJobService;
+
+    @Value("${rag.jobs.sse-timeout:30m}")
+    private Duration sseTimeout;
+
+    /**
+     * 提交一组来源，例如 ["files/test.md", "file:/data/docs/manual.pdf"]，立即返回任务
+     */
+    @PostMapping
+    public ResponseEntity<IngestionJob> submit(@RequestBody List<String> sources) {
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(ingestionJobService.submit(sources));
+    }
+
+    @GetMapping
+    public Collection<IngestionJob> list() {
+        return ingestionJobService.list();
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<IngestionJob> get(@PathVariable String id) {
+        return ResponseEntity.ofNullable(ingestionJobService.get(id));
+    }
+
+    /**
+     * 以 SSE 推送任务的状态，先推送一次当前状态，任务结束后关闭连接
+     */
+    @GetMapping(value = "/{id}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> events(@PathVariable String id) {
+        SseEmitter emitter = new SseEmitter(sseTimeout.toMillis());
+        Runnable unsubscribe = ingestionJobService.subscribe(id, job -> {
+            try {
+                emitter.send(SseEmitter.event().name("progress").data(job, MediaType.APPLICATION_JSON));
+                if (job.status().finished()) {
+                    emitter.complete();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        if (unsubscribe == null) {
+            return ResponseEntity.notFound().build();
+        }
+        emitter.onCompletion(unsubscribe);
+        emitter.onTimeout(unsubscribe);
+        emitter.onError(error -> unsubscribe.run());
+        return ResponseEntity.ok(emitter);
+    }
+
+    @DeleteMapping("/{id}")
+    public ResponseEntity<IngestionJob> cancel(@PathVariable String id) {
+        return ResponseEntity.ofNullable(ingestionJobService.cancel(id));
+    }
+}
@@ -0,0 +1,61 @@
+package com.glmapper.ai.rag.embedding;
+
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.BatchingStrategy;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingOptions;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+import org.springframework.util.Assert;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @Classname BatchingEmbeddingModel
+ * @Description 批量 embedding 交给 TokenAwareEmbeddingBatcher 的 EmbeddingModel
+ * <p>
+ * VectorStore.add 通过 {@link #embed(List, EmbeddingOptions, BatchingStrategy)} 计算向量，
+ * 这里忽略向量库传入的 BatchingStrategy，改为按条数与 token 数打包并发请求；其余调用直接交给被包装的模型。
+ * </p>
+ * @Date 2025/7/1 11:00
+ * @Created by glmapper
+ */
+public class BatchingEmbeddingModel implements EmbeddingModel {
+
+    private final EmbeddingModel delegate;
+
+    private final TokenAwareEmbeddingBatcher batcher;
+
+    public BatchingEmbeddingModel(EmbeddingModel delegate, TokenAwareEmbeddingBatcher batcher) {
+        Assert.notNull(delegate, "delegate cannot be null");
+        Assert.notNull(batcher, "batcher cannot be null");
+        this.delegate = delegate;
+        this.batcher = batcher;
+    }
+
+    @Override
+    public EmbeddingResponse call(EmbeddingRequest request) {
+        return this.delegate.call(request);
+    }
+
+    @Override
+    public float[] embed(Document document) {
+        return this.delegate.embed(document);
+    }
+
+    @Override
+    public List<float[]> embed(List<Document> documents, EmbeddingOptions options, BatchingStrategy batchingStrategy) {
+        Assert.notNull(documents, "documents cannot be null");
+        List<String> texts = new ArrayList<>(documents.size());
+        for (Document document : documents) {
+            texts.add(document.getText());
+        }
+        return this.batcher.embed(texts, options);
+    }
+
+    @Override
+    public int dimensions() {
+        return this.delegate.dimensions();
+    }
+}
@@ -0,0 +1,240 @@
+package com.glmapper.ai.rag.embedding;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingOptions;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+import org.springframework.ai.tokenizer.TokenCountEstimator;
+import org.springframework.util.Assert;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @Classname TokenAwareEmbeddingBatcher
+ * @Description 按 token 数与条数动态打包 embedding 请求
+ * <p>
+ * VectorStore.add 默认使用 TokenCountBatchingStrategy，只限制 token 数、不限制条数，打包后的请求依次发送。
+ * 服务商通常同时限制单次请求的条数与 token 数，这里：
+ * 1、按原始顺序把文本装入批次，任一限制将被超出时开始新的批次；
+ * 2、批次在虚拟线程上并发发送，同时在途的请求数不超过 maxConcurrency，请求的发起间隔受 requestsPerSecond 限制；
+ * 3、请求失败时按 backoff 重试，重试 maxAttempts 次仍然失败时把批次拆成两半分别重试，只重发失败的部分；
+ * 4、记录 rag.embedding.latency（单次请求耗时）与 rag.embedding.batch.fill（批次填充率，条数与 token 数两者中较高的占比）。
+ * </p>
+ * @Date 2025/7/1 10:10
+ * @Created by glmapper
+ */
+@Slf4j
+public class TokenAwareEmbeddingBatcher implements AutoCloseable {
+
+    private final EmbeddingModel embeddingModel;
+
+    private final TokenCountEstimator tokenCountEstimator;
+
+    private final int maxInputs;
+
+    private final int maxTokens;
+
+    private final int maxAttempts;
+
+    private final Duration backoff;
+
+    private final Semaphore concurrency;
+
+    private final long intervalNanos;
+
+    private final ExecutorService executor;
+
+    private final Timer latency;
+
+    private final DistributionSummary fillRatio;
+
+    private final Counter retries;
+
+    private long nextRequestNanos = System.nanoTime();
+
+    public TokenAwareEmbeddingBatcher(EmbeddingModel embeddingModel, TokenCountEstimator tokenCountEstimator,
+                                      int maxInputs, int maxTokens, int maxConcurrency, double requestsPerSecond,
+                                      int maxAttempts, Duration backoff, MeterRegistry registry) {
+        Assert.notNull(embeddingModel, "embeddingModel cannot be null");
+        Assert.notNull(tokenCountEstimator, "tokenCountEstimator cannot be null");
+        Assert.isTrue(maxInputs > 0, "maxInputs must be greater than 0");
+        Assert.isTrue(maxTokens > 0, "maxTokens must be greater than 0");
+        Assert.isTrue(maxConcurrency > 0, "maxConcurrency must be greater than 0");
+        Assert.isTrue(requestsPerSecond > 0, "requestsPerSecond must be greater than 0");
+        Assert.isTrue(maxAttempts > 0, "maxAttempts must be greater than 0");
+        Assert.notNull(backoff, "backoff cannot be null");
+        this.embeddingModel = embeddingModel;
+        this.tokenCountEstimator = tokenCountEstimator;
+        this.maxInputs = maxInputs;
+        this.maxTokens = maxTokens;
+        this.maxAttempts = maxAttempts;
+        this.backoff = backoff;
+        this.concurrency = new Semaphore(maxConcurrency);
+        this.intervalNanos = (long) (1_000_000_000L / requestsPerSecond);
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+        this.latency = Timer.builder("rag.embedding.latency")
+                .description("Latency of a single embedding request")
+                .register(registry);
+        this.fillRatio = DistributionSummary.builder("rag.embedding.batch.fill")
+                .description("How full an embedding request is, relative to the input count or token limit")
+                .register(registry);
+        this.retries = Counter.builder("rag.embedding.retries")
+                .description("Embedding requests that were retried")
+                .register(registry);
+    }
+
+    /**
+     * @return 与 texts 一一对应的向量
+     */
+    public List<float[]> embed(List<String> texts, EmbeddingOptions options) {
+        Assert.notNull(texts, "texts cannot be null");
+        float[][] embeddings = new float[texts.size()][];
+        List<Future<?>> futures = new ArrayList<>();
+        for (Batch batch : pack(texts)) {
+            futures.add(this.executor.submit(() -> {
+                embedBatch(batch, texts, options, embeddings);
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            await(future, futures);
+        }
+        return List.of(embeddings);
+    }
+
+    /**
+     * 按原始顺序装箱，单条文本超过 maxTokens 时独占一个批次，由服务商决定截断还是报错
+     */
+    List<Batch> pack(List<String> texts) {
+        List<Batch> batches = new ArrayList<>();
+        int from = 0;
+        int tokens = 0;
+        for (int i = 0; i < texts.size(); i++) {
+            int textTokens = this.tokenCountEstimator.estimate(texts.get(i));
+            if (textTokens > this.maxTokens) {
+                log.warn("text {} has {} tokens, exceeding the embedding limit of {}", i, textTokens, this.maxTokens);
+            }
+            if (i > from && (i - from == this.maxInputs || tokens + textTokens > this.maxTokens)) {
+                batches.add(new Batch(from, i, tokens));
+                from = i;
+                tokens = 0;
+            }
+            tokens += textTokens;
+        }
+        if (from < texts.size()) {
+            batches.add(new Batch(from, texts.size(), tokens));
+        }
+        return batches;
+    }
+
+    private void embedBatch(Batch batch, List<String> texts, EmbeddingOptions options, float[][] embeddings)
+            throws InterruptedException {
+        List<String> inputs = texts.subList(batch.from(), batch.to());
+        RuntimeException failure = null;
+        for (int attempt = 1; attempt <= this.maxAttempts; attempt++) {
+            if (attempt > 1) {
+                this.retries.increment();
+                Thread.sleep(this.backoff.toMillis() * (1L << (attempt - 2)));
+            }
+            try {
+                EmbeddingResponse response = call(new EmbeddingRequest(inputs, options), batch);
+                Assert.isTrue(response.getResults().size() == inputs.size(),
+                        "Embedding response has " + response.getResults().size() + " results for " + inputs.size() + " inputs");
+                for (int i = 0; i < inputs.size(); i++) {
+                    embeddings[batch.from() + i] = response.getResults().get(i).getOutput();
+                }
+                return;
+            } catch (RuntimeException e) {
+                failure = e;
+                log.warn("embedding request for texts [{}, {}) failed, attempt {}/{}: {}", batch.from(), batch.to(),
+                        attempt, this.maxAttempts, e.getMessage());
+            }
+        }
+        if (batch.size() == 1) {
+            throw failure;
+        }
+        // 整批反复失败，可能只是其中某几条有问题，拆成两半分别重试
+        int middle = batch.from() + batch.size() / 2;
+        embedBatch(subBatch(texts, batch.from(), middle), texts, options, embeddings);
+        embedBatch(subBatch(texts, middle, batch.to()), texts, options, embeddings);
+    }
+
+    private EmbeddingResponse call(EmbeddingRequest request, Batch batch) throws InterruptedException {
+        this.concurrency.acquire();
+        try {
+            awaitRateLimit();
+            this.fillRatio.record(Math.max((double) batch.size() / this.maxInputs, (double) batch.tokens() / this.maxTokens));
+            return this.latency.record(() -> this.embeddingModel.call(request));
+        } finally {
+            this.concurrency.release();
+        }
+    }
+
+    /**
+     * 为每个请求预约一个发起时间，相邻两次预约至少间隔 intervalNanos
+     */
+    private void awaitRateLimit() throws InterruptedException {
+        long slot;
+        synchronized (this) {
+            long now = System.nanoTime();
+            slot = Math.max(now, this.nextRequestNanos);
+            this.nextRequestNanos = slot + this.intervalNanos;
+        }
+        long wait = slot - System.nanoTime();
+        if (wait > 0) {
+            TimeUnit.NANOSECONDS.sleep(wait);
+        }
+    }
+
+    private Batch subBatch(List<String> texts, int from, int to) {
+        int tokens = 0;
+        for (int i = from; i < to; i++) {
+            tokens += this.tokenCountEstimator.estimate(texts.get(i));
+        }
+        return new Batch(from, to, tokens);
+    }
+
+    private static void await(Future<?> future, List<Future<?>> futures) {
+        try {
+            future.get();
+        } catch (InterruptedException e) {
+            futures.forEach(f -> f.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for embeddings", e);
+        } catch (ExecutionException e) {
+            futures.forEach(f -> f.cancel(true));
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException("Embedding failed", e.getCause());
+        }
+    }
+
+    @Override
+    public void close() {
+        this.executor.shutdownNow();
+    }
+
+    /**
+     * texts 中 [from, to) 的文本
+     */
+    record Batch(int from, int to, int tokens) {
+
+        int size() {
+            return this.to - this.from;
+        }
+    }
+}
@@ -1,11 +1,13 @@
 package com.glmapper.ai.rag.etls;
 
 import org.springframework.ai.document.Document;
-import org.springframework.ai.reader.JsonReader;
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.core.io.Resource;
 import org.springframework.stereotype.Component;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -19,36 +21,33 @@ public class JsonDocumentReader {
 
 
     /**
-     * JsonReader 构造函数参数：
+     * 加载JSON文件并转换为文档列表
      * <p>
-     * 1、`resource`：指向 JSON 文件的 Spring `Resource` 对象。
-     * 2、`jsonKeysToUse`：一个字符串数组，指定从 JSON 中提取哪些键作为生成的 `Document` 对象的文本内容。
-     * 3、`jsonMetadataGenerator`：可选的 `JsonMetadataGenerator`，用于为每个 `Document` 生成元数据。
+     * 用 {@link JsonRecordIterator} 流式读取一次，同时完成 JSON pointer 定位与 key 选择：定位到 /choices，每个元素一个文档，message 作为文本，finish_reason 与 index 放入元数据。
      * </p>
-     * <p>
-     * 加载JSON文件并转换为文档列表
      *
      * @return
      */
     public List<Document> loadJsonAsDocuments(String filePath) {
-        Resource resource = new ClassPathResource(filePath);
-        // 1、使用 JsonReader 读取 JSON 文件， 默认读取整个 JSON 文件内容作为文档文本。
-        JsonReader jsonReader = new JsonReader(resource, "", "");
-        List<Document> docs = jsonReader.get();
-        String formattedContent = docs.get(0).getFormattedContent();
-        System.out.println("default; content: \n" + formattedContent);
-        // 2、使用 JsonReader 读取 JSON 文件，指定 jsonKeysToUse 参数来提取特定的键作为文档文本。
-        jsonReader = new JsonReader(resource, "choices", "");
-        docs = jsonReader.get();
-        System.out.println("JsonReader with jsonKeysToUse; content: \n" + docs.get(0).getFormattedContent());
-        // 3、使用 JsonReader 读取 JSON 文件，指定 jsonKeysToUse 参数为多个键。
-        jsonReader = new JsonReader(resource, "choices", "content");
-        docs = jsonReader.get();
-        System.out.println("JsonReader with multi jsonKeysToUse; content: \n" + docs.get(0).getFormattedContent());
-        // 4、使用 JsonReader 读取 JSON 文件，使用 JSON point 来指定提取的内容。
-        jsonReader = new JsonReader(resource, "", "");
-        docs = jsonReader.get("/choices");
-        System.out.println("JsonReader with pointer[choices]; content: \n" + docs.get(0).getFormattedContent());
-        return docs;
+        try (JsonRecordIterator records = streamRecords(new ClassPathResource(filePath), "/choices",
+                List.of("message"), List.of("finish_reason", "index"))) {
+            List<Document> docs = new ArrayList<>();
+            records.forEachRemaining(docs::add);
+            return docs;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read json " + filePath, e);
+        }
+    }
+
+    /**
+     * 流式读取 JSON / JSONL，适合导出的大文件，可以直接交给 IngestionService.ingest
+     *
+     * @param pointer      JSON pointer，为空时使用整个顶层值，定位到数组时每个元素一个文档
+     * @param textKeys     作为文本的字段，为空时使用整条记录
+     * @param metadataKeys 放入元数据的字段
+     */
+    public JsonRecordIterator streamRecords(Resource resource, String pointer, List<String> textKeys,
+                                            List<String> metadataKeys) throws IOException {
+        return new JsonRecordIterator(resource, pointer, textKeys, metadataKeys);
     }
 }
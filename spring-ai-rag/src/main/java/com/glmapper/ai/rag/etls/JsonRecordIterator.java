@@ -0,0 +1,277 @@
+package com.glmapper.ai.rag.etls;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonPointer;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.springframework.ai.document.Document;
+import org.springframework.core.io.Resource;
+import org.springframework.util.Assert;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * @Classname JsonRecordIterator
+ * @Description 基于 Jackson 的 token 流惰性读取 JSON / JSONL，每条记录一个 Document
+ * <p>
+ * JsonReader 要把整个文件解析成树之后才能取出记录，文件越大内存越大。这里边解析边返回，同一时刻只持有一条记录：
+ * 1、文件中可以有多个顶层值（JSONL，或者直接拼接的多个 JSON），每个顶层值分别处理；
+ * 2、每个顶层值先按 pointer 定位，定位过程中跳过的部分不构建成树；定位到数组时每个元素是一条记录，否则定位到的值是一条记录，
+ * 没有 pointer 时顶层数组同样按元素拆分，超大的顶层数组也只需要一条记录的内存；
+ * 3、指定了 textKeys 或 metadataKeys 时，记录中其他的字段在解析时直接跳过；
+ * 4、文本：没有 textKeys 时为记录的 JSON（字符串记录为字符串本身），否则为每个 key 一行的 "key: value"，文本为空的记录跳过；
+ * 5、元数据：metadataKeys 中取值为字符串、数字、布尔的字段，以及记录的序号 record_index。
+ * 使用完（或者提前放弃遍历时）需要调用 {@link #close()} 释放文件。
+ * </p>
+ * @Date 2025/7/13 10:00
+ * @Created by glmapper
+ */
+public class JsonRecordIterator implements Iterator<Document>, AutoCloseable {
+
+    public static final String METADATA_RECORD_INDEX = "record_index";
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private final JsonParser parser;
+
+    private final JsonPointer pointer;
+
+    private final List<String> textKeys;
+
+    private final List<String> metadataKeys;
+
+    private final Set<String> selectedKeys;
+
+    /**
+     * 正在逐个读取 pointer 定位到的数组中的元素
+     */
+    private boolean inArray;
+
+    private int recordIndex;
+
+    private Document next;
+
+    /**
+     * @param pointer      JSON pointer，例如 /choices，为空时使用整个顶层值
+     * @param textKeys     作为文本的字段，为空时使用整条记录
+     * @param metadataKeys 放入元数据的字段
+     */
+    public JsonRecordIterator(Resource resource, String pointer, List<String> textKeys, List<String> metadataKeys)
+            throws IOException {
+        Assert.notNull(resource, "resource cannot be null");
+        Assert.notNull(textKeys, "textKeys cannot be null");
+        Assert.notNull(metadataKeys, "metadataKeys cannot be null");
+        this.pointer = pointer == null || pointer.isEmpty() ? JsonPointer.empty() : JsonPointer.compile(pointer);
+        this.textKeys = List.copyOf(textKeys);
+        this.metadataKeys = List.copyOf(metadataKeys);
+        Set<String> selectedKeys = new LinkedHashSet<>(textKeys);
+        selectedKeys.addAll(metadataKeys);
+        // 不选择字段时保留整条记录
+        this.selectedKeys = this.textKeys.isEmpty() ? Set.of() : selectedKeys;
+        this.parser = OBJECT_MAPPER.createParser(resource.getInputStream());
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (this.next == null) {
+            try {
+                this.next = advance();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to read json records", e);
+            }
+        }
+        return this.next != null;
+    }
+
+    @Override
+    public Document next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        Document document = this.next;
+        this.next = null;
+        return document;
+    }
+
+    @Override
+    public void close() {
+        try {
+            this.parser.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Document advance() throws IOException {
+        while (true) {
+            if (this.inArray) {
+                JsonToken token = this.parser.nextToken();
+                if (token == null || token == JsonToken.END_ARRAY) {
+                    this.inArray = false;
+                    skipToRoot();
+                    continue;
+                }
+                Document document = toDocument(readRecord(token));
+                if (document != null) {
+                    return document;
+                }
+                continue;
+            }
+            JsonToken token = this.parser.nextToken();
+            if (token == null) {
+                return null;
+            }
+            if (!locate()) {
+                skipToRoot();
+                continue;
+            }
+            if (this.parser.currentToken() == JsonToken.START_ARRAY) {
+                this.inArray = true;
+                continue;
+            }
+            Document document = toDocument(readRecord(this.parser.currentToken()));
+            skipToRoot();
+            if (document != null) {
+                return document;
+            }
+        }
+    }
+
+    /**
+     * 从顶层值的第一个 token 开始按 pointer 逐段定位，跳过的兄弟节点不构建成树
+     *
+     * @return 定位成功时 parser 停在目标值的第一个 token 上
+     */
+    private boolean locate() throws IOException {
+        JsonPointer remaining = this.pointer;
+        while (!remaining.matches()) {
+            JsonToken token = this.parser.currentToken();
+            if (token == JsonToken.START_OBJECT) {
+                if (!locateField(remaining.getMatchingProperty())) {
+                    return false;
+                }
+            } else if (token == JsonToken.START_ARRAY && remaining.getMatchingIndex() >= 0) {
+                if (!locateElement(remaining.getMatchingIndex())) {
+                    return false;
+                }
+            } else {
+                return false;
+            }
+            remaining = remaining.tail();
+        }
+        return true;
+    }
+
+    private boolean locateField(String name) throws IOException {
+        while (this.parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = this.parser.currentName();
+            this.parser.nextToken();
+            if (field.equals(name)) {
+                return true;
+            }
+            this.parser.skipChildren();
+        }
+        return false;
+    }
+
+    private boolean locateElement(int index) throws IOException {
+        for (int i = 0; ; i++) {
+            JsonToken token = this.parser.nextToken();
+            if (token == null || token == JsonToken.END_ARRAY) {
+                return false;
+            }
+            if (i == index) {
+                return true;
+            }
+            this.parser.skipChildren();
+        }
+    }
+
+    /**
+     * 读取 parser 当前所在的一条记录，只保留选择的字段
+     */
+    private JsonNode readRecord(JsonToken token) throws IOException {
+        if (token != JsonToken.START_OBJECT || this.selectedKeys.isEmpty()) {
+            return this.parser.readValueAsTree();
+        }
+        ObjectNode record = OBJECT_MAPPER.createObjectNode();
+        while (this.parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = this.parser.currentName();
+            this.parser.nextToken();
+            if (this.selectedKeys.contains(field)) {
+                record.set(field, this.parser.readValueAsTree());
+            } else {
+                this.parser.skipChildren();
+            }
+        }
+        return record;
+    }
+
+    /**
+     * 跳过当前顶层值剩余的部分
+     */
+    private void skipToRoot() throws IOException {
+        while (!this.parser.getParsingContext().inRoot()) {
+            JsonToken token = this.parser.nextToken();
+            if (token == null) {
+                return;
+            }
+            this.parser.skipChildren();
+        }
+    }
+
+    private Document toDocument(JsonNode record) {
+        int index = this.recordIndex++;
+        if (record == null || record.isNull() || record.isMissingNode()) {
+            return null;
+        }
+        String text = text(record);
+        if (text.isBlank()) {
+            return null;
+        }
+        Map<String, Object> metadata = new HashMap<>();
+        for (String key : this.metadataKeys) {
+            JsonNode value = record.get(key);
+            if (value == null) {
+                continue;
+            }
+            if (value.isTextual()) {
+                metadata.put(key, value.textValue());
+            } else if (value.isNumber()) {
+                metadata.put(key, value.numberValue());
+            } else if (value.isBoolean()) {
+                metadata.put(key, value.booleanValue());
+            }
+        }
+        metadata.put(METADATA_RECORD_INDEX, index);
+        return new Document(text, metadata);
+    }
+
+    private String text(JsonNode record) {
+        if (this.textKeys.isEmpty() || !record.isObject()) {
+            return value(record);
+        }
+        StringBuilder text = new StringBuilder();
+        for (String key : this.textKeys) {
+            JsonNode value = record.get(key);
+            if (value != null && !value.isNull()) {
+                text.append(key).append(": ").append(value(value)).append(System.lineSeparator());
+            }
+        }
+        return text.toString();
+    }
+
+    private static String value(JsonNode node) {
+        return node.isTextual() ? node.textValue() : node.toString();
+    }
+}
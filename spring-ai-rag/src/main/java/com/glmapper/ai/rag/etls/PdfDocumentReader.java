@@ -5,8 +5,14 @@ import org.springframework.ai.reader.ExtractedTextFormatter;
 import org.springframework.ai.reader.pdf.PagePdfDocumentReader;
 import org.springframework.ai.reader.pdf.ParagraphPdfDocumentReader;
 import org.springframework.ai.reader.pdf.config.PdfDocumentReaderConfig;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.Resource;
 import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
 
+import java.io.IOException;
 import java.util.List;
 
 /**
@@ -18,6 +24,15 @@ import java.util.List;
 @Component
 public class PdfDocumentReader {
 
+    /**
+     * 流式读取时的解析线程数，0 表示使用 CPU 核数
+     */
+    @Value("${rag.pdf.parallelism:0}")
+    private int parallelism;
+
+    @Value("${rag.pdf.pages-per-range:8}")
+    private int pagesPerRange;
+
     /**
      * PagePdfDocumentReader 是依赖 Apache PdfBox 来解析 pdf
      *
@@ -56,4 +71,30 @@ public class PdfDocumentReader {
         return pdfReader.read();
     }
 
+    /**
+     * 与 getDocsFromPdf 相同的页面格式，但是逐页返回，页段在多个线程上并行解析，内存占用与页数无关
+     * <p>
+     * 返回的迭代器使用完需要关闭
+     *
+     * @return
+     */
+    public PdfPageIterator streamDocsFromPdf() throws IOException {
+        return streamPages(new ClassPathResource("files/test_page.pdf"));
+    }
+
+    public PdfPageIterator streamPages(Resource resource) throws IOException {
+        int threads = this.parallelism > 0 ? this.parallelism : Runtime.getRuntime().availableProcessors();
+        return new PdfPageIterator(resource, threads, this.pagesPerRange, ExtractedTextFormatter.builder()
+                .withNumberOfTopTextLinesToDelete(0)
+                .build());
+    }
+
+    /**
+     * Flux 版本，下游取消或者结束时关闭迭代器
+     */
+    public Flux<Document> fluxPages(Resource resource) {
+        return Flux.using(() -> streamPages(resource), pages -> Flux.<Document>fromIterable(() -> pages), PdfPageIterator::close)
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
 }
@@ -0,0 +1,245 @@
+package com.glmapper.ai.rag.etls;
+
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.reader.ExtractedTextFormatter;
+import org.springframework.core.io.Resource;
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @Classname PdfPageIterator
+ * @Description 按页惰性读取 PDF，多个页段并行解析
+ * <p>
+ * PagePdfDocumentReader.read() 要把所有页面解析完、放进一个 List 后才返回，页数越多内存越大，下游也要等全部解析完才能开始。
+ * 这里把页面按 pagesPerRange 分段，由 parallelism 个线程并行解析，迭代器按页码顺序逐页返回：
+ * 1、每个线程各自打开一个 PDDocument（PDDocument 不是线程安全的），按顺序领取下一个页段，解析完放入对应的槽位；
+ * 2、领取页段前要先拿到许可，迭代器消费完一个页段才归还许可，已解析未消费的页段最多 window 个，内存与总页数无关；
+ * 3、页段按顺序领取，迭代器等待的页段一定已经被某个线程领取并在解析中，不会因为许可耗尽而死锁；
+ * 4、关闭 PDDocument 的资源缓存，解析过的页面资源（字体、图片）不会一直留在内存中；
+ * 5、解析线程抛出任何异常（包括 Error）时对应的页段以异常结束，最后一个解析线程退出时把还没有解析的页段也以异常结束，迭代器不会一直等待。
+ * 使用完（或者提前放弃遍历时）需要调用 {@link #close()} 结束解析线程并释放文件；关闭后 hasNext 返回 false，正在等待页段的调用抛出异常。
+ * </p>
+ * @Date 2025/6/30 10:10
+ * @Created by glmapper
+ */
+public class PdfPageIterator implements Iterator<Document>, AutoCloseable {
+
+    public static final String METADATA_PAGE_NUMBER = "page_number";
+
+    public static final String METADATA_FILE_NAME = "file_name";
+
+    private final File file;
+
+    private final boolean temporary;
+
+    private final String fileName;
+
+    private final int pagesPerRange;
+
+    private final int pageCount;
+
+    private final ExtractedTextFormatter formatter;
+
+    private final CompletableFuture<List<Document>>[] ranges;
+
+    private final AtomicInteger nextRange = new AtomicInteger();
+
+    private final Semaphore permits;
+
+    private final List<Thread> workers = new ArrayList<>();
+
+    private final AtomicInteger runningWorkers = new AtomicInteger();
+
+    private volatile boolean closed;
+
+    private int consumedRanges;
+
+    private List<Document> current = List.of();
+
+    private int position;
+
+    /**
+     * @param resource      PDF 文件，不在文件系统上时（例如 jar 中的 classpath 资源）会先复制到临时文件
+     * @param parallelism   解析线程数
+     * @param pagesPerRange 每个页段的页数
+     * @param formatter     页面文本的格式化方式
+     */
+    @SuppressWarnings("unchecked")
+    public PdfPageIterator(Resource resource, int parallelism, int pagesPerRange, ExtractedTextFormatter formatter)
+            throws IOException {
+        Assert.notNull(resource, "resource cannot be null");
+        Assert.isTrue(parallelism > 0, "parallelism must be greater than 0");
+        Assert.isTrue(pagesPerRange > 0, "pagesPerRange must be greater than 0");
+        Assert.notNull(formatter, "formatter cannot be null");
+        this.temporary = !resource.isFile();
+        this.file = this.temporary ? copyToTempFile(resource) : resource.getFile();
+        this.fileName = resource.getFilename();
+        this.pagesPerRange = pagesPerRange;
+        this.formatter = formatter;
+        try (PDDocument document = Loader.loadPDF(this.file)) {
+            this.pageCount = document.getNumberOfPages();
+        }
+        int rangeCount = (this.pageCount + pagesPerRange - 1) / pagesPerRange;
+        this.ranges = new CompletableFuture[rangeCount];
+        for (int i = 0; i < rangeCount; i++) {
+            this.ranges[i] = new CompletableFuture<>();
+        }
+        int workerCount = Math.max(1, Math.min(parallelism, rangeCount));
+        this.permits = new Semaphore(workerCount * 2);
+        this.runningWorkers.set(rangeCount > 0 ? workerCount : 0);
+        for (int i = 0; i < workerCount && rangeCount > 0; i++) {
+            Thread worker = new Thread(this::parse, "pdf-reader-" + i);
+            worker.setDaemon(true);
+            worker.start();
+            this.workers.add(worker);
+        }
+    }
+
+    public int getPageCount() {
+        return this.pageCount;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (this.closed) {
+            return false;
+        }
+        while (this.position >= this.current.size()) {
+            if (this.consumedRanges >= this.ranges.length) {
+                return false;
+            }
+            this.current = await(this.ranges[this.consumedRanges]);
+            // 消费过的页段不再持有
+            this.ranges[this.consumedRanges] = null;
+            this.consumedRanges++;
+            this.position = 0;
+            this.permits.release();
+        }
+        return true;
+    }
+
+    @Override
+    public Document next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return this.current.get(this.position++);
+    }
+
+    @Override
+    public void close() {
+        this.closed = true;
+        // 其他线程可能正在 hasNext 中等待页段
+        failPending(new IllegalStateException("PdfPageIterator is closed"));
+        for (Thread worker : this.workers) {
+            worker.interrupt();
+        }
+        for (Thread worker : this.workers) {
+            try {
+                worker.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        if (this.temporary) {
+            this.file.delete();
+        }
+    }
+
+    private void parse() {
+        try (PDDocument document = Loader.loadPDF(this.file)) {
+            document.setResourceCache(null);
+            PDFTextStripper stripper = new PDFTextStripper();
+            while (!this.closed) {
+                this.permits.acquire();
+                int range = this.nextRange.getAndIncrement();
+                if (range >= this.ranges.length) {
+                    this.permits.release();
+                    return;
+                }
+                try {
+                    this.ranges[range].complete(extract(document, stripper, range));
+                } catch (Throwable e) {
+                    this.ranges[range].completeExceptionally(e);
+                    if (e instanceof Error) {
+                        throw e;
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            // 打开文件失败，让迭代器在等待任何一个页段时都能拿到异常
+            failPending(e);
+        } finally {
+            // 最后一个解析线程退出后没有线程再领取页段，剩下的页段以异常结束
+            if (this.runningWorkers.decrementAndGet() == 0) {
+                failPending(new IllegalStateException("All pdf reader threads stopped"));
+            }
+        }
+    }
+
+    /**
+     * 已经结束的页段不受影响
+     */
+    private void failPending(Throwable cause) {
+        for (CompletableFuture<List<Document>> range : this.ranges) {
+            if (range != null) {
+                range.completeExceptionally(cause);
+            }
+        }
+    }
+
+    private List<Document> extract(PDDocument document, PDFTextStripper stripper, int range) throws IOException {
+        int firstPage = range * this.pagesPerRange + 1;
+        int lastPage = Math.min(firstPage + this.pagesPerRange - 1, this.pageCount);
+        List<Document> pages = new ArrayList<>(lastPage - firstPage + 1);
+        for (int page = firstPage; page <= lastPage; page++) {
+            stripper.setStartPage(page);
+            stripper.setEndPage(page);
+            String text = this.formatter.format(stripper.getText(document));
+            // 与 PagePdfDocumentReader 一致，跳过没有文字的页面
+            if (StringUtils.hasText(text)) {
+                pages.add(new Document(text, Map.of(METADATA_PAGE_NUMBER, page,
+                        METADATA_FILE_NAME, this.fileName == null ? "" : this.fileName)));
+            }
+        }
+        return pages;
+    }
+
+    private static List<Document> await(CompletableFuture<List<Document>> range) {
+        try {
+            return range.join();
+        } catch (CompletionException e) {
+            throw new IllegalStateException("Failed to read pdf pages", e.getCause());
+        }
+    }
+
+    private static File copyToTempFile(Resource resource) throws IOException {
+        Path path = Files.createTempFile("pdf-reader-", ".pdf");
+        try (InputStream in = resource.getInputStream()) {
+            Files.copy(in, path, StandardCopyOption.REPLACE_EXISTING);
+        }
+        return path.toFile();
+    }
+}
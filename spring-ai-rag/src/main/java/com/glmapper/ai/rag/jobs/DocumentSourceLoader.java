@@ -0,0 +1,128 @@
+package com.glmapper.ai.rag.jobs;
+
+import com.glmapper.ai.rag.etls.JsonRecordIterator;
+import com.glmapper.ai.rag.etls.PdfDocumentReader;
+import com.glmapper.ai.rag.etls.PdfPageIterator;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.reader.TextReader;
+import org.springframework.ai.reader.jsoup.JsoupDocumentReader;
+import org.springframework.ai.reader.markdown.MarkdownDocumentReader;
+import org.springframework.ai.reader.markdown.config.MarkdownDocumentReaderConfig;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * @Classname DocumentSourceLoader
+ * @Description 按扩展名选择 Reader，把一个来源读成文档
+ * <p>
+ * 来源路径按 ResourceLoader 的规则解析：classpath:、file:、http(s): 前缀，没有前缀时从 classpath 读取。
+ * PDF 按页并行读取、JSON / JSONL 按记录读取，都是边读边返回，不把整个来源的文档放进内存，配合 IncrementalIndexer 的按批同步，
+ * 大文件的内存占用只与批大小有关；Markdown、HTML、文本的 Reader 一次返回全部文档。
+ * 每个文档的元数据中加上 source；文档 id 由来源与文档序号确定，切分时作为 chunk 的 parent_document_id，
+ * 重新读取同一来源得到同样的 id，内容不变的 chunk 哈希也不变，IncrementalIndexer 不会重新写入。
+ * </p>
+ * @Date 2025/7/12 10:20
+ * @Created by glmapper
+ */
+public class DocumentSourceLoader {
+
+    public static final String METADATA_SOURCE = "source";
+
+    private final ResourceLoader resourceLoader;
+
+    private final PdfDocumentReader pdfDocumentReader;
+
+    public DocumentSourceLoader(ResourceLoader resourceLoader, PdfDocumentReader pdfDocumentReader) {
+        Assert.notNull(resourceLoader, "resourceLoader cannot be null");
+        Assert.notNull(pdfDocumentReader, "pdfDocumentReader cannot be null");
+        this.resourceLoader = resourceLoader;
+        this.pdfDocumentReader = pdfDocumentReader;
+    }
+
+    /**
+     * 每次调用都从头读取来源
+     *
+     * @return 边读边返回的文档，使用完（或者提前放弃遍历时）需要调用 close
+     */
+    public SourceIterator open(String source) {
+        Assert.hasText(source, "source cannot be empty");
+        Resource resource = this.resourceLoader.getResource(source);
+        Assert.isTrue(resource.exists(), () -> "Source does not exist: " + source);
+        String extension = StringUtils.getFilenameExtension(resource.getFilename());
+        try {
+            return switch (extension == null ? "" : extension.toLowerCase(Locale.ROOT)) {
+                case "md", "markdown" -> new SourceIterator(source, new MarkdownDocumentReader(resource,
+                        MarkdownDocumentReaderConfig.builder()
+                                .withHorizontalRuleCreateDocument(true)
+                                .withIncludeCodeBlock(false)
+                                .withIncludeBlockquote(false)
+                                .build()).get().iterator(), null);
+                case "pdf" -> {
+                    PdfPageIterator pages = this.pdfDocumentReader.streamPages(resource);
+                    yield new SourceIterator(source, pages, pages::close);
+                }
+                case "html", "htm" -> new SourceIterator(source, new JsoupDocumentReader(resource).get().iterator(), null);
+                case "json", "jsonl", "ndjson" -> {
+                    JsonRecordIterator records = new JsonRecordIterator(resource, "", List.of(), List.of());
+                    yield new SourceIterator(source, records, records::close);
+                }
+                default -> new SourceIterator(source, new TextReader(resource).get().iterator(), null);
+            };
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read " + source, e);
+        }
+    }
+
+    /**
+     * 给读出的文档加上 source 与确定的 id
+     */
+    public static class SourceIterator implements Iterator<Document>, AutoCloseable {
+
+        private final String source;
+
+        private final Iterator<Document> documents;
+
+        private final Runnable onClose;
+
+        private int index;
+
+        SourceIterator(String source, Iterator<Document> documents, Runnable onClose) {
+            this.source = source;
+            this.documents = documents;
+            this.onClose = onClose;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return this.documents.hasNext();
+        }
+
+        @Override
+        public Document next() {
+            Document document = this.documents.next();
+            Map<String, Object> metadata = new HashMap<>(document.getMetadata());
+            metadata.put(METADATA_SOURCE, this.source);
+            String id = UUID.nameUUIDFromBytes((this.source + "\n" + this.index++).getBytes(StandardCharsets.UTF_8)).toString();
+            return document.mutate().id(id).metadata(metadata).build();
+        }
+
+        @Override
+        public void close() {
+            if (this.onClose != null) {
+                this.onClose.run();
+            }
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.glmapper.ai.rag.jobs;
+
+import com.glmapper.ai.rag.manifest.SyncResult;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @Classname IngestionJob
+ * @Description 一个入库任务的状态，每处理完一个来源生成一个新的实例并写入检查点
+ * @Date 2025/7/12 10:00
+ * @Created by glmapper
+ *
+ * @param id        任务 id
+ * @param sources   提交的来源路径，按顺序处理
+ * @param completed 已经写入向量库的来源，重启后跳过
+ * @param failed    处理失败的来源 → 错误信息，重启后不再重试
+ * @param status    任务状态
+ * @param added     新写入向量库的 chunk 数
+ * @param deleted   从向量库删除的 chunk 数
+ * @param createdAt 提交时间，毫秒
+ * @param updatedAt 最后一次更新的时间，毫秒
+ */
+public record IngestionJob(String id, List<String> sources, List<String> completed, Map<String, String> failed,
+                           Status status, int added, int deleted, long createdAt, long updatedAt) {
+
+    public static IngestionJob queued(String id, List<String> sources) {
+        long now = System.currentTimeMillis();
+        return new IngestionJob(id, List.copyOf(sources), List.of(), Map.of(), Status.QUEUED, 0, 0, now, now);
+    }
+
+    /**
+     * 还没有处理的来源
+     */
+    public List<String> pending() {
+        return this.sources.stream()
+                .filter(source -> !this.completed.contains(source) && !this.failed.containsKey(source))
+                .toList();
+    }
+
+    public IngestionJob withStatus(Status status) {
+        return new IngestionJob(this.id, this.sources, this.completed, this.failed, status,
+                this.added, this.deleted, this.createdAt, System.currentTimeMillis());
+    }
+
+    public IngestionJob withCompleted(SyncResult result) {
+        List<String> completed = new ArrayList<>(this.completed);
+        completed.add(result.source());
+        return new IngestionJob(this.id, this.sources, List.copyOf(completed), this.failed, this.status,
+                this.added + result.added(), this.deleted + result.deleted(), this.createdAt, System.currentTimeMillis());
+    }
+
+    public IngestionJob withFailed(String source, String error) {
+        Map<String, String> failed = new LinkedHashMap<>(this.failed);
+        failed.put(source, String.valueOf(error));
+        return new IngestionJob(this.id, this.sources, this.completed, failed, this.status,
+                this.added, this.deleted, this.createdAt, System.currentTimeMillis());
+    }
+
+    public enum Status {
+        QUEUED,
+        RUNNING,
+        /**
+         * 所有来源都处理成功
+         */
+        SUCCEEDED,
+        /**
+         * 处理完成，但有来源失败，见 failed
+         */
+        FAILED,
+        CANCELLED;
+
+        public boolean finished() {
+            return this == SUCCEEDED || this == FAILED || this == CANCELLED;
+        }
+    }
+}
@@ -0,0 +1,275 @@
+package com.glmapper.ai.rag.jobs;
+
+import com.glmapper.ai.rag.manifest.IncrementalIndexer;
+import com.glmapper.ai.rag.manifest.SyncResult;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.document.Document;
+import org.springframework.util.Assert;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * @Classname IngestionJobService
+ * @Description 异步执行入库任务
+ * <p>
+ * 1、提交一组来源后立即返回任务 id，任务在专用的线程池上执行，不受 HTTP 请求超时的限制；
+ * 2、来源按顺序交给 IncrementalIndexer 按批同步，同一时刻只持有一批文档，每处理完一个来源写一次任务检查点，进程退出后重新启动时，
+ * 未结束的任务从检查点继续，已经完成的来源不再读取；
+ * 来源内部的进度由 IncrementalIndexer 在每批写入后保存到清单中（已经处理的文档数与写入的 chunk id），
+ * 中途退出的来源重新同步时内容没有变化就跳过已经写入的文档，从下一批继续，已经写入的 chunk 不会重复写入向量库；
+ * 3、单个来源失败时记录错误并继续处理其余来源，任务最终为 FAILED；
+ * 4、取消在来源之间生效，正在同步的来源会完成，避免向量库与清单不一致；排队中的任务直接取消；
+ * 5、每次状态变化都通知订阅者，用于 SSE 推送进度。通知在单独的线程上按状态变化的顺序发送，不持有锁，
+ * 慢的订阅者（例如网络很慢的 SSE 连接）不会阻塞任务的执行、取消与其他任务的状态更新。
+ * </p>
+ * @Date 2025/7/12 10:30
+ * @Created by glmapper
+ */
+@Slf4j
+public class IngestionJobService implements AutoCloseable {
+
+    private final IncrementalIndexer indexer;
+
+    private final Function<String, Iterator<Document>> loader;
+
+    private final Function<List<Document>, List<Document>> splitter;
+
+    private final IngestionJobStore store;
+
+    private final int batchSize;
+
+    private final ExecutorService executor;
+
+    /**
+     * 单线程按提交顺序通知订阅者
+     */
+    private final ExecutorService notifier =
+            Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, "ingestion-job-events"));
+
+    private final Map<String, IngestionJob> jobs = new ConcurrentHashMap<>();
+
+    private final Map<String, Future<?>> futures = new ConcurrentHashMap<>();
+
+    private final Set<String> cancelled = ConcurrentHashMap.newKeySet();
+
+    private final Map<String, List<Consumer<IngestionJob>>> listeners = new ConcurrentHashMap<>();
+
+    /**
+     * @param loader    从头读取一个来源，返回的迭代器实现了 AutoCloseable 时读完后关闭
+     * @param splitter  切分方式，来源内容没有变化时不会调用
+     * @param batchSize 每批读取、切分、写入的文档数
+     * @param threads   同时执行的任务数
+     */
+    public IngestionJobService(IncrementalIndexer indexer, Function<String, Iterator<Document>> loader,
+                               Function<List<Document>, List<Document>> splitter, IngestionJobStore store,
+                               int batchSize, int threads) {
+        Assert.notNull(indexer, "indexer cannot be null");
+        Assert.notNull(loader, "loader cannot be null");
+        Assert.notNull(splitter, "splitter cannot be null");
+        Assert.notNull(store, "store cannot be null");
+        Assert.isTrue(batchSize > 0, "batchSize must be greater than 0");
+        Assert.isTrue(threads > 0, "threads must be greater than 0");
+        this.indexer = indexer;
+        this.loader = loader;
+        this.splitter = splitter;
+        this.store = store;
+        this.batchSize = batchSize;
+        AtomicInteger counter = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> new Thread(runnable, "ingestion-job-" + counter.incrementAndGet());
+        this.executor = Executors.newFixedThreadPool(threads, threadFactory);
+    }
+
+    /**
+     * 加载检查点，重新提交没有结束的任务
+     *
+     * @return 重新提交的任务数
+     */
+    public int resume() {
+        int resumed = 0;
+        for (IngestionJob job : this.store.load()) {
+            this.jobs.put(job.id(), job);
+            if (!job.status().finished()) {
+                log.info("resume ingestion job {}, {} of {} sources pending", job.id(), job.pending().size(), job.sources().size());
+                schedule(job.id());
+                resumed++;
+            }
+        }
+        return resumed;
+    }
+
+    public IngestionJob submit(List<String> sources) {
+        Assert.notEmpty(sources, "sources cannot be empty");
+        Assert.noNullElements(sources, "sources cannot contain null elements");
+        IngestionJob job = IngestionJob.queued(UUID.randomUUID().toString(), sources.stream().distinct().toList());
+        update(job);
+        schedule(job.id());
+        return job;
+    }
+
+    public IngestionJob get(String id) {
+        return this.jobs.get(id);
+    }
+
+    public Collection<IngestionJob> list() {
+        return List.copyOf(this.jobs.values());
+    }
+
+    /**
+     * 排队中的任务直接取消；正在执行的任务在下一个来源开始前结束
+     *
+     * @return 任务不存在时返回 null
+     */
+    public synchronized IngestionJob cancel(String id) {
+        IngestionJob job = this.jobs.get(id);
+        if (job == null || job.status().finished()) {
+            return job;
+        }
+        if (job.status() == IngestionJob.Status.QUEUED) {
+            Future<?> future = this.futures.remove(id);
+            if (future != null) {
+                future.cancel(false);
+            }
+            return update(job.withStatus(IngestionJob.Status.CANCELLED));
+        }
+        this.cancelled.add(id);
+        return job;
+    }
+
+    /**
+     * 订阅任务的状态变化，订阅时先收到一次当前状态；任务结束后自动取消订阅，所有通知都在通知线程上发送
+     *
+     * @return 取消订阅，任务不存在时返回 null
+     */
+    public synchronized Runnable subscribe(String id, Consumer<IngestionJob> listener) {
+        IngestionJob job = this.jobs.get(id);
+        if (job == null) {
+            return null;
+        }
+        if (job.status().finished()) {
+            publish(job, List.of(listener), null);
+            return () -> {
+            };
+        }
+        List<Consumer<IngestionJob>> subscribers = this.listeners.computeIfAbsent(id, key -> new CopyOnWriteArrayList<>());
+        subscribers.add(listener);
+        publish(job, List.of(listener), subscribers);
+        return () -> subscribers.remove(listener);
+    }
+
+    private void schedule(String id) {
+        Future<?> future = this.executor.submit(() -> run(id));
+        this.futures.put(id, future);
+        if (future.isDone()) {
+            this.futures.remove(id, future);
+        }
+    }
+
+    private void run(String id) {
+        try {
+            IngestionJob job = start(id);
+            if (job == null) {
+                return;
+            }
+            for (String source : job.pending()) {
+                if (this.executor.isShutdown()) {
+                    return;
+                }
+                if (this.cancelled.contains(id)) {
+                    update(job.withStatus(IngestionJob.Status.CANCELLED));
+                    return;
+                }
+                try {
+                    SyncResult result = this.indexer.sync(source, () -> this.loader.apply(source), this.splitter, this.batchSize);
+                    job = update(job.withCompleted(result));
+                } catch (RuntimeException e) {
+                    if (this.executor.isShutdown()) {
+                        // 进程退出时被中断，不记为失败，下次启动时重新同步这个来源
+                        return;
+                    }
+                    log.error("ingestion job {} failed on source {}", id, source, e);
+                    job = update(job.withFailed(source, e.getMessage()));
+                }
+            }
+            job = update(job.withStatus(job.failed().isEmpty() ? IngestionJob.Status.SUCCEEDED : IngestionJob.Status.FAILED));
+            log.info("ingestion job {} {}: {} chunks added, {} deleted", id, job.status(), job.added(), job.deleted());
+        } catch (RuntimeException e) {
+            // 检查点写入失败，任务保持在内存中的状态，重启后从上一个检查点继续
+            log.error("ingestion job {} stopped", id, e);
+        } finally {
+            this.futures.remove(id);
+            this.cancelled.remove(id);
+        }
+    }
+
+    /**
+     * 与 cancel 互斥，排队时已经取消的任务不再执行
+     */
+    private synchronized IngestionJob start(String id) {
+        IngestionJob job = this.jobs.get(id);
+        if (job.status() == IngestionJob.Status.CANCELLED) {
+            return null;
+        }
+        return update(job.withStatus(IngestionJob.Status.RUNNING));
+    }
+
+    /**
+     * 先写检查点，再更新内存中的状态，最后把通知交给 notifier；在锁内提交保证通知的顺序与状态变化的顺序一致
+     */
+    private synchronized IngestionJob update(IngestionJob job) {
+        this.store.save(job);
+        this.jobs.put(job.id(), job);
+        List<Consumer<IngestionJob>> subscribers = job.status().finished()
+                ? this.listeners.remove(job.id())
+                : this.listeners.get(job.id());
+        if (subscribers != null && !subscribers.isEmpty()) {
+            publish(job, List.copyOf(subscribers), subscribers);
+        }
+        return job;
+    }
+
+    /**
+     * @param subscribers 通知失败的订阅者从这里移除，为 null 时不移除
+     */
+    private void publish(IngestionJob job, List<Consumer<IngestionJob>> targets, List<Consumer<IngestionJob>> subscribers) {
+        try {
+            this.notifier.execute(() -> {
+                for (Consumer<IngestionJob> listener : targets) {
+                    try {
+                        listener.accept(job);
+                    } catch (RuntimeException e) {
+                        if (subscribers != null) {
+                            subscribers.remove(listener);
+                        }
+                        log.debug("drop subscriber of ingestion job {}: {}", job.id(), e.getMessage());
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // 已经关闭，进程退出时不再推送
+            log.debug("skip notifying subscribers of ingestion job {}: service is closed", job.id());
+        }
+    }
+
+    @Override
+    public void close() {
+        // 正在执行的任务保持 RUNNING 的检查点，下次启动时继续
+        this.executor.shutdownNow();
+        // 已经提交的通知继续发送，不再接收新的通知
+        this.notifier.shutdown();
+    }
+}
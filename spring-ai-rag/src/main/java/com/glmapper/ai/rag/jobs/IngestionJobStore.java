@@ -0,0 +1,73 @@
+package com.glmapper.ai.rag.jobs;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * @Classname IngestionJobStore
+ * @Description 入库任务的检查点
+ * <p>
+ * 每个任务一个 JSON 文件（{id}.json），先写临时文件再原子替换，进程在任意时刻退出都不会留下写了一半的检查点。
+ * 读取时跳过无法解析的文件，不影响其他任务恢复。
+ * </p>
+ * @Date 2025/7/12 10:10
+ * @Created by glmapper
+ */
+@Slf4j
+public class IngestionJobStore {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private static final String SUFFIX = ".json";
+
+    private final Path directory;
+
+    public IngestionJobStore(Path directory) {
+        this.directory = directory;
+    }
+
+    public void save(IngestionJob job) {
+        Path file = this.directory.resolve(job.id() + SUFFIX);
+        Path temp = this.directory.resolve(job.id() + SUFFIX + ".tmp");
+        try {
+            Files.createDirectories(this.directory);
+            OBJECT_MAPPER.writeValue(temp.toFile(), job);
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write job checkpoint " + file, e);
+        }
+    }
+
+    /**
+     * @return 按提交时间排列的所有任务
+     */
+    public List<IngestionJob> load() {
+        if (!Files.isDirectory(this.directory)) {
+            return List.of();
+        }
+        List<IngestionJob> jobs = new ArrayList<>();
+        try (Stream<Path> files = Files.list(this.directory)) {
+            for (Path file : files.filter(path -> path.getFileName().toString().endsWith(SUFFIX)).toList()) {
+                try {
+                    jobs.add(OBJECT_MAPPER.readValue(file.toFile(), IngestionJob.class));
+                } catch (IOException e) {
+                    log.warn("skip unreadable job checkpoint {}: {}", file, e.getMessage());
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to list job checkpoints in " + this.directory, e);
+        }
+        jobs.sort(Comparator.comparingLong(IngestionJob::createdAt));
+        return jobs;
+    }
+}
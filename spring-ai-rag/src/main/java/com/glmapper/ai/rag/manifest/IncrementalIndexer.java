@@ -0,0 +1,223 @@
+package com.glmapper.ai.rag.manifest;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.util.Assert;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * @Classname IncrementalIndexer
+ * @Description 按内容哈希增量写入向量库
+ * <p>
+ * 1、来源的内容哈希与清单一致时直接跳过，不切分也不调用 embedding；
+ * 2、内容有变化时重新切分，chunk id 由来源路径与 chunk 内容哈希确定，同样的内容总是得到同样的 id；
+ * 3、只写入清单中没有的 chunk，删除清单中有、本次没有的 chunk，其余保持不变；
+ * 4、先写入、再删除、最后保存清单；每批写入后立即保存一次进度：清单中记录原有的与已经写入的 chunk，hash 带上 INCOMPLETE 前缀。
+ * 中途失败后重新同步时，已经写入的 chunk id 都在清单中，不会再写入一次（Milvus 的 insert 不按主键去重，重复写入会留下重复的 chunk），
+ * 最后删除的也包括中途写入、本次已经不存在的 chunk；来源内容与中途退出时相同时，还会跳过已经写入的文档，从记录的位置继续切分；
+ * 5、很大的来源可以按批同步：先完整读一遍计算哈希，有变化时再读一遍，每批文档切分、写入一次，
+ * 同一时刻只持有一批文档与它们的 chunk，整个来源只额外保存 chunk id 与哈希。
+ * </p>
+ * @Date 2025/7/2 10:30
+ * @Created by glmapper
+ */
+@Slf4j
+public class IncrementalIndexer {
+
+    private final VectorStore vectorStore;
+
+    private final IngestionManifest manifest;
+
+    public IncrementalIndexer(VectorStore vectorStore, IngestionManifest manifest) {
+        Assert.notNull(vectorStore, "vectorStore cannot be null");
+        Assert.notNull(manifest, "manifest cannot be null");
+        this.vectorStore = vectorStore;
+        this.manifest = manifest;
+    }
+
+    /**
+     * @param source    来源路径，作为清单的 key
+     * @param documents 来源读取出的文档
+     * @param splitter  切分方式，内容没有变化时不会调用
+     */
+    public SyncResult sync(String source, List<Document> documents,
+                           Function<List<Document>, List<Document>> splitter) {
+        Assert.notNull(documents, "documents cannot be null");
+        return sync(source, documents::iterator, splitter, Math.max(1, documents.size()));
+    }
+
+    /**
+     * @param reader    每次调用从头读取来源，返回的迭代器实现了 AutoCloseable 时读完后关闭；内容有变化时会调用两次
+     * @param splitter  切分方式，每批文档调用一次，内容没有变化时不会调用
+     * @param batchSize 每批的文档数
+     */
+    public synchronized SyncResult sync(String source, Supplier<Iterator<Document>> reader,
+                                        Function<List<Document>, List<Document>> splitter, int batchSize) {
+        Assert.hasText(source, "source cannot be empty");
+        Assert.notNull(reader, "reader cannot be null");
+        Assert.isTrue(batchSize > 0, "batchSize must be greater than 0");
+        IngestionManifest.SourceEntry previous = this.manifest.get(source);
+        Map<String, String> previousChunks = previous == null ? Map.of() : previous.chunks();
+        String sourceHash = hash(reader.get());
+        if (previous != null && previous.hash().equals(sourceHash)) {
+            return new SyncResult(source, true, 0, 0, previousChunks.size());
+        }
+
+        Map<String, String> chunks = new LinkedHashMap<>();
+        Map<String, Integer> occurrences = new HashMap<>();
+        int skip = 0;
+        // 上次同步在同样的内容上中途退出时，已经写入的文档不再切分，从记录的位置继续
+        if (previous != null && previous.progress() != null
+                && previous.hash().equals(IngestionManifest.SourceEntry.INCOMPLETE + sourceHash)) {
+            chunks.putAll(previous.progress().chunks());
+            chunks.values().forEach(chunkHash -> occurrences.merge(chunkHash, 1, Integer::sum));
+            skip = previous.progress().documents();
+        }
+        int added = 0;
+        int index = 0;
+        Iterator<Document> documents = reader.get();
+        try {
+            List<Document> batch = new ArrayList<>(Math.min(batchSize, 1024));
+            while (documents.hasNext()) {
+                Document document = documents.next();
+                if (index++ < skip) {
+                    continue;
+                }
+                batch.add(document);
+                if (batch.size() == batchSize || !documents.hasNext()) {
+                    int written = add(source, splitter.apply(batch), previousChunks, chunks, occurrences);
+                    if (written > 0) {
+                        saveProgress(source, sourceHash, previousChunks, chunks, index);
+                    }
+                    added += written;
+                    batch.clear();
+                }
+            }
+        } finally {
+            close(documents);
+        }
+        List<String> deleted = previousChunks.keySet().stream().filter(id -> !chunks.containsKey(id)).toList();
+
+        if (!deleted.isEmpty()) {
+            this.vectorStore.delete(deleted);
+        }
+        this.manifest.put(source, new IngestionManifest.SourceEntry(sourceHash, chunks, null));
+        this.manifest.save();
+        SyncResult result = new SyncResult(source, false, added, deleted.size(), chunks.size() - added);
+        log.info("{}", result);
+        return result;
+    }
+
+    /**
+     * 给一批 chunk 分配 id，写入清单中没有的 chunk
+     *
+     * @return 写入的 chunk 数
+     */
+    private int add(String source, List<Document> batch, Map<String, String> previousChunks, Map<String, String> chunks,
+                    Map<String, Integer> occurrences) {
+        List<Document> added = new ArrayList<>();
+        for (Document chunk : batch) {
+            String chunkHash = hash(List.of(chunk));
+            // 同一来源中内容相同的 chunk 按出现次序区分
+            int occurrence = occurrences.merge(chunkHash, 1, Integer::sum);
+            String id = UUID.nameUUIDFromBytes((source + "\n" + chunkHash + "\n" + occurrence)
+                    .getBytes(StandardCharsets.UTF_8)).toString();
+            chunks.put(id, chunkHash);
+            if (!previousChunks.containsKey(id)) {
+                added.add(chunk.mutate().id(id).build());
+            }
+        }
+        if (!added.isEmpty()) {
+            this.vectorStore.add(added);
+        }
+        return added.size();
+    }
+
+    /**
+     * 向量库中属于这个来源的 chunk：上次同步留下的与本次已经写入的，删除过期的 chunk 之前都还在向量库中；
+     * 同时记录已经处理的文档数与它们切分出的 chunk，用于从这里继续
+     */
+    private void saveProgress(String source, String sourceHash, Map<String, String> previousChunks,
+                              Map<String, String> chunks, int documents) {
+        Map<String, String> written = new LinkedHashMap<>(previousChunks);
+        written.putAll(chunks);
+        this.manifest.put(source, new IngestionManifest.SourceEntry(IngestionManifest.SourceEntry.INCOMPLETE + sourceHash,
+                written, new IngestionManifest.Progress(documents, new LinkedHashMap<>(chunks))));
+        this.manifest.save();
+    }
+
+    /**
+     * 来源已经不存在时，删除它写入的所有 chunk
+     */
+    public synchronized int remove(String source) {
+        IngestionManifest.SourceEntry previous = this.manifest.get(source);
+        if (previous == null) {
+            return 0;
+        }
+        if (!previous.chunks().isEmpty()) {
+            this.vectorStore.delete(List.copyOf(previous.chunks().keySet()));
+        }
+        this.manifest.remove(source);
+        this.manifest.save();
+        return previous.chunks().size();
+    }
+
+    /**
+     * 文本与按 key 排序后的元数据一起参与哈希，元数据变化也会重新写入
+     */
+    static String hash(List<Document> documents) {
+        return hash(documents.iterator());
+    }
+
+    /**
+     * 逐个读取文档计算哈希，读完后关闭迭代器
+     */
+    static String hash(Iterator<Document> documents) {
+        MessageDigest digest = sha256();
+        try {
+            while (documents.hasNext()) {
+                Document document = documents.next();
+                digest.update(String.valueOf(document.getText()).getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0);
+                digest.update(new TreeMap<>(document.getMetadata()).toString().getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0);
+            }
+        } finally {
+            close(documents);
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static void close(Iterator<Document> documents) {
+        if (documents instanceof AutoCloseable closeable) {
+            try {
+                closeable.close();
+            } catch (Exception e) {
+                log.warn("failed to close document reader: {}", e.getMessage());
+            }
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
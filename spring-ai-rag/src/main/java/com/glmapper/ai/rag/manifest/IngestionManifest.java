@@ -0,0 +1,104 @@
+package com.glmapper.ai.rag.manifest;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * @Classname IngestionManifest
+ * @Description 记录每个来源已经写入向量库的内容
+ * <p>
+ * 以来源路径为 key，保存整个来源的内容哈希，以及每个 chunk 的 id 与内容哈希。
+ * 同步过程中每批写入后都会保存一次进度，中途退出时清单中记录着已经写入向量库的 chunk，以及已经处理到第几个文档。
+ * 以 JSON 格式保存，先写临时文件再原子替换，进程在任意时刻退出都不会留下写了一半的清单文件。
+ * </p>
+ * @Date 2025/7/2 10:10
+ * @Created by glmapper
+ */
+public class IngestionManifest {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private final Path file;
+
+    private final Map<String, SourceEntry> sources = new ConcurrentHashMap<>();
+
+    private IngestionManifest(Path file) {
+        this.file = file;
+    }
+
+    public static IngestionManifest load(Path file) {
+        IngestionManifest manifest = new IngestionManifest(file);
+        if (Files.exists(file)) {
+            try {
+                manifest.sources.putAll(OBJECT_MAPPER.readValue(file.toFile(), new TypeReference<Map<String, SourceEntry>>() {
+                }));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to read manifest " + file, e);
+            }
+        }
+        return manifest;
+    }
+
+    public SourceEntry get(String source) {
+        return this.sources.get(source);
+    }
+
+    public Set<String> sources() {
+        return Set.copyOf(this.sources.keySet());
+    }
+
+    public void put(String source, SourceEntry entry) {
+        this.sources.put(source, entry);
+    }
+
+    public void remove(String source) {
+        this.sources.remove(source);
+    }
+
+    public synchronized void save() {
+        Path temp = this.file.resolveSibling(this.file.getFileName() + ".tmp");
+        try {
+            if (this.file.getParent() != null) {
+                Files.createDirectories(this.file.getParent());
+            }
+            OBJECT_MAPPER.writerWithDefaultPrettyPrinter().writeValue(temp.toFile(), new TreeMap<>(this.sources));
+            Files.move(temp, this.file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write manifest " + this.file, e);
+        }
+    }
+
+    /**
+     * @param hash     整个来源的内容哈希，没有变化时不需要重新切分；同步中途保存的进度带有 {@link #INCOMPLETE} 前缀
+     * @param chunks   chunk id → chunk 内容哈希，即向量库中属于这个来源的 chunk
+     * @param progress 同步中途保存的进度，同步完成后为 null
+     */
+    public record SourceEntry(String hash, Map<String, String> chunks,
+                              @JsonInclude(JsonInclude.Include.NON_NULL) Progress progress) {
+
+        /**
+         * 同步没有完成时 hash 的前缀，与任何内容哈希都不相等，下次同步一定会重新比较
+         */
+        public static final String INCOMPLETE = "incomplete:";
+    }
+
+    /**
+     * 中途退出的同步进行到哪里，内容没有变化时下次同步从这里继续
+     *
+     * @param documents 已经切分、写入的文档数，总是一批的末尾
+     * @param chunks    这些文档切分出的 chunk id → chunk 内容哈希，按切分顺序排列
+     */
+    public record Progress(int documents, Map<String, String> chunks) {
+    }
+}
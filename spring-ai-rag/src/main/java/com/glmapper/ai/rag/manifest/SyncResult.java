@@ -0,0 +1,16 @@
+package com.glmapper.ai.rag.manifest;
+
+/**
+ * @Classname SyncResult
+ * @Description 一次增量同步的结果
+ * @Date 2025/7/2 10:40
+ * @Created by glmapper
+ *
+ * @param source    来源路径
+ * @param unchanged 来源内容没有变化，跳过了切分与 embedding
+ * @param added     新写入向量库的 chunk 数
+ * @param deleted   从向量库删除的 chunk 数
+ * @param kept      保持不变的 chunk 数
+ */
+public record SyncResult(String source, boolean unchanged, int added, int deleted, int kept) {
+}
@@ -0,0 +1,356 @@
+package com.glmapper.ai.rag.pipeline;
+
+import com.glmapper.ai.rag.transformers.DocTokenTextSplitter;
+import org.springframework.ai.document.Document;
+import org.springframework.util.Assert;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * @Classname IngestionPipeline
+ * @Description 分阶段并行的文档入库流水线
+ * <p>
+ * 读取 → 切分 → 丰富元数据 → 写入向量库，原来每一步都要等上一步把全部文档处理完、返回完整的 List 才能开始，
+ * 内存占用随语料规模线性增长，各阶段也无法同时工作。这里把每个阶段放在自己的一组 worker 上，阶段之间用有界队列连接：
+ * 1、读取阶段从 Iterator 中逐个拉取文档，按下一阶段的 batchSize 攒批后放入队列；
+ * 2、每个阶段有独立的并行度与批大小，worker 取一批、执行阶段函数、把结果按下一阶段的 batchSize 切分后放入下一个队列；
+ * 3、队列满时上游阻塞等待（背压），同时在途的文档数不超过 Σ (queueCapacity + parallelism) × batchSize，与语料规模无关；
+ * 4、任一阶段抛出异常时取消整条流水线，{@link #run} 抛出 IllegalStateException；
+ * 5、统计中的 token 数不再由每个阶段重新编码：文档元数据中有 token_count（切分阶段记录）时直接使用，否则按字符数估算。
+ * 各阶段的大部分时间都在等待 IO（模型接口、向量库），worker 使用虚拟线程。
+ * </p>
+ * @Date 2025/6/29 10:40
+ * @Created by glmapper
+ */
+public class IngestionPipeline {
+
+    public static final String READ_STAGE = "read";
+
+    private static final long POLL_MILLIS = 100;
+
+    /**
+     * 结束标记，按引用比较
+     */
+    private static final List<Document> END = new ArrayList<>(0);
+
+    private final List<Stage> stages;
+
+    private final int queueCapacity;
+
+    private IngestionPipeline(Builder builder) {
+        this.stages = List.copyOf(builder.stages);
+        this.queueCapacity = builder.queueCapacity;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * 执行一次入库，阻塞到所有文档处理完成
+     *
+     * @param source 文档来源，只会在读取线程上被访问
+     */
+    public IngestionReport run(Iterator<Document> source) {
+        Assert.notNull(source, "source cannot be null");
+        return new Run().execute(source);
+    }
+
+    private record Stage(String name, int parallelism, int batchSize, Function<List<Document>, List<Document>> function) {
+    }
+
+    private final class Run {
+
+        private final List<BlockingQueue<List<Document>>> queues = new ArrayList<>(stages.size());
+
+        private final List<Stats> stats = new ArrayList<>(stages.size() + 1);
+
+        private final List<AtomicInteger> remaining = new ArrayList<>(stages.size());
+
+        private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        private volatile boolean cancelled;
+
+        Run() {
+            this.stats.add(new Stats(READ_STAGE, 1));
+            for (Stage stage : stages) {
+                this.queues.add(new ArrayBlockingQueue<>(queueCapacity));
+                this.stats.add(new Stats(stage.name(), stage.parallelism()));
+                this.remaining.add(new AtomicInteger(stage.parallelism()));
+            }
+        }
+
+        IngestionReport execute(Iterator<Document> source) {
+            long start = System.nanoTime();
+            List<Thread> threads = new ArrayList<>();
+            threads.add(Thread.ofVirtual().name("ingest-" + READ_STAGE).start(() -> read(source)));
+            for (int i = 0; i < stages.size(); i++) {
+                Stage stage = stages.get(i);
+                int index = i;
+                for (int worker = 0; worker < stage.parallelism(); worker++) {
+                    threads.add(Thread.ofVirtual().name("ingest-" + stage.name() + "-" + worker).start(() -> work(index)));
+                }
+            }
+            try {
+                for (Thread thread : threads) {
+                    thread.join();
+                }
+            } catch (InterruptedException e) {
+                this.cancelled = true;
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for the ingestion pipeline", e);
+            }
+            if (this.failure.get() != null) {
+                throw new IllegalStateException("Ingestion pipeline failed", this.failure.get());
+            }
+            List<StageReport> reports = new ArrayList<>(this.stats.size());
+            for (Stats stageStats : this.stats) {
+                reports.add(stageStats.report());
+            }
+            return new IngestionReport(List.copyOf(reports), System.nanoTime() - start);
+        }
+
+        private void read(Iterator<Document> source) {
+            Stats readStats = this.stats.get(0);
+            int batchSize = stages.get(0).batchSize();
+            try {
+                List<Document> batch = new ArrayList<>(batchSize);
+                long start = System.nanoTime();
+                while (!this.cancelled && source.hasNext()) {
+                    batch.add(source.next());
+                    if (batch.size() == batchSize) {
+                        readStats.record(batch, batch, start, System.nanoTime());
+                        if (!put(0, batch)) {
+                            return;
+                        }
+                        batch = new ArrayList<>(batchSize);
+                        start = System.nanoTime();
+                    }
+                }
+                if (!batch.isEmpty()) {
+                    readStats.record(batch, batch, start, System.nanoTime());
+                    put(0, batch);
+                }
+            } catch (Throwable e) {
+                fail(e);
+            } finally {
+                end(0);
+            }
+        }
+
+        private void work(int index) {
+            Stage stage = stages.get(index);
+            Stats stageStats = this.stats.get(index + 1);
+            try {
+                while (true) {
+                    List<Document> batch = take(index);
+                    if (batch == null || batch == END) {
+                        return;
+                    }
+                    long start = System.nanoTime();
+                    List<Document> output = stage.function().apply(batch);
+                    stageStats.record(batch, output, start, System.nanoTime());
+                    if (index + 1 < stages.size() && output != null && !output.isEmpty() && !emit(index + 1, output)) {
+                        return;
+                    }
+                }
+            } catch (Throwable e) {
+                fail(e);
+            } finally {
+                // 最后一个退出的 worker 通知下一阶段的所有 worker 结束
+                if (this.remaining.get(index).decrementAndGet() == 0 && index + 1 < stages.size()) {
+                    end(index + 1);
+                }
+            }
+        }
+
+        private boolean emit(int index, List<Document> documents) throws InterruptedException {
+            int batchSize = stages.get(index).batchSize();
+            for (int from = 0; from < documents.size(); from += batchSize) {
+                List<Document> batch = new ArrayList<>(documents.subList(from, Math.min(from + batchSize, documents.size())));
+                if (!put(index, batch)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void end(int index) {
+            try {
+                for (int i = 0; i < stages.get(index).parallelism(); i++) {
+                    if (!put(index, END)) {
+                        return;
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                fail(e);
+            }
+        }
+
+        /**
+         * @return 流水线被取消时返回 false
+         */
+        private boolean put(int index, List<Document> batch) throws InterruptedException {
+            BlockingQueue<List<Document>> queue = this.queues.get(index);
+            while (!this.cancelled) {
+                if (queue.offer(batch, POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * @return 流水线被取消时返回 null
+         */
+        private List<Document> take(int index) throws InterruptedException {
+            BlockingQueue<List<Document>> queue = this.queues.get(index);
+            while (!this.cancelled) {
+                List<Document> batch = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (batch != null) {
+                    return batch;
+                }
+            }
+            return null;
+        }
+
+        private void fail(Throwable e) {
+            if (!this.failure.compareAndSet(null, e)) {
+                this.failure.get().addSuppressed(e);
+            }
+            this.cancelled = true;
+        }
+    }
+
+    /**
+     * 优先使用切分阶段记录的 token 数；没有时按字符估算：ASCII 字符约 4 个一个 token，其他字符（中文等）约一个字符一个 token
+     */
+    static long tokens(Document document) {
+        if (document.getMetadata().get(DocTokenTextSplitter.METADATA_TOKEN_COUNT) instanceof Number count) {
+            return count.longValue();
+        }
+        String text = document.getText();
+        if (text == null) {
+            return 0;
+        }
+        int ascii = 0;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) < 0x80) {
+                ascii++;
+            }
+        }
+        return (ascii + 3) / 4 + text.length() - ascii;
+    }
+
+    private static final class Stats {
+
+        private final String name;
+
+        private final int parallelism;
+
+        private final LongAdder batches = new LongAdder();
+
+        private final LongAdder docsIn = new LongAdder();
+
+        private final LongAdder docsOut = new LongAdder();
+
+        private final LongAdder tokensIn = new LongAdder();
+
+        private final LongAdder busyNanos = new LongAdder();
+
+        private final AtomicLong firstStart = new AtomicLong(Long.MAX_VALUE);
+
+        private final AtomicLong lastEnd = new AtomicLong(Long.MIN_VALUE);
+
+        Stats(String name, int parallelism) {
+            this.name = name;
+            this.parallelism = parallelism;
+        }
+
+        void record(List<Document> input, List<Document> output, long start, long end) {
+            this.batches.increment();
+            this.docsIn.add(input.size());
+            this.docsOut.add(output == null ? 0 : output.size());
+            this.busyNanos.add(end - start);
+            this.firstStart.accumulateAndGet(start, Math::min);
+            this.lastEnd.accumulateAndGet(end, Math::max);
+            long tokens = 0;
+            for (Document document : input) {
+                tokens += tokens(document);
+            }
+            this.tokensIn.add(tokens);
+        }
+
+        StageReport report() {
+            long wall = this.batches.sum() == 0 ? 0 : this.lastEnd.get() - this.firstStart.get();
+            return new StageReport(this.name, this.parallelism, this.batches.sum(), this.docsIn.sum(), this.docsOut.sum(),
+                    this.tokensIn.sum(), this.busyNanos.sum(), wall);
+        }
+    }
+
+    public static final class Builder {
+
+        private final List<Stage> stages = new ArrayList<>();
+
+        private int queueCapacity = 4;
+
+        private Builder() {
+        }
+
+        /**
+         * 添加一个处理阶段，阶段按添加顺序连接
+         *
+         * @param name        阶段名称，用于统计与线程名
+         * @param parallelism 该阶段的 worker 数
+         * @param batchSize   每次交给阶段函数的最大文档数
+         * @param function    阶段函数，返回的文档交给下一阶段
+         */
+        public Builder stage(String name, int parallelism, int batchSize, Function<List<Document>, List<Document>> function) {
+            Assert.hasText(name, "name cannot be null or empty");
+            Assert.isTrue(!READ_STAGE.equals(name) && this.stages.stream().noneMatch(stage -> stage.name().equals(name)),
+                    "duplicate stage name: " + name);
+            Assert.isTrue(parallelism > 0, "parallelism must be greater than 0");
+            Assert.isTrue(batchSize > 0, "batchSize must be greater than 0");
+            Assert.notNull(function, "function cannot be null");
+            this.stages.add(new Stage(name, parallelism, batchSize, function));
+            return this;
+        }
+
+        /**
+         * 添加最后一个阶段，例如写入向量库
+         */
+        public Builder sink(String name, int parallelism, int batchSize, Consumer<List<Document>> consumer) {
+            Assert.notNull(consumer, "consumer cannot be null");
+            return stage(name, parallelism, batchSize, batch -> {
+                consumer.accept(batch);
+                return List.of();
+            });
+        }
+
+        /**
+         * 每个阶段输入队列能容纳的批数
+         */
+        public Builder queueCapacity(int queueCapacity) {
+            Assert.isTrue(queueCapacity > 0, "queueCapacity must be greater than 0");
+            this.queueCapacity = queueCapacity;
+            return this;
+        }
+
+        public IngestionPipeline build() {
+            Assert.notEmpty(this.stages, "at least one stage is required");
+            return new IngestionPipeline(this);
+        }
+    }
+}
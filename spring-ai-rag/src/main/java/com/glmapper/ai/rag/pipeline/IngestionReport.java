@@ -0,0 +1,28 @@
+package com.glmapper.ai.rag.pipeline;
+
+import java.util.List;
+
+/**
+ * @Classname IngestionReport
+ * @Description 一次入库的统计，stages 的第一个元素是读取阶段
+ * @Date 2025/6/29 10:25
+ * @Created by glmapper
+ */
+public record IngestionReport(List<StageReport> stages, long wallNanos) {
+
+    public StageReport stage(String name) {
+        return this.stages.stream()
+                .filter(stage -> stage.name().equals(name))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Unknown stage: " + name));
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder(String.format("ingestion finished in %d ms", this.wallNanos / 1_000_000));
+        for (StageReport stage : this.stages) {
+            builder.append(System.lineSeparator()).append("  ").append(stage);
+        }
+        return builder.toString();
+    }
+}
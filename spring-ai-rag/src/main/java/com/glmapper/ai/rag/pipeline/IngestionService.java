@@ -0,0 +1,76 @@
+package com.glmapper.ai.rag.pipeline;
+
+import com.glmapper.ai.rag.transformers.DocEnricher;
+import com.glmapper.ai.rag.transformers.DocTokenTextSplitter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+
+/**
+ * @Classname IngestionService
+ * @Description 读取 → 切分 → 丰富元数据 → 写入向量库
+ * <p>
+ * VectorStore.add 内部先调用 EmbeddingModel 再写入，embedding 与写入无法拆成两个阶段，因此合并为 store 阶段。
+ * 丰富元数据每批文档调用一次大模型，同一批内相邻文档的摘要互相复用，默认关闭。
+ * 切分阶段在 chunk 的元数据中记录 token 数，后续阶段的统计直接使用，不再重新编码。
+ * </p>
+ * @Date 2025/6/29 11:30
+ * @Created by glmapper
+ */
+@Slf4j
+@Component
+public class IngestionService {
+
+    @Autowired
+    private DocTokenTextSplitter docTokenTextSplitter;
+
+    @Autowired
+    private DocEnricher docEnricher;
+
+    @Autowired
+    private VectorStore vectorStore;
+
+    @Value("${rag.ingest.queue-capacity:4}")
+    private int queueCapacity;
+
+    @Value("${rag.ingest.split.parallelism:2}")
+    private int splitParallelism;
+
+    @Value("${rag.ingest.split.batch-size:16}")
+    private int splitBatchSize;
+
+    @Value("${rag.ingest.enrich.enabled:false}")
+    private boolean enrichEnabled;
+
+    @Value("${rag.ingest.enrich.parallelism:8}")
+    private int enrichParallelism;
+
+    @Value("${rag.ingest.enrich.batch-size:8}")
+    private int enrichBatchSize;
+
+    @Value("${rag.ingest.store.parallelism:4}")
+    private int storeParallelism;
+
+    @Value("${rag.ingest.store.batch-size:32}")
+    private int storeBatchSize;
+
+    public IngestionReport ingest(Iterator<Document> source) {
+        IngestionPipeline.Builder builder = IngestionPipeline.builder()
+                .queueCapacity(this.queueCapacity)
+                .stage("split", this.splitParallelism, this.splitBatchSize, this.docTokenTextSplitter::splitAndCount);
+        if (this.enrichEnabled) {
+            builder.stage("enrich", this.enrichParallelism, this.enrichBatchSize, this.docEnricher::enrich);
+        }
+        IngestionReport report = builder
+                .sink("store", this.storeParallelism, this.storeBatchSize, this.vectorStore::add)
+                .build()
+                .run(source);
+        log.info("{}", report);
+        return report;
+    }
+}
@@ -0,0 +1,39 @@
+package com.glmapper.ai.rag.pipeline;
+
+/**
+ * @Classname StageReport
+ * @Description 入库流水线中单个阶段的统计
+ * <p>
+ * docsIn / tokensIn 是该阶段处理的输入，docsOut 是交给下一阶段的输出（切分阶段会变多，写入阶段为 0）。
+ * 切分之后的阶段 tokensIn 是切分时记录的准确值，切分阶段本身的 tokensIn 按字符数估算。
+ * busyNanos 是所有 worker 执行阶段函数的耗时之和，wallNanos 是该阶段从处理第一批到处理完最后一批的时长，
+ * busyNanos / wallNanos 接近 parallelism 说明该阶段一直满负荷，是整条流水线的瓶颈。
+ * </p>
+ * @Date 2025/6/29 10:20
+ * @Created by glmapper
+ */
+public record StageReport(String name, int parallelism, long batches, long docsIn, long docsOut, long tokensIn,
+                          long busyNanos, long wallNanos) {
+
+    public double docsPerSecond() {
+        return this.wallNanos == 0 ? 0 : this.docsIn * 1e9 / this.wallNanos;
+    }
+
+    public double tokensPerSecond() {
+        return this.wallNanos == 0 ? 0 : this.tokensIn * 1e9 / this.wallNanos;
+    }
+
+    /**
+     * 平均同时在工作的 worker 数
+     */
+    public double utilization() {
+        return this.wallNanos == 0 ? 0 : (double) this.busyNanos / this.wallNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%-8s x%-3d batches=%d docs=%d->%d tokens=%d %.1f docs/s %.0f tokens/s busy=%.2f",
+                this.name, this.parallelism, this.batches, this.docsIn, this.docsOut, this.tokensIn,
+                docsPerSecond(), tokensPerSecond(), utilization());
+    }
+}
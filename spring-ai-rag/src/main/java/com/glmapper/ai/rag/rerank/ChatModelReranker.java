@@ -0,0 +1,100 @@
+package com.glmapper.ai.rag.rerank;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.chat.prompt.PromptTemplate;
+import org.springframework.ai.converter.BeanOutputConverter;
+import org.springframework.ai.document.Document;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.util.Assert;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @Classname ChatModelReranker
+ * @Description 由大模型一次性为所有候选打分的重排
+ * <p>
+ * 候选按编号放进同一个 Prompt，每段最多 maxPassageChars 个字符，要求模型为每段给出 0 到 10 的相关度；
+ * 按分数从高到低返回，模型漏掉的候选按原来的顺序排在最后。
+ * </p>
+ * @Date 2025/7/10 10:40
+ * @Created by glmapper
+ */
+@Slf4j
+public class ChatModelReranker implements Reranker {
+
+    private static final String TEMPLATE = """
+            Rate how relevant each numbered passage is for answering the question,
+            from 0 (irrelevant) to 10 (directly answers it).
+            Return one item per passage and set "index" to the passage number.
+            {format}
+
+            Question: {query}
+
+            {passages}
+            """;
+
+    private final ChatModel chatModel;
+
+    private final int maxPassageChars;
+
+    private final BeanOutputConverter<List<PassageScore>> converter =
+            new BeanOutputConverter<>(new ParameterizedTypeReference<List<PassageScore>>() {
+            });
+
+    /**
+     * @param maxPassageChars 每个候选放进 Prompt 的最大字符数
+     */
+    public ChatModelReranker(ChatModel chatModel, int maxPassageChars) {
+        Assert.notNull(chatModel, "chatModel cannot be null");
+        Assert.isTrue(maxPassageChars > 0, "maxPassageChars must be greater than 0");
+        this.chatModel = chatModel;
+        this.maxPassageChars = maxPassageChars;
+    }
+
+    @Override
+    public List<Document> rerank(String query, List<Document> candidates) {
+        if (candidates.size() < 2) {
+            return candidates;
+        }
+        StringBuilder passages = new StringBuilder();
+        for (int i = 0; i < candidates.size(); i++) {
+            String text = String.valueOf(candidates.get(i).getText());
+            passages.append('[').append(i + 1).append("]\n")
+                    .append(text, 0, Math.min(text.length(), this.maxPassageChars)).append("\n\n");
+        }
+        Prompt prompt = new PromptTemplate(TEMPLATE).create(Map.of(
+                "format", this.converter.getFormat(),
+                "query", query,
+                "passages", passages.toString().strip()));
+        List<PassageScore> scores = this.converter.convert(this.chatModel.call(prompt).getResult().getOutput().getText());
+
+        double[] byIndex = new double[candidates.size()];
+        Arrays.fill(byIndex, Double.NEGATIVE_INFINITY);
+        if (scores != null) {
+            for (PassageScore score : scores) {
+                if (score.index() >= 1 && score.index() <= candidates.size()) {
+                    byIndex[score.index() - 1] = score.score();
+                }
+            }
+        }
+        List<Integer> order = new ArrayList<>(candidates.size());
+        for (int i = 0; i < candidates.size(); i++) {
+            order.add(i);
+        }
+        // 稳定排序，分数相同或缺失时保持原来的顺序
+        order.sort(Comparator.comparingDouble((Integer i) -> byIndex[i]).reversed());
+        return order.stream().map(candidates::get).toList();
+    }
+
+    /**
+     * 大模型返回的一项，index 从 1 开始
+     */
+    record PassageScore(int index, double score) {
+    }
+}
@@ -0,0 +1,87 @@
+package com.glmapper.ai.rag.rerank;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import org.springframework.ai.document.Document;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+import org.springframework.web.client.RestClient;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @Classname RemoteReranker
+ * @Description 调用 cross-encoder 重排服务
+ * <p>
+ * 请求与响应使用 Cohere、Jina、阿里云百炼兼容模式、Xinference 等通用的 /rerank 格式：
+ * 请求 {"model", "query", "documents", "top_n"}，响应 {"results": [{"index", "relevance_score"}]}，results 按相关度从高到低排列。
+ * </p>
+ * @Date 2025/7/10 11:00
+ * @Created by glmapper
+ */
+public class RemoteReranker implements Reranker {
+
+    private final RestClient restClient;
+
+    private final String model;
+
+    /**
+     * @param endpoint 完整的重排接口地址，例如 https://api.jina.ai/v1/rerank
+     * @param apiKey   为空时不带 Authorization 请求头
+     */
+    public RemoteReranker(RestClient.Builder builder, String endpoint, String apiKey, String model) {
+        Assert.hasText(endpoint, "endpoint cannot be empty");
+        Assert.hasText(model, "model cannot be empty");
+        builder.baseUrl(endpoint).defaultHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE);
+        if (StringUtils.hasText(apiKey)) {
+            builder.defaultHeader(HttpHeaders.AUTHORIZATION, "Bearer " + apiKey);
+        }
+        this.restClient = builder.build();
+        this.model = model;
+    }
+
+    @Override
+    public List<Document> rerank(String query, List<Document> candidates) {
+        if (candidates.size() < 2) {
+            return candidates;
+        }
+        List<String> texts = candidates.stream().map(document -> String.valueOf(document.getText())).toList();
+        RerankResponse response = this.restClient.post()
+                .body(new RerankRequest(this.model, query, texts, candidates.size()))
+                .retrieve()
+                .body(RerankResponse.class);
+        if (response == null || response.results() == null) {
+            return candidates;
+        }
+        List<Document> reranked = new ArrayList<>(candidates.size());
+        boolean[] seen = new boolean[candidates.size()];
+        for (RerankResult result : response.results()) {
+            if (result.index() >= 0 && result.index() < candidates.size() && !seen[result.index()]) {
+                seen[result.index()] = true;
+                reranked.add(candidates.get(result.index()));
+            }
+        }
+        // 服务没有返回的候选按原来的顺序排在最后
+        for (int i = 0; i < candidates.size(); i++) {
+            if (!seen[i]) {
+                reranked.add(candidates.get(i));
+            }
+        }
+        return reranked;
+    }
+
+    record RerankRequest(String model, String query, List<String> documents,
+                         @JsonProperty("top_n") int topN) {
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    record RerankResponse(List<RerankResult> results) {
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    record RerankResult(int index, @JsonProperty("relevance_score") double relevanceScore) {
+    }
+}
@@ -0,0 +1,119 @@
+package com.glmapper.ai.rag.rerank;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.document.Document;
+import org.springframework.util.Assert;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * @Classname RerankCascade
+ * @Description 先廉价、后昂贵的多级重排
+ * <p>
+ * 检索阶段多召回一些候选（例如 50 个），依次经过各个阶段：每个阶段最多接收 maxCandidates 个候选，重排后保留前 keep 个交给下一阶段。
+ * 通常第一阶段是本地的 LexicalReranker，只有它筛选出的少量候选才交给大模型或 cross-encoder 服务。
+ * 阶段超过 timeout 或者失败时，沿用上一阶段的顺序截取前 keep 个，不影响本次请求。
+ * 每个阶段记录 rag.rerank.latency（耗时）、rag.rerank.candidates（输入的候选数）与 rag.rerank.fallbacks（超时或失败次数），以 stage 区分。
+ * </p>
+ * @Date 2025/7/10 11:30
+ * @Created by glmapper
+ */
+@Slf4j
+public class RerankCascade implements AutoCloseable {
+
+    private final List<StageMeters> stages;
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    public RerankCascade(List<Stage> stages, MeterRegistry registry) {
+        Assert.notNull(stages, "stages cannot be null");
+        Assert.noNullElements(stages, "stages cannot contain null elements");
+        Assert.notNull(registry, "registry cannot be null");
+        List<StageMeters> meters = new ArrayList<>(stages.size());
+        for (Stage stage : stages) {
+            meters.add(new StageMeters(stage,
+                    Timer.builder("rag.rerank.latency")
+                            .description("Latency of a rerank stage")
+                            .tag("stage", stage.name())
+                            .register(registry),
+                    DistributionSummary.builder("rag.rerank.candidates")
+                            .description("Candidates passed into a rerank stage")
+                            .tag("stage", stage.name())
+                            .register(registry),
+                    Counter.builder("rag.rerank.fallbacks")
+                            .description("Rerank stages that timed out or failed")
+                            .tag("stage", stage.name())
+                            .register(registry)));
+        }
+        this.stages = List.copyOf(meters);
+    }
+
+    /**
+     * @param candidates 检索阶段按相关度从高到低排列的候选
+     */
+    public List<Document> rerank(String query, List<Document> candidates) {
+        List<Document> current = candidates;
+        for (StageMeters meters : this.stages) {
+            Stage stage = meters.stage();
+            List<Document> input = current.subList(0, Math.min(current.size(), stage.maxCandidates()));
+            meters.candidates().record(input.size());
+            List<Document> output = input;
+            long start = System.nanoTime();
+            Future<List<Document>> future = this.executor.submit(() -> stage.reranker().rerank(query, input));
+            try {
+                output = future.get(stage.timeout().toNanos(), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                future.cancel(true);
+                meters.fallbacks().increment();
+                log.warn("rerank stage {} timed out after {}", stage.name(), stage.timeout());
+            } catch (ExecutionException e) {
+                meters.fallbacks().increment();
+                log.warn("rerank stage {} failed: {}", stage.name(), e.getCause().getMessage());
+            } catch (InterruptedException e) {
+                future.cancel(true);
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while reranking", e);
+            } finally {
+                meters.latency().record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+            current = output.subList(0, Math.min(output.size(), stage.keep()));
+        }
+        return current;
+    }
+
+    @Override
+    public void close() {
+        this.executor.shutdownNow();
+    }
+
+    /**
+     * @param maxCandidates 本阶段最多接收的候选数
+     * @param keep          本阶段保留、交给下一阶段的候选数
+     * @param timeout       本阶段的耗时上限
+     */
+    public record Stage(String name, Reranker reranker, int maxCandidates, int keep, Duration timeout) {
+
+        public Stage {
+            Assert.hasText(name, "name cannot be empty");
+            Assert.notNull(reranker, "reranker cannot be null");
+            Assert.isTrue(maxCandidates > 0, "maxCandidates must be greater than 0");
+            Assert.isTrue(keep > 0, "keep must be greater than 0");
+            Assert.notNull(timeout, "timeout cannot be null");
+        }
+    }
+
+    private record StageMeters(Stage stage, Timer latency, DistributionSummary candidates, Counter fallbacks) {
+    }
+}
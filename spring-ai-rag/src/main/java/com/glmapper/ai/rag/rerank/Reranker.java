@@ -0,0 +1,20 @@
+package com.glmapper.ai.rag.rerank;
+
+import org.springframework.ai.document.Document;
+
+import java.util.List;
+
+/**
+ * @Classname Reranker
+ * @Description 对候选文档重新排序
+ * @Date 2025/7/10 10:10
+ * @Created by glmapper
+ */
+public interface Reranker {
+
+    /**
+     * @param candidates 按上一阶段的相关度从高到低排列
+     * @return 按本阶段的相关度从高到低排列，可以只返回一部分
+     */
+    List<Document> rerank(String query, List<Document> candidates);
+}
@@ -0,0 +1,434 @@
+package com.glmapper.ai.rag.retrieval;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.document.Document;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * @Classname Bm25Index
+ * @Description 进程内的 BM25 倒排索引
+ * <p>
+ * 1、英文、数字按单词切分，带有 . - _ / 的标识符（版本号、模型名、类名等）同时保留完整的形式；中日韩文字按单字与相邻两字切分；
+ * 2、写入与删除持有写锁，查询持有读锁；删除或被替换的文档先标记，标记的数量超过存活文档数时整体重建；
+ * 3、指定文件时，每次写入与删除追加一行 JSON，启动时回放恢复索引；
+ * 4、替换同一 id 与删除都会在日志中留下失效的记录，日志行数超过存活文档数的两倍时（启动时或写入后）压缩重写文件，文件大小与存活文档数成正比。
+ * </p>
+ * @Date 2025/7/6 10:10
+ * @Created by glmapper
+ */
+@Slf4j
+public class Bm25Index implements AutoCloseable {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private static final double K1 = 1.2;
+
+    private static final double B = 0.75;
+
+    private final Path file;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<String, Integer> ordinals = new HashMap<>();
+
+    private final List<Document> documents = new ArrayList<>();
+
+    private final List<Integer> lengths = new ArrayList<>();
+
+    private final Map<String, Postings> postings = new HashMap<>();
+
+    private long totalLength;
+
+    private int deleted;
+
+    /**
+     * 日志文件的行数，包括已经失效的记录
+     */
+    private long logLines;
+
+    private BufferedWriter writer;
+
+    private Bm25Index(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * 只在内存中的索引，重启后为空
+     */
+    public static Bm25Index inMemory() {
+        return new Bm25Index(null);
+    }
+
+    /**
+     * @param file 追加写入的日志文件，不存在时创建
+     */
+    public static Bm25Index open(Path file) {
+        Bm25Index index = new Bm25Index(file);
+        try {
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            if (Files.exists(file)) {
+                try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        if (!line.isBlank()) {
+                            index.replay(OBJECT_MAPPER.readValue(line, new TypeReference<Map<String, Object>>() {
+                            }));
+                            index.logLines++;
+                        }
+                    }
+                }
+            }
+            long lines = index.logLines;
+            if (index.logLines > 2L * index.size()) {
+                index.rewrite();
+            }
+            index.writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            log.info("bm25 index loaded {} documents from {} lines in {}", index.size(), lines, file);
+            return index;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open bm25 index " + file, e);
+        }
+    }
+
+    /**
+     * 写入文档，id 已经存在时替换
+     */
+    public void add(Collection<Document> documents) {
+        this.lock.writeLock().lock();
+        try {
+            for (Document document : documents) {
+                addInternal(document);
+                append(Map.of("op", "add", "id", document.getId(), "text", String.valueOf(document.getText()),
+                        "metadata", document.getMetadata()));
+            }
+            flush();
+            compact();
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    public void delete(Collection<String> ids) {
+        this.lock.writeLock().lock();
+        try {
+            for (String id : ids) {
+                if (deleteInternal(id)) {
+                    append(Map.of("op", "delete", "id", id));
+                }
+            }
+            flush();
+            compact();
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return 按 BM25 分数从高到低排列的文档
+     */
+    public List<Hit> search(String query, int topK) {
+        Set<String> terms = new LinkedHashSet<>(tokenize(query));
+        this.lock.readLock().lock();
+        try {
+            int size = size();
+            if (size == 0 || terms.isEmpty()) {
+                return List.of();
+            }
+            double averageLength = (double) this.totalLength / size;
+            double queryIdf = 0;
+            // ordinal → {BM25 分数, 命中的查询词 idf 之和}
+            Map<Integer, double[]> scores = new HashMap<>();
+            for (String term : terms) {
+                Postings termPostings = this.postings.get(term);
+                int df = termPostings == null ? 0 : termPostings.df;
+                double idf = Math.log(1 + (size - df + 0.5) / (df + 0.5));
+                queryIdf += idf;
+                if (df == 0) {
+                    continue;
+                }
+                for (int i = 0; i < termPostings.size; i++) {
+                    int ordinal = termPostings.documents[i];
+                    if (this.documents.get(ordinal) == null) {
+                        continue;
+                    }
+                    int tf = termPostings.frequencies[i];
+                    double norm = K1 * (1 - B + B * this.lengths.get(ordinal) / averageLength);
+                    double[] score = scores.computeIfAbsent(ordinal, o -> new double[2]);
+                    score[0] += idf * tf * (K1 + 1) / (tf + norm);
+                    score[1] += idf;
+                }
+            }
+            PriorityQueue<Map.Entry<Integer, double[]>> top = new PriorityQueue<>((a, b) -> Double.compare(a.getValue()[0], b.getValue()[0]));
+            for (Map.Entry<Integer, double[]> entry : scores.entrySet()) {
+                top.offer(entry);
+                if (top.size() > topK) {
+                    top.poll();
+                }
+            }
+            Hit[] hits = new Hit[top.size()];
+            for (int i = hits.length - 1; i >= 0; i--) {
+                Map.Entry<Integer, double[]> entry = top.poll();
+                hits[i] = new Hit(this.documents.get(entry.getKey()), entry.getValue()[0], entry.getValue()[1] / queryIdf);
+            }
+            return Arrays.asList(hits);
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        return this.ordinals.size();
+    }
+
+    @Override
+    public void close() {
+        this.lock.writeLock().lock();
+        try {
+            if (this.writer != null) {
+                this.writer.close();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 小写化后切分：字母数字组成单词，单词之间以 . - _ / 相连时额外保留整个标识符；中日韩文字输出单字与相邻两字
+     */
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        String lower = text.toLowerCase(Locale.ROOT);
+        int i = 0;
+        while (i < lower.length()) {
+            int codePoint = lower.codePointAt(i);
+            if (isCjk(codePoint)) {
+                int start = i;
+                int previous = -1;
+                while (i < lower.length() && isCjk(lower.codePointAt(i))) {
+                    int current = lower.codePointAt(i);
+                    tokens.add(new String(Character.toChars(current)));
+                    if (previous != -1) {
+                        tokens.add(new String(Character.toChars(previous)) + new String(Character.toChars(current)));
+                    }
+                    previous = current;
+                    i += Character.charCount(current);
+                }
+                if (i == start) {
+                    i++;
+                }
+            } else if (Character.isLetterOrDigit(codePoint)) {
+                int start = i;
+                int wordStart = i;
+                int parts = 0;
+                while (i < lower.length()) {
+                    int current = lower.codePointAt(i);
+                    if (Character.isLetterOrDigit(current) && !isCjk(current)) {
+                        i += Character.charCount(current);
+                    } else if (isConnector(current) && i + 1 < lower.length()
+                            && Character.isLetterOrDigit(lower.codePointAt(i + 1)) && !isCjk(lower.codePointAt(i + 1))) {
+                        tokens.add(lower.substring(wordStart, i));
+                        parts++;
+                        i++;
+                        wordStart = i;
+                    } else {
+                        break;
+                    }
+                }
+                tokens.add(lower.substring(wordStart, i));
+                if (parts > 0) {
+                    tokens.add(lower.substring(start, i));
+                }
+            } else {
+                i += Character.charCount(codePoint);
+            }
+        }
+        return tokens;
+    }
+
+    private static boolean isCjk(int codePoint) {
+        Character.UnicodeScript script = Character.UnicodeScript.of(codePoint);
+        return script == Character.UnicodeScript.HAN || script == Character.UnicodeScript.HIRAGANA
+                || script == Character.UnicodeScript.KATAKANA || script == Character.UnicodeScript.HANGUL;
+    }
+
+    private static boolean isConnector(int codePoint) {
+        return codePoint == '.' || codePoint == '-' || codePoint == '_' || codePoint == '/';
+    }
+
+    private void addInternal(Document document) {
+        deleteInternal(document.getId());
+        int ordinal = this.documents.size();
+        this.documents.add(document);
+        this.ordinals.put(document.getId(), ordinal);
+        List<String> tokens = tokenize(document.getText());
+        this.lengths.add(tokens.size());
+        this.totalLength += tokens.size();
+        Map<String, Integer> frequencies = new LinkedHashMap<>();
+        for (String token : tokens) {
+            frequencies.merge(token, 1, Integer::sum);
+        }
+        frequencies.forEach((term, frequency) -> this.postings.computeIfAbsent(term, t -> new Postings()).add(ordinal, frequency));
+    }
+
+    private boolean deleteInternal(String id) {
+        Integer ordinal = this.ordinals.remove(id);
+        if (ordinal == null) {
+            return false;
+        }
+        Document document = this.documents.set(ordinal, null);
+        this.totalLength -= this.lengths.get(ordinal);
+        for (String term : new HashSet<>(tokenize(document.getText()))) {
+            this.postings.get(term).df--;
+        }
+        this.deleted++;
+        return true;
+    }
+
+    /**
+     * 丢弃已删除的文档，重新编号
+     */
+    private void rebuild() {
+        List<Document> live = this.documents.stream().filter(document -> document != null).toList();
+        this.ordinals.clear();
+        this.documents.clear();
+        this.lengths.clear();
+        this.postings.clear();
+        this.totalLength = 0;
+        this.deleted = 0;
+        live.forEach(this::addInternal);
+    }
+
+    /**
+     * 有日志文件时，日志中失效的记录超过存活文档数就重写文件（同时重建内存中的索引）；
+     * 只在内存中时，标记删除的文档超过存活文档数就重建索引。
+     * 每个被标记的文档在日志中至少留下一行失效的记录，两个条件在有日志文件时是一致的
+     */
+    private void compact() {
+        if (this.writer != null && this.logLines > 2L * size()) {
+            try {
+                this.writer.close();
+                rewrite();
+                this.writer = Files.newBufferedWriter(this.file, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+                        StandardOpenOption.APPEND);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to compact bm25 index " + this.file, e);
+            }
+        } else if (this.deleted > size()) {
+            rebuild();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void replay(Map<String, Object> entry) {
+        String id = (String) entry.get("id");
+        if ("delete".equals(entry.get("op"))) {
+            deleteInternal(id);
+            return;
+        }
+        addInternal(Document.builder().id(id).text((String) entry.get("text"))
+                .metadata((Map<String, Object>) entry.get("metadata")).build());
+    }
+
+    /**
+     * 只保留存活的文档，先写临时文件再原子替换
+     */
+    private void rewrite() throws IOException {
+        rebuild();
+        Path temp = this.file.resolveSibling(this.file.getFileName() + ".tmp");
+        try (BufferedWriter out = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            for (Document document : this.documents) {
+                out.write(OBJECT_MAPPER.writeValueAsString(Map.of("op", "add", "id", document.getId(),
+                        "text", String.valueOf(document.getText()), "metadata", document.getMetadata())));
+                out.newLine();
+            }
+        }
+        Files.move(temp, this.file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        this.logLines = this.documents.size();
+    }
+
+    private void append(Map<String, Object> entry) {
+        if (this.writer == null) {
+            return;
+        }
+        try {
+            this.writer.write(OBJECT_MAPPER.writeValueAsString(entry));
+            this.writer.newLine();
+            this.logLines++;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write bm25 index " + this.file, e);
+        }
+    }
+
+    private void flush() {
+        if (this.writer == null) {
+            return;
+        }
+        try {
+            this.writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write bm25 index " + this.file, e);
+        }
+    }
+
+    /**
+     * @param coverage 文档命中的查询词 idf 之和占全部查询词 idf 之和的比例，1 表示包含了所有查询词
+     */
+    public record Hit(Document document, double score, double coverage) {
+    }
+
+    /**
+     * 一个词的倒排列表，df 只统计存活的文档
+     */
+    private static final class Postings {
+
+        private int[] documents = new int[4];
+
+        private int[] frequencies = new int[4];
+
+        private int size;
+
+        private int df;
+
+        void add(int ordinal, int frequency) {
+            if (this.size == this.documents.length) {
+                this.documents = Arrays.copyOf(this.documents, this.size * 2);
+                this.frequencies = Arrays.copyOf(this.frequencies, this.size * 2);
+            }
+            this.documents[this.size] = ordinal;
+            this.frequencies[this.size++] = frequency;
+            this.df++;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.glmapper.ai.rag.retrieval;
+
+import org.springframework.ai.document.Document;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.ai.vectorstore.filter.Filter;
+import org.springframework.util.Assert;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * @Classname CachingVectorStore
+ * @Description 先查 RetrievalCache，未命中时才交给被包装的向量库检索
+ * <p>
+ * 命中时不需要计算查询的 embedding；未命中时由被包装的向量库计算，向量库使用带持久化缓存的 CachingEmbeddingModel，
+ * 同一段文本只会请求一次 embedding。写入、删除完成后递增缓存的版本号。
+ * </p>
+ * @Date 2025/7/7 10:40
+ * @Created by glmapper
+ */
+public class CachingVectorStore implements VectorStore {
+
+    private final VectorStore delegate;
+
+    private final RetrievalCache cache;
+
+    public CachingVectorStore(VectorStore delegate, RetrievalCache cache) {
+        Assert.notNull(delegate, "delegate cannot be null");
+        Assert.notNull(cache, "cache cannot be null");
+        this.delegate = delegate;
+        this.cache = cache;
+    }
+
+    @Override
+    public String getName() {
+        return this.delegate.getName();
+    }
+
+    @Override
+    public void add(List<Document> documents) {
+        try {
+            this.delegate.add(documents);
+        } finally {
+            this.cache.invalidate();
+        }
+    }
+
+    @Override
+    public void delete(List<String> idList) {
+        try {
+            this.delegate.delete(idList);
+        } finally {
+            this.cache.invalidate();
+        }
+    }
+
+    @Override
+    public void delete(Filter.Expression filterExpression) {
+        try {
+            this.delegate.delete(filterExpression);
+        } finally {
+            this.cache.invalidate();
+        }
+    }
+
+    @Override
+    public List<Document> similaritySearch(SearchRequest request) {
+        String filter = request.hasFilterExpression() ? String.valueOf(request.getFilterExpression()) : null;
+        return this.cache.results(request.getQuery(), request.getTopK(), request.getSimilarityThreshold(), filter,
+                () -> this.delegate.similaritySearch(request));
+    }
+
+    @Override
+    public <T> Optional<T> getNativeClient() {
+        return this.delegate.getNativeClient();
+    }
+}
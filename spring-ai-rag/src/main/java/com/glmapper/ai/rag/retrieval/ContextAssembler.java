@@ -0,0 +1,99 @@
+package com.glmapper.ai.rag.retrieval;
+
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.document.MetadataMode;
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @Classname ContextAssembler
+ * @Description 把检索到的文档拼接进 Prompt
+ * <p>
+ * 1、SYSTEM：拼接在 SystemMessage 之后，问题保持原样，聊天记忆中保存的也是原始问题；
+ * 2、USER：与 QuestionAnswerAdvisor 一样，把问题与文档按模板拼接成新的 UserMessage。
+ * 文档按 id 去重后按检索顺序排列，指定了 ContextPacker 时再由它去掉重复的内容、控制在 token 预算之内；没有检索到文档时 Prompt 保持不变。
+ * </p>
+ * @Date 2025/7/8 10:10
+ * @Created by glmapper
+ */
+public class ContextAssembler {
+
+    private static final String SYSTEM_HEADER = "Here are some relevant documents:";
+
+    private static final String USER_TEMPLATE = """
+            %s
+
+            Context information is below, surrounded by ---------------------
+
+            ---------------------
+            %s
+            ---------------------
+
+            Given the context and provided history information and not prior knowledge,
+            reply to the user comment. If the answer is not in the context, inform
+            the user that you can't answer the question.
+            """;
+
+    private final Placement placement;
+
+    private final MetadataMode metadataMode;
+
+    private final ContextPacker packer;
+
+    /**
+     * @param metadataMode 每个文档使用 getFormattedContent(metadataMode) 的内容
+     */
+    public ContextAssembler(Placement placement, MetadataMode metadataMode) {
+        this(placement, metadataMode, null);
+    }
+
+    /**
+     * @param packer 为 null 时拼接所有文档
+     */
+    public ContextAssembler(Placement placement, MetadataMode metadataMode, ContextPacker packer) {
+        Assert.notNull(placement, "placement cannot be null");
+        Assert.notNull(metadataMode, "metadataMode cannot be null");
+        this.placement = placement;
+        this.metadataMode = metadataMode;
+        this.packer = packer;
+    }
+
+    public Prompt assemble(Prompt prompt, List<Document> documents) {
+        String context = format(documents);
+        if (!StringUtils.hasText(context)) {
+            return prompt;
+        }
+        if (this.placement == Placement.USER) {
+            return prompt.augmentUserMessage(USER_TEMPLATE.formatted(prompt.getUserMessage().getText(), context));
+        }
+        String system = prompt.getSystemMessage().getText();
+        String header = SYSTEM_HEADER + "\n\n" + context;
+        return prompt.augmentSystemMessage(StringUtils.hasText(system) ? system + "\n\n" + header : header);
+    }
+
+    String format(List<Document> documents) {
+        Map<String, Document> unique = new LinkedHashMap<>();
+        documents.forEach(document -> unique.putIfAbsent(document.getId(), document));
+        List<Document> selected = List.copyOf(unique.values());
+        if (this.packer != null) {
+            selected = this.packer.pack(selected, this.metadataMode);
+        }
+        StringBuilder context = new StringBuilder();
+        for (Document document : selected) {
+            if (!context.isEmpty()) {
+                context.append('\n');
+            }
+            context.append(document.getFormattedContent(this.metadataMode));
+        }
+        return context.toString();
+    }
+
+    public enum Placement {
+        SYSTEM, USER
+    }
+}
@@ -0,0 +1,266 @@
+package com.glmapper.ai.rag.retrieval;
+
+import com.glmapper.ai.rag.transformers.FastTokenTextSplitter;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.document.MetadataMode;
+import org.springframework.ai.tokenizer.TokenCountEstimator;
+import org.springframework.util.Assert;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * @Classname ContextPacker
+ * @Description 在固定的 token 预算内挑选、合并检索到的文档
+ * <p>
+ * 1、每个文档按检索顺序得到相关度（第一名为 1，依次递减），用字符 shingle 计算两两之间的包含度；
+ * 2、按 MMR 依次挑选：lambda * 相关度 - (1 - lambda) * 与已选文档的最大包含度，与已选文档的包含度达到 duplicateThreshold 的视为重复丢弃；
+ * 3、切分时记录了 parent_document_id 与 chunk_index 的 chunk，与已选的同一文档中序号相邻的 chunk 合并成一段，按序号顺序拼接，
+ * 补上中间缺少的 chunk 后两段也合并成一段；没有位置信息的文档不合并；
+ * 4、放入后超出 tokenBudget 的文档跳过，继续尝试后面较小的文档。
+ * 输出按首次入选的顺序排列，合并后的文档使用这一段中最先入选的文档的 id 与元数据。
+ * </p>
+ * @Date 2025/7/9 10:10
+ * @Created by glmapper
+ */
+public class ContextPacker {
+
+    private static final int SHINGLE_SIZE = 5;
+
+    private static final String CHUNK_SEPARATOR = "\n";
+
+    private final TokenCountEstimator tokenCountEstimator;
+
+    private final int tokenBudget;
+
+    private final double lambda;
+
+    private final double duplicateThreshold;
+
+    /**
+     * @param tokenBudget        拼接进 Prompt 的文档 token 上限
+     * @param lambda             MMR 中相关度的权重，1 表示只看相关度
+     * @param duplicateThreshold 包含度达到该值时视为重复
+     */
+    public ContextPacker(TokenCountEstimator tokenCountEstimator, int tokenBudget, double lambda, double duplicateThreshold) {
+        Assert.notNull(tokenCountEstimator, "tokenCountEstimator cannot be null");
+        Assert.isTrue(tokenBudget > 0, "tokenBudget must be greater than 0");
+        Assert.isTrue(lambda >= 0 && lambda <= 1, "lambda must be between 0 and 1");
+        Assert.isTrue(duplicateThreshold > 0 && duplicateThreshold <= 1, "duplicateThreshold must be in (0, 1]");
+        this.tokenCountEstimator = tokenCountEstimator;
+        this.tokenBudget = tokenBudget;
+        this.lambda = lambda;
+        this.duplicateThreshold = duplicateThreshold;
+    }
+
+    /**
+     * @param documents    按相关度从高到低排列的文档
+     * @param metadataMode token 按 getFormattedContent(metadataMode) 计算
+     */
+    public List<Document> pack(List<Document> documents, MetadataMode metadataMode) {
+        int n = documents.size();
+        int[][] shingles = new int[n][];
+        for (int i = 0; i < n; i++) {
+            shingles[i] = shingles(documents.get(i).getText());
+        }
+        double[] maxSimilarity = new double[n];
+        boolean[] done = new boolean[n];
+        List<Piece> pieces = new ArrayList<>();
+        int used = 0;
+        for (int round = 0; round < n; round++) {
+            int best = -1;
+            double bestScore = Double.NEGATIVE_INFINITY;
+            for (int i = 0; i < n; i++) {
+                if (done[i]) {
+                    continue;
+                }
+                double relevance = 1.0 - (double) i / n;
+                double score = this.lambda * relevance - (1 - this.lambda) * maxSimilarity[i];
+                if (score > bestScore) {
+                    best = i;
+                    bestScore = score;
+                }
+            }
+            done[best] = true;
+            if (maxSimilarity[best] >= this.duplicateThreshold) {
+                continue;
+            }
+            Document document = documents.get(best);
+            used += place(pieces, document, metadataMode, this.tokenBudget - used);
+            for (int i = 0; i < n; i++) {
+                if (!done[i]) {
+                    maxSimilarity[i] = Math.max(maxSimilarity[i], containment(shingles[i], shingles[best]));
+                }
+            }
+        }
+        return pieces.stream().map(Piece::document).toList();
+    }
+
+    /**
+     * 与同一文档中序号相邻的已选 chunk 合并，否则作为新的一段；放不下时不做任何修改
+     *
+     * @return 增加的 token 数
+     */
+    private int place(List<Piece> pieces, Document document, MetadataMode metadataMode, int remaining) {
+        String parent = parent(document);
+        Integer index = index(document);
+        if (parent != null && index != null) {
+            for (int i = 0; i < pieces.size(); i++) {
+                Piece piece = pieces.get(i);
+                if (!parent.equals(piece.parent())) {
+                    continue;
+                }
+                if (index >= piece.first() && index <= piece.last()) {
+                    // 同一个 chunk 已经在这一段中
+                    return 0;
+                }
+                Piece merged;
+                if (index == piece.last() + 1) {
+                    merged = piece.append(document.getText(), index);
+                } else if (index == piece.first() - 1) {
+                    merged = piece.prepend(document.getText(), index);
+                } else {
+                    continue;
+                }
+                int tokens = tokens(merged.document(), metadataMode);
+                if (tokens - piece.tokens() > remaining) {
+                    return 0;
+                }
+                merged = merged.withTokens(tokens);
+                pieces.set(i, merged);
+                return tokens - piece.tokens() + join(pieces, i, metadataMode, remaining - (tokens - piece.tokens()));
+            }
+        }
+        int tokens = tokens(document, metadataMode);
+        if (tokens > remaining) {
+            return 0;
+        }
+        if (parent == null || index == null) {
+            pieces.add(new Piece(document, tokens, null, -1, -1));
+        } else {
+            pieces.add(new Piece(document, tokens, parent, index, index));
+        }
+        return tokens;
+    }
+
+    /**
+     * 第 i 段扩展后与同一文档的另一段首尾相接时，合并到两者中靠前的位置
+     *
+     * @return 增加的 token 数
+     */
+    private int join(List<Piece> pieces, int i, MetadataMode metadataMode, int remaining) {
+        Piece piece = pieces.get(i);
+        for (int j = 0; j < pieces.size(); j++) {
+            Piece other = pieces.get(j);
+            if (j == i || !piece.parent().equals(other.parent())) {
+                continue;
+            }
+            if (other.first() != piece.last() + 1 && other.last() != piece.first() - 1) {
+                continue;
+            }
+            Piece head = pieces.get(Math.min(i, j));
+            Piece tail = pieces.get(Math.max(i, j));
+            Piece merged = head.first() < tail.first()
+                    ? head.append(tail.document().getText(), tail.last())
+                    : head.prepend(tail.document().getText(), tail.first());
+            int tokens = tokens(merged.document(), metadataMode);
+            int added = tokens - piece.tokens() - other.tokens();
+            if (added > remaining) {
+                return 0;
+            }
+            pieces.set(Math.min(i, j), merged.withTokens(tokens));
+            pieces.remove(Math.max(i, j));
+            return added;
+        }
+        return 0;
+    }
+
+    private int tokens(Document document, MetadataMode metadataMode) {
+        return this.tokenCountEstimator.estimate(document.getFormattedContent(metadataMode));
+    }
+
+    private static String parent(Document document) {
+        Object value = document.getMetadata().get(FastTokenTextSplitter.METADATA_PARENT_DOCUMENT_ID);
+        return value == null ? null : value.toString();
+    }
+
+    /**
+     * 向量库返回的元数据中数字的类型不固定（Integer、Long、Double 或字符串）
+     */
+    private static Integer index(Document document) {
+        Object value = document.getMetadata().get(FastTokenTextSplitter.METADATA_CHUNK_INDEX);
+        if (value instanceof Number number) {
+            return number.intValue();
+        }
+        if (value instanceof String text) {
+            try {
+                return Integer.valueOf(text);
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return 去掉空白后的字符 shingle 哈希，排序去重
+     */
+    static int[] shingles(String text) {
+        String compact = Objects.toString(text, "").replaceAll("\\s+", "");
+        if (compact.length() < SHINGLE_SIZE) {
+            return compact.isEmpty() ? new int[0] : new int[]{compact.hashCode()};
+        }
+        int[] hashes = new int[compact.length() - SHINGLE_SIZE + 1];
+        for (int i = 0; i < hashes.length; i++) {
+            hashes[i] = compact.substring(i, i + SHINGLE_SIZE).hashCode();
+        }
+        return Arrays.stream(hashes).sorted().distinct().toArray();
+    }
+
+    /**
+     * @return 交集占较小集合的比例，一段完全包含在另一段中时为 1
+     */
+    static double containment(int[] a, int[] b) {
+        if (a.length == 0 || b.length == 0) {
+            return 0;
+        }
+        int i = 0;
+        int j = 0;
+        int common = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] == b[j]) {
+                common++;
+                i++;
+                j++;
+            } else if (a[i] < b[j]) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return (double) common / Math.min(a.length, b.length);
+    }
+
+    /**
+     * @param first 段中第一个 chunk 的序号，没有位置信息时为 -1
+     * @param last  段中最后一个 chunk 的序号
+     */
+    private record Piece(Document document, int tokens, String parent, int first, int last) {
+
+        Piece append(String text, int last) {
+            return new Piece(this.document.mutate().text(this.document.getText() + CHUNK_SEPARATOR + text).build(),
+                    this.tokens, this.parent, this.first, last);
+        }
+
+        Piece prepend(String text, int first) {
+            return new Piece(this.document.mutate().text(text + CHUNK_SEPARATOR + this.document.getText()).build(),
+                    this.tokens, this.parent, first, this.last);
+        }
+
+        Piece withTokens(int tokens) {
+            return new Piece(this.document, tokens, this.parent, this.first, this.last);
+        }
+    }
+}
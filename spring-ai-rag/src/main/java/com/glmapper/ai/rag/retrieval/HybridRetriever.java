@@ -0,0 +1,159 @@
+package com.glmapper.ai.rag.retrieval;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.util.Assert;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * @Classname HybridRetriever
+ * @Description BM25 与向量检索的混合召回
+ * <p>
+ * 1、BM25 与向量检索在虚拟线程上并行执行，各取 candidates 个结果，按倒数排名融合（RRF）：score = Σ 1 / (rrfK + rank)；
+ * 2、BM25 的结果足够确定时直接返回，不再计算查询的 embedding：第一名包含了 idf 占比至少 minCoverage 的查询词，
+ * 并且分数至少是第二名的 minMargin 倍。BM25 在进程内执行，耗时远小于一次 embedding 请求，所以先执行它再决定是否需要向量检索；
+ * minCoverage 大于 1 时关闭这一判断，两路检索从一开始就并行。
+ * </p>
+ * @Date 2025/7/6 11:00
+ * @Created by glmapper
+ */
+@Slf4j
+public class HybridRetriever implements Retriever, AutoCloseable {
+
+    private final VectorStore vectorStore;
+
+    private final Bm25Index index;
+
+    private final int topK;
+
+    private final int candidates;
+
+    private final int rrfK;
+
+    private final double minCoverage;
+
+    private final double minMargin;
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    /**
+     * @param topK        返回的文档数
+     * @param candidates  每一路检索召回的文档数
+     * @param rrfK        RRF 的平滑常数，常用 60
+     * @param minCoverage 只用 BM25 结果时，第一名需要覆盖的查询词 idf 占比
+     * @param minMargin   只用 BM25 结果时，第一名与第二名的分数比
+     */
+    public HybridRetriever(VectorStore vectorStore, Bm25Index index, int topK, int candidates, int rrfK,
+                           double minCoverage, double minMargin) {
+        Assert.notNull(vectorStore, "vectorStore cannot be null");
+        Assert.notNull(index, "index cannot be null");
+        Assert.isTrue(topK > 0, "topK must be greater than 0");
+        Assert.isTrue(candidates >= topK, "candidates must not be less than topK");
+        Assert.isTrue(rrfK > 0, "rrfK must be greater than 0");
+        this.vectorStore = vectorStore;
+        this.index = index;
+        this.topK = topK;
+        this.candidates = candidates;
+        this.rrfK = rrfK;
+        this.minCoverage = minCoverage;
+        this.minMargin = minMargin;
+    }
+
+    @Override
+    public List<Document> retrieve(String query) {
+        CompletableFuture<List<Document>> vector = null;
+        if (this.minCoverage > 1) {
+            vector = vectorSearch(query);
+        }
+        List<Bm25Index.Hit> lexical = this.index.search(query, this.candidates);
+        if (vector == null) {
+            if (confident(lexical)) {
+                log.debug("query served by bm25 only, coverage {}", lexical.get(0).coverage());
+                return lexical.stream().limit(this.topK).map(Bm25Index.Hit::document).toList();
+            }
+            vector = vectorSearch(query);
+        }
+        return fuse(lexical.stream().map(Bm25Index.Hit::document).toList(), join(vector));
+    }
+
+    /**
+     * 按文档 id 融合两路结果，同一文档优先保留向量检索返回的实例（带有相似度分数）
+     */
+    List<Document> fuse(List<Document> lexical, List<Document> vector) {
+        return fuse(List.of(vector, lexical), this.rrfK, this.topK);
+    }
+
+    /**
+     * 倒数排名融合：score = Σ 1 / (rrfK + rank)，同一文档保留最先出现的实例
+     *
+     * @param rankings 多路按相关度排列的结果
+     */
+    public static List<Document> fuse(List<List<Document>> rankings, int rrfK, int topK) {
+        Map<String, Double> scores = new HashMap<>();
+        Map<String, Document> documents = new LinkedHashMap<>();
+        for (List<Document> ranking : rankings) {
+            for (int rank = 0; rank < ranking.size(); rank++) {
+                Document document = ranking.get(rank);
+                scores.merge(document.getId(), 1.0 / (rrfK + rank + 1), Double::sum);
+                documents.putIfAbsent(document.getId(), document);
+            }
+        }
+        List<Document> fused = new ArrayList<>(documents.values());
+        fused.sort(Comparator.comparingDouble((Document document) -> scores.get(document.getId())).reversed());
+        return fused.subList(0, Math.min(topK, fused.size()));
+    }
+
+    public int getTopK() {
+        return this.topK;
+    }
+
+    public int getCandidates() {
+        return this.candidates;
+    }
+
+    public int getRrfK() {
+        return this.rrfK;
+    }
+
+    private boolean confident(List<Bm25Index.Hit> lexical) {
+        if (lexical.isEmpty() || lexical.get(0).coverage() < this.minCoverage) {
+            return false;
+        }
+        return lexical.size() == 1 || lexical.get(0).score() >= this.minMargin * lexical.get(1).score();
+    }
+
+    private CompletableFuture<List<Document>> vectorSearch(String query) {
+        return CompletableFuture.supplyAsync(() -> this.vectorStore.similaritySearch(SearchRequest.builder()
+                .query(query)
+                .topK(this.candidates)
+                .build()), this.executor);
+    }
+
+    private static List<Document> join(CompletableFuture<List<Document>> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public void close() {
+        this.executor.shutdownNow();
+    }
+}
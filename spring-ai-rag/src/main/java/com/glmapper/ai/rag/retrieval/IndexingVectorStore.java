@@ -0,0 +1,69 @@
+package com.glmapper.ai.rag.retrieval;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.ai.vectorstore.filter.Filter;
+import org.springframework.util.Assert;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * @Classname IndexingVectorStore
+ * @Description 写入、删除向量库的同时维护 BM25 索引
+ * <p>
+ * 入库流水线、增量导入都通过 VectorStore 写入，包装之后不需要各自再维护一份词法索引；查询直接交给原向量库。
+ * 按过滤表达式删除时无法知道删掉了哪些文档，BM25 索引中的文档保留，需要按 id 删除。
+ * </p>
+ * @Date 2025/7/6 10:30
+ * @Created by glmapper
+ */
+@Slf4j
+public class IndexingVectorStore implements VectorStore {
+
+    private final VectorStore delegate;
+
+    private final Bm25Index index;
+
+    public IndexingVectorStore(VectorStore delegate, Bm25Index index) {
+        Assert.notNull(delegate, "delegate cannot be null");
+        Assert.notNull(index, "index cannot be null");
+        this.delegate = delegate;
+        this.index = index;
+    }
+
+    @Override
+    public String getName() {
+        return this.delegate.getName();
+    }
+
+    @Override
+    public void add(List<Document> documents) {
+        this.delegate.add(documents);
+        this.index.add(documents);
+    }
+
+    @Override
+    public void delete(List<String> idList) {
+        this.delegate.delete(idList);
+        this.index.delete(idList);
+    }
+
+    @Override
+    public void delete(Filter.Expression filterExpression) {
+        log.warn("delete by filter expression is not applied to the bm25 index: {}", filterExpression);
+        this.delegate.delete(filterExpression);
+    }
+
+    @Override
+    public List<Document> similaritySearch(SearchRequest request) {
+        return this.delegate.similaritySearch(request);
+    }
+
+    @Override
+    public <T> Optional<T> getNativeClient() {
+        return this.delegate.getNativeClient();
+    }
+}
@@ -0,0 +1,211 @@
+package com.glmapper.ai.rag.retrieval;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.chat.prompt.PromptTemplate;
+import org.springframework.ai.converter.BeanOutputConverter;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.util.Assert;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * @Classname MultiQueryRetriever
+ * @Description 对含义模糊的问题并行扩展多个查询
+ * <p>
+ * 1、先用 HybridRetriever 检索一次；ADAPTIVE 模式下只有第一轮最高的向量相似度低于 minScore 时才扩展，
+ * 第一轮只用了 BM25（结果都没有相似度）说明词法匹配已经足够确定，不扩展；
+ * 2、一次大模型请求生成 rewrites 个改写的问题；
+ * 3、改写的问题在一次 embedding 请求中批量计算，结果进入 EmbeddingCache，之后各个检索对同一文本的 embedding 直接命中缓存；
+ * 4、改写的问题在虚拟线程上并发检索 VectorStore，与第一轮的结果一起按倒数排名融合；
+ * 5、扩展部分（改写、embedding、检索）的总耗时不超过 maxAddedLatency，超时的部分放弃，已经完成的检索仍然参与融合，
+ * 改写或 embedding 超时、失败时直接返回第一轮的结果。
+ * </p>
+ * @Date 2025/7/11 10:30
+ * @Created by glmapper
+ */
+@Slf4j
+public class MultiQueryRetriever implements Retriever, AutoCloseable {
+
+    private static final String TEMPLATE = """
+            You are helping a search system. The user's question may be ambiguous or phrased differently
+            from the documents that answer it. Write {count} different rewrites of the question that keep its
+            meaning but vary the wording, or spell out the most likely interpretations.
+            Use the same language as the question.
+            {format}
+
+            Question: {query}
+            """;
+
+    private final HybridRetriever retriever;
+
+    private final VectorStore vectorStore;
+
+    private final EmbeddingModel embeddingModel;
+
+    private final ChatModel chatModel;
+
+    private final Mode mode;
+
+    private final int rewrites;
+
+    private final double minScore;
+
+    private final Duration maxAddedLatency;
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final BeanOutputConverter<List<String>> converter =
+            new BeanOutputConverter<>(new ParameterizedTypeReference<List<String>>() {
+            });
+
+    /**
+     * @param embeddingModel  与 vectorStore 使用同一个（带缓存的）模型
+     * @param rewrites        改写的问题数
+     * @param minScore        ADAPTIVE 模式下第一轮最高相似度低于该值时扩展
+     * @param maxAddedLatency 扩展部分的耗时上限
+     */
+    public MultiQueryRetriever(HybridRetriever retriever, VectorStore vectorStore, EmbeddingModel embeddingModel,
+                               ChatModel chatModel, Mode mode, int rewrites, double minScore, Duration maxAddedLatency) {
+        Assert.notNull(retriever, "retriever cannot be null");
+        Assert.notNull(vectorStore, "vectorStore cannot be null");
+        Assert.notNull(embeddingModel, "embeddingModel cannot be null");
+        Assert.notNull(chatModel, "chatModel cannot be null");
+        Assert.notNull(mode, "mode cannot be null");
+        Assert.isTrue(rewrites > 0, "rewrites must be greater than 0");
+        Assert.notNull(maxAddedLatency, "maxAddedLatency cannot be null");
+        this.retriever = retriever;
+        this.vectorStore = vectorStore;
+        this.embeddingModel = embeddingModel;
+        this.chatModel = chatModel;
+        this.mode = mode;
+        this.rewrites = rewrites;
+        this.minScore = minScore;
+        this.maxAddedLatency = maxAddedLatency;
+    }
+
+    @Override
+    public List<Document> retrieve(String query) {
+        List<Document> first = this.retriever.retrieve(query);
+        if (!shouldExpand(first)) {
+            return first;
+        }
+        long deadline = System.nanoTime() + this.maxAddedLatency.toNanos();
+        List<String> queries = call(() -> rewrite(query), deadline, "rewrite");
+        if (queries == null || queries.isEmpty()) {
+            return first;
+        }
+        // 一次请求批量计算，结果写入 EmbeddingCache
+        if (call(() -> this.embeddingModel.embed(queries), deadline, "embedding") == null) {
+            return first;
+        }
+        List<Future<List<Document>>> searches = new ArrayList<>(queries.size());
+        for (String rewritten : queries) {
+            searches.add(this.executor.submit(() -> this.vectorStore.similaritySearch(SearchRequest.builder()
+                    .query(rewritten)
+                    .topK(this.retriever.getCandidates())
+                    .build())));
+        }
+        List<List<Document>> rankings = new ArrayList<>(queries.size() + 1);
+        rankings.add(first);
+        for (Future<List<Document>> search : searches) {
+            List<Document> result = await(search, deadline, "search");
+            if (result != null) {
+                rankings.add(result);
+            }
+        }
+        log.debug("query expanded into {} rewrites, {} searches finished in time", queries.size(), rankings.size() - 1);
+        return HybridRetriever.fuse(rankings, this.retriever.getRrfK(), this.retriever.getTopK());
+    }
+
+    boolean shouldExpand(List<Document> first) {
+        if (this.mode == Mode.OFF) {
+            return false;
+        }
+        if (this.mode == Mode.ALWAYS || first.isEmpty()) {
+            return true;
+        }
+        double top = Double.NEGATIVE_INFINITY;
+        boolean scored = false;
+        for (Document document : first) {
+            if (document.getScore() != null) {
+                scored = true;
+                top = Math.max(top, document.getScore());
+            }
+        }
+        return scored && top < this.minScore;
+    }
+
+    private List<String> rewrite(String query) {
+        Prompt prompt = new PromptTemplate(TEMPLATE).create(Map.of(
+                "count", this.rewrites,
+                "format", this.converter.getFormat(),
+                "query", query));
+        List<String> rewritten = this.converter.convert(this.chatModel.call(prompt).getResult().getOutput().getText());
+        if (rewritten == null) {
+            return List.of();
+        }
+        return rewritten.stream()
+                .filter(text -> text != null && !text.isBlank() && !text.strip().equals(query.strip()))
+                .distinct()
+                .limit(this.rewrites)
+                .toList();
+    }
+
+    private <T> T call(Callable<T> task, long deadline, String step) {
+        return await(this.executor.submit(task), deadline, step);
+    }
+
+    /**
+     * @return 超时或失败时返回 null
+     */
+    private static <T> T await(Future<T> future, long deadline, String step) {
+        try {
+            return future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            log.warn("query expansion {} exceeded the latency limit", step);
+        } catch (ExecutionException e) {
+            log.warn("query expansion {} failed: {}", step, e.getCause().getMessage());
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+        }
+        return null;
+    }
+
+    @Override
+    public void close() {
+        this.executor.shutdownNow();
+    }
+
+    public enum Mode {
+        /**
+         * 不扩展
+         */
+        OFF,
+        /**
+         * 第一轮相似度低时扩展
+         */
+        ADAPTIVE,
+        /**
+         * 总是扩展
+         */
+        ALWAYS
+    }
+}
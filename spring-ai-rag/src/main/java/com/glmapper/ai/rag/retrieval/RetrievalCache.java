@@ -0,0 +1,103 @@
+package com.glmapper.ai.rag.retrieval;
+
+import org.springframework.ai.document.Document;
+import org.springframework.util.Assert;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * @Classname RetrievalCache
+ * @Description 检索结果缓存
+ * <p>
+ * 1、(查询文本, topK, 相似度阈值, 过滤条件) → 检索到的文档，查询文本去掉首尾空白、合并连续空白、小写化，按 LRU 淘汰；
+ * 2、查询的 embedding 不在这里缓存，未命中时由向量库通过 CachingEmbeddingModel 计算，重复的文本直接命中 EmbeddingCache；
+ * 3、向量库每次写入或删除时递增版本号，结果缓存的每一项记录检索开始时的版本号，版本号不一致的结果视为未命中；
+ * 检索过程中发生写入时，结果带着旧的版本号写入，不会被之后的查询使用；
+ * 4、Document 的元数据是可变的（例如 score、rrf_score 会被后续的融合、打包步骤改写），缓存中保存一份副本，
+ * 每次命中返回新的副本，调用方修改返回的文档不会影响缓存，也不会影响其他请求。
+ * </p>
+ * @Date 2025/7/7 10:10
+ * @Created by glmapper
+ */
+public class RetrievalCache {
+
+    private final Map<ResultKey, Result> results;
+
+    private final AtomicLong version = new AtomicLong();
+
+    private final AtomicLong resultHits = new AtomicLong();
+
+    /**
+     * @param resultCapacity 缓存的检索结果数
+     */
+    public RetrievalCache(int resultCapacity) {
+        Assert.isTrue(resultCapacity > 0, "resultCapacity must be greater than 0");
+        this.results = lru(resultCapacity);
+    }
+
+    /**
+     * @param search 未命中时执行检索
+     */
+    public List<Document> results(String query, int topK, double threshold, String filter, Supplier<List<Document>> search) {
+        ResultKey key = new ResultKey(normalize(query), topK, threshold, filter);
+        long current = this.version.get();
+        Result cached = this.results.get(key);
+        if (cached != null && cached.version() == current) {
+            this.resultHits.incrementAndGet();
+            return copy(cached.documents());
+        }
+        List<Document> documents = search.get();
+        this.results.put(key, new Result(current, copy(documents)));
+        return documents;
+    }
+
+    /**
+     * 向量库内容变化后调用，之前缓存的检索结果全部失效
+     */
+    public void invalidate() {
+        this.version.incrementAndGet();
+    }
+
+    public long version() {
+        return this.version.get();
+    }
+
+    public long resultHits() {
+        return this.resultHits.get();
+    }
+
+    static String normalize(String query) {
+        return String.valueOf(query).strip().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * 复制文档与元数据，保留 id 与 score
+     */
+    private static List<Document> copy(List<Document> documents) {
+        return documents.stream()
+                .map(document -> document.mutate().metadata(new HashMap<>(document.getMetadata())).build())
+                .toList();
+    }
+
+    private static <K, V> Map<K, V> lru(int capacity) {
+        return Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                return size() > capacity;
+            }
+        });
+    }
+
+    private record Result(long version, List<Document> documents) {
+    }
+
+    private record ResultKey(String query, int topK, double threshold, String filter) {
+    }
+}
@@ -0,0 +1,19 @@
+package com.glmapper.ai.rag.retrieval;
+
+import org.springframework.ai.document.Document;
+
+import java.util.List;
+
+/**
+ * @Classname Retriever
+ * @Description 根据问题检索文档
+ * @Date 2025/7/11 10:10
+ * @Created by glmapper
+ */
+public interface Retriever {
+
+    /**
+     * @return 按相关度从高到低排列的文档
+     */
+    List<Document> retrieve(String query);
+}
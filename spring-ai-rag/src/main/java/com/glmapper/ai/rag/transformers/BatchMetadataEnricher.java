@@ -0,0 +1,301 @@
+package com.glmapper.ai.rag.transformers;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.chat.prompt.PromptTemplate;
+import org.springframework.ai.converter.BeanOutputConverter;
+import org.springframework.ai.document.Document;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.util.Assert;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+/**
+ * @Classname BatchMetadataEnricher
+ * @Description 并发、批量地为文档生成关键词与摘要
+ * <p>
+ * KeywordMetadataEnricher 与 SummaryMetadataEnricher 每个文档调用一次大模型，并且依次执行；
+ * SummaryMetadataEnricher 还会为 PREVIOUS/NEXT 重新生成相邻文档的摘要。这里：
+ * 1、一次请求处理多个 chunk，关键词与摘要在同一次请求中生成；
+ * 2、请求在虚拟线程上并发执行，同时在途的请求数不超过 maxConcurrency；
+ * 3、每个 chunk 只生成一次 CURRENT 摘要，相邻文档的 PREVIOUS/NEXT 直接复用；
+ * 4、结果按 chunk 内容哈希缓存，重复的 chunk 与重新导入的文档不会再次请求；
+ * 5、批量结果解析失败时逐个 chunk 重试，仍然失败的 chunk 不写入元数据。
+ * 元数据的 key 与 Spring AI 自带的两个 enricher 保持一致。
+ * </p>
+ * @Date 2025/7/4 10:10
+ * @Created by glmapper
+ */
+@Slf4j
+public class BatchMetadataEnricher implements AutoCloseable {
+
+    public static final String EXCERPT_KEYWORDS = "excerpt_keywords";
+
+    public static final String SECTION_SUMMARY = "section_summary";
+
+    public static final String PREV_SECTION_SUMMARY = "prev_section_summary";
+
+    public static final String NEXT_SECTION_SUMMARY = "next_section_summary";
+
+    private static final String TEMPLATE = """
+            Below are {count} numbered passages.
+            For each passage, {tasks}
+            Return one item per passage and set "index" to the passage number.
+            {format}
+
+            {passages}
+            """;
+
+    private final ChatModel chatModel;
+
+    private final int maxKeywords;
+
+    private final int chunksPerPrompt;
+
+    private final int maxPromptChars;
+
+    private final Semaphore concurrency;
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final BeanOutputConverter<List<ChunkMetadata>> converter =
+            new BeanOutputConverter<>(new ParameterizedTypeReference<List<ChunkMetadata>>() {
+            });
+
+    private final Map<String, ChunkMetadata> cache;
+
+    /**
+     * @param maxKeywords     每个 chunk 的关键词数量
+     * @param chunksPerPrompt 一次请求最多包含的 chunk 数
+     * @param maxPromptChars  一次请求中 chunk 文本的最大字符数，单个 chunk 超出时独占一次请求
+     * @param maxConcurrency  同时在途的请求数
+     * @param cacheSize       按 chunk 内容哈希缓存的结果数
+     */
+    public BatchMetadataEnricher(ChatModel chatModel, int maxKeywords, int chunksPerPrompt, int maxPromptChars,
+                                 int maxConcurrency, int cacheSize) {
+        Assert.notNull(chatModel, "chatModel cannot be null");
+        Assert.isTrue(maxKeywords > 0, "maxKeywords must be greater than 0");
+        Assert.isTrue(chunksPerPrompt > 0, "chunksPerPrompt must be greater than 0");
+        Assert.isTrue(maxPromptChars > 0, "maxPromptChars must be greater than 0");
+        Assert.isTrue(maxConcurrency > 0, "maxConcurrency must be greater than 0");
+        this.chatModel = chatModel;
+        this.maxKeywords = maxKeywords;
+        this.chunksPerPrompt = chunksPerPrompt;
+        this.maxPromptChars = maxPromptChars;
+        this.concurrency = new Semaphore(maxConcurrency);
+        this.cache = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, ChunkMetadata> eldest) {
+                return size() > cacheSize;
+            }
+        });
+    }
+
+    /**
+     * @param keywords  是否生成关键词，写入 excerpt_keywords
+     * @param summaries 是否生成摘要，写入 section_summary、prev_section_summary、next_section_summary
+     * @return 传入的文档，元数据已补充
+     */
+    public List<Document> enrich(List<Document> documents, boolean keywords, boolean summaries) {
+        Assert.notNull(documents, "documents cannot be null");
+        if (!keywords && !summaries) {
+            return documents;
+        }
+        // 内容相同的 chunk 只请求一次
+        Map<String, List<Integer>> pending = new LinkedHashMap<>();
+        ChunkMetadata[] results = new ChunkMetadata[documents.size()];
+        String[] hashes = new String[documents.size()];
+        for (int i = 0; i < documents.size(); i++) {
+            hashes[i] = hash(documents.get(i).getText());
+            ChunkMetadata cached = this.cache.get(hashes[i]);
+            if (cached != null && cached.covers(keywords, summaries)) {
+                results[i] = cached;
+            } else {
+                pending.computeIfAbsent(hashes[i], hash -> new ArrayList<>()).add(i);
+            }
+        }
+
+        List<Future<?>> futures = new ArrayList<>();
+        for (List<String> batch : batches(documents, pending)) {
+            futures.add(this.executor.submit(() -> {
+                List<String> texts = batch.stream().map(hash -> documents.get(pending.get(hash).get(0)).getText()).toList();
+                List<ChunkMetadata> generated = generate(texts, keywords, summaries);
+                for (int i = 0; i < batch.size(); i++) {
+                    if (generated.get(i) == null) {
+                        continue;
+                    }
+                    ChunkMetadata merged = generated.get(i).merge(this.cache.get(batch.get(i)));
+                    this.cache.put(batch.get(i), merged);
+                    for (int index : pending.get(batch.get(i))) {
+                        results[index] = merged;
+                    }
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            await(future, futures);
+        }
+
+        for (int i = 0; i < documents.size(); i++) {
+            if (results[i] == null) {
+                continue;
+            }
+            Map<String, Object> metadata = documents.get(i).getMetadata();
+            if (keywords) {
+                metadata.put(EXCERPT_KEYWORDS, results[i].keywords());
+            }
+            if (summaries) {
+                metadata.put(SECTION_SUMMARY, results[i].summary());
+                if (i > 0 && results[i - 1] != null) {
+                    metadata.put(PREV_SECTION_SUMMARY, results[i - 1].summary());
+                }
+                if (i < documents.size() - 1 && results[i + 1] != null) {
+                    metadata.put(NEXT_SECTION_SUMMARY, results[i + 1].summary());
+                }
+            }
+        }
+        return documents;
+    }
+
+    /**
+     * 按条数与字符数把待请求的 chunk 分组
+     */
+    private List<List<String>> batches(List<Document> documents, Map<String, List<Integer>> pending) {
+        List<List<String>> batches = new ArrayList<>();
+        List<String> batch = new ArrayList<>();
+        int chars = 0;
+        for (String hash : pending.keySet()) {
+            int length = documents.get(pending.get(hash).get(0)).getText().length();
+            if (!batch.isEmpty() && (batch.size() == this.chunksPerPrompt || chars + length > this.maxPromptChars)) {
+                batches.add(batch);
+                batch = new ArrayList<>();
+                chars = 0;
+            }
+            batch.add(hash);
+            chars += length;
+        }
+        if (!batch.isEmpty()) {
+            batches.add(batch);
+        }
+        return batches;
+    }
+
+    /**
+     * @return 与 texts 一一对应，生成失败的位置为 null
+     */
+    private List<ChunkMetadata> generate(List<String> texts, boolean keywords, boolean summaries) throws InterruptedException {
+        List<ChunkMetadata> generated = new ArrayList<>(Collections.nCopies(texts.size(), null));
+        try {
+            for (ChunkMetadata item : call(texts, keywords, summaries)) {
+                if (item.index() >= 1 && item.index() <= texts.size() && item.covers(keywords, summaries)) {
+                    generated.set(item.index() - 1, item);
+                }
+            }
+        } catch (RuntimeException e) {
+            log.warn("metadata enrichment for {} chunks failed: {}", texts.size(), e.getMessage());
+        }
+        if (texts.size() > 1) {
+            // 批量请求漏掉或解析失败的 chunk 单独再请求一次
+            for (int i = 0; i < texts.size(); i++) {
+                if (generated.get(i) == null) {
+                    generated.set(i, generate(List.of(texts.get(i)), keywords, summaries).get(0));
+                }
+            }
+        }
+        return generated;
+    }
+
+    private List<ChunkMetadata> call(List<String> texts, boolean keywords, boolean summaries) throws InterruptedException {
+        List<String> tasks = new ArrayList<>();
+        if (keywords) {
+            tasks.add("extract " + this.maxKeywords + " unique keywords into \"keywords\", separated by commas.");
+        }
+        if (summaries) {
+            tasks.add("summarize the key topics and entities into \"summary\".");
+        }
+        StringBuilder passages = new StringBuilder();
+        for (int i = 0; i < texts.size(); i++) {
+            passages.append('[').append(i + 1).append("]\n").append(texts.get(i)).append("\n\n");
+        }
+        Prompt prompt = new PromptTemplate(TEMPLATE).create(Map.of(
+                "count", texts.size(),
+                "tasks", String.join(" Also ", tasks),
+                "format", this.converter.getFormat(),
+                "passages", passages.toString().strip()));
+        this.concurrency.acquire();
+        String content;
+        try {
+            content = this.chatModel.call(prompt).getResult().getOutput().getText();
+        } finally {
+            this.concurrency.release();
+        }
+        List<ChunkMetadata> items = this.converter.convert(content);
+        return items == null ? List.of() : items;
+    }
+
+    private static void await(Future<?> future, List<Future<?>> futures) {
+        try {
+            future.get();
+        } catch (InterruptedException e) {
+            futures.forEach(f -> f.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while enriching documents", e);
+        } catch (ExecutionException e) {
+            futures.forEach(f -> f.cancel(true));
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException("Enriching documents failed", e.getCause());
+        }
+    }
+
+    static String hash(String text) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(String.valueOf(text).getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public void close() {
+        this.executor.shutdownNow();
+    }
+
+    /**
+     * 大模型返回的一项，index 从 1 开始
+     */
+    record ChunkMetadata(int index, String keywords, String summary) {
+
+        boolean covers(boolean keywords, boolean summaries) {
+            return (!keywords || this.keywords != null) && (!summaries || this.summary != null);
+        }
+
+        /**
+         * 只生成了关键词或摘要时，保留缓存中已有的另一项
+         */
+        ChunkMetadata merge(ChunkMetadata cached) {
+            if (cached == null) {
+                return this;
+            }
+            return new ChunkMetadata(this.index, this.keywords != null ? this.keywords : cached.keywords(),
+                    this.summary != null ? this.summary : cached.summary());
+        }
+    }
+}
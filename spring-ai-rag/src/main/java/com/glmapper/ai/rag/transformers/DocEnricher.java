@@ -1,9 +1,6 @@
 package com.glmapper.ai.rag.transformers;
 
-import org.springframework.ai.chat.model.ChatModel;
 import org.springframework.ai.document.Document;
-import org.springframework.ai.model.transformer.KeywordMetadataEnricher;
-import org.springframework.ai.model.transformer.SummaryMetadataEnricher;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
@@ -18,33 +15,42 @@ import java.util.List;
 @Component
 public class DocEnricher {
 
+    /**
+     * 多个 chunk 合并为一次请求并发执行，结果按 chunk 内容哈希缓存，元数据的 key 与 Spring AI 自带的 enricher 一致
+     */
     @Autowired
-    private ChatModel chatModel;
-
-    @Autowired
-    private SummaryMetadataEnricher enricher;
+    private BatchMetadataEnricher enricher;
 
     /**
-     * 使用 KeywordMetadataEnricher 来丰富文档的元数据
+     * 丰富文档的关键词元数据（excerpt_keywords）
      * 这里设置了最大关键词数量为 5
      *
      * @param documents 输入的文档列表
      * @return 丰富后的文档列表
      */
     public List<Document> enrichKeyword(List<Document> documents) {
-        KeywordMetadataEnricher enricher = new KeywordMetadataEnricher(this.chatModel, 5);
-        return enricher.apply(documents);
+        return this.enricher.enrich(documents, true, false);
     }
 
 
     /**
-     * 使用 SummaryMetadataEnricher 来丰富文档的摘要元数据
-     * 这里使用了默认的摘要类型
+     * 丰富文档的摘要元数据，与 SummaryMetadataEnricher 的 PREVIOUS、CURRENT、NEXT 相同，
+     * 相邻文档的摘要直接复用，不会重新生成
      *
      * @param documents 输入的文档列表
      * @return 丰富后的文档列表
      */
     public List<Document> enrichSummary(List<Document> documents) {
-        return this.enricher.apply(documents);
+        return this.enricher.enrich(documents, false, true);
+    }
+
+    /**
+     * 在同一次请求中生成关键词与摘要
+     *
+     * @param documents 输入的文档列表
+     * @return 丰富后的文档列表
+     */
+    public List<Document> enrich(List<Document> documents) {
+        return this.enricher.enrich(documents, true, true);
     }
 }
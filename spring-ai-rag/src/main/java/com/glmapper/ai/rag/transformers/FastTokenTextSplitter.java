@@ -0,0 +1,203 @@
+package com.glmapper.ai.rag.transformers;
+
+import com.knuddels.jtokkit.Encodings;
+import com.knuddels.jtokkit.api.Encoding;
+import com.knuddels.jtokkit.api.EncodingType;
+import com.knuddels.jtokkit.api.IntArrayList;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.transformer.splitter.TextSplitter;
+import org.springframework.util.Assert;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * @Classname FastTokenTextSplitter
+ * @Description 与 TokenTextSplitter 切分结果相同、开销更小的按 token 切分器
+ * <p>
+ * TokenTextSplitter 每个实例都会创建编码器，把整篇文档的 token 装箱成 List&lt;Integer&gt;，
+ * 每个 chunk 先 decode 出文本、截断到最后一个标点，再重新 encode 截断后的文本来确定下一个 chunk 的起点，文档之间依次处理。这里：
+ * 1、所有实例共用一个 cl100k_base 编码器（线程安全），每篇文档只 encode 一次，token 保存在 int 数组中；
+ * 2、记录每个 token 在 UTF-8 字节中的偏移，chunk 文本直接从原始字节构造，不再逐 token decode；
+ * 3、截断后的文本只计数（countTokens），不生成 token 列表，chunk 的起点与 TokenTextSplitter 完全一致；
+ * 4、多篇文档在 ForkJoinPool 中并行切分，结果按原始顺序返回。
+ * 同一篇文档的 chunk 起点依赖上一个 chunk 的截断位置，单篇文档内部仍然顺序切分。
+ * {@link #applyWithPosition} 额外在元数据中记录 chunk 来自哪篇文档、是其中的第几个，检索后据此合并相邻的 chunk。
+ * </p>
+ * @Date 2025/7/5 10:10
+ * @Created by glmapper
+ */
+public class FastTokenTextSplitter extends TextSplitter {
+
+    /**
+     * 切分前文档的 id
+     */
+    public static final String METADATA_PARENT_DOCUMENT_ID = "parent_document_id";
+
+    /**
+     * chunk 在所属文档中的序号，从 0 开始，序号相邻的 chunk 在原文中首尾相接
+     */
+    public static final String METADATA_CHUNK_INDEX = "chunk_index";
+
+    private static final Encoding ENCODING = Encodings.newLazyEncodingRegistry().getEncoding(EncodingType.CL100K_BASE);
+
+    /**
+     * 按 token id 缓存 token 的 UTF-8 字节数，0 表示尚未计算；并发写入的值相同，不需要同步
+     */
+    private static final int[] TOKEN_BYTES = new int[1 << 18];
+
+    private final int chunkSize;
+
+    private final int minChunkSizeChars;
+
+    private final int minChunkLengthToEmbed;
+
+    private final int maxNumChunks;
+
+    private final boolean keepSeparator;
+
+    private final ForkJoinPool pool;
+
+    /**
+     * 与 new TokenTextSplitter() 的默认参数相同
+     */
+    public FastTokenTextSplitter() {
+        this(800, 350, 5, 10000, true, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * 参数含义与 TokenTextSplitter 相同
+     *
+     * @param pool 并行切分多篇文档使用的线程池
+     */
+    public FastTokenTextSplitter(int chunkSize, int minChunkSizeChars, int minChunkLengthToEmbed, int maxNumChunks,
+                                 boolean keepSeparator, ForkJoinPool pool) {
+        Assert.notNull(pool, "pool cannot be null");
+        this.chunkSize = chunkSize;
+        this.minChunkSizeChars = minChunkSizeChars;
+        this.minChunkLengthToEmbed = minChunkLengthToEmbed;
+        this.maxNumChunks = maxNumChunks;
+        this.keepSeparator = keepSeparator;
+        this.pool = pool;
+    }
+
+    /**
+     * 使用切分时相同的编码器计数
+     */
+    public static int countTokens(String text) {
+        return text == null ? 0 : ENCODING.countTokens(text);
+    }
+
+    @Override
+    public List<Document> apply(List<Document> documents) {
+        return split(documents, false);
+    }
+
+    /**
+     * 与 {@link #apply} 相同，并在每个 chunk 的元数据中记录 {@link #METADATA_PARENT_DOCUMENT_ID} 与 {@link #METADATA_CHUNK_INDEX}
+     */
+    public List<Document> applyWithPosition(List<Document> documents) {
+        return split(documents, true);
+    }
+
+    private List<Document> split(List<Document> documents, boolean position) {
+        if (documents.size() < 2) {
+            List<Document> result = new ArrayList<>();
+            documents.forEach(document -> result.addAll(split(document, position)));
+            return result;
+        }
+        List<List<Document>> chunks = this.pool.submit(() -> documents.parallelStream()
+                .map(document -> split(document, position))
+                .toList()).join();
+        List<Document> result = new ArrayList<>();
+        chunks.forEach(result::addAll);
+        return result;
+    }
+
+    private List<Document> split(Document document, boolean position) {
+        List<Document> chunks = super.apply(List.of(document));
+        if (position) {
+            for (int i = 0; i < chunks.size(); i++) {
+                chunks.get(i).getMetadata().put(METADATA_PARENT_DOCUMENT_ID, document.getId());
+                chunks.get(i).getMetadata().put(METADATA_CHUNK_INDEX, i);
+            }
+        }
+        return chunks;
+    }
+
+    @Override
+    protected List<String> splitText(String text) {
+        List<String> chunks = new ArrayList<>();
+        if (text == null || text.trim().isEmpty()) {
+            return chunks;
+        }
+        IntArrayList encoded = ENCODING.encode(text);
+        int[] tokens = encoded.toArray();
+        byte[] bytes = ENCODING.decodeBytes(encoded);
+        int[] offsets = offsets(tokens);
+
+        int start = 0;
+        int numChunks = 0;
+        while (start < tokens.length && numChunks < this.maxNumChunks) {
+            int end = Math.min(start + this.chunkSize, tokens.length);
+            String chunkText = new String(bytes, offsets[start], offsets[end] - offsets[start], StandardCharsets.UTF_8);
+            if (chunkText.trim().isEmpty()) {
+                start = end;
+                continue;
+            }
+            int lastPunctuation = Math.max(chunkText.lastIndexOf('.'), Math.max(chunkText.lastIndexOf('?'),
+                    Math.max(chunkText.lastIndexOf('!'), chunkText.lastIndexOf('\n'))));
+            if (lastPunctuation != -1 && lastPunctuation > this.minChunkSizeChars) {
+                chunkText = chunkText.substring(0, lastPunctuation + 1);
+            }
+            String chunkTextToAppend = this.keepSeparator ? chunkText.trim()
+                    : chunkText.replace(System.lineSeparator(), " ").trim();
+            if (chunkTextToAppend.length() > this.minChunkLengthToEmbed) {
+                chunks.add(chunkTextToAppend);
+            }
+            // 与 TokenTextSplitter 一样按重新编码后的 token 数前进，未截断的 chunk 重新编码后也可能与原 token 数不同
+            start = Math.min(tokens.length, start + ENCODING.countTokens(chunkText));
+            numChunks++;
+        }
+
+        if (start < tokens.length) {
+            String remainingText = new String(bytes, offsets[start], bytes.length - offsets[start], StandardCharsets.UTF_8)
+                    .replace(System.lineSeparator(), " ").trim();
+            if (remainingText.length() > this.minChunkLengthToEmbed) {
+                chunks.add(remainingText);
+            }
+        }
+        return chunks;
+    }
+
+    /**
+     * @return 每个 token 在 UTF-8 字节中的起始偏移，最后一项为总字节数
+     */
+    private static int[] offsets(int[] tokens) {
+        int[] offsets = new int[tokens.length + 1];
+        for (int i = 0; i < tokens.length; i++) {
+            offsets[i + 1] = offsets[i] + tokenBytes(tokens[i]);
+        }
+        return offsets;
+    }
+
+    private static int tokenBytes(int token) {
+        if (token >= TOKEN_BYTES.length) {
+            return ENCODING.decodeBytes(singleton(token)).length;
+        }
+        int length = TOKEN_BYTES[token];
+        if (length == 0) {
+            length = ENCODING.decodeBytes(singleton(token)).length;
+            TOKEN_BYTES[token] = length;
+        }
+        return length;
+    }
+
+    private static IntArrayList singleton(int token) {
+        IntArrayList list = new IntArrayList(1);
+        list.add(token);
+        return list;
+    }
+}
@@ -0,0 +1,195 @@
+package com.glmapper.ai.rag.advisors;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.ai.chat.client.ChatClientRequest;
+import org.springframework.ai.chat.client.ChatClientResponse;
+import org.springframework.ai.chat.client.advisor.api.AdvisorChain;
+import org.springframework.ai.chat.client.advisor.api.BaseAdvisor;
+import org.springframework.ai.chat.client.advisor.api.StreamAdvisorChain;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.MessageType;
+import org.springframework.ai.chat.messages.SystemMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
+import reactor.core.publisher.Flux;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * @Classname ParallelBeforeAdvisorTest
+ * @Description ParallelBeforeAdvisorTest
+ * @Date 2025/6/24 15:10
+ * @Created by glmapper
+ */
+public class ParallelBeforeAdvisorTest {
+
+    private static final long MEMORY_LATENCY_MS = 80;
+
+    private static final long RETRIEVAL_LATENCY_MS = 120;
+
+    @Test
+    public void testMergeOrder() {
+        try (ParallelBeforeAdvisor advisor = new ParallelBeforeAdvisor(List.of(new MemoryAdvisor(0), new RetrievalAdvisor(0)))) {
+            ChatClientRequest request = advisor.before(request(), null);
+
+            List<Message> messages = request.prompt().getInstructions();
+            Assertions.assertEquals(4, messages.size());
+            Assertions.assertEquals(MessageType.SYSTEM, messages.get(0).getMessageType(), "SystemMessage 应该排在最前面");
+            Assertions.assertEquals("history question", messages.get(1).getText());
+            Assertions.assertEquals("history answer", messages.get(2).getText());
+            Assertions.assertEquals("what is spring ai?\n\ncontext: docs", messages.get(3).getText());
+            Assertions.assertEquals("docs", request.context().get("documents"));
+            Assertions.assertEquals("memory", request.context().get("conversation"));
+        }
+    }
+
+    @Test
+    public void testLatency() {
+        List<BaseAdvisor> delegates = List.of(new MemoryAdvisor(MEMORY_LATENCY_MS), new RetrievalAdvisor(RETRIEVAL_LATENCY_MS));
+        int rounds = 10;
+        try (ParallelBeforeAdvisor advisor = new ParallelBeforeAdvisor(delegates)) {
+            // 预热虚拟线程
+            advisor.before(request(), null);
+
+            long start = System.nanoTime();
+            for (int i = 0; i < rounds; i++) {
+                ChatClientRequest request = request();
+                for (BaseAdvisor delegate : delegates) {
+                    request = delegate.before(request, null);
+                }
+            }
+            long sequential = (System.nanoTime() - start) / rounds / 1_000_000;
+
+            start = System.nanoTime();
+            for (int i = 0; i < rounds; i++) {
+                advisor.before(request(), null);
+            }
+            long parallel = (System.nanoTime() - start) / rounds / 1_000_000;
+
+            System.out.println("sequential: " + sequential + " ms/request, parallel: " + parallel + " ms/request");
+            Assertions.assertTrue(sequential >= MEMORY_LATENCY_MS + RETRIEVAL_LATENCY_MS);
+            Assertions.assertTrue(parallel < MEMORY_LATENCY_MS + RETRIEVAL_LATENCY_MS, "并发执行的耗时应该小于两者之和");
+        }
+    }
+
+    @Test
+    public void testStreamAfterSeesAggregatedResponse() {
+        StreamAdvisorChain chain = Mockito.mock(StreamAdvisorChain.class);
+        Mockito.when(chain.nextStream(Mockito.any())).thenReturn(Flux.just("Spring AI ", "is a ", "framework").map(ParallelBeforeAdvisorTest::chunk));
+        List<String> memoryAfter = new CopyOnWriteArrayList<>();
+        List<String> retrievalAfter = new CopyOnWriteArrayList<>();
+        try (ParallelBeforeAdvisor advisor = new ParallelBeforeAdvisor(List.of(new RecordingAdvisor(memoryAfter), new RecordingAdvisor(retrievalAfter)))) {
+            List<ChatClientResponse> chunks = advisor.adviseStream(request(), chain).collectList().block();
+
+            Assertions.assertEquals(3, chunks.size(), "下游应该逐个收到原始分片");
+            Assertions.assertEquals(List.of("Spring AI is a framework"), memoryAfter, "after 应该只执行一次，并且拿到完整的回答");
+            Assertions.assertEquals(List.of("Spring AI is a framework"), retrievalAfter);
+            Mockito.verify(chain).nextStream(Mockito.any());
+        }
+    }
+
+    private static ChatClientResponse chunk(String text) {
+        return ChatClientResponse.builder()
+                .chatResponse(new ChatResponse(List.of(new Generation(new AssistantMessage(text)))))
+                .context(Map.of())
+                .build();
+    }
+
+    private static ChatClientRequest request() {
+        return ChatClientRequest.builder()
+                .prompt(new Prompt(List.of(new SystemMessage("you are a helpful assistant"), new UserMessage("what is spring ai?"))))
+                .context(Map.of())
+                .build();
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 模拟 MessageChatMemoryAdvisor：在原始消息之前加入历史消息
+     */
+    private record MemoryAdvisor(long latencyMs) implements BaseAdvisor {
+
+        @Override
+        public ChatClientRequest before(ChatClientRequest chatClientRequest, AdvisorChain advisorChain) {
+            sleep(this.latencyMs);
+            List<Message> messages = new ArrayList<>(List.of(new UserMessage("history question"), new AssistantMessage("history answer")));
+            messages.addAll(chatClientRequest.prompt().getInstructions());
+            return chatClientRequest.mutate()
+                    .prompt(chatClientRequest.prompt().mutate().messages(messages).build())
+                    .context("conversation", "memory")
+                    .build();
+        }
+
+        @Override
+        public ChatClientResponse after(ChatClientResponse chatClientResponse, AdvisorChain advisorChain) {
+            return chatClientResponse;
+        }
+
+        @Override
+        public int getOrder() {
+            return 0;
+        }
+    }
+
+    /**
+     * 模拟 QuestionAnswerAdvisor：把检索结果拼接到问题中
+     */
+    private record RetrievalAdvisor(long latencyMs) implements BaseAdvisor {
+
+        @Override
+        public ChatClientRequest before(ChatClientRequest chatClientRequest, AdvisorChain advisorChain) {
+            sleep(this.latencyMs);
+            String question = chatClientRequest.prompt().getUserMessage().getText();
+            return chatClientRequest.mutate()
+                    .prompt(chatClientRequest.prompt().augmentUserMessage(question + "\n\ncontext: docs"))
+                    .context("documents", "docs")
+                    .build();
+        }
+
+        @Override
+        public ChatClientResponse after(ChatClientResponse chatClientResponse, AdvisorChain advisorChain) {
+            return chatClientResponse;
+        }
+
+        @Override
+        public int getOrder() {
+            return 1;
+        }
+    }
+
+    /**
+     * 记录 after 阶段收到的回答
+     */
+    private record RecordingAdvisor(List<String> answers) implements BaseAdvisor {
+
+        @Override
+        public ChatClientRequest before(ChatClientRequest chatClientRequest, AdvisorChain advisorChain) {
+            return chatClientRequest;
+        }
+
+        @Override
+        public ChatClientResponse after(ChatClientResponse chatClientResponse, AdvisorChain advisorChain) {
+            this.answers.add(chatClientResponse.chatResponse().getResult().getOutput().getText());
+            return chatClientResponse;
+        }
+
+        @Override
+        public int getOrder() {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.glmapper.ai.rag.advisors;
+
+import com.glmapper.ai.rag.retrieval.Bm25Index;
+import com.glmapper.ai.rag.retrieval.ContextAssembler;
+import com.glmapper.ai.rag.retrieval.HybridRetriever;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.client.ChatClientRequest;
+import org.springframework.ai.chat.messages.SystemMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.document.MetadataMode;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.ai.vectorstore.filter.Filter;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @Classname RetrievalAdvisorTest
+ * @Description RetrievalAdvisorTest
+ * @Date 2025/7/8 11:00
+ * @Created by glmapper
+ */
+public class RetrievalAdvisorTest {
+
+    private static final List<Document> DOCUMENTS = List.of(
+            new Document("a", "spring ai 是 spring 的 AI 应用框架", Map.of()),
+            new Document("b", "milvus 是向量数据库", Map.of()));
+
+    @Test
+    public void testSystemPlacementRetrievesOnce() {
+        CountingVectorStore vectorStore = new CountingVectorStore();
+        try (HybridRetriever retriever = new HybridRetriever(vectorStore, Bm25Index.inMemory(), 4, 10, 60, 2, 1.5)) {
+            RetrievalAdvisor advisor = new RetrievalAdvisor(retriever, new ContextAssembler(ContextAssembler.Placement.SYSTEM, MetadataMode.NONE));
+            ChatClientRequest request = advisor.before(request(Map.of()), null);
+
+            Assertions.assertEquals(1, vectorStore.searches.get());
+            Assertions.assertEquals(DOCUMENTS, request.context().get(RetrievalAdvisor.RETRIEVED_DOCUMENTS));
+            Assertions.assertEquals("you are a helpful assistant\n\nHere are some relevant documents:\n\n"
+                    + "spring ai 是 spring 的 AI 应用框架\nmilvus 是向量数据库", request.prompt().getSystemMessage().getText());
+            Assertions.assertEquals("what is spring ai?", request.prompt().getUserMessage().getText(), "问题保持原样");
+        }
+    }
+
+    @Test
+    public void testDocumentsInContextAreReused() {
+        CountingVectorStore vectorStore = new CountingVectorStore();
+        try (HybridRetriever retriever = new HybridRetriever(vectorStore, Bm25Index.inMemory(), 4, 10, 60, 2, 1.5)) {
+            RetrievalAdvisor advisor = new RetrievalAdvisor(retriever, new ContextAssembler(ContextAssembler.Placement.USER, MetadataMode.NONE));
+            ChatClientRequest request = advisor.before(request(Map.of(RetrievalAdvisor.RETRIEVED_DOCUMENTS, DOCUMENTS.subList(1, 2))), null);
+
+            Assertions.assertEquals(0, vectorStore.searches.get());
+            String user = request.prompt().getUserMessage().getText();
+            Assertions.assertTrue(user.startsWith("what is spring ai?"));
+            Assertions.assertTrue(user.contains("milvus 是向量数据库"));
+            Assertions.assertFalse(user.contains("spring ai 是"));
+            Assertions.assertEquals("you are a helpful assistant", request.prompt().getSystemMessage().getText());
+        }
+    }
+
+    private static ChatClientRequest request(Map<String, Object> context) {
+        return ChatClientRequest.builder()
+                .prompt(new Prompt(List.of(new SystemMessage("you are a helpful assistant"), new UserMessage("what is spring ai?"))))
+                .context(context)
+                .build();
+    }
+
+    private static class CountingVectorStore implements VectorStore {
+
+        private final AtomicInteger searches = new AtomicInteger();
+
+        @Override
+        public void add(List<Document> documents) {
+        }
+
+        @Override
+        public void delete(List<String> idList) {
+        }
+
+        @Override
+        public void delete(Filter.Expression filterExpression) {
+        }
+
+        @Override
+        public List<Document> similaritySearch(SearchRequest request) {
+            this.searches.incrementAndGet();
+            return DOCUMENTS;
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package com.glmapper.ai.rag.embedding;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+import org.springframework.ai.tokenizer.JTokkitTokenCountEstimator;
+import org.springframework.ai.tokenizer.TokenCountEstimator;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * @Classname TokenAwareEmbeddingBatcherTest
+ * @Description TokenAwareEmbeddingBatcherTest
+ * @Date 2025/7/1 14:30
+ * @Created by glmapper
+ */
+public class TokenAwareEmbeddingBatcherTest {
+
+    /**
+     * 测试中每个单词算一个 token
+     */
+    private static final TokenCountEstimator WORDS = new JTokkitTokenCountEstimator() {
+        @Override
+        public int estimate(String text) {
+            return text.split(" ").length;
+        }
+    };
+
+    @Test
+    public void testPackRespectsLimits() {
+        try (TokenAwareEmbeddingBatcher batcher = batcher(new FakeEmbeddingModel(0, Set.of()), 4, 10, 1)) {
+            List<String> texts = List.of("a b c", "d e f", "g h i", "j", "k", "l", "m", "n o p q r s t u v w x", "y");
+            List<TokenAwareEmbeddingBatcher.Batch> batches = batcher.pack(texts);
+            // [a b c, d e f, g h i, j] 10 tokens；[k l m] 接着 n..x 会超出 token 限制；超长文本独占一批；[y]
+            Assertions.assertEquals(List.of(new TokenAwareEmbeddingBatcher.Batch(0, 4, 10),
+                    new TokenAwareEmbeddingBatcher.Batch(4, 7, 3),
+                    new TokenAwareEmbeddingBatcher.Batch(7, 8, 11),
+                    new TokenAwareEmbeddingBatcher.Batch(8, 9, 1)), batches);
+        }
+    }
+
+    @Test
+    public void testResultsKeepOrderAndOnlyFailedPartIsRetried() {
+        // 包含 "text 13" 的批次总是失败，会被逐级拆开，直到 "text 13" 单独请求（第一次失败、重试成功）
+        FakeEmbeddingModel model = new FakeEmbeddingModel(0, Set.of("text 13"));
+        try (TokenAwareEmbeddingBatcher batcher = batcher(model, 8, 100, 4)) {
+            List<float[]> embeddings = batcher.embed(texts(64), null);
+
+            Assertions.assertEquals(64, embeddings.size());
+            for (int i = 0; i < 64; i++) {
+                Assertions.assertEquals(i, (int) embeddings.get(i)[0], "向量顺序应该与输入一致");
+            }
+            long requestsContaining13 = model.requests.stream().filter(inputs -> inputs.contains("text 13")).count();
+            Assertions.assertTrue(requestsContaining13 > 2);
+            Assertions.assertTrue(model.requests.stream().filter(inputs -> inputs.contains("text 0")).count() == 1,
+                    "其他批次不应该被重发");
+        }
+    }
+
+    @Test
+    public void testConcurrency() {
+        List<String> texts = texts(80);
+        long start = System.nanoTime();
+        try (TokenAwareEmbeddingBatcher batcher = batcher(new FakeEmbeddingModel(50, Set.of()), 10, 1000, 1)) {
+            batcher.embed(texts, null);
+        }
+        long sequential = (System.nanoTime() - start) / 1_000_000;
+        start = System.nanoTime();
+        try (TokenAwareEmbeddingBatcher batcher = batcher(new FakeEmbeddingModel(50, Set.of()), 10, 1000, 8)) {
+            batcher.embed(texts, null);
+        }
+        long concurrent = (System.nanoTime() - start) / 1_000_000;
+        System.out.println("8 batches x 50ms, concurrency 1: " + sequential + " ms, concurrency 8: " + concurrent + " ms");
+        Assertions.assertTrue(concurrent * 3 < sequential);
+    }
+
+    @Test
+    public void testEmbeddingModelDelegatesDocuments() {
+        FakeEmbeddingModel model = new FakeEmbeddingModel(0, Set.of());
+        try (TokenAwareEmbeddingBatcher batcher = batcher(model, 3, 100, 2)) {
+            EmbeddingModel embeddingModel = new BatchingEmbeddingModel(model, batcher);
+            List<Document> documents = new ArrayList<>();
+            for (String text : texts(7)) {
+                documents.add(new Document(text));
+            }
+            List<float[]> embeddings = embeddingModel.embed(documents, null, null);
+            Assertions.assertEquals(7, embeddings.size());
+            Assertions.assertEquals(6, (int) embeddings.get(6)[0]);
+            Assertions.assertEquals(3, model.requests.size());
+        }
+    }
+
+    private static TokenAwareEmbeddingBatcher batcher(EmbeddingModel model, int maxInputs, int maxTokens, int concurrency) {
+        return new TokenAwareEmbeddingBatcher(model, WORDS, maxInputs, maxTokens, concurrency, 1000, 2,
+                Duration.ofMillis(1), new SimpleMeterRegistry());
+    }
+
+    private static List<String> texts(int count) {
+        List<String> texts = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            texts.add("text " + i);
+        }
+        return texts;
+    }
+
+    /**
+     * 向量的第一个分量是文本的序号；包含 failing 中文本的请求，只有单独请求时才会成功
+     */
+    private static class FakeEmbeddingModel implements EmbeddingModel {
+
+        private final long latencyMillis;
+
+        private final Set<String> failing;
+
+        private final List<List<String>> requests = new CopyOnWriteArrayList<>();
+
+        private final Set<String> failedOnce = ConcurrentHashMap.newKeySet();
+
+        FakeEmbeddingModel(long latencyMillis, Set<String> failing) {
+            this.latencyMillis = latencyMillis;
+            this.failing = failing;
+        }
+
+        @Override
+        public EmbeddingResponse call(EmbeddingRequest request) {
+            List<String> inputs = request.getInstructions();
+            this.requests.add(inputs);
+            if (this.latencyMillis > 0) {
+                try {
+                    Thread.sleep(this.latencyMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            for (String input : inputs) {
+                if (this.failing.contains(input) && (inputs.size() > 1 || this.failedOnce.add(input))) {
+                    throw new IllegalStateException("rejected: " + input);
+                }
+            }
+            List<Embedding> embeddings = new ArrayList<>(inputs.size());
+            for (int i = 0; i < inputs.size(); i++) {
+                float index = Float.parseFloat(inputs.get(i).substring("text ".length()));
+                embeddings.add(new Embedding(new float[]{index, 1f}, i));
+            }
+            return new EmbeddingResponse(embeddings);
+        }
+
+        @Override
+        public float[] embed(Document document) {
+            return call(new EmbeddingRequest(List.of(document.getText()), null)).getResult().getOutput();
+        }
+    }
+}
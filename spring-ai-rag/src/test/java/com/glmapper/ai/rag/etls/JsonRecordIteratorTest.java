@@ -0,0 +1,113 @@
+package com.glmapper.ai.rag.etls;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.ai.document.Document;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @Classname JsonRecordIteratorTest
+ * @Description JsonRecordIteratorTest
+ * @Date 2025/7/13 10:30
+ * @Created by glmapper
+ */
+public class JsonRecordIteratorTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void testJsonLinesWithKeySelection() throws IOException {
+        Resource resource = write("records.jsonl", """
+                {"id": 1, "title": "Milvus", "body": "vector database", "raw": {"huge": [1, 2, 3]}}
+
+                {"id": 2, "title": "BM25", "body": null, "raw": "skipped"}
+                {"id": 3, "raw": "no selected text"}
+                """);
+        List<Document> documents = read(resource, "", List.of("title", "body"), List.of("id", "raw"));
+
+        Assertions.assertEquals(2, documents.size());
+        Assertions.assertEquals("title: Milvus" + System.lineSeparator() + "body: vector database" + System.lineSeparator(),
+                documents.get(0).getText());
+        // raw 不是字符串、数字或布尔，不放入元数据
+        Assertions.assertEquals(Map.of("id", 1, JsonRecordIterator.METADATA_RECORD_INDEX, 0), documents.get(0).getMetadata());
+        Assertions.assertEquals("title: BM25" + System.lineSeparator(), documents.get(1).getText());
+        Assertions.assertEquals(Map.of("id", 2, "raw", "skipped", JsonRecordIterator.METADATA_RECORD_INDEX, 1),
+                documents.get(1).getMetadata());
+    }
+
+    @Test
+    public void testTopLevelArrayIsReadLazily() throws IOException {
+        Path file = this.directory.resolve("export.json");
+        int records = 100_000;
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write('[');
+            for (int i = 0; i < records; i++) {
+                writer.write((i == 0 ? "" : ",") + "{\"id\":" + i + ",\"text\":\"record " + i + "\",\"padding\":\"" + "x".repeat(64) + "\"}");
+            }
+            writer.write(']');
+        }
+        try (JsonRecordIterator iterator = new JsonRecordIterator(new FileSystemResource(file), "", List.of("text"), List.of())) {
+            Assertions.assertEquals("text: record 0" + System.lineSeparator(), iterator.next().getText());
+            int count = 1;
+            Document last = null;
+            while (iterator.hasNext()) {
+                last = iterator.next();
+                count++;
+            }
+            Assertions.assertEquals(records, count);
+            Assertions.assertEquals("text: record " + (records - 1) + System.lineSeparator(), last.getText());
+        }
+    }
+
+    @Test
+    public void testPointerIsAppliedToEachValue() throws IOException {
+        Resource resource = write("responses.jsonl", """
+                {"model": "a", "choices": [{"message": {"content": "first"}}, {"message": {"content": "second"}}]}
+                {"model": "b", "choices": []}
+                {"model": "c"}
+                {"choices": [{"message": {"content": "third"}}], "model": "d"}
+                """);
+        List<String> contents = read(resource, "/choices", List.of(), List.of()).stream().map(Document::getText).toList();
+        Assertions.assertEquals(List.of("{\"message\":{\"content\":\"first\"}}", "{\"message\":{\"content\":\"second\"}}",
+                "{\"message\":{\"content\":\"third\"}}"), contents);
+
+        contents = read(resource, "/choices/1/message/content", List.of(), List.of()).stream().map(Document::getText).toList();
+        Assertions.assertEquals(List.of("second"), contents);
+    }
+
+    @Test
+    public void testSampleFile() throws IOException {
+        List<Document> documents = read(new ClassPathResource("files/test.json"), "/choices",
+                List.of("message"), List.of("finish_reason", "index"));
+        Assertions.assertEquals(1, documents.size());
+        Assertions.assertTrue(documents.get(0).getText().startsWith("message: {\"role\":\"assistant\""));
+        Assertions.assertEquals("stop", documents.get(0).getMetadata().get("finish_reason"));
+        Assertions.assertEquals(0, documents.get(0).getMetadata().get("index"));
+    }
+
+    private Resource write(String name, String content) throws IOException {
+        return new FileSystemResource(Files.writeString(this.directory.resolve(name), content));
+    }
+
+    private static List<Document> read(Resource resource, String pointer, List<String> textKeys,
+                                       List<String> metadataKeys) throws IOException {
+        List<Document> documents = new ArrayList<>();
+        try (JsonRecordIterator iterator = new JsonRecordIterator(resource, pointer, textKeys, metadataKeys)) {
+            iterator.forEachRemaining(documents::add);
+        }
+        return documents;
+    }
+}
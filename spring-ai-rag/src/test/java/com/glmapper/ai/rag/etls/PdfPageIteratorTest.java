@@ -0,0 +1,113 @@
+package com.glmapper.ai.rag.etls;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.font.Standard14Fonts;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.reader.ExtractedTextFormatter;
+import org.springframework.core.io.FileSystemResource;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @Classname PdfPageIteratorTest
+ * @Description 生成一个多页 PDF，对比单线程与多线程逐页读取的结果与耗时
+ * @Date 2025/6/30 11:20
+ * @Created by glmapper
+ */
+public class PdfPageIteratorTest {
+
+    private static final int PAGES = 400;
+
+    @TempDir
+    static Path directory;
+
+    private static FileSystemResource pdf;
+
+    @BeforeAll
+    static void createPdf() throws IOException {
+        Path file = directory.resolve("manual.pdf");
+        try (PDDocument document = new PDDocument()) {
+            PDType1Font font = new PDType1Font(Standard14Fonts.FontName.HELVETICA);
+            for (int i = 1; i <= PAGES; i++) {
+                PDPage page = new PDPage();
+                document.addPage(page);
+                try (PDPageContentStream content = new PDPageContentStream(document, page)) {
+                    content.beginText();
+                    content.setFont(font, 11);
+                    content.setLeading(14);
+                    content.newLineAtOffset(72, 720);
+                    for (int line = 0; line < 40; line++) {
+                        content.showText("page " + i + " line " + line + " spring ai reads this manual page by page");
+                        content.newLine();
+                    }
+                    content.endText();
+                }
+            }
+            document.save(file.toFile());
+        }
+        pdf = new FileSystemResource(file);
+    }
+
+    @Test
+    public void testPagesInOrder() throws IOException {
+        long start = System.nanoTime();
+        List<Document> sequential = readAll(1);
+        long sequentialMillis = (System.nanoTime() - start) / 1_000_000;
+
+        int cores = Runtime.getRuntime().availableProcessors();
+        start = System.nanoTime();
+        List<Document> parallel = readAll(cores);
+        long parallelMillis = (System.nanoTime() - start) / 1_000_000;
+        System.out.println(PAGES + " pages, 1 thread: " + sequentialMillis + " ms, " + cores + " threads: " + parallelMillis + " ms");
+
+        Assertions.assertEquals(PAGES, parallel.size());
+        for (int i = 0; i < PAGES; i++) {
+            Assertions.assertEquals(i + 1, parallel.get(i).getMetadata().get(PdfPageIterator.METADATA_PAGE_NUMBER));
+            Assertions.assertEquals(sequential.get(i).getText(), parallel.get(i).getText());
+        }
+        Assertions.assertTrue(parallel.get(9).getText().startsWith("page 10 line 0"));
+        Assertions.assertEquals("manual.pdf", parallel.get(0).getMetadata().get(PdfPageIterator.METADATA_FILE_NAME));
+    }
+
+    @Test
+    public void testCloseBeforeEnd() throws IOException {
+        try (PdfPageIterator pages = new PdfPageIterator(pdf, 4, 8, ExtractedTextFormatter.defaults())) {
+            Assertions.assertEquals(PAGES, pages.getPageCount());
+            for (int i = 0; i < 10; i++) {
+                Assertions.assertTrue(pages.hasNext());
+                pages.next();
+            }
+        }
+    }
+
+    /**
+     * 关闭后 hasNext 不再等待已经不会被解析的页段
+     */
+    @Test
+    public void testHasNextAfterClose() throws IOException {
+        PdfPageIterator pages = new PdfPageIterator(pdf, 2, 8, ExtractedTextFormatter.defaults());
+        Assertions.assertTrue(pages.hasNext());
+        pages.next();
+        pages.close();
+        Assertions.assertTimeoutPreemptively(Duration.ofSeconds(5), () -> Assertions.assertFalse(pages.hasNext()));
+    }
+
+    private static List<Document> readAll(int parallelism) throws IOException {
+        List<Document> documents = new ArrayList<>(PAGES);
+        try (PdfPageIterator pages = new PdfPageIterator(pdf, parallelism, 8, ExtractedTextFormatter.defaults())) {
+            pages.forEachRemaining(documents::add);
+        }
+        return documents;
+    }
+}
@@ -0,0 +1,202 @@
+package com.glmapper.ai.rag.jobs;
+
+import com.glmapper.ai.rag.manifest.IncrementalIndexer;
+import com.glmapper.ai.rag.manifest.IngestionManifest;
+import com.glmapper.ai.rag.manifest.SyncResult;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+import org.springframework.ai.vectorstore.SimpleVectorStore;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * @Classname IngestionJobServiceTest
+ * @Description IngestionJobServiceTest
+ * @Date 2025/7/12 11:30
+ * @Created by glmapper
+ */
+public class IngestionJobServiceTest {
+
+    private static final Function<List<Document>, List<Document>> NO_SPLIT = documents -> documents;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void testFailedSourceDoesNotStopJob() throws Exception {
+        List<String> loaded = new CopyOnWriteArrayList<>();
+        Function<String, Iterator<Document>> loader = source -> {
+            loaded.add(source);
+            if (source.equals("b.md")) {
+                throw new IllegalArgumentException("Source does not exist: b.md");
+            }
+            return List.of(new Document("content of " + source)).iterator();
+        };
+        IngestionJobStore store = new IngestionJobStore(this.directory.resolve("jobs"));
+        try (IngestionJobService service = new IngestionJobService(indexer(), loader, NO_SPLIT, store, 16, 1)) {
+            IngestionJob job = service.submit(List.of("a.md", "b.md", "c.md"));
+            IngestionJob finished = await(service, job.id());
+
+            Assertions.assertEquals(IngestionJob.Status.FAILED, finished.status());
+            Assertions.assertEquals(List.of("a.md", "c.md"), finished.completed());
+            Assertions.assertEquals(Map.of("b.md", "Source does not exist: b.md"), finished.failed());
+            Assertions.assertEquals(2, finished.added());
+            // 内容有变化的来源读取两次（计算哈希、按批写入），这里只比较读取过哪些来源
+            Assertions.assertEquals(List.of("a.md", "b.md", "c.md"), loaded.stream().distinct().toList());
+            // 检查点与内存中的状态一致
+            Assertions.assertEquals(List.of(finished), store.load());
+        }
+    }
+
+    @Test
+    public void testResumeSkipsCompletedSources() throws Exception {
+        IngestionJobStore store = new IngestionJobStore(this.directory.resolve("jobs"));
+        IngestionJob interrupted = IngestionJob.queued("job-1", List.of("a.md", "b.md"))
+                .withStatus(IngestionJob.Status.RUNNING);
+        interrupted = interrupted.withCompleted(new SyncResult("a.md", false, 1, 0, 0));
+        store.save(interrupted);
+
+        List<String> loaded = new CopyOnWriteArrayList<>();
+        Function<String, Iterator<Document>> loader = source -> {
+            loaded.add(source);
+            return List.of(new Document("content of " + source)).iterator();
+        };
+        try (IngestionJobService service = new IngestionJobService(indexer(), loader, NO_SPLIT, store, 16, 1)) {
+            Assertions.assertEquals(1, service.resume());
+            IngestionJob finished = await(service, "job-1");
+
+            Assertions.assertEquals(IngestionJob.Status.SUCCEEDED, finished.status());
+            Assertions.assertEquals(List.of("a.md", "b.md"), finished.completed());
+            Assertions.assertEquals(2, finished.added());
+            Assertions.assertEquals(List.of("b.md"), loaded.stream().distinct().toList());
+        }
+    }
+
+    @Test
+    public void testCancelQueuedAndRunningJobs() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<String> loaded = new CopyOnWriteArrayList<>();
+        Function<String, Iterator<Document>> loader = source -> {
+            loaded.add(source);
+            if (source.equals("slow.md")) {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return List.of(new Document("content of " + source)).iterator();
+        };
+        IngestionJobStore store = new IngestionJobStore(this.directory.resolve("jobs"));
+        try (IngestionJobService service = new IngestionJobService(indexer(), loader, NO_SPLIT, store, 16, 1)) {
+            IngestionJob running = service.submit(List.of("slow.md", "next.md"));
+            Assertions.assertTrue(started.await(5, TimeUnit.SECONDS));
+            IngestionJob queued = service.submit(List.of("queued.md"));
+
+            // 排队中的任务直接取消
+            Assertions.assertEquals(IngestionJob.Status.CANCELLED, service.cancel(queued.id()).status());
+            // 正在执行的任务完成当前来源后结束
+            service.cancel(running.id());
+            release.countDown();
+            IngestionJob cancelled = await(service, running.id());
+
+            Assertions.assertEquals(IngestionJob.Status.CANCELLED, cancelled.status());
+            Assertions.assertEquals(List.of("slow.md"), cancelled.completed());
+            Assertions.assertEquals(List.of("slow.md"), loaded.stream().distinct().toList());
+            Assertions.assertNull(service.cancel("missing"));
+        }
+    }
+
+    @Test
+    public void testSlowSubscriberDoesNotBlockJob() throws Exception {
+        CountDownLatch subscribed = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<String> loaded = new CopyOnWriteArrayList<>();
+        Function<String, Iterator<Document>> loader = source -> {
+            try {
+                subscribed.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            loaded.add(source);
+            return List.of(new Document("content of " + source)).iterator();
+        };
+        IngestionJobStore store = new IngestionJobStore(this.directory.resolve("jobs"));
+        try (IngestionJobService service = new IngestionJobService(indexer(), loader, NO_SPLIT, store, 16, 1)) {
+            IngestionJob job = service.submit(List.of("a.md", "b.md"));
+            AtomicInteger received = new AtomicInteger();
+            // 收到第一次状态变化后一直不返回，模拟网络很慢的 SSE 连接
+            service.subscribe(job.id(), state -> {
+                if (received.incrementAndGet() > 1) {
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            });
+            subscribed.countDown();
+
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (!service.get(job.id()).status().finished() && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            Assertions.assertEquals(IngestionJob.Status.SUCCEEDED, service.get(job.id()).status());
+            Assertions.assertEquals(List.of("a.md", "b.md"), loaded.stream().distinct().toList());
+            Assertions.assertEquals(2, received.get(), "订阅者仍然阻塞在第二次通知上");
+            release.countDown();
+        }
+    }
+
+    private IncrementalIndexer indexer() {
+        SimpleVectorStore vectorStore = SimpleVectorStore.builder(new ConstantEmbeddingModel()).build();
+        return new IncrementalIndexer(vectorStore, IngestionManifest.load(this.directory.resolve("manifest.json")));
+    }
+
+    private static IngestionJob await(IngestionJobService service, String id) throws InterruptedException {
+        CountDownLatch finished = new CountDownLatch(1);
+        List<IngestionJob> states = new CopyOnWriteArrayList<>();
+        service.subscribe(id, job -> {
+            states.add(job);
+            if (job.status().finished()) {
+                finished.countDown();
+            }
+        });
+        Assertions.assertTrue(finished.await(5, TimeUnit.SECONDS));
+        return states.get(states.size() - 1);
+    }
+
+    private static class ConstantEmbeddingModel implements EmbeddingModel {
+
+        @Override
+        public EmbeddingResponse call(EmbeddingRequest request) {
+            List<Embedding> embeddings = new ArrayList<>();
+            for (int i = 0; i < request.getInstructions().size(); i++) {
+                embeddings.add(new Embedding(new float[]{1f, 1f}, i));
+            }
+            return new EmbeddingResponse(embeddings);
+        }
+
+        @Override
+        public float[] embed(Document document) {
+            return call(new EmbeddingRequest(List.of(document.getText()), null)).getResult().getOutput();
+        }
+    }
+}
@@ -0,0 +1,297 @@
+package com.glmapper.ai.rag.manifest;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.SimpleVectorStore;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.ai.vectorstore.filter.Filter;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * @Classname IncrementalIndexerTest
+ * @Description IncrementalIndexerTest
+ * @Date 2025/7/2 11:20
+ * @Created by glmapper
+ */
+public class IncrementalIndexerTest {
+
+    /**
+     * 按空行切分段落，保留原文档的元数据
+     */
+    private static final Function<List<Document>, List<Document>> PARAGRAPHS = documents -> documents.stream()
+            .flatMap(document -> List.of(document.getText().split("\n\n")).stream()
+                    .map(paragraph -> new Document(paragraph, document.getMetadata())))
+            .toList();
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void testOnlyChangedChunksAreEmbedded() {
+        CountingEmbeddingModel embeddingModel = new CountingEmbeddingModel();
+        SimpleVectorStore vectorStore = SimpleVectorStore.builder(embeddingModel).build();
+        Path file = this.directory.resolve("manifest.json");
+        IncrementalIndexer indexer = new IncrementalIndexer(vectorStore, IngestionManifest.load(file));
+
+        SyncResult first = indexer.sync("test.md", List.of(document("a\n\nb\n\nc\n\nb")), PARAGRAPHS);
+        Assertions.assertEquals(new SyncResult("test.md", false, 4, 0, 0), first);
+        Assertions.assertEquals(4, embeddingModel.embedded.get());
+
+        // 内容没有变化：不切分、不调用 embedding
+        SyncResult second = indexer.sync("test.md", List.of(document("a\n\nb\n\nc\n\nb")), documents -> {
+            throw new AssertionError("unchanged source should not be split");
+        });
+        Assertions.assertTrue(second.unchanged());
+        Assertions.assertEquals(4, embeddingModel.embedded.get());
+
+        // 重新加载清单后修改一段、删除一段、新增一段，只 embedding 新增与修改的部分
+        indexer = new IncrementalIndexer(vectorStore, IngestionManifest.load(file));
+        SyncResult third = indexer.sync("test.md", List.of(document("a\n\nb2\n\nb\n\nd")), PARAGRAPHS);
+        Assertions.assertEquals(new SyncResult("test.md", false, 2, 2, 2), third);
+        Assertions.assertEquals(6, embeddingModel.embedded.get());
+        Assertions.assertEquals(Set.of("a", "b", "b2", "d"), texts(vectorStore));
+    }
+
+    @Test
+    public void testRemoveSource() {
+        CountingEmbeddingModel embeddingModel = new CountingEmbeddingModel();
+        SimpleVectorStore vectorStore = SimpleVectorStore.builder(embeddingModel).build();
+        IngestionManifest manifest = IngestionManifest.load(this.directory.resolve("manifest.json"));
+        IncrementalIndexer indexer = new IncrementalIndexer(vectorStore, manifest);
+        indexer.sync("a.md", List.of(document("a1\n\na2")), PARAGRAPHS);
+        indexer.sync("b.md", List.of(document("b1")), PARAGRAPHS);
+
+        Assertions.assertEquals(2, indexer.remove("a.md"));
+        Assertions.assertEquals(Set.of("b.md"), manifest.sources());
+        Assertions.assertEquals(Set.of("b1"), texts(vectorStore));
+    }
+
+    @Test
+    public void testMetadataChangeIsDetected() {
+        CountingEmbeddingModel embeddingModel = new CountingEmbeddingModel();
+        SimpleVectorStore vectorStore = SimpleVectorStore.builder(embeddingModel).build();
+        IncrementalIndexer indexer = new IncrementalIndexer(vectorStore,
+                IngestionManifest.load(this.directory.resolve("manifest.json")));
+        indexer.sync("test.md", List.of(new Document("a", Map.of("version", 1))), PARAGRAPHS);
+        SyncResult result = indexer.sync("test.md", List.of(new Document("a", Map.of("version", 2))), PARAGRAPHS);
+        Assertions.assertEquals(new SyncResult("test.md", false, 1, 1, 0), result);
+    }
+
+    @Test
+    public void testLargeSourceIsSyncedInBatches() {
+        CountingEmbeddingModel embeddingModel = new CountingEmbeddingModel();
+        SimpleVectorStore vectorStore = SimpleVectorStore.builder(embeddingModel).build();
+        IncrementalIndexer indexer = new IncrementalIndexer(vectorStore,
+                IngestionManifest.load(this.directory.resolve("manifest.json")));
+        AtomicInteger opened = new AtomicInteger();
+        AtomicInteger closed = new AtomicInteger();
+        List<Integer> batches = new ArrayList<>();
+        Function<List<Document>, List<Document>> splitter = documents -> {
+            batches.add(documents.size());
+            return PARAGRAPHS.apply(documents);
+        };
+
+        SyncResult first = indexer.sync("large.jsonl", () -> records(25, opened, closed), splitter, 10);
+        Assertions.assertEquals(new SyncResult("large.jsonl", false, 25, 0, 0), first);
+        // 第一遍计算哈希，第二遍按批切分、写入，每批最多 10 个文档
+        Assertions.assertEquals(2, opened.get());
+        Assertions.assertEquals(2, closed.get());
+        Assertions.assertEquals(List.of(10, 10, 5), batches);
+        Assertions.assertEquals(25, embeddingModel.embedded.get());
+
+        // 内容没有变化：只读一遍，不切分
+        SyncResult second = indexer.sync("large.jsonl", () -> records(25, opened, closed), splitter, 10);
+        Assertions.assertTrue(second.unchanged());
+        Assertions.assertEquals(3, opened.get());
+        Assertions.assertEquals(3, closed.get());
+        Assertions.assertEquals(3, batches.size());
+
+        // 删掉最后 5 条记录
+        SyncResult third = indexer.sync("large.jsonl", () -> records(20, opened, closed), splitter, 10);
+        Assertions.assertEquals(new SyncResult("large.jsonl", false, 0, 5, 20), third);
+        Assertions.assertEquals(25, embeddingModel.embedded.get());
+    }
+
+    @Test
+    public void testInterruptedSyncResumesFromLastBatch() {
+        CountingEmbeddingModel embeddingModel = new CountingEmbeddingModel();
+        RecordingVectorStore vectorStore = new RecordingVectorStore(SimpleVectorStore.builder(embeddingModel).build());
+        Path file = this.directory.resolve("manifest.json");
+        IncrementalIndexer indexer = new IncrementalIndexer(vectorStore, IngestionManifest.load(file));
+        AtomicInteger opened = new AtomicInteger();
+        AtomicInteger closed = new AtomicInteger();
+        AtomicInteger calls = new AtomicInteger();
+        Function<List<Document>, List<Document>> failing = documents -> {
+            if (calls.incrementAndGet() == 2) {
+                throw new IllegalStateException("splitter failed");
+            }
+            return PARAGRAPHS.apply(documents);
+        };
+
+        Assertions.assertThrows(IllegalStateException.class,
+                () -> indexer.sync("large.jsonl", () -> records(25, opened, closed), failing, 10));
+        Assertions.assertEquals(opened.get(), closed.get(), "失败时也要关闭迭代器");
+        // 第一批写入后已经保存了进度
+        IngestionManifest.SourceEntry progress = IngestionManifest.load(file).get("large.jsonl");
+        Assertions.assertTrue(progress.hash().startsWith(IngestionManifest.SourceEntry.INCOMPLETE));
+        Assertions.assertEquals(10, progress.chunks().size());
+        Assertions.assertEquals(10, vectorStore.added.size());
+
+        Assertions.assertEquals(10, progress.progress().documents());
+
+        // 重启后重新同步，从第二批继续，第一批的文档不再切分、chunk 不再写入
+        IncrementalIndexer resumed = new IncrementalIndexer(vectorStore, IngestionManifest.load(file));
+        List<Integer> batches = new ArrayList<>();
+        Function<List<Document>, List<Document>> splitter = documents -> {
+            batches.add(documents.size());
+            return PARAGRAPHS.apply(documents);
+        };
+        SyncResult result = resumed.sync("large.jsonl", () -> records(25, opened, closed), splitter, 10);
+        Assertions.assertEquals(new SyncResult("large.jsonl", false, 15, 0, 10), result);
+        Assertions.assertEquals(List.of(10, 5), batches);
+        Assertions.assertEquals(25, vectorStore.added.size());
+        Assertions.assertEquals(25, Set.copyOf(vectorStore.added).size(), "每个 chunk 只应该写入一次");
+        Assertions.assertEquals(25, embeddingModel.embedded.get());
+
+        IngestionManifest.SourceEntry entry = IngestionManifest.load(file).get("large.jsonl");
+        Assertions.assertFalse(entry.hash().startsWith(IngestionManifest.SourceEntry.INCOMPLETE));
+        Assertions.assertNull(entry.progress());
+        Assertions.assertEquals(Set.copyOf(vectorStore.added), entry.chunks().keySet());
+        Assertions.assertTrue(resumed.sync("large.jsonl", () -> records(25, opened, closed), PARAGRAPHS, 10).unchanged());
+    }
+
+    @Test
+    public void testChangedSourceIgnoresStaleProgress() {
+        CountingEmbeddingModel embeddingModel = new CountingEmbeddingModel();
+        RecordingVectorStore vectorStore = new RecordingVectorStore(SimpleVectorStore.builder(embeddingModel).build());
+        Path file = this.directory.resolve("manifest.json");
+        IncrementalIndexer indexer = new IncrementalIndexer(vectorStore, IngestionManifest.load(file));
+        AtomicInteger opened = new AtomicInteger();
+        AtomicInteger closed = new AtomicInteger();
+        AtomicInteger calls = new AtomicInteger();
+        Function<List<Document>, List<Document>> failing = documents -> {
+            if (calls.incrementAndGet() == 2) {
+                throw new IllegalStateException("splitter failed");
+            }
+            return PARAGRAPHS.apply(documents);
+        };
+        Assertions.assertThrows(IllegalStateException.class,
+                () -> indexer.sync("large.jsonl", () -> records(25, opened, closed), failing, 10));
+
+        // 中途退出后来源内容变了：不能沿用记录的位置，从头切分，已经写入的 chunk 仍然不会重复写入
+        SyncResult result = new IncrementalIndexer(vectorStore, IngestionManifest.load(file))
+                .sync("large.jsonl", () -> records(30, opened, closed), PARAGRAPHS, 10);
+        Assertions.assertEquals(new SyncResult("large.jsonl", false, 20, 0, 10), result);
+        Assertions.assertEquals(30, Set.copyOf(vectorStore.added).size());
+        Assertions.assertEquals(30, vectorStore.added.size());
+    }
+
+    /**
+     * 逐条生成记录，记录打开与关闭的次数
+     */
+    private static Iterator<Document> records(int count, AtomicInteger opened, AtomicInteger closed) {
+        opened.incrementAndGet();
+        class Records implements Iterator<Document>, AutoCloseable {
+
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                return this.next < count;
+            }
+
+            @Override
+            public Document next() {
+                return document("record " + this.next++);
+            }
+
+            @Override
+            public void close() {
+                closed.incrementAndGet();
+            }
+        }
+        return new Records();
+    }
+
+    private static Document document(String text) {
+        return new Document(text, Map.of("source", "test.md"));
+    }
+
+    private static Set<String> texts(SimpleVectorStore vectorStore) {
+        return vectorStore.similaritySearch(SearchRequest.builder().query("x").topK(100).similarityThresholdAll().build())
+                .stream()
+                .map(Document::getText)
+                .collect(Collectors.toSet());
+    }
+
+    private static class CountingEmbeddingModel implements EmbeddingModel {
+
+        private final AtomicInteger embedded = new AtomicInteger();
+
+        @Override
+        public EmbeddingResponse call(EmbeddingRequest request) {
+            this.embedded.addAndGet(request.getInstructions().size());
+            List<Embedding> embeddings = new ArrayList<>();
+            for (int i = 0; i < request.getInstructions().size(); i++) {
+                embeddings.add(new Embedding(new float[]{1f, 1f}, i));
+            }
+            return new EmbeddingResponse(embeddings);
+        }
+
+        @Override
+        public float[] embed(Document document) {
+            return call(new EmbeddingRequest(List.of(document.getText()), null)).getResult().getOutput();
+        }
+    }
+
+    /**
+     * 记录写入的 chunk id，Milvus 的 insert 不去重，同一个 id 写入两次就是重复的 chunk
+     */
+    private static class RecordingVectorStore implements VectorStore {
+
+        private final VectorStore delegate;
+
+        private final List<String> added = new ArrayList<>();
+
+        RecordingVectorStore(VectorStore delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void add(List<Document> documents) {
+            documents.forEach(document -> this.added.add(document.getId()));
+            this.delegate.add(documents);
+        }
+
+        @Override
+        public void delete(List<String> idList) {
+            this.delegate.delete(idList);
+        }
+
+        @Override
+        public void delete(Filter.Expression filterExpression) {
+            this.delegate.delete(filterExpression);
+        }
+
+        @Override
+        public List<Document> similaritySearch(SearchRequest request) {
+            return this.delegate.similaritySearch(request);
+        }
+    }
+}
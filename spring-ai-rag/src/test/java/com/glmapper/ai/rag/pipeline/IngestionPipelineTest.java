@@ -0,0 +1,177 @@
+package com.glmapper.ai.rag.pipeline;
+
+import com.glmapper.ai.rag.transformers.DocTokenTextSplitter;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.document.Document;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @Classname IngestionPipelineTest
+ * @Description IngestionPipelineTest
+ * @Date 2025/6/29 14:10
+ * @Created by glmapper
+ */
+public class IngestionPipelineTest {
+
+    @Test
+    public void testAllDocumentsReachSink() {
+        AtomicInteger stored = new AtomicInteger();
+        IngestionReport report = IngestionPipeline.builder()
+                .stage("split", 4, 16, IngestionPipelineTest::splitInTwo)
+                .sink("store", 2, 50, batch -> stored.addAndGet(batch.size()))
+                .build()
+                .run(documents(10_000));
+
+        System.out.println(report);
+        Assertions.assertEquals(20_000, stored.get());
+        Assertions.assertEquals(10_000, report.stage(IngestionPipeline.READ_STAGE).docsOut());
+        Assertions.assertEquals(10_000, report.stage("split").docsIn());
+        Assertions.assertEquals(20_000, report.stage("split").docsOut());
+        Assertions.assertEquals(20_000, report.stage("store").docsIn());
+        Assertions.assertTrue(report.stage("split").tokensIn() > 0);
+        Assertions.assertTrue(report.stage("store").batches() >= 20_000 / 50);
+    }
+
+    /**
+     * 切分阶段记录的 token 数在后续阶段直接使用，没有记录时按字符估算
+     */
+    @Test
+    public void testTokensFromMetadata() {
+        IngestionReport report = IngestionPipeline.builder()
+                .stage("split", 2, 16, batch -> batch.stream()
+                        .map(document -> new Document(document.getText(), Map.of(DocTokenTextSplitter.METADATA_TOKEN_COUNT, 7)))
+                        .toList())
+                .sink("store", 2, 50, batch -> {
+                })
+                .build()
+                .run(documents(1_000));
+
+        Assertions.assertEquals(7_000, report.stage("store").tokensIn());
+        Assertions.assertEquals(2, IngestionPipeline.tokens(new Document("abcdefgh")));
+        Assertions.assertEquals(4, IngestionPipeline.tokens(new Document("检索增强")));
+    }
+
+    /**
+     * 下游很慢时，读取阶段会被有界队列挡住，在途文档数不随语料规模增长
+     */
+    @Test
+    public void testBackpressure() {
+        AtomicLong produced = new AtomicLong();
+        AtomicLong consumed = new AtomicLong();
+        AtomicLong maxInFlight = new AtomicLong();
+        Iterator<Document> source = new Iterator<>() {
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                return this.next < 20_000;
+            }
+
+            @Override
+            public Document next() {
+                maxInFlight.accumulateAndGet(produced.incrementAndGet() - consumed.get(), Math::max);
+                return new Document("document " + this.next++);
+            }
+        };
+        int queueCapacity = 2;
+        int parallelism = 2;
+        int batchSize = 10;
+        IngestionPipeline.builder()
+                .queueCapacity(queueCapacity)
+                .stage("transform", parallelism, batchSize, batch -> batch)
+                .sink("store", parallelism, batchSize, batch -> {
+                    sleep(1);
+                    consumed.addAndGet(batch.size());
+                })
+                .build()
+                .run(source);
+
+        Assertions.assertEquals(20_000, consumed.get());
+        // 两个队列 + 两组 worker + 读取线程正在攒的一批
+        long bound = (2L * (queueCapacity + parallelism) + 1) * batchSize + 1;
+        System.out.println("max in flight: " + maxInFlight.get() + ", bound: " + bound);
+        Assertions.assertTrue(maxInFlight.get() <= bound, "在途文档数应该受队列容量限制");
+    }
+
+    @Test
+    public void testParallelism() {
+        long sequential = timed(1);
+        long parallel = timed(8);
+        System.out.println("parallelism 1: " + sequential + " ms, parallelism 8: " + parallel + " ms");
+        Assertions.assertTrue(parallel * 3 < sequential, "并行度为 8 时应该明显快于串行");
+    }
+
+    @Test
+    public void testFailureCancelsPipeline() {
+        IngestionPipeline pipeline = IngestionPipeline.builder()
+                .stage("split", 2, 10, batch -> {
+                    if (batch.get(0).getText().endsWith(" 500")) {
+                        throw new IllegalArgumentException("broken document");
+                    }
+                    return batch;
+                })
+                .sink("store", 2, 10, batch -> sleep(1))
+                .build();
+
+        IllegalStateException e = Assertions.assertThrows(IllegalStateException.class, () -> pipeline.run(documents(100_000)));
+        Assertions.assertEquals("broken document", e.getCause().getMessage());
+    }
+
+    /**
+     * 每批模拟 5ms 的模型调用
+     */
+    private static long timed(int parallelism) {
+        long start = System.nanoTime();
+        IngestionPipeline.builder()
+                .stage("embed", parallelism, 10, batch -> {
+                    sleep(5);
+                    return batch;
+                })
+                .sink("store", 1, 100, batch -> {
+                })
+                .build()
+                .run(documents(1_000));
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+
+    private static List<Document> splitInTwo(List<Document> batch) {
+        List<Document> chunks = new ArrayList<>(batch.size() * 2);
+        for (Document document : batch) {
+            String text = document.getText();
+            chunks.add(new Document(text.substring(0, text.length() / 2)));
+            chunks.add(new Document(text.substring(text.length() / 2)));
+        }
+        return chunks;
+    }
+
+    private static Iterator<Document> documents(int count) {
+        return new Iterator<>() {
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                return this.next < count;
+            }
+
+            @Override
+            public Document next() {
+                return new Document("spring ai ingestion pipeline document " + this.next++);
+            }
+        };
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
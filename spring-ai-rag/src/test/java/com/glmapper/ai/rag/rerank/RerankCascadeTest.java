@@ -0,0 +1,87 @@
+package com.glmapper.ai.rag.rerank;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.document.Document;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @Classname RerankCascadeTest
+ * @Description RerankCascadeTest
+ * @Date 2025/7/10 12:30
+ * @Created by glmapper
+ */
+public class RerankCascadeTest {
+
+    @Test
+    public void testLexicalPromotesMatchingCandidates() {
+        List<Document> candidates = List.of(
+                new Document("1", "Spring AI 的 ChatClient 提供流式 API", Map.of()),
+                new Document("2", "向量数据库用于相似度检索", Map.of()),
+                new Document("3", "milvus 默认端口是 19530", Map.of()));
+        List<Document> reranked = new LexicalReranker(0.3, 0.5).rerank("milvus 默认端口", candidates);
+        Assertions.assertEquals("3", reranked.get(0).getId());
+        Assertions.assertEquals(3, reranked.size());
+    }
+
+    @Test
+    public void testOnlySurvivorsReachTheExpensiveStage() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        AtomicInteger expensiveInputs = new AtomicInteger();
+        Reranker reverse = (query, candidates) -> {
+            expensiveInputs.set(candidates.size());
+            List<Document> reversed = new ArrayList<>(candidates);
+            Collections.reverse(reversed);
+            return reversed;
+        };
+        try (RerankCascade cascade = new RerankCascade(List.of(
+                new RerankCascade.Stage("lexical", new LexicalReranker(0.3, 0.5), 50, 5, Duration.ofSeconds(1)),
+                new RerankCascade.Stage("expensive", reverse, 5, 2, Duration.ofSeconds(1))), registry)) {
+            List<Document> result = cascade.rerank("document 7", documents(30));
+
+            Assertions.assertEquals(5, expensiveInputs.get());
+            Assertions.assertEquals(2, result.size());
+            Assertions.assertEquals(30, registry.get("rag.rerank.candidates").tag("stage", "lexical").summary().totalAmount());
+            Assertions.assertEquals(5, registry.get("rag.rerank.candidates").tag("stage", "expensive").summary().totalAmount());
+            Assertions.assertEquals(1, registry.get("rag.rerank.latency").tag("stage", "expensive").timer().count());
+        }
+    }
+
+    @Test
+    public void testSlowStageFallsBackToPreviousOrder() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        Reranker slow = (query, candidates) -> {
+            try {
+                Thread.sleep(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return List.of();
+        };
+        try (RerankCascade cascade = new RerankCascade(List.of(
+                new RerankCascade.Stage("slow", slow, 10, 3, Duration.ofMillis(50))), registry)) {
+            long start = System.nanoTime();
+            List<Document> result = cascade.rerank("document", documents(10));
+            long millis = (System.nanoTime() - start) / 1_000_000;
+
+            Assertions.assertEquals(List.of("0", "1", "2"), result.stream().map(Document::getId).toList());
+            Assertions.assertTrue(millis < 500, "took " + millis + " ms");
+            Assertions.assertEquals(1, registry.get("rag.rerank.fallbacks").tag("stage", "slow").counter().count());
+        }
+    }
+
+    private static List<Document> documents(int count) {
+        List<Document> documents = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            documents.add(new Document(String.valueOf(i), "document " + i + " about topic " + (i % 3), Map.of()));
+        }
+        return documents;
+    }
+}
@@ -0,0 +1,104 @@
+package com.glmapper.ai.rag.retrieval;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.ai.document.Document;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @Classname Bm25IndexTest
+ * @Description Bm25IndexTest
+ * @Date 2025/7/6 12:00
+ * @Created by glmapper
+ */
+public class Bm25IndexTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void testTokenize() {
+        Assertions.assertEquals(List.of("ep", "20250117161524", "4knd5", "ep-20250117161524-4knd5", "模", "型", "模型"),
+                Bm25Index.tokenize("EP-20250117161524-4knd5 模型"));
+        Assertions.assertEquals(List.of("spring", "ai", "1", "0", "1.0"),
+                Bm25Index.tokenize("Spring AI 1.0."));
+    }
+
+    @Test
+    public void testExactIdentifierRanksFirst() {
+        Bm25Index index = Bm25Index.inMemory();
+        index.add(documents());
+
+        List<Bm25Index.Hit> hits = index.search("ep-20250506170049-dzjj7 是什么", 3);
+        Assertions.assertEquals("embedding", hits.get(0).document().getId());
+        Assertions.assertTrue(hits.get(0).coverage() < 1, "查询中的“是什么”不在任何文档中");
+
+        hits = index.search("ep-20250506170049-dzjj7", 3);
+        Assertions.assertEquals(1.0, hits.get(0).coverage(), 1e-9);
+        Assertions.assertTrue(index.search("kubernetes", 3).isEmpty());
+    }
+
+    @Test
+    public void testDeleteAndReplace() {
+        Bm25Index index = Bm25Index.inMemory();
+        index.add(documents());
+        index.delete(List.of("embedding"));
+        Assertions.assertTrue(index.search("dzjj7", 3).isEmpty());
+
+        index.add(List.of(new Document("chat", "milvus 默认端口 19530", Map.of())));
+        Assertions.assertEquals(2, index.size());
+        Assertions.assertTrue(index.search("4knd5", 3).isEmpty());
+        Assertions.assertEquals("chat", index.search("19530", 3).get(0).document().getId());
+    }
+
+    @Test
+    public void testReplayFromFile() {
+        Path file = this.directory.resolve("bm25.jsonl");
+        try (Bm25Index index = Bm25Index.open(file)) {
+            index.add(documents());
+            index.delete(List.of("milvus"));
+        }
+        try (Bm25Index index = Bm25Index.open(file)) {
+            Assertions.assertEquals(2, index.size());
+            Assertions.assertTrue(index.search("19530", 3).isEmpty());
+            Bm25Index.Hit hit = index.search("4knd5", 3).get(0);
+            Assertions.assertEquals("chat", hit.document().getId());
+            Assertions.assertEquals("qwen", hit.document().getMetadata().get("source"));
+        }
+    }
+
+    /**
+     * 反复替换同一批 id 时，日志中失效的记录会被压缩，文件行数不随写入次数增长
+     */
+    @Test
+    public void testReplaceCompactsLog() throws IOException {
+        Path file = this.directory.resolve("bm25.jsonl");
+        try (Bm25Index index = Bm25Index.open(file)) {
+            for (int i = 0; i < 50; i++) {
+                index.add(List.of(new Document("chat", "对话模型版本 v" + i, Map.of("source", "qwen")),
+                        new Document("embedding", "向量模型版本 v" + i, Map.of("source", "qwen"))));
+                Assertions.assertTrue(Files.readAllLines(file).size() <= 4, "日志行数不应超过存活文档数的两倍");
+            }
+            Assertions.assertEquals(2, index.search("v49", 3).size());
+            Assertions.assertTrue(index.search("v48", 3).isEmpty());
+        }
+        try (Bm25Index index = Bm25Index.open(file)) {
+            Assertions.assertEquals(2, index.size());
+            Assertions.assertTrue(index.search("v48", 3).isEmpty());
+            Assertions.assertEquals(2, index.search("v49", 3).size());
+        }
+    }
+
+    static List<Document> documents() {
+        return List.of(
+                new Document("chat", "对话模型使用 ep-20250117161524-4knd5，通过 openai 兼容接口调用", Map.of("source", "qwen")),
+                new Document("embedding", "向量模型使用 ep-20250506170049-dzjj7，维度 1536", Map.of("source", "qwen")),
+                new Document("milvus", "milvus 监听 19530 端口，集合名称为 vector_store", Map.of("source", "milvus")));
+    }
+}
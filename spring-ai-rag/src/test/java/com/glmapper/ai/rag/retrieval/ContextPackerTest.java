@@ -0,0 +1,99 @@
+package com.glmapper.ai.rag.retrieval;
+
+import com.glmapper.ai.rag.transformers.FastTokenTextSplitter;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.document.MetadataMode;
+import org.springframework.ai.tokenizer.JTokkitTokenCountEstimator;
+import org.springframework.ai.tokenizer.TokenCountEstimator;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * @Classname ContextPackerTest
+ * @Description ContextPackerTest
+ * @Date 2025/7/9 11:00
+ * @Created by glmapper
+ */
+public class ContextPackerTest {
+
+    private static final String FIRST = "Spring AI 提供了 VectorStore 接口，屏蔽了不同向量数据库的差异，写入时由 EmbeddingModel 批量计算每个文档的向量，并与文本、元数据一起保存。";
+
+    private static final String SECOND = "写入时由 EmbeddingModel 批量计算每个文档的向量，并与文本、元数据一起保存。检索时先对问题做 embedding，再按相似度返回 topK 个文档。";
+
+    private static final String OTHER = "Milvus 默认监听 19530 端口，集合需要先 load 才能检索，索引类型可以选择 HNSW 或者 IVF_FLAT。";
+
+    /**
+     * 按字符数估算 token，便于断言
+     */
+    private static final TokenCountEstimator CHARS = new JTokkitTokenCountEstimator() {
+        @Override
+        public int estimate(String text) {
+            return text.length();
+        }
+    };
+
+    @Test
+    public void testAdjacentChunksAreMerged() {
+        String text = String.join("\n", FIRST,
+                "Chunks are written with the id of the document they were split from and their position in it.",
+                "Retrieval returns chunks in relevance order, so neighbours of one passage often come back apart.",
+                "The packer puts them back together in document order before they are joined into the prompt.",
+                "Chunks from different documents are never merged, even when they share the same source.",
+                "Documents without position metadata, such as those written before it existed, are kept as they are.",
+                "Each merged passage is counted against the token budget once, with a single separator between chunks.");
+        FastTokenTextSplitter splitter = new FastTokenTextSplitter(40, 10, 5, 100, true, ForkJoinPool.commonPool());
+        List<Document> chunks = splitter.applyWithPosition(List.of(new Document("spring-0", text, Map.of("source", "spring.md"))));
+        Assertions.assertTrue(chunks.size() >= 5, "chunks: " + chunks.size());
+        for (int i = 0; i < chunks.size(); i++) {
+            Assertions.assertEquals("spring-0", chunks.get(i).getMetadata().get(FastTokenTextSplitter.METADATA_PARENT_DOCUMENT_ID));
+            Assertions.assertEquals(i, chunks.get(i).getMetadata().get(FastTokenTextSplitter.METADATA_CHUNK_INDEX));
+        }
+        Document last = chunks.get(chunks.size() - 1);
+        Document milvus = new Document("milvus", OTHER, Map.of("source", "milvus.md"));
+
+        ContextPacker packer = new ContextPacker(CHARS, 10_000, 1.0, 1.0);
+        List<Document> packed = packer.pack(List.of(chunks.get(2), milvus, chunks.get(0), last, chunks.get(1)), MetadataMode.NONE);
+        // 0、1、2 按原文顺序合并成一段，位置与 id 取最先入选的 chunk 2；不相邻的最后一个 chunk 单独成段
+        Assertions.assertEquals(List.of(chunks.get(2).getId(), "milvus", last.getId()), packed.stream().map(Document::getId).toList());
+        Assertions.assertEquals(chunks.get(0).getText() + "\n" + chunks.get(1).getText() + "\n" + chunks.get(2).getText(),
+                packed.get(0).getText());
+        Assertions.assertEquals(last.getText(), packed.get(2).getText());
+    }
+
+    @Test
+    public void testChunksWithoutPositionAreNotMerged() {
+        ContextPacker packer = new ContextPacker(CHARS, 1000, 1.0, 0.8);
+        List<Document> packed = packer.pack(List.of(
+                new Document("1", FIRST, Map.of("source", "spring.md")),
+                new Document("2", SECOND, Map.of("source", "spring.md", FastTokenTextSplitter.METADATA_CHUNK_INDEX, 1)),
+                new Document("3", OTHER, Map.of(FastTokenTextSplitter.METADATA_PARENT_DOCUMENT_ID, "milvus-0",
+                        FastTokenTextSplitter.METADATA_CHUNK_INDEX, 0))), MetadataMode.NONE);
+        Assertions.assertEquals(List.of(FIRST, SECOND, OTHER), packed.stream().map(Document::getText).toList());
+    }
+
+    @Test
+    public void testNearDuplicatesAreDropped() {
+        ContextPacker packer = new ContextPacker(CHARS, 1000, 0.7, 0.8);
+        List<Document> packed = packer.pack(List.of(
+                new Document("1", FIRST, Map.of()),
+                new Document("2", FIRST.replace("。", "！"), Map.of()),
+                new Document("3", OTHER, Map.of())), MetadataMode.NONE);
+        Assertions.assertEquals(List.of("1", "3"), packed.stream().map(Document::getId).toList());
+    }
+
+    @Test
+    public void testTokenBudget() {
+        String small = "HNSW 索引适合低延迟检索";
+        ContextPacker packer = new ContextPacker(CHARS, FIRST.length() + small.length(), 1.0, 0.8);
+        List<Document> packed = packer.pack(List.of(
+                new Document("1", FIRST, Map.of()),
+                new Document("2", OTHER, Map.of()),
+                new Document("3", small, Map.of())), MetadataMode.NONE);
+        // OTHER 放不下时跳过，继续放入后面较小的文档
+        Assertions.assertEquals(List.of("1", "3"), packed.stream().map(Document::getId).toList());
+    }
+}
@@ -0,0 +1,94 @@
+package com.glmapper.ai.rag.retrieval;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.ai.vectorstore.filter.Filter;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @Classname HybridRetrieverTest
+ * @Description HybridRetrieverTest
+ * @Date 2025/7/6 12:30
+ * @Created by glmapper
+ */
+public class HybridRetrieverTest {
+
+    @Test
+    public void testConfidentLexicalSkipsVectorSearch() {
+        FixedVectorStore vectorStore = new FixedVectorStore(List.of());
+        Bm25Index index = Bm25Index.inMemory();
+        index.add(Bm25IndexTest.documents());
+        try (HybridRetriever retriever = new HybridRetriever(vectorStore, index, 2, 10, 60, 0.9, 1.5)) {
+            List<Document> documents = retriever.retrieve("ep-20250506170049-dzjj7");
+            Assertions.assertEquals("embedding", documents.get(0).getId());
+            Assertions.assertEquals(0, vectorStore.searches.get());
+
+            // 查询中有文档里没有的词，需要向量检索
+            retriever.retrieve("向量模型的维度是多少");
+            Assertions.assertEquals(1, vectorStore.searches.get());
+        }
+    }
+
+    @Test
+    public void testReciprocalRankFusion() {
+        Document a = new Document("a", "a", Map.of());
+        Document b = new Document("b", "b", Map.of());
+        Document c = new Document("c", "c", Map.of());
+        Document d = new Document("d", "d", Map.of());
+        try (HybridRetriever retriever = new HybridRetriever(new FixedVectorStore(List.of()), Bm25Index.inMemory(), 3, 10, 60, 0.9, 1.5)) {
+            // b 在两路中都排第二，分数 2/62 高于只在一路中排第一的 a、c
+            List<Document> fused = retriever.fuse(List.of(c, b, d), List.of(a, b));
+            Assertions.assertEquals(List.of("b", "a", "c"), fused.stream().map(Document::getId).toList());
+        }
+    }
+
+    @Test
+    public void testIndexingVectorStoreKeepsIndexInSync() {
+        Bm25Index index = Bm25Index.inMemory();
+        FixedVectorStore delegate = new FixedVectorStore(List.of());
+        VectorStore vectorStore = new IndexingVectorStore(delegate, index);
+        vectorStore.add(Bm25IndexTest.documents());
+        vectorStore.delete(List.of("chat"));
+
+        Assertions.assertEquals(2, index.size());
+        Assertions.assertEquals(List.of("chat"), delegate.deleted);
+    }
+
+    private static class FixedVectorStore implements VectorStore {
+
+        private final List<Document> results;
+
+        private final AtomicInteger searches = new AtomicInteger();
+
+        private List<String> deleted = List.of();
+
+        FixedVectorStore(List<Document> results) {
+            this.results = results;
+        }
+
+        @Override
+        public void add(List<Document> documents) {
+        }
+
+        @Override
+        public void delete(List<String> idList) {
+            this.deleted = idList;
+        }
+
+        @Override
+        public void delete(Filter.Expression filterExpression) {
+        }
+
+        @Override
+        public List<Document> similaritySearch(SearchRequest request) {
+            this.searches.incrementAndGet();
+            return this.results;
+        }
+    }
+}
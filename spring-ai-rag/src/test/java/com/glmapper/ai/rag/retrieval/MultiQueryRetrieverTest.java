@@ -0,0 +1,172 @@
+package com.glmapper.ai.rag.retrieval;
+
+import com.glmapper.ai.vector.embedding.CachingEmbeddingModel;
+import com.glmapper.ai.vector.embedding.EmbeddingCache;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.ai.vectorstore.filter.Filter;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @Classname MultiQueryRetrieverTest
+ * @Description MultiQueryRetrieverTest
+ * @Date 2025/7/11 11:00
+ * @Created by glmapper
+ */
+public class MultiQueryRetrieverTest {
+
+    /**
+     * 原始问题只能检索到相似度较低的 a，改写后的问题才能检索到 b、c
+     */
+    private static final Map<String, List<Document>> RESULTS = Map.of(
+            "怎么连上库", List.of(document("a", 0.3)),
+            "如何连接 milvus", List.of(document("b", 0.9), document("a", 0.4)),
+            "milvus 客户端配置", List.of(document("c", 0.8)),
+            "milvus 的端口是多少", List.of(document("a", 0.95)));
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    public void testLowScoreTriggersExpansion() {
+        FakeChatModel chatModel = new FakeChatModel(0);
+        RecordingEmbeddingModel remote = new RecordingEmbeddingModel();
+        try (EmbeddingCache cache = EmbeddingCache.open(this.directory.resolve("cache.bin"), "model", 1, 100)) {
+            EmbeddingModel embeddingModel = new CachingEmbeddingModel(remote, cache);
+            MapVectorStore vectorStore = new MapVectorStore(embeddingModel);
+            try (HybridRetriever hybrid = new HybridRetriever(vectorStore, Bm25Index.inMemory(), 4, 10, 60, 2, 1.5);
+                 MultiQueryRetriever retriever = new MultiQueryRetriever(hybrid, vectorStore, embeddingModel, chatModel,
+                         MultiQueryRetriever.Mode.ADAPTIVE, 2, 0.6, Duration.ofSeconds(2))) {
+                List<Document> documents = retriever.retrieve("怎么连上库");
+
+                Assertions.assertEquals(1, chatModel.calls.get());
+                // 第一轮检索对原问题 embedding 一次；改写的问题只有一次批量请求，之后的检索都命中 EmbeddingCache
+                Assertions.assertEquals(List.of(List.of("怎么连上库"), List.of("如何连接 milvus", "milvus 客户端配置")), remote.requests);
+                Assertions.assertEquals(3, vectorStore.searches.get());
+                Assertions.assertEquals(List.of("a", "b", "c"), documents.stream().map(Document::getId).toList());
+
+                // 第一轮相似度足够高时不扩展
+                retriever.retrieve("milvus 的端口是多少");
+                Assertions.assertEquals(1, chatModel.calls.get());
+                Assertions.assertEquals(4, vectorStore.searches.get());
+                Assertions.assertEquals(3, remote.requests.size());
+            }
+        }
+    }
+
+    @Test
+    public void testAddedLatencyIsBounded() {
+        FakeChatModel chatModel = new FakeChatModel(2000);
+        MapVectorStore vectorStore = new MapVectorStore(new RecordingEmbeddingModel());
+        try (HybridRetriever hybrid = new HybridRetriever(vectorStore, Bm25Index.inMemory(), 4, 10, 60, 2, 1.5);
+             MultiQueryRetriever retriever = new MultiQueryRetriever(hybrid, vectorStore, new RecordingEmbeddingModel(), chatModel,
+                     MultiQueryRetriever.Mode.ALWAYS, 2, 0.6, Duration.ofMillis(100))) {
+            long start = System.nanoTime();
+            List<Document> documents = retriever.retrieve("怎么连上库");
+            long millis = (System.nanoTime() - start) / 1_000_000;
+
+            Assertions.assertEquals(List.of("a"), documents.stream().map(Document::getId).toList());
+            Assertions.assertTrue(millis < 1000, "took " + millis + " ms");
+        }
+    }
+
+    private static Document document(String id, double score) {
+        return Document.builder().id(id).text("document " + id).score(score).build();
+    }
+
+    private static class FakeChatModel implements ChatModel {
+
+        private final long latencyMillis;
+
+        private final AtomicInteger calls = new AtomicInteger();
+
+        FakeChatModel(long latencyMillis) {
+            this.latencyMillis = latencyMillis;
+        }
+
+        @Override
+        public ChatResponse call(Prompt prompt) {
+            this.calls.incrementAndGet();
+            try {
+                Thread.sleep(this.latencyMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            String content = "[\"如何连接 milvus\", \"milvus 客户端配置\", \"如何连接 milvus\"]";
+            return new ChatResponse(List.of(new Generation(new AssistantMessage(content))));
+        }
+    }
+
+    private static class RecordingEmbeddingModel implements EmbeddingModel {
+
+        private final List<List<String>> requests = new CopyOnWriteArrayList<>();
+
+        @Override
+        public EmbeddingResponse call(EmbeddingRequest request) {
+            this.requests.add(request.getInstructions());
+            List<Embedding> embeddings = new ArrayList<>();
+            for (int i = 0; i < request.getInstructions().size(); i++) {
+                embeddings.add(new Embedding(new float[]{i}, i));
+            }
+            return new EmbeddingResponse(embeddings);
+        }
+
+        @Override
+        public float[] embed(Document document) {
+            return call(new EmbeddingRequest(List.of(document.getText()), null)).getResult().getOutput();
+        }
+    }
+
+    /**
+     * 与真实的向量库一样，检索前用 embeddingModel 计算问题的 embedding
+     */
+    private static class MapVectorStore implements VectorStore {
+
+        private final EmbeddingModel embeddingModel;
+
+        private final AtomicInteger searches = new AtomicInteger();
+
+        MapVectorStore(EmbeddingModel embeddingModel) {
+            this.embeddingModel = embeddingModel;
+        }
+
+        @Override
+        public void add(List<Document> documents) {
+        }
+
+        @Override
+        public void delete(List<String> idList) {
+        }
+
+        @Override
+        public void delete(Filter.Expression filterExpression) {
+        }
+
+        @Override
+        public List<Document> similaritySearch(SearchRequest request) {
+            this.searches.incrementAndGet();
+            this.embeddingModel.embed(request.getQuery());
+            return RESULTS.getOrDefault(request.getQuery(), List.of());
+        }
+    }
+}
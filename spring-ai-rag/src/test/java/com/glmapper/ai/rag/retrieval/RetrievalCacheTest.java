@@ -0,0 +1,119 @@
+package com.glmapper.ai.rag.retrieval;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.ai.vectorstore.filter.Filter;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * @Classname RetrievalCacheTest
+ * @Description RetrievalCacheTest
+ * @Date 2025/7/7 11:00
+ * @Created by glmapper
+ */
+public class RetrievalCacheTest {
+
+    @Test
+    public void testRepeatedQuerySkipsSearch() {
+        CountingVectorStore delegate = new CountingVectorStore();
+        RetrievalCache cache = new RetrievalCache(100);
+        VectorStore vectorStore = new CachingVectorStore(delegate, cache);
+
+        List<Document> first = vectorStore.similaritySearch("milvus 端口是多少");
+        List<Document> second = vectorStore.similaritySearch("  Milvus   端口是多少 ");
+        Assertions.assertEquals(first, second);
+        Assertions.assertEquals(1, delegate.searches.get());
+        Assertions.assertEquals(1, cache.resultHits());
+
+        // topK 不同时需要重新检索
+        vectorStore.similaritySearch(SearchRequest.builder().query("milvus 端口是多少").topK(8).build());
+        Assertions.assertEquals(2, delegate.searches.get());
+    }
+
+    @Test
+    public void testWritesInvalidateResults() {
+        CountingVectorStore delegate = new CountingVectorStore();
+        RetrievalCache cache = new RetrievalCache(100);
+        VectorStore vectorStore = new CachingVectorStore(delegate, cache);
+
+        vectorStore.similaritySearch("milvus 端口是多少");
+        vectorStore.add(List.of(new Document("milvus 监听 19530 端口")));
+        vectorStore.similaritySearch("milvus 端口是多少");
+        Assertions.assertEquals(2, delegate.searches.get());
+        vectorStore.delete(List.of("a"));
+        vectorStore.similaritySearch("milvus 端口是多少");
+        Assertions.assertEquals(3, delegate.searches.get());
+        Assertions.assertEquals(2, cache.version());
+    }
+
+    @Test
+    public void testCallersCannotModifyCachedDocuments() {
+        CountingVectorStore delegate = new CountingVectorStore();
+        VectorStore vectorStore = new CachingVectorStore(delegate, new RetrievalCache(100));
+
+        List<Document> first = vectorStore.similaritySearch("milvus 端口是多少");
+        first.get(0).getMetadata().put("rrf_score", 0.5);
+        List<Document> second = vectorStore.similaritySearch("milvus 端口是多少");
+        Assertions.assertFalse(second.get(0).getMetadata().containsKey("rrf_score"), "修改检索结果不应该影响缓存");
+        Assertions.assertEquals(first.get(0).getId(), second.get(0).getId());
+        Assertions.assertEquals(0.9, second.get(0).getScore());
+
+        second.get(0).getMetadata().put("rrf_score", 0.5);
+        List<Document> third = vectorStore.similaritySearch("milvus 端口是多少");
+        Assertions.assertNotSame(second.get(0), third.get(0));
+        Assertions.assertFalse(third.get(0).getMetadata().containsKey("rrf_score"), "命中的结果之间不应该共享元数据");
+        Assertions.assertEquals(1, delegate.searches.get());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedIsEvicted() {
+        RetrievalCache cache = new RetrievalCache(2);
+        AtomicInteger calls = new AtomicInteger();
+        Supplier<List<Document>> search = () -> List.of(new Document("result-" + calls.incrementAndGet()));
+        cache.results("a", 4, 0, null, search);
+        cache.results("b", 4, 0, null, search);
+        cache.results("a", 4, 0, null, search);
+        cache.results("c", 4, 0, null, search);
+        Assertions.assertEquals(3, calls.get());
+
+        cache.results("b", 4, 0, null, search);
+        Assertions.assertEquals(4, calls.get(), "最久未访问的 b 应该被淘汰");
+        Assertions.assertEquals(1, cache.resultHits());
+    }
+
+    private static class CountingVectorStore implements VectorStore {
+
+        private final AtomicInteger searches = new AtomicInteger();
+
+        @Override
+        public void add(List<Document> documents) {
+        }
+
+        @Override
+        public void delete(List<String> idList) {
+        }
+
+        @Override
+        public void delete(Filter.Expression filterExpression) {
+        }
+
+        @Override
+        public List<Document> similaritySearch(SearchRequest request) {
+            Document document = Document.builder()
+                    .id("result-" + this.searches.incrementAndGet())
+                    .text(request.getQuery())
+                    .metadata(new HashMap<>(Map.of("source", "test.md")))
+                    .score(0.9)
+                    .build();
+            return List.of(document);
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.glmapper.ai.rag.transformers;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.document.Document;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * @Classname BatchMetadataEnricherTest
+ * @Description BatchMetadataEnricherTest
+ * @Date 2025/7/4 11:00
+ * @Created by glmapper
+ */
+public class BatchMetadataEnricherTest {
+
+    @Test
+    public void testBatchedAndCached() {
+        FakeChatModel chatModel = new FakeChatModel(0);
+        try (BatchMetadataEnricher enricher = new BatchMetadataEnricher(chatModel, 5, 4, 10_000, 2, 100)) {
+            List<Document> documents = documents("a", "b", "c", "d", "e", "f", "g", "h", "i", "j");
+            enricher.enrich(documents, true, true);
+
+            // 10 个 chunk，每次请求 4 个，共 3 次请求
+            Assertions.assertEquals(3, chatModel.calls.get());
+            Document c = documents.get(2);
+            Assertions.assertEquals("keywords of c", c.getMetadata().get(BatchMetadataEnricher.EXCERPT_KEYWORDS));
+            Assertions.assertEquals("summary of c", c.getMetadata().get(BatchMetadataEnricher.SECTION_SUMMARY));
+            Assertions.assertEquals("summary of b", c.getMetadata().get(BatchMetadataEnricher.PREV_SECTION_SUMMARY));
+            Assertions.assertEquals("summary of d", c.getMetadata().get(BatchMetadataEnricher.NEXT_SECTION_SUMMARY));
+            Assertions.assertFalse(documents.get(0).getMetadata().containsKey(BatchMetadataEnricher.PREV_SECTION_SUMMARY));
+
+            // 内容相同的 chunk 直接使用缓存
+            List<Document> again = documents("c", "a", "k");
+            enricher.enrich(again, false, true);
+            Assertions.assertEquals(4, chatModel.calls.get());
+            Assertions.assertEquals("summary of a", again.get(2).getMetadata().get(BatchMetadataEnricher.PREV_SECTION_SUMMARY));
+        }
+    }
+
+    @Test
+    public void testConcurrencyIsBounded() {
+        FakeChatModel chatModel = new FakeChatModel(50);
+        try (BatchMetadataEnricher enricher = new BatchMetadataEnricher(chatModel, 5, 1, 10_000, 3, 100)) {
+            long start = System.nanoTime();
+            enricher.enrich(documents("a", "b", "c", "d", "e", "f", "g", "h", "i"), true, false);
+            long millis = (System.nanoTime() - start) / 1_000_000;
+
+            Assertions.assertEquals(9, chatModel.calls.get());
+            Assertions.assertEquals(3, chatModel.maxInFlight.get());
+            Assertions.assertTrue(millis < 9 * 50, "9 requests x 50ms took " + millis + " ms");
+        }
+    }
+
+    @Test
+    public void testFailedBatchFallsBackToSingleChunks() {
+        FakeChatModel chatModel = new FakeChatModel(0);
+        try (BatchMetadataEnricher enricher = new BatchMetadataEnricher(chatModel, 5, 4, 10_000, 1, 100)) {
+            List<Document> documents = documents("a", "broken", "c");
+            enricher.enrich(documents, true, false);
+
+            // 一次批量请求失败，之后每个 chunk 单独请求一次
+            Assertions.assertEquals(4, chatModel.calls.get());
+            Assertions.assertEquals("keywords of broken", documents.get(1).getMetadata().get(BatchMetadataEnricher.EXCERPT_KEYWORDS));
+        }
+    }
+
+    private static List<Document> documents(String... texts) {
+        List<Document> documents = new ArrayList<>();
+        for (String text : texts) {
+            documents.add(new Document(text));
+        }
+        return documents;
+    }
+
+    /**
+     * 按提示词中的编号返回每个段落的关键词与摘要；包含 broken 的批量请求返回无法解析的内容
+     */
+    private static class FakeChatModel implements ChatModel {
+
+        private static final Pattern PASSAGE = Pattern.compile("\\[(\\d+)]\\n(\\S+)");
+
+        private final long latencyMillis;
+
+        private final AtomicInteger calls = new AtomicInteger();
+
+        private final AtomicInteger inFlight = new AtomicInteger();
+
+        private final AtomicInteger maxInFlight = new AtomicInteger();
+
+        FakeChatModel(long latencyMillis) {
+            this.latencyMillis = latencyMillis;
+        }
+
+        @Override
+        public ChatResponse call(Prompt prompt) {
+            this.calls.incrementAndGet();
+            this.maxInFlight.accumulateAndGet(this.inFlight.incrementAndGet(), Math::max);
+            try {
+                if (this.latencyMillis > 0) {
+                    Thread.sleep(this.latencyMillis);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                this.inFlight.decrementAndGet();
+            }
+            List<String> items = new ArrayList<>();
+            Matcher matcher = PASSAGE.matcher(prompt.getContents());
+            while (matcher.find()) {
+                String text = matcher.group(2);
+                items.add("{\"index\": " + matcher.group(1) + ", \"keywords\": \"keywords of " + text
+                        + "\", \"summary\": \"summary of " + text + "\"}");
+            }
+            String content = items.size() > 1 && prompt.getContents().contains("broken")
+                    ? "sorry, I cannot do that" : "[" + String.join(",", items) + "]";
+            return new ChatResponse(List.of(new Generation(new AssistantMessage(content))));
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.glmapper.ai.rag.transformers;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.transformer.splitter.TokenTextSplitter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @Classname FastTokenTextSplitterBenchmark
+ * @Description 多篇、每篇数 MB 的文本上对比 TokenTextSplitter 与 FastTokenTextSplitter 的吞吐
+ * <p>
+ * 在 IDE 中运行 main 方法即可，JMH 的注解处理器会在编译测试代码时生成基准测试类。
+ * </p>
+ * @Date 2025/7/5 11:40
+ * @Created by glmapper
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Fork(1)
+public class FastTokenTextSplitterBenchmark {
+
+    @Param({"1", "8"})
+    public int documents;
+
+    @Param({"2000000"})
+    public int charsPerDocument;
+
+    private List<Document> input;
+
+    private final TokenTextSplitter tokenTextSplitter = new TokenTextSplitter(1000, 400, 10, 5000, true);
+
+    private final FastTokenTextSplitter fastTokenTextSplitter =
+            new FastTokenTextSplitter(1000, 400, 10, 5000, true, ForkJoinPool.commonPool());
+
+    @Setup
+    public void setup() {
+        this.input = new ArrayList<>();
+        for (int i = 0; i < this.documents; i++) {
+            this.input.add(new Document(SampleTexts.generate(this.charsPerDocument, i)));
+        }
+    }
+
+    @Benchmark
+    public List<Document> tokenTextSplitter() {
+        return this.tokenTextSplitter.apply(this.input);
+    }
+
+    @Benchmark
+    public List<Document> fastTokenTextSplitter() {
+        return this.fastTokenTextSplitter.apply(this.input);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(FastTokenTextSplitterBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
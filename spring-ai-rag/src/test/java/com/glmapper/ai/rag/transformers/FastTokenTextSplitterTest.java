@@ -0,0 +1,69 @@
+package com.glmapper.ai.rag.transformers;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.transformer.splitter.TextSplitter;
+import org.springframework.ai.transformer.splitter.TokenTextSplitter;
+import org.springframework.core.io.ClassPathResource;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * @Classname FastTokenTextSplitterTest
+ * @Description 与 TokenTextSplitter 对比切分结果
+ * @Date 2025/7/5 11:20
+ * @Created by glmapper
+ */
+public class FastTokenTextSplitterTest {
+
+    @Test
+    public void testSameChunksAsTokenTextSplitter() throws IOException {
+        List<Document> documents = documents();
+        assertSameChunks(new TokenTextSplitter(1000, 400, 10, 5000, true),
+                new FastTokenTextSplitter(1000, 400, 10, 5000, true, ForkJoinPool.commonPool()), documents);
+        assertSameChunks(new TokenTextSplitter(),
+                new FastTokenTextSplitter(), documents);
+        assertSameChunks(new TokenTextSplitter(50, 20, 5, 3, false),
+                new FastTokenTextSplitter(50, 20, 5, 3, false, ForkJoinPool.commonPool()), documents);
+    }
+
+    @Test
+    public void testBlankDocument() {
+        Assertions.assertTrue(new FastTokenTextSplitter().apply(List.of(new Document(" \n\t "))).isEmpty());
+    }
+
+    private static void assertSameChunks(TextSplitter expected, TextSplitter actual, List<Document> documents) {
+        long start = System.nanoTime();
+        List<Document> expectedChunks = expected.apply(documents);
+        long expectedMillis = (System.nanoTime() - start) / 1_000_000;
+        start = System.nanoTime();
+        List<Document> actualChunks = actual.apply(documents);
+        long actualMillis = (System.nanoTime() - start) / 1_000_000;
+        System.out.println(expectedChunks.size() + " chunks, TokenTextSplitter: " + expectedMillis
+                + " ms, FastTokenTextSplitter: " + actualMillis + " ms");
+
+        Assertions.assertEquals(expectedChunks.size(), actualChunks.size());
+        for (int i = 0; i < expectedChunks.size(); i++) {
+            Assertions.assertEquals(expectedChunks.get(i).getText(), actualChunks.get(i).getText(), "chunk " + i);
+            Assertions.assertEquals(expectedChunks.get(i).getMetadata(), actualChunks.get(i).getMetadata());
+        }
+    }
+
+    private static List<Document> documents() throws IOException {
+        List<Document> documents = new ArrayList<>();
+        for (String file : List.of("files/test.md", "files/test.txt", "files/test.html", "files/test.json")) {
+            documents.add(new Document(new ClassPathResource(file).getContentAsString(StandardCharsets.UTF_8),
+                    Map.of("source", file)));
+        }
+        for (int i = 0; i < 8; i++) {
+            documents.add(new Document(SampleTexts.generate(100_000, i), Map.of("source", "generated-" + i)));
+        }
+        return documents;
+    }
+}
@@ -0,0 +1,46 @@
+package com.glmapper.ai.rag.transformers;
+
+import java.util.Random;
+
+/**
+ * @Classname SampleTexts
+ * @Description 生成中英文混合、带有各种标点与换行的测试文本
+ * @Date 2025/7/5 11:00
+ * @Created by glmapper
+ */
+final class SampleTexts {
+
+    private static final String[] SENTENCES = {
+            "Spring AI provides abstractions for chat, embedding and vector stores.",
+            "Does the splitter keep the same boundaries as the original one?",
+            "Retrieval augmented generation needs well sized chunks!",
+            "向量数据库保存了每个 chunk 的 embedding，检索时按相似度返回。",
+            "切分后的文本需要保留足够的上下文，否则模型无法回答问题？",
+            "emoji 😀 and accents café naïve façade",
+            "    indented code line with trailing spaces   ",
+            "https://docs.spring.io/spring-ai/reference/api/etl-pipeline.html",
+            "a very long line without any punctuation that keeps going and going and going and going"
+    };
+
+    private SampleTexts() {
+    }
+
+    static String generate(int chars, long seed) {
+        Random random = new Random(seed);
+        StringBuilder text = new StringBuilder(chars + 128);
+        while (text.length() < chars) {
+            text.append(SENTENCES[random.nextInt(SENTENCES.length)]);
+            int separator = random.nextInt(10);
+            if (separator < 6) {
+                text.append(' ');
+            } else if (separator < 8) {
+                text.append('\n');
+            } else if (separator < 9) {
+                text.append("\n\n");
+            } else {
+                text.append(System.lineSeparator()).append("   \t");
+            }
+        }
+        return text.toString();
+    }
+}
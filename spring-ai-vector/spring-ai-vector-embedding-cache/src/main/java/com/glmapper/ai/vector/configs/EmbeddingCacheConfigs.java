@@ -0,0 +1,43 @@
+package com.glmapper.ai.vector.configs;
+
+import com.glmapper.ai.vector.embedding.CachingEmbeddingModel;
+import com.glmapper.ai.vector.embedding.EmbeddingCache;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.openai.OpenAiEmbeddingModel;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import java.nio.file.Path;
+
+/**
+ * 自动配置的 OpenAiEmbeddingModel 仍然保留，向量库使用这里声明的 @Primary 模型，写入与检索时都会先查 embedding 缓存
+ *
+ * @Classname EmbeddingCacheConfigs
+ * @Description EmbeddingCacheConfigs
+ * @Date 2025/7/3 14:00
+ * @Created by glmapper
+ */
+@Configuration
+public class EmbeddingCacheConfigs {
+
+    /**
+     * @param dimensions 向量维度，为 0 时询问模型（模型不在已知列表中时会发起一次 embedding 请求）
+     * @param capacity   最多缓存的向量数
+     */
+    @Bean(destroyMethod = "close")
+    public EmbeddingCache embeddingCache(OpenAiEmbeddingModel embeddingModel,
+                                         @Value("${vector.embedding.cache.file:./data/embedding-cache.bin}") String file,
+                                         @Value("${spring.ai.openai.embedding.options.model}") String model,
+                                         @Value("${vector.embedding.cache.dimensions:0}") int dimensions,
+                                         @Value("${vector.embedding.cache.capacity:100000}") int capacity) {
+        return EmbeddingCache.open(Path.of(file), model, dimensions > 0 ? dimensions : embeddingModel.dimensions(), capacity);
+    }
+
+    @Bean
+    @Primary
+    public EmbeddingModel cachingEmbeddingModel(OpenAiEmbeddingModel embeddingModel, EmbeddingCache embeddingCache) {
+        return new CachingEmbeddingModel(embeddingModel, embeddingCache);
+    }
+}
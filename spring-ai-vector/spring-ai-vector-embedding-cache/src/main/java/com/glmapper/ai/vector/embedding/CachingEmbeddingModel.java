@@ -0,0 +1,119 @@
+package com.glmapper.ai.vector.embedding;
+
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.BatchingStrategy;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingOptions;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+import org.springframework.util.Assert;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @Classname CachingEmbeddingModel
+ * @Description 先查 EmbeddingCache，只把未命中的文本交给被包装的模型
+ * <p>
+ * 入库（VectorStore.add）与检索（similaritySearch 对问题做 embedding）都经过这里。
+ * 请求中指定了与缓存不同的模型或维度时不使用缓存。
+ * 单个文档与批量文档都以 {@link #content(Document)} 作为 embedding 的输入和缓存的 key，同一个文档走哪条路径得到的向量都相同。
+ * </p>
+ * @Date 2025/7/3 11:00
+ * @Created by glmapper
+ */
+public class CachingEmbeddingModel implements EmbeddingModel {
+
+    private final EmbeddingModel delegate;
+
+    private final EmbeddingCache cache;
+
+    public CachingEmbeddingModel(EmbeddingModel delegate, EmbeddingCache cache) {
+        Assert.notNull(delegate, "delegate cannot be null");
+        Assert.notNull(cache, "cache cannot be null");
+        this.delegate = delegate;
+        this.cache = cache;
+    }
+
+    @Override
+    public EmbeddingResponse call(EmbeddingRequest request) {
+        if (!cacheable(request.getOptions())) {
+            return this.delegate.call(request);
+        }
+        List<String> texts = request.getInstructions();
+        float[][] vectors = new float[texts.size()][];
+        List<Integer> missing = lookup(texts, vectors);
+        if (!missing.isEmpty()) {
+            List<String> missingTexts = missing.stream().map(texts::get).toList();
+            EmbeddingResponse response = this.delegate.call(new EmbeddingRequest(missingTexts, request.getOptions()));
+            for (int i = 0; i < missing.size(); i++) {
+                float[] vector = response.getResults().get(i).getOutput();
+                vectors[missing.get(i)] = vector;
+                this.cache.put(missingTexts.get(i), vector);
+            }
+        }
+        List<Embedding> embeddings = new ArrayList<>(texts.size());
+        for (int i = 0; i < texts.size(); i++) {
+            embeddings.add(new Embedding(vectors[i], i));
+        }
+        return new EmbeddingResponse(embeddings);
+    }
+
+    @Override
+    public float[] embed(Document document) {
+        return embed(content(document));
+    }
+
+    @Override
+    public List<float[]> embed(List<Document> documents, EmbeddingOptions options, BatchingStrategy batchingStrategy) {
+        Assert.notNull(documents, "documents cannot be null");
+        if (!cacheable(options)) {
+            return this.delegate.embed(documents, options, batchingStrategy);
+        }
+        List<String> texts = documents.stream().map(CachingEmbeddingModel::content).toList();
+        float[][] vectors = new float[texts.size()][];
+        List<Integer> missing = lookup(texts, vectors);
+        if (!missing.isEmpty()) {
+            List<Document> missingDocuments = missing.stream().map(documents::get).toList();
+            List<float[]> embedded = this.delegate.embed(missingDocuments, options, batchingStrategy);
+            for (int i = 0; i < missing.size(); i++) {
+                vectors[missing.get(i)] = embedded.get(i);
+                this.cache.put(texts.get(missing.get(i)), embedded.get(i));
+            }
+        }
+        return List.of(vectors);
+    }
+
+    @Override
+    public int dimensions() {
+        return this.cache.dimensions();
+    }
+
+    /**
+     * 与 EmbeddingModel 批量 embedding 的默认实现（以及向量库写入时）一致，使用文档的文本，不包含元数据
+     */
+    private static String content(Document document) {
+        return document.getText();
+    }
+
+    /**
+     * @return 未命中的下标，命中的向量写入 vectors
+     */
+    private List<Integer> lookup(List<String> texts, float[][] vectors) {
+        List<Integer> missing = new ArrayList<>();
+        for (int i = 0; i < texts.size(); i++) {
+            vectors[i] = this.cache.get(texts.get(i));
+            if (vectors[i] == null) {
+                missing.add(i);
+            }
+        }
+        return missing;
+    }
+
+    private boolean cacheable(EmbeddingOptions options) {
+        return options == null
+                || ((options.getModel() == null || options.getModel().equals(this.cache.model()))
+                && (options.getDimensions() == null || options.getDimensions() == this.cache.dimensions()));
+    }
+}
@@ -0,0 +1,416 @@
+package com.glmapper.ai.vector.embedding;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.util.Assert;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.stream.IntStream;
+
+/**
+ * @Classname EmbeddingCache
+ * @Description 持久化的 embedding 缓存
+ * <p>
+ * 文件由三部分组成，全部通过内存映射读写：
+ * 1、header：魔数、版本、维度、容量与模型名的哈希，与当前配置不一致时整个文件重建；
+ * 2、key 区：每个槽位 24 字节，保存 key（模型、维度与文本的 SHA-256 前 16 字节）与最近一次访问的时钟；
+ * 3、向量区：每个槽位 dimensions * 4 字节，按槽位号定长存放。
+ * 哈希索引（开放寻址）与 LRU 链表放在堆外内存中，启动时只需要顺序扫描 key 区即可重建，不读取向量。
+ * 写入槽位时先清空 key、再写向量、最后写 key，进程在任意时刻退出都不会让 key 指向写了一半的向量。
+ * </p>
+ * @Date 2025/7/3 10:10
+ * @Created by glmapper
+ */
+@Slf4j
+public class EmbeddingCache implements AutoCloseable {
+
+    private static final int MAGIC = 0x454D4243;
+
+    private static final int VERSION = 1;
+
+    private static final int HEADER_BYTES = 64;
+
+    /**
+     * key 高 8 字节、key 低 8 字节、访问时钟 8 字节
+     */
+    private static final int KEY_BYTES = 24;
+
+    /**
+     * 索引中的一项：key 高 8 字节、key 低 8 字节、槽位号 + 1（0 表示空）
+     */
+    private static final int INDEX_ENTRY_BYTES = 20;
+
+    private static final int NONE = -1;
+
+    /**
+     * 索引按两倍容量分配，容量再大时索引的字节数会超出 int 范围
+     */
+    private static final int MAX_CAPACITY = 1 << 24;
+
+    /**
+     * 单个映射区域的上限
+     */
+    private static final long MAX_SEGMENT_BYTES = 1L << 30;
+
+    private final String model;
+
+    private final int dimensions;
+
+    private final int capacity;
+
+    private final FileChannel channel;
+
+    private final MappedByteBuffer keys;
+
+    private final MappedByteBuffer[] vectors;
+
+    private final int slotsPerSegment;
+
+    private final ByteBuffer index;
+
+    private final int indexMask;
+
+    private final IntBuffer prev;
+
+    private final IntBuffer next;
+
+    private final IntBuffer free;
+
+    private int freeCount;
+
+    private int head = NONE;
+
+    private int tail = NONE;
+
+    private int size;
+
+    private long clock;
+
+    private long hits;
+
+    private long misses;
+
+    private EmbeddingCache(Path file, String model, int dimensions, int capacity) throws IOException {
+        this.model = model;
+        this.dimensions = dimensions;
+        this.capacity = capacity;
+        this.slotsPerSegment = (int) Math.max(1, MAX_SEGMENT_BYTES / vectorBytes());
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long keysOffset = HEADER_BYTES;
+        long vectorsOffset = keysOffset + (long) capacity * KEY_BYTES;
+        long fileBytes = vectorsOffset + (long) capacity * vectorBytes();
+        MappedByteBuffer header = this.channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES);
+        header.order(ByteOrder.LITTLE_ENDIAN);
+        if (!headerMatches(header)) {
+            log.info("embedding cache {} does not match model {} with {} dimensions and capacity {}, recreating it",
+                    file, model, dimensions, capacity);
+            this.channel.truncate(0);
+            header = this.channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES);
+            header.order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(0, MAGIC).putInt(4, VERSION).putInt(8, dimensions).putInt(12, capacity).putLong(16, modelHash());
+        }
+        this.keys = this.channel.map(FileChannel.MapMode.READ_WRITE, keysOffset, (long) capacity * KEY_BYTES);
+        this.keys.order(ByteOrder.LITTLE_ENDIAN);
+        int segments = (capacity + this.slotsPerSegment - 1) / this.slotsPerSegment;
+        this.vectors = new MappedByteBuffer[segments];
+        for (int i = 0; i < segments; i++) {
+            long offset = vectorsOffset + (long) i * this.slotsPerSegment * vectorBytes();
+            long length = Math.min((long) this.slotsPerSegment * vectorBytes(), fileBytes - offset);
+            this.vectors[i] = this.channel.map(FileChannel.MapMode.READ_WRITE, offset, length);
+        }
+        int indexSize = Integer.highestOneBit(Math.max(2, capacity) * 2 - 1) << 1;
+        this.index = ByteBuffer.allocateDirect(indexSize * INDEX_ENTRY_BYTES).order(ByteOrder.nativeOrder());
+        this.indexMask = indexSize - 1;
+        this.prev = ByteBuffer.allocateDirect(capacity * 4).order(ByteOrder.nativeOrder()).asIntBuffer();
+        this.next = ByteBuffer.allocateDirect(capacity * 4).order(ByteOrder.nativeOrder()).asIntBuffer();
+        this.free = ByteBuffer.allocateDirect(capacity * 4).order(ByteOrder.nativeOrder()).asIntBuffer();
+        warm();
+    }
+
+    /**
+     * @param file       缓存文件，不存在时创建
+     * @param model      embedding 模型名，参与 key 的计算
+     * @param dimensions 向量维度
+     * @param capacity   最多缓存的向量数，超出后淘汰最久未访问的向量
+     */
+    public static EmbeddingCache open(Path file, String model, int dimensions, int capacity) {
+        Assert.notNull(file, "file cannot be null");
+        Assert.hasText(model, "model cannot be empty");
+        Assert.isTrue(dimensions > 0, "dimensions must be greater than 0");
+        Assert.isTrue(capacity > 0, "capacity must be greater than 0");
+        Assert.isTrue(capacity <= MAX_CAPACITY, "capacity cannot exceed " + MAX_CAPACITY);
+        try {
+            return new EmbeddingCache(file, model, dimensions, capacity);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open embedding cache " + file, e);
+        }
+    }
+
+    /**
+     * @return 缓存的向量，没有时返回 null
+     */
+    public synchronized float[] get(String text) {
+        long[] key = key(text);
+        int slot = find(key[0], key[1]);
+        if (slot == NONE) {
+            this.misses++;
+            return null;
+        }
+        this.hits++;
+        float[] vector = new float[this.dimensions];
+        vectorBuffer(slot).asFloatBuffer().get(vector);
+        this.keys.putLong(slot * KEY_BYTES + 16, ++this.clock);
+        unlink(slot);
+        linkFirst(slot);
+        return vector;
+    }
+
+    public synchronized void put(String text, float[] vector) {
+        if (vector == null || vector.length != this.dimensions) {
+            log.warn("skip caching an embedding with {} dimensions, expected {}",
+                    vector == null ? null : vector.length, this.dimensions);
+            return;
+        }
+        long[] key = key(text);
+        if (find(key[0], key[1]) != NONE) {
+            return;
+        }
+        int slot;
+        if (this.freeCount > 0) {
+            slot = this.free.get(--this.freeCount);
+        } else {
+            slot = this.tail;
+            remove(this.keys.getLong(slot * KEY_BYTES), this.keys.getLong(slot * KEY_BYTES + 8));
+            unlink(slot);
+            this.size--;
+        }
+        int offset = slot * KEY_BYTES;
+        this.keys.putLong(offset, 0).putLong(offset + 8, 0);
+        vectorBuffer(slot).asFloatBuffer().put(vector);
+        this.keys.putLong(offset + 16, ++this.clock).putLong(offset + 8, key[1]).putLong(offset, key[0]);
+        insert(key[0], key[1], slot);
+        linkFirst(slot);
+        this.size++;
+    }
+
+    public synchronized int size() {
+        return this.size;
+    }
+
+    public synchronized long hits() {
+        return this.hits;
+    }
+
+    public synchronized long misses() {
+        return this.misses;
+    }
+
+    public String model() {
+        return this.model;
+    }
+
+    public int dimensions() {
+        return this.dimensions;
+    }
+
+    public synchronized void flush() {
+        this.keys.force();
+        for (MappedByteBuffer segment : this.vectors) {
+            segment.force();
+        }
+    }
+
+    @Override
+    public void close() {
+        flush();
+        try {
+            this.channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * 顺序扫描 key 区，重建索引，并按访问时钟恢复 LRU 顺序
+     */
+    private void warm() {
+        long start = System.nanoTime();
+        long[] ticks = new long[this.capacity];
+        int[] slots = new int[this.capacity];
+        int count = 0;
+        for (int slot = this.capacity - 1; slot >= 0; slot--) {
+            int offset = slot * KEY_BYTES;
+            long hi = this.keys.getLong(offset);
+            long lo = this.keys.getLong(offset + 8);
+            if ((hi == 0 && lo == 0) || find(hi, lo) != NONE) {
+                this.free.put(this.freeCount++, slot);
+                continue;
+            }
+            insert(hi, lo, slot);
+            ticks[count] = this.keys.getLong(offset + 16);
+            slots[count++] = slot;
+        }
+        // 从最久未访问到最近访问依次放到链表头部
+        for (int slot : sortByTick(ticks, slots, count)) {
+            linkFirst(slot);
+            this.clock = Math.max(this.clock, this.keys.getLong(slot * KEY_BYTES + 16));
+        }
+        this.size = count;
+        log.info("embedding cache warmed with {} of {} entries in {} ms", count, this.capacity,
+                (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private static int[] sortByTick(long[] ticks, int[] slots, int count) {
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+        for (int i = 0; i < count; i++) {
+            min = Math.min(min, ticks[i]);
+            max = Math.max(max, ticks[i]);
+        }
+        if (count > 0 && max - min >= Integer.MAX_VALUE) {
+            return IntStream.range(0, count).boxed()
+                    .sorted(Comparator.comparingLong(i -> ticks[i]))
+                    .mapToInt(i -> slots[i])
+                    .toArray();
+        }
+        // 时钟跨度在 int 范围内时打包成 long 排序，避免装箱
+        long[] packed = new long[count];
+        for (int i = 0; i < count; i++) {
+            packed[i] = (ticks[i] - min) << 32 | slots[i];
+        }
+        Arrays.sort(packed);
+        int[] sorted = new int[count];
+        for (int i = 0; i < count; i++) {
+            sorted[i] = (int) packed[i];
+        }
+        return sorted;
+    }
+
+    private int find(long hi, long lo) {
+        for (int i = home(hi); ; i = (i + 1) & this.indexMask) {
+            int base = i * INDEX_ENTRY_BYTES;
+            int slot = this.index.getInt(base + 16) - 1;
+            if (slot == NONE) {
+                return NONE;
+            }
+            if (this.index.getLong(base) == hi && this.index.getLong(base + 8) == lo) {
+                return slot;
+            }
+        }
+    }
+
+    private void insert(long hi, long lo, int slot) {
+        int i = home(hi);
+        while (this.index.getInt(i * INDEX_ENTRY_BYTES + 16) != 0) {
+            i = (i + 1) & this.indexMask;
+        }
+        int base = i * INDEX_ENTRY_BYTES;
+        this.index.putLong(base, hi).putLong(base + 8, lo).putInt(base + 16, slot + 1);
+    }
+
+    /**
+     * 线性探测的删除：把后面受影响的项前移，不使用墓碑
+     */
+    private void remove(long hi, long lo) {
+        int i = home(hi);
+        while (this.index.getLong(i * INDEX_ENTRY_BYTES) != hi || this.index.getLong(i * INDEX_ENTRY_BYTES + 8) != lo) {
+            i = (i + 1) & this.indexMask;
+        }
+        int hole = i;
+        for (int j = (hole + 1) & this.indexMask; this.index.getInt(j * INDEX_ENTRY_BYTES + 16) != 0; j = (j + 1) & this.indexMask) {
+            int home = home(this.index.getLong(j * INDEX_ENTRY_BYTES));
+            if (((j - home) & this.indexMask) >= ((j - hole) & this.indexMask)) {
+                this.index.put(hole * INDEX_ENTRY_BYTES, this.index.slice(j * INDEX_ENTRY_BYTES, INDEX_ENTRY_BYTES), 0, INDEX_ENTRY_BYTES);
+                hole = j;
+            }
+        }
+        this.index.putInt(hole * INDEX_ENTRY_BYTES + 16, 0);
+    }
+
+    private int home(long hi) {
+        return (int) (hi ^ (hi >>> 32)) & this.indexMask;
+    }
+
+    private void linkFirst(int slot) {
+        this.prev.put(slot, NONE);
+        this.next.put(slot, this.head);
+        if (this.head != NONE) {
+            this.prev.put(this.head, slot);
+        }
+        this.head = slot;
+        if (this.tail == NONE) {
+            this.tail = slot;
+        }
+    }
+
+    private void unlink(int slot) {
+        int p = this.prev.get(slot);
+        int n = this.next.get(slot);
+        if (p == NONE) {
+            this.head = n;
+        } else {
+            this.next.put(p, n);
+        }
+        if (n == NONE) {
+            this.tail = p;
+        } else {
+            this.prev.put(n, p);
+        }
+    }
+
+    private ByteBuffer vectorBuffer(int slot) {
+        int segment = slot / this.slotsPerSegment;
+        int offset = (slot % this.slotsPerSegment) * vectorBytes();
+        return this.vectors[segment].slice(offset, vectorBytes()).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private int vectorBytes() {
+        return this.dimensions * 4;
+    }
+
+    /**
+     * 模型名、维度与文本一起参与哈希，取前 16 字节，低位固定为 1 以区分空槽位
+     */
+    private long[] key(String text) {
+        MessageDigest digest = sha256();
+        digest.update(this.model.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+        digest.update(Integer.toString(this.dimensions).getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+        ByteBuffer hash = ByteBuffer.wrap(digest.digest(String.valueOf(text).getBytes(StandardCharsets.UTF_8)));
+        return new long[]{hash.getLong(0), hash.getLong(8) | 1};
+    }
+
+    private long modelHash() {
+        return ByteBuffer.wrap(sha256().digest(this.model.getBytes(StandardCharsets.UTF_8))).getLong(0);
+    }
+
+    private boolean headerMatches(ByteBuffer header) {
+        return header.getInt(0) == MAGIC && header.getInt(4) == VERSION && header.getInt(8) == this.dimensions
+                && header.getInt(12) == this.capacity && header.getLong(16) == modelHash();
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
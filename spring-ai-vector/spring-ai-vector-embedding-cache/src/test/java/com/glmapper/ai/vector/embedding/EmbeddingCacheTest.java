@@ -0,0 +1,123 @@
+package com.glmapper.ai.vector.embedding;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+import org.springframework.ai.embedding.TokenCountBatchingStrategy;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * @Classname EmbeddingCacheTest
+ * @Description EmbeddingCacheTest
+ * @Date 2025/7/3 11:30
+ * @Created by glmapper
+ */
+public class EmbeddingCacheTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void testLeastRecentlyUsedIsEvicted() {
+        try (EmbeddingCache cache = EmbeddingCache.open(this.directory.resolve("cache.bin"), "model", 4, 3)) {
+            cache.put("a", vector(1));
+            cache.put("b", vector(2));
+            cache.put("c", vector(3));
+            Assertions.assertNotNull(cache.get("a"));
+            cache.put("d", vector(4));
+
+            Assertions.assertNull(cache.get("b"), "最久未访问的 b 应该被淘汰");
+            Assertions.assertEquals(1f, cache.get("a")[0]);
+            Assertions.assertEquals(4f, cache.get("d")[3]);
+            Assertions.assertEquals(3, cache.size());
+        }
+    }
+
+    @Test
+    public void testEntriesAndOrderSurviveRestart() {
+        Path file = this.directory.resolve("cache.bin");
+        try (EmbeddingCache cache = EmbeddingCache.open(file, "model", 4, 3)) {
+            cache.put("a", vector(1));
+            cache.put("b", vector(2));
+            cache.put("c", vector(3));
+            cache.get("a");
+        }
+        try (EmbeddingCache cache = EmbeddingCache.open(file, "model", 4, 3)) {
+            Assertions.assertEquals(3, cache.size());
+            cache.put("d", vector(4));
+            Assertions.assertNull(cache.get("b"));
+            Assertions.assertEquals(1f, cache.get("a")[0]);
+            Assertions.assertEquals(3f, cache.get("c")[0]);
+        }
+        // 模型变化后缓存整体失效
+        try (EmbeddingCache cache = EmbeddingCache.open(file, "another-model", 4, 3)) {
+            Assertions.assertEquals(0, cache.size());
+            Assertions.assertNull(cache.get("a"));
+        }
+    }
+
+    @Test
+    public void testOnlyMissesReachTheModel() {
+        RecordingEmbeddingModel model = new RecordingEmbeddingModel();
+        try (EmbeddingCache cache = EmbeddingCache.open(this.directory.resolve("cache.bin"), "model", 4, 100)) {
+            EmbeddingModel embeddingModel = new CachingEmbeddingModel(model, cache);
+            List<float[]> first = embeddingModel.embed(List.of(new Document("x"), new Document("y")), null, new TokenCountBatchingStrategy());
+            List<float[]> second = embeddingModel.embed(List.of(new Document("y"), new Document("z"), new Document("x")), null, new TokenCountBatchingStrategy());
+            float[] query = embeddingModel.embed("z");
+
+            Assertions.assertEquals(List.of(List.of("x", "y"), List.of("z")), model.requests);
+            Assertions.assertArrayEquals(first.get(1), second.get(0));
+            Assertions.assertArrayEquals(first.get(0), second.get(2));
+            Assertions.assertArrayEquals(second.get(1), query);
+            Assertions.assertEquals(3, cache.hits());
+        }
+    }
+
+    @Test
+    public void testSingleAndBatchShareKeys() {
+        RecordingEmbeddingModel model = new RecordingEmbeddingModel();
+        try (EmbeddingCache cache = EmbeddingCache.open(this.directory.resolve("cache.bin"), "model", 4, 100)) {
+            EmbeddingModel embeddingModel = new CachingEmbeddingModel(model, cache);
+            Document document = new Document("x", Map.of("source", "a.md"));
+            List<float[]> batch = embeddingModel.embed(List.of(document), null, new TokenCountBatchingStrategy());
+            float[] single = embeddingModel.embed(document);
+
+            Assertions.assertEquals(List.of(List.of("x")), model.requests, "带元数据的文档单独 embedding 时也应该命中缓存");
+            Assertions.assertArrayEquals(batch.get(0), single);
+        }
+    }
+
+    private static float[] vector(float value) {
+        return new float[]{value, 0f, 0f, value};
+    }
+
+    private static class RecordingEmbeddingModel implements EmbeddingModel {
+
+        private final List<List<String>> requests = new CopyOnWriteArrayList<>();
+
+        @Override
+        public EmbeddingResponse call(EmbeddingRequest request) {
+            this.requests.add(request.getInstructions());
+            List<Embedding> embeddings = new ArrayList<>();
+            for (int i = 0; i < request.getInstructions().size(); i++) {
+                embeddings.add(new Embedding(vector(request.getInstructions().get(i).charAt(0)), i));
+            }
+            return new EmbeddingResponse(embeddings);
+        }
+
+        @Override
+        public float[] embed(Document document) {
+            return call(new EmbeddingRequest(List.of(document.getText()), null)).getResult().getOutput();
+        }
+    }
+}